@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.benchmark;
+
+import com.oculusinfo.ml.feature.bagofwords.centroid.BagOfWordsCentroid;
+import com.oculusinfo.ml.feature.bagofwords.distance.CosineDistance;
+import com.oculusinfo.ml.feature.numeric.centroid.MeanNumericVectorCentroid;
+import com.oculusinfo.ml.feature.numeric.distance.EuclideanDistance;
+import com.oculusinfo.ml.feature.semantic.centroid.SemanticCentroid;
+import com.oculusinfo.ml.feature.semantic.distance.Concept;
+import com.oculusinfo.ml.feature.semantic.distance.WuPalmerDistance;
+import com.oculusinfo.ml.feature.spatial.centroid.GeoSpatialCentroid;
+import com.oculusinfo.ml.feature.spatial.centroid.TrackCentroid;
+import com.oculusinfo.ml.feature.spatial.distance.HaversineDistance;
+import com.oculusinfo.ml.feature.spatial.distance.TrackDistance;
+import com.oculusinfo.ml.feature.string.centroid.StringMedianCentroid;
+import com.oculusinfo.ml.feature.string.distance.EditDistance;
+import com.oculusinfo.ml.feature.temporal.centroid.TemporalCentroid;
+import com.oculusinfo.ml.feature.temporal.distance.TemporalDistance;
+import com.oculusinfo.ml.unsupervised.cluster.BaseClusterer;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+import com.oculusinfo.ml.unsupervised.cluster.dpmeans.DPMeans;
+import com.oculusinfo.ml.unsupervised.cluster.kmeans.KMeans;
+import com.oculusinfo.ml.unsupervised.cluster.threshold.ThresholdClusterer;
+
+import java.util.UUID;
+
+/***
+ * Factory methods for the clusterers under benchmark.
+ *
+ * Each clusterer is registered with the distance function and centroid matching every
+ * feature in the synthetic feature mix (see {@link SyntheticData}).  All features are
+ * weighted equally so that the ensemble distance stays in the range [0, 1].
+ *
+ */
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class BenchmarkClusterers {
+
+	public static ThresholdClusterer createThresholdClusterer(String featureMix, Concept taxonomy, double threshold) {
+		ThresholdClusterer clusterer = new ThresholdClusterer() {
+			@Override
+			protected Cluster createCluster() {
+				return new Cluster(UUID.randomUUID().toString(), getTypeDefs(), onlineUpdate);
+			}
+		};
+		clusterer.setThreshold(threshold);
+		registerFeatureTypes(clusterer, featureMix, taxonomy);
+		return clusterer;
+	}
+
+	public static KMeans createKMeans(String featureMix, Concept taxonomy, int k, int maxIterations) {
+		KMeans clusterer = new KMeans(k, maxIterations, false) {
+			@Override
+			protected Cluster createCluster() {
+				return new Cluster(UUID.randomUUID().toString(), getTypeDefs(), onlineUpdate);
+			}
+		};
+		registerFeatureTypes(clusterer, featureMix, taxonomy);
+		return clusterer;
+	}
+
+	public static DPMeans createDPMeans(String featureMix, Concept taxonomy, double threshold, int maxIterations) {
+		DPMeans clusterer = new DPMeans(maxIterations, false) {
+			@Override
+			protected Cluster createCluster() {
+				return new Cluster(UUID.randomUUID().toString(), getTypeDefs(), onlineUpdate);
+			}
+		};
+		clusterer.setThreshold(threshold);
+		registerFeatureTypes(clusterer, featureMix, taxonomy);
+		return clusterer;
+	}
+
+	/***
+	 * Register the distance function and centroid for each feature in the feature mix
+	 *
+	 * @param clusterer the clusterer to configure
+	 * @param featureMix '+' separated list of synthetic feature names
+	 * @param taxonomy concept taxonomy used by semantic features
+	 */
+	public static void registerFeatureTypes(BaseClusterer clusterer, String featureMix, Concept taxonomy) {
+		String[] features = featureMix.split("\\+");
+		double weight = 1.0 / features.length;
+
+		for (String feature : features) {
+			switch (feature) {
+			case SyntheticData.NUMERIC:
+				clusterer.registerFeatureType(feature, MeanNumericVectorCentroid::new, new EuclideanDistance(weight));
+				break;
+			case SyntheticData.GEO:
+				clusterer.registerFeatureType(feature, GeoSpatialCentroid::new, new HaversineDistance(weight));
+				break;
+			case SyntheticData.STRING:
+				clusterer.registerFeatureType(feature, StringMedianCentroid::new, new EditDistance(weight));
+				break;
+			case SyntheticData.WORDS:
+				clusterer.registerFeatureType(feature, BagOfWordsCentroid::new, new CosineDistance(weight));
+				break;
+			case SyntheticData.TIME:
+				clusterer.registerFeatureType(feature, TemporalCentroid::new, new TemporalDistance(weight));
+				break;
+			case SyntheticData.CONCEPT:
+				clusterer.registerFeatureType(feature, SemanticCentroid::new, new WuPalmerDistance(taxonomy, weight));
+				break;
+			case SyntheticData.TRACK:
+				clusterer.registerFeatureType(feature, TrackCentroid::new, new TrackDistance(weight));
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown synthetic feature: " + feature);
+			}
+		}
+	}
+}
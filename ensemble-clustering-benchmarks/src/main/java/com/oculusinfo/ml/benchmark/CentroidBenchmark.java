@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.benchmark;
+
+import com.oculusinfo.ml.centroid.Centroid;
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.bagofwords.centroid.BagOfWordsCentroid;
+import com.oculusinfo.ml.feature.numeric.centroid.MeanNumericVectorCentroid;
+import com.oculusinfo.ml.feature.semantic.centroid.SemanticCentroid;
+import com.oculusinfo.ml.feature.spatial.centroid.FastGeoSpatialCentroid;
+import com.oculusinfo.ml.feature.spatial.centroid.GeoSpatialCentroid;
+import com.oculusinfo.ml.feature.spatial.centroid.TrackCentroid;
+import com.oculusinfo.ml.feature.string.centroid.StringMedianCentroid;
+import com.oculusinfo.ml.feature.temporal.centroid.TemporalCentroid;
+import com.oculusinfo.ml.feature.temporal.centroid.TemporalMinMaxCentroid;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Micro-benchmarks of the Centroid add, remove and getCentroid paths.
+ *
+ * Each trial pre-loads the centroid with clusterSize members so getCentroid is measured
+ * against a realistically sized cluster.  The add and remove benchmarks are paired so the
+ * centroid size stays constant across invocations.
+ *
+ * Run with: java -jar target/benchmarks.jar CentroidBenchmark
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class CentroidBenchmark {
+	private static final int POOL_SIZE = 1024;
+
+	@Param({"numeric", "geo", "fastgeo", "string", "words", "time", "timeminmax", "concept", "track"})
+	public String centroid;
+
+	@Param({"10", "1000"})
+	public int clusterSize;
+
+	private Centroid target;
+	private Feature[] pool;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		String feature;
+		switch (centroid) {
+		case "numeric":		target = new MeanNumericVectorCentroid(); feature = SyntheticData.NUMERIC; break;
+		case "geo":			target = new GeoSpatialCentroid(); feature = SyntheticData.GEO; break;
+		case "fastgeo":		target = new FastGeoSpatialCentroid(); feature = SyntheticData.GEO; break;
+		case "string":		target = new StringMedianCentroid(); feature = SyntheticData.STRING; break;
+		case "words":		target = new BagOfWordsCentroid(); feature = SyntheticData.WORDS; break;
+		case "time":		target = new TemporalCentroid(); feature = SyntheticData.TIME; break;
+		case "timeminmax":	target = new TemporalMinMaxCentroid(); feature = SyntheticData.TIME; break;
+		case "concept":		target = new SemanticCentroid(); feature = SyntheticData.CONCEPT; break;
+		case "track":		target = new TrackCentroid(); feature = SyntheticData.TRACK; break;
+		default: throw new IllegalArgumentException("Unknown centroid: " + centroid);
+		}
+		target.setName(feature);
+
+		// a single latent cluster so members resemble each other as they would after clustering
+		SyntheticData data = new SyntheticData(feature, 1, 42);
+		pool = new Feature[POOL_SIZE];
+		for (int i = 0; i < POOL_SIZE; i++) {
+			pool[i] = data.createFeature(feature);
+		}
+		for (int i = 0; i < clusterSize; i++) {
+			target.add(data.createFeature(feature));
+		}
+	}
+
+	@Benchmark
+	public Centroid addRemove() {
+		Feature f = pool[next++ & (POOL_SIZE - 1)];
+		target.add(f);
+		target.remove(f);
+		return target;
+	}
+
+	@Benchmark
+	public Feature getCentroid() {
+		return target.getCentroid();
+	}
+
+	@Benchmark
+	public Feature addThenGetCentroid() {
+		Feature f = pool[next++ & (POOL_SIZE - 1)];
+		target.add(f);
+		Feature c = target.getCentroid();
+		target.remove(f);
+		return c;
+	}
+}
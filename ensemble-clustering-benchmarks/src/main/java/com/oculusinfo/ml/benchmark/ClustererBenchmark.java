@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.benchmark;
+
+import com.oculusinfo.ml.DataSet;
+import com.oculusinfo.ml.unsupervised.cluster.ClusterResult;
+import com.oculusinfo.ml.unsupervised.cluster.dpmeans.DPMeans;
+import com.oculusinfo.ml.unsupervised.cluster.kmeans.KMeans;
+import com.oculusinfo.ml.unsupervised.cluster.threshold.ThresholdClusterer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/***
+ * End to end benchmarks of the clusterers over synthetic data.
+ *
+ * Each invocation clusters the full data set, so scores are reported as the
+ * average time per clustering run.
+ *
+ * Run with: java -jar target/benchmarks.jar ClustererBenchmark
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@SuppressWarnings("rawtypes")
+public class ClustererBenchmark {
+
+	@Param({"1000", "10000"})
+	public int instances;
+
+	@Param({"geo", "string", "geo+string", "geo+string+words+time"})
+	public String featureMix;
+
+	@Param({"10", "100"})
+	public int clusters;
+
+	@Param({"0.2"})
+	public double threshold;
+
+	@Param({"5"})
+	public int maxIterations;
+
+	@Param({"instance", "columnar"})
+	public String storage;
+
+	private DataSet ds;
+	private ThresholdClusterer thresholdClusterer;
+	private KMeans kmeans;
+	private KMeans acceleratedKMeans;
+	private DPMeans dpmeans;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		SyntheticData data = new SyntheticData(featureMix, clusters, 42);
+		ds = "columnar".equals(storage) ? data.createColumnarDataSet(instances) : data.createDataSet(instances);
+
+		thresholdClusterer = BenchmarkClusterers.createThresholdClusterer(featureMix, data.getTaxonomy(), threshold);
+		kmeans = BenchmarkClusterers.createKMeans(featureMix, data.getTaxonomy(), clusters, maxIterations);
+		acceleratedKMeans = BenchmarkClusterers.createKMeans(featureMix, data.getTaxonomy(), clusters, maxIterations);
+		acceleratedKMeans.setAccelerated(true);
+		dpmeans = BenchmarkClusterers.createDPMeans(featureMix, data.getTaxonomy(), threshold, maxIterations);
+
+		thresholdClusterer.init();
+		kmeans.init();
+		acceleratedKMeans.init();
+		dpmeans.init();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		thresholdClusterer.terminate();
+		kmeans.terminate();
+		acceleratedKMeans.terminate();
+		dpmeans.terminate();
+	}
+
+	@Benchmark
+	public ClusterResult thresholdClusterer() {
+		return thresholdClusterer.doCluster(ds);
+	}
+
+	@Benchmark
+	public ClusterResult kmeans() {
+		return kmeans.doCluster(ds);
+	}
+
+	@Benchmark
+	public ClusterResult acceleratedKMeans() {
+		return acceleratedKMeans.doCluster(ds);
+	}
+
+	@Benchmark
+	public ClusterResult dpmeans() {
+		return dpmeans.doCluster(ds);
+	}
+}
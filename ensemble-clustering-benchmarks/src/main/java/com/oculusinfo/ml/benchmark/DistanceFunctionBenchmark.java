@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.benchmark;
+
+import com.oculusinfo.ml.distance.DistanceFunction;
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.bagofwords.distance.CosineDistance;
+import com.oculusinfo.ml.feature.numeric.distance.EuclideanDistance;
+import com.oculusinfo.ml.feature.semantic.distance.WuPalmerDistance;
+import com.oculusinfo.ml.feature.spatial.distance.HaversineDistance;
+import com.oculusinfo.ml.feature.spatial.distance.TrackDistance;
+import com.oculusinfo.ml.feature.string.distance.EditDistance;
+import com.oculusinfo.ml.feature.temporal.distance.TemporalDistance;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Micro-benchmarks of the feature distance functions.
+ *
+ * A pool of feature pairs is generated up front and the benchmark cycles through it so
+ * that results are not dominated by a single, cache resident pair.
+ *
+ * Run with: java -jar target/benchmarks.jar DistanceFunctionBenchmark
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class DistanceFunctionBenchmark {
+	private static final int POOL_SIZE = 1024;
+
+	@Param({"string", "words", "geo", "time", "concept", "track", "numeric"})
+	public String feature;
+
+	@Param({"16"})
+	public int clusters;
+
+	private Object[] xs;
+	private Object[] ys;
+	private DistanceFunction distFunc;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		SyntheticData data = new SyntheticData(feature, clusters, 42);
+
+		xs = new Object[POOL_SIZE];
+		ys = new Object[POOL_SIZE];
+		for (int i = 0; i < POOL_SIZE; i++) {
+			xs[i] = operand(data.createFeature(feature));
+			ys[i] = operand(data.createFeature(feature));
+		}
+
+		switch (feature) {
+		case SyntheticData.STRING:	distFunc = new EditDistance(1.0); break;
+		case SyntheticData.WORDS:	distFunc = new CosineDistance(1.0); break;
+		case SyntheticData.GEO:		distFunc = new HaversineDistance(1.0); break;
+		case SyntheticData.TIME:	distFunc = new TemporalDistance(1.0); break;
+		case SyntheticData.CONCEPT:	distFunc = new WuPalmerDistance(data.getTaxonomy(), 1.0); break;
+		case SyntheticData.TRACK:	distFunc = new TrackDistance(1.0); break;
+		case SyntheticData.NUMERIC:	distFunc = new EuclideanDistance(1.0); break;
+		default: throw new IllegalArgumentException("Unknown synthetic feature: " + feature);
+		}
+	}
+
+	// the numeric euclidean distance operates directly on the vector values
+	private Object operand(Feature f) {
+		return SyntheticData.NUMERIC.equals(feature) ? f.getValue() : f;
+	}
+
+	@Benchmark
+	public double distance() {
+		int i = next++ & (POOL_SIZE - 1);
+		return distFunc.distance(xs[i], ys[i]);
+	}
+}
@@ -0,0 +1,315 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.benchmark;
+
+import com.oculusinfo.geometry.geodesic.Position;
+import com.oculusinfo.geometry.geodesic.PositionCalculationParameters;
+import com.oculusinfo.geometry.geodesic.PositionCalculationType;
+import com.oculusinfo.geometry.geodesic.Track;
+import com.oculusinfo.geometry.geodesic.tracks.SphericalTrack;
+import com.oculusinfo.ml.DataSet;
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.columnar.ColumnarDataSet;
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.bagofwords.BagOfWordsFeature;
+import com.oculusinfo.ml.feature.semantic.SemanticFeature;
+import com.oculusinfo.ml.feature.semantic.distance.Concept;
+import com.oculusinfo.ml.feature.spatial.GeoSpatialFeature;
+import com.oculusinfo.ml.feature.spatial.TrackFeature;
+import com.oculusinfo.ml.feature.string.StringFeature;
+import com.oculusinfo.ml.feature.temporal.TemporalFeature;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/***
+ * Generator of reproducible synthetic data sets for benchmarking.
+ *
+ * Instances are drawn around a fixed number of latent cluster centres so that clusterers
+ * have real structure to find.  The features generated for each instance are controlled by a
+ * feature mix string such as "numeric", "geo+string" or "geo+string+words+time" where each
+ * token selects one of the feature names defined below.
+ *
+ * The same seed always produces the same data.
+ *
+ */
+public class SyntheticData {
+	public static final String NUMERIC = "numeric";
+	public static final String GEO = "geo";
+	public static final String STRING = "string";
+	public static final String WORDS = "words";
+	public static final String TIME = "time";
+	public static final String CONCEPT = "concept";
+	public static final String TRACK = "track";
+
+	private static final String[] SYLLABLES = {"al", "be", "cor", "da", "el", "fa", "gar", "hu", "is", "jo",
+											   "ka", "lo", "mar", "ne", "or", "pa", "qui", "ro", "sa", "tor"};
+	private static final int NUMERIC_DIMENSIONS = 8;
+	private static final int VOCABULARY_SIZE = 2000;
+	private static final int WORDS_PER_DOCUMENT = 20;
+	private static final int TAXONOMY_FANOUT = 6;
+	private static final int TAXONOMY_DEPTH = 5;
+	private static final long DAY_MS = 86400000L;
+
+	private final Random rnd;
+	private final int numClusters;
+	private final String[] mix;
+
+	private final double[][] numericCentres;
+	private final double[][] geoCentres;
+	private final String[] nameCentres;
+	private final int[][] vocabCentres;
+	private final long[] timeCentres;
+	private final String[] conceptCentres;
+
+	private final Concept taxonomy;
+	private final List<String> conceptNames = new ArrayList<>();
+
+	/***
+	 * Create a generator.
+	 *
+	 * @param featureMix '+' separated list of feature names to generate for every instance
+	 * @param numClusters the number of latent clusters the instances are drawn from
+	 * @param seed the random seed
+	 */
+	public SyntheticData(String featureMix, int numClusters, long seed) {
+		this.rnd = new Random(seed);
+		this.numClusters = Math.max(1, numClusters);
+		this.mix = featureMix.split("\\+");
+
+		this.taxonomy = createTaxonomy();
+
+		numericCentres = new double[this.numClusters][NUMERIC_DIMENSIONS];
+		geoCentres = new double[this.numClusters][2];
+		nameCentres = new String[this.numClusters];
+		vocabCentres = new int[this.numClusters][WORDS_PER_DOCUMENT * 2];
+		timeCentres = new long[this.numClusters];
+		conceptCentres = new String[this.numClusters];
+
+		long epoch = 1356998400000L;  // 2013-01-01
+		for (int c = 0; c < this.numClusters; c++) {
+			for (int d = 0; d < NUMERIC_DIMENSIONS; d++) {
+				numericCentres[c][d] = rnd.nextDouble() * 100.0;
+			}
+			geoCentres[c][0] = rnd.nextDouble() * 140 - 70;
+			geoCentres[c][1] = rnd.nextDouble() * 360 - 180;
+			nameCentres[c] = randomName(2 + rnd.nextInt(3)) + " " + randomName(2 + rnd.nextInt(4));
+			for (int w = 0; w < vocabCentres[c].length; w++) {
+				vocabCentres[c][w] = rnd.nextInt(VOCABULARY_SIZE);
+			}
+			timeCentres[c] = epoch + (long)(rnd.nextDouble() * 365 * DAY_MS);
+			conceptCentres[c] = conceptNames.get(rnd.nextInt(conceptNames.size()));
+		}
+	}
+
+	/***
+	 * Return the concept taxonomy used to generate semantic features
+	 * @return the root concept
+	 */
+	public Concept getTaxonomy() {
+		return taxonomy;
+	}
+
+	/***
+	 * Generate a DataSet of size instances.
+	 *
+	 * @param size the number of instances to generate
+	 * @return the DataSet
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public DataSet createDataSet(int size) {
+		DataSet ds = new DataSet();
+		for (int i = 0; i < size; i++) {
+			ds.add(createInstance("i" + i));
+		}
+		return ds;
+	}
+
+	/***
+	 * Generate a ColumnarDataSet of size instances with a column registered for each feature in the mix.
+	 *
+	 * @param size the number of instances to generate
+	 * @return the DataSet
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public ColumnarDataSet createColumnarDataSet(int size) {
+		ColumnarDataSet ds = new ColumnarDataSet();
+		for (String feature : mix) {
+			switch (feature) {
+			case NUMERIC: ds.registerNumericVectorFeature(NUMERIC, NUMERIC_DIMENSIONS); break;
+			case GEO: ds.registerGeoSpatialFeature(GEO); break;
+			case STRING: ds.registerStringFeature(STRING); break;
+			case WORDS: ds.registerBagOfWordsFeature(WORDS); break;
+			case TIME: ds.registerTemporalFeature(TIME); break;
+			default: break;  // stored as objects
+			}
+		}
+		for (int i = 0; i < size; i++) {
+			ds.add(createInstance("i" + i));
+		}
+		ds.trimToSize();
+		return ds;
+	}
+
+	/***
+	 * Generate a single instance drawn from a random latent cluster
+	 *
+	 * @param id the id of the new instance
+	 * @return the Instance
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public Instance createInstance(String id) {
+		int c = rnd.nextInt(numClusters);
+		Instance inst = new Instance(id);
+		for (String feature : mix) {
+			inst.add(createFeature(feature, c));
+		}
+		return inst;
+	}
+
+	/***
+	 * Generate a single feature drawn from a random latent cluster
+	 *
+	 * @param feature the feature name to generate
+	 * @return the Feature
+	 */
+	@SuppressWarnings("rawtypes")
+	public Feature createFeature(String feature) {
+		return createFeature(feature, rnd.nextInt(numClusters));
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private Feature createFeature(String feature, int c) {
+		switch (feature) {
+		case NUMERIC: {
+			double[] v = new double[NUMERIC_DIMENSIONS];
+			for (int d = 0; d < v.length; d++) {
+				v[d] = numericCentres[c][d] + rnd.nextGaussian() * 5.0;
+			}
+			return new Feature(NUMERIC, v);
+		}
+		case GEO: {
+			GeoSpatialFeature geo = new GeoSpatialFeature(GEO);
+			geo.setValue(geoCentres[c][0] + rnd.nextGaussian(), geoCentres[c][1] + rnd.nextGaussian());
+			geo.setWeight(1.0);
+			return geo;
+		}
+		case STRING: {
+			StringFeature name = new StringFeature(STRING);
+			name.setValue(mutate(nameCentres[c]));
+			return name;
+		}
+		case WORDS: {
+			BagOfWordsFeature words = new BagOfWordsFeature(WORDS);
+			int[] vocab = vocabCentres[c];
+			for (int w = 0; w < WORDS_PER_DOCUMENT; w++) {
+				int term = rnd.nextDouble() < 0.8 ? vocab[rnd.nextInt(vocab.length)] : rnd.nextInt(VOCABULARY_SIZE);
+				words.incrementValue("w" + term);
+			}
+			return words;
+		}
+		case TIME: {
+			TemporalFeature time = new TemporalFeature(TIME);
+			long start = timeCentres[c] + (long)(rnd.nextGaussian() * 3 * DAY_MS);
+			long end = start + (long)(rnd.nextDouble() * 5 * DAY_MS);
+			time.setValue(new Date(start), new Date(end));
+			time.setWeight(1.0);
+			return time;
+		}
+		case CONCEPT: {
+			SemanticFeature concept = new SemanticFeature();
+			String name = rnd.nextDouble() < 0.7 ? conceptCentres[c] : conceptNames.get(rnd.nextInt(conceptNames.size()));
+			concept.setValue(name, "http://example.org/" + name);
+			return concept;
+		}
+		case TRACK: {
+			TrackFeature track = new TrackFeature(TRACK);
+			track.setValue(createTrack(geoCentres[c][0], geoCentres[c][1]));
+			track.setWeight(1.0);
+			return track;
+		}
+		default:
+			throw new IllegalArgumentException("Unknown synthetic feature: " + feature);
+		}
+	}
+
+	private Track createTrack(double lat, double lon) {
+		PositionCalculationParameters params = new PositionCalculationParameters(PositionCalculationType.Spherical, 0.0001, 0.000001, false);
+		int n = 10 + rnd.nextInt(20);
+		List<Position> points = new ArrayList<>(n);
+		double heading = rnd.nextDouble() * 2 * Math.PI;
+		double plat = lat + rnd.nextGaussian() * 0.5;
+		double plon = lon + rnd.nextGaussian() * 0.5;
+		for (int i = 0; i < n; i++) {
+			points.add(new Position(plon, plat));
+			heading += rnd.nextGaussian() * 0.2;
+			plat = Math.max(-80, Math.min(80, plat + Math.sin(heading) * 0.1));
+			plon = plon + Math.cos(heading) * 0.1;
+		}
+		return new SphericalTrack(params, points);
+	}
+
+	private String randomName(int syllables) {
+		StringBuilder str = new StringBuilder();
+		for (int i = 0; i < syllables; i++) {
+			str.append(SYLLABLES[rnd.nextInt(SYLLABLES.length)]);
+		}
+		return str.toString();
+	}
+
+	// apply a few random typos to a name
+	private String mutate(String name) {
+		StringBuilder str = new StringBuilder(name);
+		int edits = rnd.nextInt(3);
+		for (int i = 0; i < edits && str.length() > 1; i++) {
+			int pos = rnd.nextInt(str.length());
+			switch (rnd.nextInt(3)) {
+			case 0: str.deleteCharAt(pos); break;
+			case 1: str.insert(pos, (char)('a' + rnd.nextInt(26))); break;
+			default: str.setCharAt(pos, (char)('a' + rnd.nextInt(26))); break;
+			}
+		}
+		return str.toString();
+	}
+
+	private Concept createTaxonomy() {
+		Concept root = new Concept("Thing");
+		conceptNames.add(root.getName());
+		addChildren(root, 1);
+		return root;
+	}
+
+	private void addChildren(Concept parent, int depth) {
+		if (depth >= TAXONOMY_DEPTH) return;
+		for (int i = 0; i < TAXONOMY_FANOUT; i++) {
+			Concept child = new Concept(parent.getName() + "." + i, parent);
+			parent.addChild(child);
+			conceptNames.add(child.getName());
+			addChildren(child, depth + 1);
+		}
+	}
+}
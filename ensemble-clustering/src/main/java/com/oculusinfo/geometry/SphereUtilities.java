@@ -125,6 +125,14 @@ public class SphereUtilities {
         return getDistance(a.getLongitudeRadians(), HALF_PI-a.getLatitudeRadians(),
                            b.getLongitudeRadians(), HALF_PI-b.getLatitudeRadians());
     }
+    /**
+     * Get the angular distance from A to B, from their cached unit vectors
+     * 
+     * @return The angular distance from A to B, in radians
+     */
+    public static double getDistance (SphericalPosition a, SphericalPosition b) {
+        return a.getAngle(b);
+    }
 
     /**
      * Get the angle ABC (i.e., the angle at point B between the lines BA and
@@ -229,12 +237,10 @@ public class SphereUtilities {
         return new Vector(thetaFromUnitVector(result), phiFromUnitVector(result));
     }
     public static Position interpolate (Position a, Position b, double t) {
-        Vector result = SphereUtilities.interpolate(a.getLongitudeRadians(), HALF_PI-a.getLatitudeRadians(),
-                                                    b.getLongitudeRadians(), HALF_PI-b.getLatitudeRadians(),
-                                                    t);
-        Position p = new Position(Math.toDegrees(result.coord(0)),
-                                  Math.toDegrees(HALF_PI-result.coord(1)));
-        p.setPrecision(a.getPrecision());
-        return p;
+        return interpolate(SphericalPosition.fromPosition(a),
+                           SphericalPosition.fromPosition(b), t).toPosition(a.getPrecision());
+    }
+    public static SphericalPosition interpolate (SphericalPosition a, SphericalPosition b, double t) {
+        return a.interpolate(b, t);
     }
 }
@@ -0,0 +1,300 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.geometry;
+
+import com.oculusinfo.geometry.geodesic.Position;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * A compact, immutable point on the unit sphere.
+ * 
+ * Unlike {@link Position}, which keeps polar and cartesian {@link
+ * com.oculusinfo.math.linearalgebra.Vector}s and converts between them on the
+ * WGS84 ellipsoid, a spherical position is a handful of doubles: the
+ * longitude and latitude, their sines and cosines, and the unit vector they
+ * describe, all calculated once on construction. Distances and
+ * interpolations between spherical positions therefore need no further trig
+ * beyond the final angle, and no intermediate objects.
+ * 
+ * The unit vector uses the same axes as {@link SphereUtilities}: X towards
+ * (0 deg N, 0 deg E), Y towards (0 deg N, 90 deg E) and Z towards the north
+ * pole.
+ */
+public final class SphericalPosition implements Serializable {
+    private static final long serialVersionUID = 6405370722585262047L;
+
+    private final double _longitude;
+    private final double _latitude;
+    private final double _sinLon;
+    private final double _cosLon;
+    private final double _sinLat;
+    private final double _cosLat;
+    private final double _x;
+    private final double _y;
+    private final double _z;
+
+    /**
+     * @param longitude
+     *            The longitude of the position, in degrees
+     * @param latitude
+     *            The latitude of the position, in degrees
+     */
+    public SphericalPosition (double longitude, double latitude) {
+        _longitude = longitude;
+        _latitude = latitude;
+        double lon = Math.toRadians(longitude);
+        double lat = Math.toRadians(latitude);
+        _sinLon = Math.sin(lon);
+        _cosLon = Math.cos(lon);
+        _sinLat = Math.sin(lat);
+        _cosLat = Math.cos(lat);
+        _x = _cosLat*_cosLon;
+        _y = _cosLat*_sinLon;
+        _z = _sinLat;
+    }
+
+    /*
+     * Create a position from a unit vector, whose trig values are simple
+     * ratios of its coordinates.
+     */
+    private SphericalPosition (double x, double y, double z, double xyLength) {
+        _x = x;
+        _y = y;
+        _z = z;
+        _cosLat = xyLength;
+        _sinLat = z;
+        if (xyLength > 0) {
+            _cosLon = x/xyLength;
+            _sinLon = y/xyLength;
+        } else {
+            _cosLon = 1.0;
+            _sinLon = 0.0;
+        }
+        _longitude = Math.toDegrees(Math.atan2(y, x));
+        _latitude = Math.toDegrees(Math.atan2(z, xyLength));
+    }
+
+    /**
+     * Create a position from a vector, which is normalized onto the unit
+     * sphere.
+     */
+    public static SphericalPosition fromVector (double x, double y, double z) {
+        double length = Math.sqrt(x*x+y*y+z*z);
+        if (0 == length)
+            throw new IllegalArgumentException("Can't place the zero vector on the sphere");
+        x /= length;
+        y /= length;
+        z /= length;
+        return new SphericalPosition(x, y, z, Math.sqrt(x*x+y*y));
+    }
+
+    public static SphericalPosition fromPosition (Position p) {
+        return new SphericalPosition(p.getLongitude(), p.getLatitude());
+    }
+
+    public Position toPosition (double precision) {
+        Position p = new Position(_longitude, _latitude);
+        p.setPrecision(precision);
+        return p;
+    }
+
+    public double getLongitude () {
+        return _longitude;
+    }
+
+    public double getLatitude () {
+        return _latitude;
+    }
+
+    public double getLongitudeRadians () {
+        return Math.toRadians(_longitude);
+    }
+
+    public double getLatitudeRadians () {
+        return Math.toRadians(_latitude);
+    }
+
+    public double getSinLongitude () {
+        return _sinLon;
+    }
+
+    public double getCosLongitude () {
+        return _cosLon;
+    }
+
+    public double getSinLatitude () {
+        return _sinLat;
+    }
+
+    public double getCosLatitude () {
+        return _cosLat;
+    }
+
+    public double getX () {
+        return _x;
+    }
+
+    public double getY () {
+        return _y;
+    }
+
+    public double getZ () {
+        return _z;
+    }
+
+    /**
+     * Get the cosine of the angle between this position and the other, which
+     * is the dot product of their unit vectors
+     */
+    public double getCosAngle (SphericalPosition p) {
+        return _x*p._x+_y*p._y+_z*p._z;
+    }
+
+    /**
+     * Get the angular distance between this position and the other. Unlike
+     * the acos of {@link #getCosAngle}, this is accurate for both tiny and
+     * nearly antipodal angles.
+     * 
+     * @return The angular distance, in radians
+     */
+    public double getAngle (SphericalPosition p) {
+        double cx = _y*p._z-_z*p._y;
+        double cy = _z*p._x-_x*p._z;
+        double cz = _x*p._y-_y*p._x;
+        return Math.atan2(Math.sqrt(cx*cx+cy*cy+cz*cz), getCosAngle(p));
+    }
+
+    /**
+     * Interpolate along the great circle from this position to the other,
+     * using SLERP (Spherical Linear intERPolation)
+     * 
+     * @param t
+     *            The proportion of the way to p desired. t=0 returns this, t=1
+     *            returns p.
+     */
+    public SphericalPosition interpolate (SphericalPosition p, double t) {
+        double omega = getAngle(p);
+        double sinOmega = Math.sin(omega);
+        double coeffA, coeffB;
+        if (sinOmega < 1E-12) {
+            coeffA = 1-t;
+            coeffB = t;
+        } else {
+            coeffA = Math.sin((1-t)*omega)/sinOmega;
+            coeffB = Math.sin(t*omega)/sinOmega;
+        }
+        return fromVector(coeffA*_x+coeffB*p._x, coeffA*_y+coeffB*p._y, coeffA*_z+coeffB*p._z);
+    }
+
+
+
+    // ////////////////////////////////////////////////////////////////////////
+    // Section: Batch conversions
+    //
+    /**
+     * Convert a list of positions to spherical positions
+     */
+    public static SphericalPosition[] fromPositions (List<Position> positions) {
+        SphericalPosition[] result = new SphericalPosition[positions.size()];
+        for (int i=0; i<result.length; ++i)
+            result[i] = fromPosition(positions.get(i));
+        return result;
+    }
+
+    /**
+     * Convert parallel arrays of longitudes and latitudes, in degrees, to
+     * spherical positions
+     */
+    public static SphericalPosition[] fromDegrees (double[] longitudes, double[] latitudes) {
+        if (longitudes.length != latitudes.length)
+            throw new IllegalArgumentException("Longitudes and latitudes must be the same length");
+        SphericalPosition[] result = new SphericalPosition[longitudes.length];
+        for (int i=0; i<result.length; ++i)
+            result[i] = new SphericalPosition(longitudes[i], latitudes[i]);
+        return result;
+    }
+
+    /**
+     * Write the unit vector of a longitude and latitude, in degrees, to out,
+     * starting at offset, without creating a position
+     */
+    public static void toUnitVector (double longitude, double latitude, double[] out, int offset) {
+        double lon = Math.toRadians(longitude);
+        double lat = Math.toRadians(latitude);
+        double cosLat = Math.cos(lat);
+        out[offset] = cosLat*Math.cos(lon);
+        out[offset+1] = cosLat*Math.sin(lon);
+        out[offset+2] = Math.sin(lat);
+    }
+
+    /**
+     * Convert parallel arrays of longitudes and latitudes, in degrees, to a
+     * flat array of unit vectors, three coordinates per point
+     */
+    public static double[] toUnitVectors (double[] longitudes, double[] latitudes) {
+        if (longitudes.length != latitudes.length)
+            throw new IllegalArgumentException("Longitudes and latitudes must be the same length");
+        double[] result = new double[3*longitudes.length];
+        for (int i=0; i<longitudes.length; ++i)
+            toUnitVector(longitudes[i], latitudes[i], result, 3*i);
+        return result;
+    }
+
+    /**
+     * Convert a list of positions to a flat array of unit vectors, three
+     * coordinates per point
+     */
+    public static double[] toUnitVectors (List<Position> positions) {
+        double[] result = new double[3*positions.size()];
+        for (int i=0; i<positions.size(); ++i) {
+            Position p = positions.get(i);
+            toUnitVector(p.getLongitude(), p.getLatitude(), result, 3*i);
+        }
+        return result;
+    }
+
+
+
+    @Override
+    public boolean equals (Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof SphericalPosition)) return false;
+        SphericalPosition p = (SphericalPosition) obj;
+        return _longitude == p._longitude && _latitude == p._latitude;
+    }
+
+    @Override
+    public int hashCode () {
+        long bits = Double.doubleToLongBits(_longitude)*31 + Double.doubleToLongBits(_latitude);
+        return (int) (bits ^ (bits >>> 32));
+    }
+
+    @Override
+    public String toString () {
+        return "[" + _longitude + ", " + _latitude + "]";
+    }
+}
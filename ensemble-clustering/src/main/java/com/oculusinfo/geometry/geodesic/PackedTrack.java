@@ -0,0 +1,411 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.geometry.geodesic;
+
+import com.oculusinfo.geometry.SphericalPosition;
+import com.oculusinfo.math.linearalgebra.Vector;
+
+import java.util.List;
+
+/**
+ * A read-only copy of a track's points and length parameterization, stored
+ * in flat primitive arrays so that the distance between two tracks can be
+ * integrated in a single merged sweep of both parameterizations, without
+ * boxing parameters or allocating intermediate {@link Position}s.
+ * 
+ * Points are embedded in the coordinate space of a {@link Geometry}, in which
+ * the segment distance and interpolation of the corresponding {@link Track}
+ * type can be computed directly.
+ * 
+ * Each packed track also keeps a bounding ball (a spherical cap for the
+ * spherical geometries) and the maximum rate at which it moves per unit of
+ * parameterization, from which cheap lower bounds on track distances are
+ * derived.
+ */
+public final class PackedTrack {
+    /**
+     * The primitive form of the segment distance and interpolation of a
+     * track type.
+     */
+    public enum Geometry {
+        /** Longitude and latitude treated as plane coordinates */
+        Planar (2, Double.POSITIVE_INFINITY) {
+            @Override
+            void embed (Position p, double[] out, int offset) {
+                out[offset] = p.getLongitude();
+                out[offset+1] = p.getLatitude();
+            }
+        },
+        /** Earth centered cartesian coordinates, in meters */
+        Cartesian (3, Double.POSITIVE_INFINITY) {
+            @Override
+            void embed (Position p, double[] out, int offset) {
+                Vector v = p.getAsCartesian();
+                out[offset] = v.coord(0);
+                out[offset+1] = v.coord(1);
+                out[offset+2] = v.coord(2);
+            }
+        },
+        /** Great circle distance in radians on the unit sphere */
+        SphericalRadians (3, Math.PI/2) {
+            @Override
+            void embed (Position p, double[] out, int offset) {
+                embedUnit(p, out, offset);
+            }
+
+            @Override
+            double distance (double[] a, int i, double[] b, int j) {
+                return angle(a, i, b, j);
+            }
+
+            @Override
+            void interpolate (double[] c, int i, int j, double t, double[] out) {
+                slerp(c, i, j, t, out);
+            }
+        },
+        /** Great circle distance in degrees on the unit sphere */
+        SphericalDegrees (3, 90.0) {
+            @Override
+            void embed (Position p, double[] out, int offset) {
+                embedUnit(p, out, offset);
+            }
+
+            @Override
+            double distance (double[] a, int i, double[] b, int j) {
+                return Math.toDegrees(angle(a, i, b, j));
+            }
+
+            @Override
+            void interpolate (double[] c, int i, int j, double t, double[] out) {
+                slerp(c, i, j, t, out);
+            }
+        };
+
+        private final int    _dimension;
+        // The largest bounding ball radius that still contains the segments
+        // between any of its points; caps of a hemisphere or more are not
+        // convex
+        private final double _maxRadius;
+
+        private Geometry (int dimension, double maxRadius) {
+            _dimension = dimension;
+            _maxRadius = maxRadius;
+        }
+
+        public int getDimension () {
+            return _dimension;
+        }
+
+        /** Write the coordinates of p into out, starting at offset */
+        abstract void embed (Position p, double[] out, int offset);
+
+        /** Get the distance between the points starting at a[i] and b[j] */
+        double distance (double[] a, int i, double[] b, int j) {
+            double sum = 0.0;
+            for (int k=0; k<_dimension; ++k) {
+                double d = a[i+k]-b[j+k];
+                sum += d*d;
+            }
+            return Math.sqrt(sum);
+        }
+
+        /**
+         * Interpolate 100*t percent of the way from the point starting at
+         * c[i] to the one starting at c[j], writing the result to out
+         */
+        void interpolate (double[] c, int i, int j, double t, double[] out) {
+            for (int k=0; k<_dimension; ++k)
+                out[k] = (1-t)*c[i+k]+t*c[j+k];
+        }
+
+        private static void embedUnit (Position p, double[] out, int offset) {
+            SphericalPosition.toUnitVector(p.getLongitude(), p.getLatitude(), out, offset);
+        }
+
+        // The angle between two unit vectors; atan2 is stable for both small
+        // and nearly antipodal angles, unlike acos of the dot product
+        private static double angle (double[] a, int i, double[] b, int j) {
+            double ax = a[i], ay = a[i+1], az = a[i+2];
+            double bx = b[j], by = b[j+1], bz = b[j+2];
+            double cx = ay*bz-az*by;
+            double cy = az*bx-ax*bz;
+            double cz = ax*by-ay*bx;
+            double dot = ax*bx+ay*by+az*bz;
+            return Math.atan2(Math.sqrt(cx*cx+cy*cy+cz*cz), dot);
+        }
+
+        // Spherical linear interpolation, matching great circle offsets
+        private static void slerp (double[] c, int i, int j, double t, double[] out) {
+            double omega = angle(c, i, c, j);
+            double sinOmega = Math.sin(omega);
+            double coeffA, coeffB;
+            if (sinOmega < 1E-12) {
+                coeffA = 1-t;
+                coeffB = t;
+            } else {
+                coeffA = Math.sin((1-t)*omega)/sinOmega;
+                coeffB = Math.sin(t*omega)/sinOmega;
+            }
+            for (int k=0; k<3; ++k)
+                out[k] = coeffA*c[i+k]+coeffB*c[j+k];
+        }
+    }
+
+
+
+    private final Geometry _geometry;
+    private final double[] _coordinates;
+    private final double[] _parameterization;
+    private final double   _precision;
+    private final double   _length;
+    private final double[] _center;
+    private final double   _radius;
+    private final double   _speed;
+
+    public PackedTrack (Geometry geometry, List<Position> points,
+                        List<Double> parameterization, double precision,
+                        double length) {
+        int n = points.size();
+        int dimension = geometry.getDimension();
+        _geometry = geometry;
+        _coordinates = new double[n*dimension];
+        _parameterization = new double[n];
+        _precision = precision;
+        _length = length;
+
+        for (int i=0; i<n; ++i) {
+            geometry.embed(points.get(i), _coordinates, i*dimension);
+            _parameterization[i] = parameterization.get(i);
+        }
+
+        // The points move linearly in distance along each segment, so the
+        // fastest segment bounds how far the track moves per unit parameter
+        double speed = 0.0;
+        for (int i=0; i<n-1; ++i) {
+            double segment = geometry.distance(_coordinates, i*dimension, _coordinates, (i+1)*dimension);
+            double span = _parameterization[i+1] - _parameterization[i];
+            if (segment > 0)
+                speed = Math.max(speed, (span > 0 ? segment/span : Double.POSITIVE_INFINITY));
+        }
+        _speed = speed;
+
+        // Bound the points by a ball around their mean
+        _center = new double[dimension];
+        for (int i=0; i<n; ++i)
+            for (int k=0; k<dimension; ++k)
+                _center[k] += _coordinates[i*dimension+k]/n;
+        double radius = 0.0;
+        if (!Double.isInfinite(geometry._maxRadius)) {
+            // project back onto the unit sphere
+            double norm = 0.0;
+            for (int k=0; k<dimension; ++k) norm += _center[k]*_center[k];
+            norm = Math.sqrt(norm);
+            if (norm < 1E-12) radius = Double.POSITIVE_INFINITY;
+            else for (int k=0; k<dimension; ++k) _center[k] /= norm;
+        }
+        for (int i=0; i<n && radius < geometry._maxRadius; ++i)
+            radius = Math.max(radius, geometry.distance(_center, 0, _coordinates, i*dimension));
+        _radius = (radius < geometry._maxRadius ? radius : Double.POSITIVE_INFINITY);
+    }
+
+    public Geometry getGeometry () {
+        return _geometry;
+    }
+
+    public int size () {
+        return _parameterization.length;
+    }
+
+    public double getLength () {
+        return _length;
+    }
+
+    /**
+     * Get the distance between this track and another of the same geometry,
+     * integrated over their length parameterizations, as described by
+     * {@link Track#getDistance(Track)}.
+     * 
+     * The two parameterizations are merged on the fly, in the same way as
+     * ListUtilities.joinLists, and each track keeps a cursor on its current
+     * segment, so the whole calculation is linear in the number of points.
+     * The distance at each parameter is the start distance of the next
+     * interval, so it is only calculated once.
+     */
+    public double getDistance (PackedTrack them) {
+        if (_geometry != them._geometry)
+            throw new IllegalArgumentException("Tracks must share a geometry");
+
+        int dimension = _geometry.getDimension();
+        double[] A = _parameterization;
+        double[] B = them._parameterization;
+        int NA = A.length;
+        int NB = B.length;
+        if (0 == NA || 0 == NB) return 0.0;
+
+        double epsilon = _precision;
+        double[] ourPoint = new double[dimension];
+        double[] theirPoint = new double[dimension];
+
+        int nA = 0, nB = 0;           // merge positions
+        int segA = 0, segB = 0;       // segment cursors
+        double a = A[0], b = B[0];
+        boolean first = true;
+        double dLast = 0.0;
+        double startDistance = 0.0;
+        double totalDistance = 0.0;
+
+        while (nA < NA || nB < NB) {
+            double d;
+            if (Math.abs(a-b) < epsilon) {
+                d = (a+b)/2;
+                while (nA < NA && Math.abs(a-A[nA]) < epsilon) ++nA;
+                a = (nA < NA ? A[nA] : Double.MAX_VALUE);
+                while (nB < NB && Math.abs(b-B[nB]) < epsilon) ++nB;
+                b = (nB < NB ? B[nB] : Double.MAX_VALUE);
+            } else if (a < b) {
+                d = a;
+                ++nA;
+                a = (nA < NA ? A[nA] : Double.MAX_VALUE);
+            } else {
+                d = b;
+                ++nB;
+                b = (nB < NB ? B[nB] : Double.MAX_VALUE);
+            }
+
+            segA = seek(d, segA);
+            segB = them.seek(d, segB);
+            double endDistance = _geometry.distance(point(d, segA, ourPoint), 0,
+                                                    them.point(d, segB, theirPoint), 0);
+            if (!first) {
+                totalDistance += (startDistance + endDistance) / 2 * (d - dLast);
+            }
+
+            first = false;
+            dLast = d;
+            startDistance = endDistance;
+        }
+
+        return totalDistance / ((_length + them._length) / 2.0);
+    }
+
+    /**
+     * Get a lower bound on {@link #getDistance(PackedTrack)}, or on the
+     * distance to the reverse of them, that costs a handful of point
+     * distances.
+     * 
+     * Two bounds are combined:
+     * <ul>
+     * <li>The tracks never come closer than the gap between their bounding
+     * balls.</li>
+     * <li>The distance between the tracks at parameter t can change by at
+     * most the sum of their speeds per unit t, so the distances between
+     * their start and end points bound it from below by two cones.  As this
+     * bound is convex, the trapezoidal integration of the real distance can
+     * not fall below its integral.</li>
+     * </ul>
+     * Both bounds are zero when the tracks overlap, so they only help to
+     * reject pairs of tracks that are obviously far apart.
+     * 
+     * @param them the other track, of the same geometry
+     * @param reversed true for a bound on the distance to the reverse of
+     *            them
+     * @return a value no greater than the track distance
+     */
+    public double getDistanceLowerBound (PackedTrack them, boolean reversed) {
+        if (_geometry != them._geometry)
+            throw new IllegalArgumentException("Tracks must share a geometry");
+
+        double norm = (_length + them._length) / 2.0;
+        int NA = size();
+        int NB = them.size();
+        if (norm <= 0 || 0 == NA || 0 == NB) return 0.0;
+
+        int dimension = _geometry.getDimension();
+        double gap = _geometry.distance(_center, 0, them._center, 0) - _radius - them._radius;
+
+        int theirStart = (reversed ? NB-1 : 0) * dimension;
+        int theirEnd = (reversed ? 0 : NB-1) * dimension;
+        double slope = _speed + them._speed;
+        // evaluated parameters may snap to points within the precision
+        double slack = slope * _precision;
+        double d0 = _geometry.distance(_coordinates, 0, them._coordinates, theirStart) - slack;
+        double d1 = _geometry.distance(_coordinates, (NA-1)*dimension, them._coordinates, theirEnd) - slack;
+        double cones = coneIntegral(Math.max(d0, 0.0), Math.max(d1, 0.0), slope);
+
+        return Math.max(Math.max(gap, cones), 0.0) / norm;
+    }
+
+    /*
+     * The integral over [0, 1] of max(0, d0 - slope*t, d1 - slope*(1-t))
+     */
+    private static double coneIntegral (double d0, double d1, double slope) {
+        if (0 == slope) return Math.min(d0, d1);
+        if (Double.isInfinite(slope)) return 0.0;
+        if (d0 + d1 <= slope) return (d0*d0 + d1*d1) / (2*slope);
+
+        // the cones cross above zero at t
+        double t = Math.min(1.0, Math.max(0.0, (d0 - d1 + slope) / (2*slope)));
+        double u = 1-t;
+        return d0*t - slope*t*t/2 + d1*u - slope*u*u/2;
+    }
+
+    /*
+     * Advance a segment cursor to the last point whose parameter is not
+     * greater than d
+     */
+    private int seek (double d, int segment) {
+        int last = _parameterization.length - 1;
+        while (segment < last && _parameterization[segment+1] <= d)
+            ++segment;
+        return segment;
+    }
+
+    /*
+     * Get the point at parameter d within the given segment, snapping to the
+     * segment ends within our precision like
+     * Track.getLengthParamterizedPoint.
+     */
+    private double[] point (double d, int segment, double[] out) {
+        if (d < 0.0 || 1.0 < d)
+            throw new IllegalArgumentException("Length paramterization parameter must be between 0 and 1");
+
+        int dimension = _geometry.getDimension();
+        double startD = _parameterization[segment];
+        if (segment == _parameterization.length - 1 || Math.abs(d - startD) < _precision) {
+            System.arraycopy(_coordinates, segment*dimension, out, 0, dimension);
+            return out;
+        }
+
+        double endD = _parameterization[segment+1];
+        if (Math.abs(d - endD) < _precision) {
+            System.arraycopy(_coordinates, (segment+1)*dimension, out, 0, dimension);
+            return out;
+        }
+
+        _geometry.interpolate(_coordinates, segment*dimension, (segment+1)*dimension,
+                              (d - startD) / (endD - startD), out);
+        return out;
+    }
+}
@@ -39,6 +39,7 @@ abstract public class Track {
     private double                        _length;
     private Track                         _reverse;
     private ObjectDoubleHashMap<String> _statistics;
+    private volatile PackedTrack          _packed;
 
     protected Track (PositionCalculationParameters parameters, Position... points) {
         this(parameters, Arrays.asList(points));
@@ -129,6 +130,7 @@ abstract public class Track {
     protected void updatePoints (List<Position> points, List<Double> parameterization) {
         _points = points;
         _parameterization = parameterization;
+        _packed = null;
     }
 
     /*
@@ -164,6 +166,29 @@ abstract public class Track {
      */
     abstract protected double getRelativeError (Position a, Position b, Position c);
     
+    /**
+     * Get the primitive form of {@link #getSegmentDistance} and
+     * {@link #interpolate} for this type of track, or null if it has none, in
+     * which case track distances are calculated with Positions.
+     */
+    protected PackedTrack.Geometry getPackedGeometry () {
+        return null;
+    }
+
+    /** Get the points and parameterization of this track in primitive arrays */
+    public PackedTrack getPacked () {
+        PackedTrack packed = _packed;
+        if (null == packed) {
+            PackedTrack.Geometry geometry = getPackedGeometry();
+            if (null == geometry) return null;
+            // Tracks are immutable once built, so a racing build is harmless
+            packed = new PackedTrack(geometry, _points, _parameterization,
+                                     _parameters.getPrecision(), _length);
+            _packed = packed;
+        }
+        return packed;
+    }
+
     /** Create a track of the current type from the listed points */
     abstract protected Track createTrack (List<Position> points);
     /** Create a track of the current type from the listed points, whose parameterization is already calculated. */
@@ -218,7 +243,37 @@ abstract public class Track {
         }
     }
 
+    /**
+     * Get a cheap lower bound on {@link #getDistance(Track)}, from the
+     * distances between the track end points and their bounding balls, see
+     * {@link PackedTrack#getDistanceLowerBound(PackedTrack, boolean)}.
+     * 
+     * @return a value no greater than the distance to them, or 0 if no bound
+     *         is available for these tracks
+     */
+    public double getDistanceLowerBound (Track them) {
+        PackedTrack ourPacked = getPacked();
+        PackedTrack theirPacked = them.getPacked();
+        if (null == ourPacked || null == theirPacked
+            || ourPacked.getGeometry() != theirPacked.getGeometry()) {
+            return 0.0;
+        }
+
+        double bound = ourPacked.getDistanceLowerBound(theirPacked, false);
+        // the distance may be to either direction of them
+        if (_parameters.ignoreDirection())
+            bound = Math.min(bound, ourPacked.getDistanceLowerBound(theirPacked, true));
+        return bound;
+    }
+
     private double getDistanceWithDirection (Track them) {
+        PackedTrack ourPacked = getPacked();
+        PackedTrack theirPacked = them.getPacked();
+        if (null != ourPacked && null != theirPacked
+            && ourPacked.getGeometry() == theirPacked.getGeometry()) {
+            return ourPacked.getDistance(theirPacked);
+        }
+
         List<Double> ourParameterization = getParameterization();
         List<Double> theirParameterization = them.getParameterization();
         List<Double> joinedParameterization = ListUtilities.joinLists(ourParameterization,
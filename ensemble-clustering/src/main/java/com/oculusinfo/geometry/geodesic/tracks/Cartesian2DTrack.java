@@ -24,6 +24,7 @@
  */
 package com.oculusinfo.geometry.geodesic.tracks;
 
+import com.oculusinfo.geometry.geodesic.PackedTrack;
 import com.oculusinfo.geometry.geodesic.Position;
 import com.oculusinfo.geometry.geodesic.PositionCalculationParameters;
 import com.oculusinfo.geometry.geodesic.PositionCalculationType;
@@ -97,6 +98,11 @@ public class Cartesian2DTrack extends Track {
         return lbPerp/lac;
     }
 
+    @Override
+    protected PackedTrack.Geometry getPackedGeometry () {
+        return PackedTrack.Geometry.Planar;
+    }
+
     @Override
     protected Track createTrack (List<Position> points) {
         return new Cartesian2DTrack(getParameters(), points);
@@ -24,6 +24,7 @@
  */
 package com.oculusinfo.geometry.geodesic.tracks;
 
+import com.oculusinfo.geometry.geodesic.PackedTrack;
 import com.oculusinfo.geometry.geodesic.Position;
 import com.oculusinfo.geometry.geodesic.PositionCalculationParameters;
 import com.oculusinfo.geometry.geodesic.PositionCalculationType;
@@ -177,6 +178,11 @@ public class Cartesian3DTrack extends Track {
         return lbPerp/lac;
     }
 
+    @Override
+    protected PackedTrack.Geometry getPackedGeometry () {
+        return PackedTrack.Geometry.Cartesian;
+    }
+
     @Override
     protected Track createTrack (List<Position> points) {
         return new Cartesian3DTrack(getParameters(), points);
@@ -24,6 +24,7 @@
  */
 package com.oculusinfo.geometry.geodesic.tracks;
 
+import com.oculusinfo.geometry.geodesic.PackedTrack;
 import com.oculusinfo.geometry.geodesic.Position;
 import com.oculusinfo.geometry.geodesic.PositionCalculationParameters;
 import com.oculusinfo.geometry.geodesic.PositionCalculationType;
@@ -109,6 +110,11 @@ public class GeodeticTrack extends Track {
         return triangleArea/(longSide*longSide);
     }
 
+    @Override
+    protected PackedTrack.Geometry getPackedGeometry () {
+        return PackedTrack.Geometry.SphericalDegrees;
+    }
+
     @Override
     protected Track createTrack (List<Position> points) {
         return new GeodeticTrack(getParameters(), points);
@@ -25,6 +25,7 @@
 package com.oculusinfo.geometry.geodesic.tracks;
 
 import com.oculusinfo.geometry.SphereUtilities;
+import com.oculusinfo.geometry.geodesic.PackedTrack;
 import com.oculusinfo.geometry.geodesic.Position;
 import com.oculusinfo.geometry.geodesic.PositionCalculationParameters;
 import com.oculusinfo.geometry.geodesic.PositionCalculationType;
@@ -80,6 +81,11 @@ public class SphericalTrack extends Track {
         return triangleArea/(longSide*longSide);
     }
 
+    @Override
+    protected PackedTrack.Geometry getPackedGeometry () {
+        return PackedTrack.Geometry.SphericalRadians;
+    }
+
     @Override
     protected Track createTrack (List<Position> points) {
         return new SphericalTrack(getParameters(), points);
@@ -236,6 +236,18 @@ public class Instance<K, F, V> implements Serializable {
 	public int numFeatures() {
 		return features.size();
 	}
+	
+	/***
+	 * Return an Instance holding the named Features of this Instance for use while it is compared
+	 * against many others.  The Features of an Instance are held in memory so the Instance itself 
+	 * is returned.  Views that create their Features on request return a copy.
+	 * 
+	 * @param featureNames names of the Features that will be read
+	 * @return an Instance with the same Features
+	 */
+	public Instance<K,F,V> snapshot(Iterable<F> featureNames) {
+		return this;
+	}
 
 	public V getValue(F feature) {
 		return getFeature(feature).getValue();
@@ -78,5 +78,24 @@ public interface Centroid<F, V> extends Serializable {
      */
     Collection<Feature<F, V>> getAggregatableCentroid();
 
+    /***
+     * Merge the features accumulated by other into this centroid, as if they had been added to it.
+     * 
+     * other is a centroid of the same type and feature that was filled independently, typically by
+     * a worker thread accumulating part of an iteration, so partial centroids can be reduced into the
+     * centroids of a cluster at the end of the iteration.  other is not modified.
+     * 
+     * The default adds the aggregatable centroid of other, which is exact for centroids whose
+     * aggregatable centroid carries the accumulated weight.  Centroids that can combine their state 
+     * directly should override it.
+     * 
+     * @param other the centroid to merge into this one
+     */
+    default void merge(Centroid<F, V> other) {
+        for (Feature<F, V> feature : other.getAggregatableCentroid()) {
+            add(feature);
+        }
+    }
+
     //Supplier<Feature<F, V>> builder();
 }
@@ -0,0 +1,238 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.columnar;
+
+import com.gs.collections.impl.map.mutable.primitive.IntIntHashMap;
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.bagofwords.BagOfWordsFeature;
+import com.oculusinfo.ml.utils.TokenDictionary;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+
+/***
+ * A column of BagOfWordsFeatures.  The terms of every row are stored as the ids of the shared 
+ * BagOfWordsFeature term dictionary with their frequencies, in a pair of arrays shared by all rows.  
+ * Each row records the offset and length of its terms, which are sorted by term id as in the features.
+ * 
+ * Replacing or clearing a row leaves its old terms in the shared arrays, they are reclaimed once 
+ * they make up more than half of the storage.
+ *
+ */
+public class BagOfWordsColumn<F> extends FeatureColumn<F> {
+	private static final long serialVersionUID = -1180620264713662960L;
+	
+	private int[] offsets = new int[0];
+	private int[] lengths = new int[0];
+	private int[] terms = new int[0];
+	private int[] counts = new int[0];
+	private int used = 0;
+	private int garbage = 0;
+	
+	public BagOfWordsColumn(F name) {
+		super(name);
+	}
+	
+	public TokenDictionary<Object> getDictionary() {
+		return BagOfWordsFeature.getTermDictionary();
+	}
+	
+	/***
+	 * Return the number of distinct terms in row
+	 * 
+	 * @param row the row
+	 * @return the number of terms
+	 */
+	public int getTermCount(int row) {
+		return lengths[row];
+	}
+	
+	/***
+	 * Return the token id of the i'th term in row
+	 * 
+	 * @param row the row
+	 * @param i the index of the term in the row
+	 * @return the term token id
+	 */
+	public int getTerm(int row, int i) {
+		return terms[offsets[row] + i];
+	}
+	
+	/***
+	 * Return the frequency of the i'th term in row
+	 * 
+	 * @param row the row
+	 * @param i the index of the term in the row
+	 * @return the term frequency
+	 */
+	public int getCount(int row, int i) {
+		return counts[offsets[row] + i];
+	}
+	
+	@Override
+	public boolean accepts(Feature<F,?> feature) {
+		return (feature instanceof BagOfWordsFeature);
+	}
+	
+	@Override
+	protected void resize(int capacity) {
+		offsets = Arrays.copyOf(offsets, capacity);
+		lengths = Arrays.copyOf(lengths, capacity);
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	protected void setValue(int row, Feature<F,?> feature) {
+		clearValue(row);
+		
+		BagOfWordsFeature<Object> bag = (BagOfWordsFeature<Object>)feature;
+		int n = bag.getTermCount();
+		ensureTermCapacity(used + n);
+		
+		offsets[row] = used;
+		lengths[row] = n;
+		for (int i = 0; i < n; i++) {
+			terms[used] = bag.getTermId(i);
+			counts[used] = bag.getTermFrequency(i);
+			used++;
+		}
+	}
+	
+	@Override
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	protected Feature<F,Object> createFeature(int row) {
+		BagOfWordsFeature bag = new BagOfWordsFeature(name);
+		int offset = offsets[row];
+		for (int i = 0; i < lengths[row]; i++) {
+			bag.setCountById(terms[offset + i], counts[offset + i]);
+		}
+		return bag;
+	}
+	
+	@Override
+	protected void clearValue(int row) {
+		if (!present.get(row)) return;
+		
+		garbage += lengths[row];
+		lengths[row] = 0;
+		if (garbage > used / 2) {
+			reclaim();
+		}
+	}
+	
+	@Override
+	protected void moveValue(int from, int to) {
+		offsets[to] = offsets[from];
+		lengths[to] = lengths[from];
+	}
+	
+	@Override
+	void trimToSize(int rows) {
+		super.trimToSize(rows);
+		reclaim();
+	}
+	
+	private void ensureTermCapacity(int size) {
+		if (size <= terms.length) return;
+		
+		int newSize = Math.max(size, terms.length + (terms.length >> 1));
+		terms = Arrays.copyOf(terms, newSize);
+		counts = Arrays.copyOf(counts, newSize);
+	}
+	
+	// copy the terms of the present rows into new arrays of the exact size
+	private void reclaim() {
+		int size = 0;
+		for (int row = present.nextSetBit(0); row >= 0 && row < capacity; row = present.nextSetBit(row+1)) {
+			size += lengths[row];
+		}
+		
+		int[] newTerms = new int[size];
+		int[] newCounts = new int[size];
+		int pos = 0;
+		for (int row = present.nextSetBit(0); row >= 0 && row < capacity; row = present.nextSetBit(row+1)) {
+			System.arraycopy(terms, offsets[row], newTerms, pos, lengths[row]);
+			System.arraycopy(counts, offsets[row], newCounts, pos, lengths[row]);
+			offsets[row] = pos;
+			pos += lengths[row];
+		}
+		terms = newTerms;
+		counts = newCounts;
+		used = size;
+		garbage = 0;
+	}
+	
+	// term ids are local to the JVM so the terms are written with the ids and mapped to the ids of the 
+	// reading JVM, which may change the order of the terms in each row
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		
+		int[] ids = Arrays.copyOf(terms, used);
+		Arrays.sort(ids);
+		int distinct = 0;
+		for (int i = 0; i < ids.length; i++) {
+			if (i == 0 || ids[i] != ids[i-1]) ids[distinct++] = ids[i];
+		}
+		out.writeInt(distinct);
+		TokenDictionary<Object> dictionary = getDictionary();
+		for (int i = 0; i < distinct; i++) {
+			out.writeInt(ids[i]);
+			out.writeObject(dictionary.getToken(ids[i]));
+		}
+	}
+	
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		
+		IntIntHashMap remap = new IntIntHashMap();
+		TokenDictionary<Object> dictionary = getDictionary();
+		int distinct = in.readInt();
+		for (int i = 0; i < distinct; i++) {
+			int id = in.readInt();
+			remap.put(id, dictionary.intern(in.readObject()));
+		}
+		for (int i = 0; i < used; i++) {
+			terms[i] = remap.get(terms[i]);
+		}
+		
+		// restore the term id order of each row
+		long[] pairs = new long[0];
+		for (int row = present.nextSetBit(0); row >= 0 && row < capacity; row = present.nextSetBit(row+1)) {
+			int offset = offsets[row];
+			int n = lengths[row];
+			if (pairs.length < n) pairs = new long[n];
+			for (int i = 0; i < n; i++) {
+				pairs[i] = ((long)terms[offset + i] << 32) | (counts[offset + i] & 0xffffffffL);
+			}
+			Arrays.sort(pairs, 0, n);
+			for (int i = 0; i < n; i++) {
+				terms[offset + i] = (int)(pairs[i] >>> 32);
+				counts[offset + i] = (int)pairs[i];
+			}
+		}
+	}
+}
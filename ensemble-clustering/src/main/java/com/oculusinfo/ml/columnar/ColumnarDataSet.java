@@ -0,0 +1,564 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.columnar;
+
+import com.gs.collections.impl.map.mutable.primitive.ObjectIntHashMap;
+import com.oculusinfo.ml.DataSet;
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.utils.TokenDictionary;
+
+import java.util.*;
+
+/***
+ * A DataSet that stores each feature as a column of primitive values instead of as an Instance object
+ * holding a map of Feature objects per row.
+ * 
+ * Columns are registered by feature name before or while instances are added: geo-spatial coordinates 
+ * and numeric vectors are stored as doubles, temporal start and end dates as longs, strings as ids 
+ * interned in a TokenDictionary shared by the data set and bag of words terms as the ids of the 
+ * BagOfWordsFeature term dictionary.  Features without a registered column are kept as objects in a 
+ * column created automatically.
+ * 
+ * Instances added to the data set are decomposed into the columns and not retained.  The instances 
+ * returned by get() and iteration are lightweight ColumnarInstance views that create Feature objects
+ * from the columns on request, so only the instances in use are held on the heap.
+ * 
+ * Removed rows are left empty until compact() is called.  Compacting invalidates any existing views.
+ * 
+ * The data set can be read from several threads at once provided it isn't modified at the same time.
+ *
+ */
+public class ColumnarDataSet<K,F,V> extends DataSet<K,F,V> {
+	private static final long serialVersionUID = -627059719433858290L;
+	private static final int MIN_CAPACITY = 16;
+	
+	private final List<FeatureColumn<F>> columns = new ArrayList<>();
+	private final Map<F, FeatureColumn<F>> columnsByName = new HashMap<>();
+	private final TokenDictionary<Object> dictionary = new TokenDictionary<>();
+	
+	private final ObjectIntHashMap<K> rows = new ObjectIntHashMap<>();
+	private final BitSet live = new BitSet();
+	private Object[] ids = new Object[0];
+	private String[] labels;
+	private int rowCount = 0;
+	private int liveCount = 0;
+	
+	/***
+	 * Store the feature featureName as a GeoSpatialColumn
+	 * 
+	 * @param featureName the name of the geo-spatial feature
+	 */
+	public void registerGeoSpatialFeature(F featureName) {
+		registerColumn(new GeoSpatialColumn<>(featureName));
+	}
+	
+	/***
+	 * Store the feature featureName as a NumericVectorColumn
+	 * 
+	 * @param featureName the name of the numeric vector feature
+	 * @param dimension the length of the vectors
+	 */
+	public void registerNumericVectorFeature(F featureName, int dimension) {
+		registerColumn(new NumericVectorColumn<>(featureName, dimension));
+	}
+	
+	/***
+	 * Store the feature featureName as a TemporalColumn
+	 * 
+	 * @param featureName the name of the temporal feature
+	 */
+	public void registerTemporalFeature(F featureName) {
+		registerColumn(new TemporalColumn<>(featureName));
+	}
+	
+	/***
+	 * Store the feature featureName as a StringColumn
+	 * 
+	 * @param featureName the name of the string feature
+	 */
+	public void registerStringFeature(F featureName) {
+		registerColumn(new StringColumn<>(featureName, dictionary));
+	}
+	
+	/***
+	 * Store the feature featureName as a BagOfWordsColumn
+	 * 
+	 * @param featureName the name of the bag of words feature
+	 */
+	public void registerBagOfWordsFeature(F featureName) {
+		registerColumn(new BagOfWordsColumn<>(featureName));
+	}
+	
+	/***
+	 * Register a column to store the feature with the same name as the column
+	 * 
+	 * @param column the column
+	 */
+	public void registerColumn(FeatureColumn<F> column) {
+		if (columnsByName.containsKey(column.getName())) {
+			throw new IllegalArgumentException("A column is already registered for feature: " + column.getName());
+		}
+		columns.add(column);
+		columnsByName.put(column.getName(), column);
+	}
+	
+	/***
+	 * Return the column storing the feature featureName or null if there is none
+	 * 
+	 * @param featureName the feature name
+	 * @return the column
+	 */
+	public FeatureColumn<F> getColumn(F featureName) {
+		return columnsByName.get(featureName);
+	}
+	
+	/***
+	 * Return all columns in the order they were registered
+	 * 
+	 * @return the columns
+	 */
+	public List<FeatureColumn<F>> getColumns() {
+		return Collections.unmodifiableList(columns);
+	}
+	
+	/***
+	 * Return the dictionary of the string tokens in the data set
+	 * 
+	 * @return the token dictionary
+	 */
+	public TokenDictionary<Object> getTokenDictionary() {
+		return dictionary;
+	}
+	
+	/***
+	 * Return the number of rows including removed rows that haven't been compacted.  Valid rows 
+	 * are in the range [0, getRowCount()).
+	 * 
+	 * @return the number of rows
+	 */
+	public int getRowCount() {
+		return rowCount;
+	}
+	
+	/***
+	 * Return true if the row holds an instance that hasn't been removed
+	 * 
+	 * @param row the row
+	 * @return true if the row is in use
+	 */
+	public boolean isLive(int row) {
+		return live.get(row);
+	}
+	
+	/***
+	 * Return the row of the instance with the specified id
+	 * 
+	 * @param id the instance id
+	 * @return the row or -1 if there is no instance with the id
+	 */
+	public int getRow(K id) {
+		return rows.getIfAbsent(id, -1);
+	}
+	
+	/***
+	 * Return a view of the instance in row
+	 * 
+	 * @param row the row
+	 * @return the instance view or null if the row has been removed
+	 */
+	@SuppressWarnings("unchecked")
+	public ColumnarInstance<K,F,V> getInstance(int row) {
+		if (!live.get(row)) return null;
+		return new ColumnarInstance<>((K)ids[row], this, row);
+	}
+	
+	@SuppressWarnings("unchecked")
+	Feature<F,V> getFeature(int row, F featureName) {
+		FeatureColumn<F> column = columnsByName.get(featureName);
+		if (column == null) return null;
+		return column.get(row);
+	}
+	
+	boolean containsFeature(int row, F featureName) {
+		FeatureColumn<F> column = columnsByName.get(featureName);
+		return (column != null && column.isPresent(row));
+	}
+	
+	@SuppressWarnings("unchecked")
+	List<Feature<F,V>> getFeatures(int row) {
+		List<Feature<F,V>> features = new ArrayList<>();
+		for (FeatureColumn<F> column : columns) {
+			if (column.isPresent(row)) {
+				features.add(column.get(row));
+			}
+		}
+		return features;
+	}
+	
+	void setFeature(int row, Feature<F,V> feature) {
+		FeatureColumn<F> column = columnsByName.get(feature.getId());
+		if (column == null) {
+			column = new ObjectColumn<>(feature.getId());
+			registerColumn(column);
+		}
+		if (!column.accepts(feature)) {
+			throw new IllegalArgumentException("Feature " + feature.getId() + " can't be stored in a " + column.getClass().getSimpleName());
+		}
+		column.set(row, feature);
+	}
+	
+	void removeFeature(int row, F featureName) {
+		FeatureColumn<F> column = columnsByName.get(featureName);
+		if (column != null) column.clear(row);
+	}
+	
+	String getClassLabel(int row) {
+		return (labels != null && row < labels.length) ? labels[row] : null;
+	}
+	
+	void setClassLabel(int row, String label) {
+		if (labels == null) {
+			if (label == null) return;
+			labels = new String[ids.length];
+		}
+		labels[row] = label;
+	}
+	
+	private int appendRow(K id) {
+		if (rowCount == ids.length) {
+			int capacity = Math.max(MIN_CAPACITY, rowCount + (rowCount >> 1));
+			ids = Arrays.copyOf(ids, capacity);
+			if (labels != null) labels = Arrays.copyOf(labels, capacity);
+		}
+		int row = rowCount++;
+		ids[row] = id;
+		rows.put(id, row);
+		live.set(row);
+		liveCount++;
+		return row;
+	}
+	
+	private void clearRow(int row) {
+		for (FeatureColumn<F> column : columns) {
+			column.clear(row);
+		}
+		setClassLabel(row, null);
+	}
+	
+	@SuppressWarnings("unchecked")
+	private Instance<K,F,V> removeRow(int row) {
+		K id = (K)ids[row];
+		
+		// copy the row into a standalone instance before it's cleared
+		Instance<K,F,V> inst = new Instance<>(id);
+		inst.addFeatures(getFeatures(row));
+		inst.setClassLabel(getClassLabel(row));
+		
+		clearRow(row);
+		rows.remove(id);
+		ids[row] = null;
+		live.clear(row);
+		liveCount--;
+		
+		return inst;
+	}
+	
+	/***
+	 * Remove the empty rows left by removed instances and release unused storage.  
+	 * 
+	 * Views returned before compacting must not be used afterwards.
+	 */
+	@SuppressWarnings("unchecked")
+	public void compact() {
+		int to = 0;
+		for (int from = live.nextSetBit(0); from >= 0; from = live.nextSetBit(from+1)) {
+			if (from != to) {
+				for (FeatureColumn<F> column : columns) {
+					column.move(from, to);
+				}
+				ids[to] = ids[from];
+				if (labels != null) labels[to] = labels[from];
+				rows.put((K)ids[to], to);
+			}
+			to++;
+		}
+		live.clear();
+		live.set(0, to);
+		rowCount = to;
+		liveCount = to;
+		trimToSize();
+	}
+	
+	/***
+	 * Release the storage reserved for rows that haven't been added yet
+	 */
+	public void trimToSize() {
+		ids = Arrays.copyOf(ids, rowCount);
+		if (labels != null) labels = Arrays.copyOf(labels, rowCount);
+		for (FeatureColumn<F> column : columns) {
+			column.trimToSize(Math.min(rowCount, column.capacity));
+		}
+	}
+	
+	@Override
+	public Set<K> getKeys() {
+		return new AbstractSet<K>() {
+			@Override
+			public Iterator<K> iterator() {
+				final Iterator<Instance<K,F,V>> it = ColumnarDataSet.this.iterator();
+				return new Iterator<K>() {
+					@Override
+					public boolean hasNext() {
+						return it.hasNext();
+					}
+
+					@Override
+					public K next() {
+						return it.next().getId();
+					}
+
+					@Override
+					public void remove() {
+						it.remove();
+					}
+				};
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public boolean contains(Object o) {
+				return rows.containsKey((K)o);
+			}
+
+			@Override
+			public int size() {
+				return liveCount;
+			}
+		};
+	}
+	
+	/***
+	 * Add an Instance to the Dataset.  The features of the instance are copied into the columns.
+	 * @param inst the Instance to add
+	 * @return whether an instance was replace with the same id
+	 */
+	@Override
+	public boolean add(Instance<K,F,V> inst) {
+		int row = getRow(inst.getId());
+		boolean replaced = (row >= 0);
+		
+		if (replaced) {
+			// adding a view of the row to itself has no effect
+			if (inst instanceof ColumnarInstance && ((ColumnarInstance<K,F,V>)inst).getDataSet() == this
+					&& ((ColumnarInstance<K,F,V>)inst).getRow() == row) {
+				return true;
+			}
+			clearRow(row);
+		}
+		else {
+			row = appendRow(inst.getId());
+		}
+		
+		for (Feature<F,V> feature : inst.getAllFeatures()) {
+			setFeature(row, feature);
+		}
+		setClassLabel(row, inst.getClassLabel());
+		
+		return replaced;
+	}
+	
+	@Override
+	public Instance<K,F,V> remove(Instance<K,F,V> inst) {
+		return remove(inst.getId());
+	}
+	
+	@Override
+	public Instance<K,F,V> remove(K id) {
+		int row = getRow(id);
+		return (row >= 0) ? removeRow(row) : null;
+	}
+	
+	@Override
+	public Instance<K,F,V> get(K id) {
+		int row = getRow(id);
+		return (row >= 0) ? getInstance(row) : null;
+	}
+	
+	@Override
+	public int size() {
+		return liveCount;
+	}
+	
+	/***
+	 * Return a DataSet with random fraction number of Instances as this DataSet.  The sample holds 
+	 * views of the instances in this DataSet.
+	 * @param fraction fraction of Instances to return in the range of 0 and 1
+	 * @return resulting sample DataSet
+	 */
+	@Override
+	public DataSet<K,F,V> sample(double fraction) {
+		DataSet<K,F,V> sample = new DataSet<>();
+		
+		// max fraction is 1
+		if (fraction > 1) fraction = 1;
+		
+		// no samples are requested - return an empty data set
+		if (fraction <= 0) return sample;
+		
+		long numToSample = Math.round( liveCount * fraction );
+		
+		int[] order = shuffledRows();
+		for (int i = 0; i < numToSample; i++) {
+			sample.add( getInstance(order[i]) );
+		}
+		return sample;
+	}
+	
+	/***
+	 * Randomly split this DataSet into n similarly sized DataSets of views of the instances in this DataSet.
+	 * @param n the number of folds to split the DataSet - value must be greater than 1 and not greater than the number of instances in DataSet
+	 * @return a list of n DataSets
+	 */
+	@Override
+	public List<DataSet<K,F,V>> nFolds(int n) {
+		// Make sure n is valid: each fold must have at least one instance!
+		if (n > size() || n < 1) return null;
+		
+		List<DataSet<K,F,V>> folds = new LinkedList<>();
+		for (int i = 0; i < n; i++) {
+			folds.add(new DataSet<>());
+		}
+		
+		// the first size() % n folds get one extra instance
+		int[] order = shuffledRows();
+		int sliceSize = size() / n;
+		int extra = size() % n;
+		int fold = 0;
+		int inFold = 0;
+		for (int row : order) {
+			folds.get(fold).add(getInstance(row));
+			inFold++;
+			if (inFold == sliceSize + (fold < extra ? 1 : 0)) {
+				fold++;
+				inFold = 0;
+			}
+		}
+		return folds;
+	}
+	
+	private int[] shuffledRows() {
+		int[] order = new int[liveCount];
+		int i = 0;
+		for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row+1)) {
+			order[i++] = row;
+		}
+		Random rnd = new Random();
+		for (int j = order.length - 1; j > 0; j--) {
+			int k = rnd.nextInt(j + 1);
+			int t = order[j];
+			order[j] = order[k];
+			order[k] = t;
+		}
+		return order;
+	}
+	
+	/***
+	 * Normalize the specified Feature for all Instances in this DataSet.
+	 * 
+	 * Numeric vector columns are normalized in place.
+	 * 
+	 * @param featureName the name of the feature to normalize
+	 */
+	@Override
+	public void normalizeInstanceFeature(F featureName) {
+		FeatureColumn<F> column = columnsByName.get(featureName);
+		if (column instanceof NumericVectorColumn) {
+			((NumericVectorColumn<F>)column).normalize(rowCount);
+		}
+		else {
+			super.normalizeInstanceFeature(featureName);
+		}
+	}
+	
+	@Override
+	public Iterator<Instance<K,F,V>> iterator() {
+		return new Iterator<Instance<K,F,V>>() {
+			int next = live.nextSetBit(0);
+			int last = -1;
+			
+			@Override
+			public boolean hasNext() {
+				return (next >= 0);
+			}
+
+			@Override
+			public Instance<K,F,V> next() {
+				if (next < 0) throw new NoSuchElementException();
+				last = next;
+				next = live.nextSetBit(next+1);
+				return getInstance(last);
+			}
+
+			@Override
+			public void remove() {
+				if (last < 0) throw new IllegalStateException();
+				removeRow(last);
+				last = -1;
+			}
+		};
+	}
+	
+	@Override
+	public void clear() {
+		rows.clear();
+		live.clear();
+		ids = new Object[0];
+		labels = null;
+		rowCount = 0;
+		liveCount = 0;
+		for (FeatureColumn<F> column : columns) {
+			column.trimToSize(0);
+		}
+	}
+	
+	@Override
+	public boolean contains(Instance<K,F,V> inst) {
+		return rows.containsKey(inst.getId());
+	}
+	
+	@Override
+	public boolean containsAll(Collection<Instance<K,F,V>> c) {
+		for (Instance<K,F,V> i : c) {
+			if (!contains(i)) return false;
+		}
+		return true;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return liveCount == 0;
+	}
+}
@@ -0,0 +1,586 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.columnar;
+
+import com.oculusinfo.ml.utils.TokenDictionary;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/***
+ * The binary file format of MappedDataSet.
+ * 
+ * A file holds a header followed by the sections of the data set, every array starting on an 8 byte 
+ * boundary so it can be memory mapped and read in place.  All values are big-endian:
+ * 
+ *   int magic, int version, int rows, int columns
+ *   table ids
+ *   byte has labels, [table distinct labels, int[rows] label index or -1]
+ *   per column:
+ *     byte type, table name, [int dimension of numeric vectors]
+ *     long[(rows+63)/64] presence bits
+ *     byte weight mode, double weight or double[rows] weights
+ *     values: 
+ *       geo-spatial  double[2*rows] latitude, longitude
+ *       vector       double[dimension*rows]
+ *       temporal     long[2*rows] start, end
+ *       string       table tokens, int[rows] token index
+ *       bag of words table terms, int[rows+1] offsets, int[] term index, int[] counts
+ *       object       table of features
+ *   
+ * A table is a byte encoding (0 for UTF-8 strings, 1 for serialized objects), int size, 
+ * int[size+1] offsets and the encoded bytes.  Tokens and terms are indexes into tables local to
+ * the column so a file doesn't depend on the dictionaries of the process that wrote it.
+ * 
+ * Arrays are mapped in chunks of 1GB so a column may be larger than a single 2GB mapping.  The
+ * encoded values of a table must total less than 2GB and a bag of words column can hold at most
+ * 2^31-1 terms over all rows, otherwise write() fails with an IOException.
+ *
+ */
+final class DataSetFile {
+	static final int MAGIC = 0x45434453;  // ECDS
+	static final int VERSION = 1;
+	
+	static final byte GEOSPATIAL = 1;
+	static final byte VECTOR = 2;
+	static final byte TEMPORAL = 3;
+	static final byte STRING = 4;
+	static final byte BAG_OF_WORDS = 5;
+	static final byte OBJECT = 6;
+	
+	static final byte UTF8 = 0;
+	static final byte SERIALIZED = 1;
+	
+	static final byte CONSTANT_WEIGHT = 0;
+	static final byte ROW_WEIGHTS = 1;
+	
+	private DataSetFile() {
+	}
+	
+	/***
+	 * Return the type code used to store column in a file
+	 */
+	static byte typeOf(FeatureColumn<?> column) {
+		if (column instanceof GeoSpatialColumn) return GEOSPATIAL;
+		if (column instanceof NumericVectorColumn) return VECTOR;
+		if (column instanceof TemporalColumn) return TEMPORAL;
+		if (column instanceof StringColumn) return STRING;
+		if (column instanceof BagOfWordsColumn) return BAG_OF_WORDS;
+		return OBJECT;
+	}
+	
+	/***
+	 * Sequential writer of the file sections that tracks the position for alignment.
+	 */
+	static final class Output implements Closeable {
+		private final DataOutputStream out;
+		private long position = 0;
+		
+		Output(File file) throws IOException {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		}
+		
+		void writeByte(int v) throws IOException {
+			out.writeByte(v);
+			position += 1;
+		}
+		
+		void writeInt(int v) throws IOException {
+			out.writeInt(v);
+			position += 4;
+		}
+		
+		void writeLong(long v) throws IOException {
+			out.writeLong(v);
+			position += 8;
+		}
+		
+		void writeDouble(double v) throws IOException {
+			out.writeDouble(v);
+			position += 8;
+		}
+		
+		void write(byte[] b) throws IOException {
+			out.write(b);
+			position += b.length;
+		}
+		
+		void write(File file) throws IOException {
+			position += Files.copy(file.toPath(), out);
+		}
+		
+		/***
+		 * Pad to the next 8 byte boundary
+		 */
+		void align() throws IOException {
+			while ((position & 7) != 0) {
+				writeByte(0);
+			}
+		}
+		
+		/***
+		 * Write a table of values, encoded as UTF-8 if they are all strings and serialized otherwise.
+		 * Null values are written as empty entries.
+		 */
+		void writeTable(List<?> values) throws IOException {
+			byte encoding = UTF8;
+			for (Object value : values) {
+				if (value != null && !(value instanceof String)) {
+					encoding = SERIALIZED;
+					break;
+				}
+			}
+			writeByte(encoding);
+			writeInt(values.size());
+			
+			align();
+			if (encoding == UTF8) {
+				// offsets are written first so strings, which are cheap to encode, are encoded twice
+				// rather than held in memory
+				long offset = 0;
+				writeInt(0);
+				for (Object value : values) {
+					offset += encode(value, encoding).length;
+					if (offset > Integer.MAX_VALUE) {
+						throw new IOException("Table is too large to be mapped");
+					}
+					writeInt((int)offset);
+				}
+				align();
+				for (Object value : values) {
+					write(encode(value, encoding));
+				}
+				return;
+			}
+			
+			// serialized values are encoded once to a temporary file while the offsets are collected
+			int[] offsets = new int[values.size() + 1];
+			File tmp = File.createTempFile("table", ".tmp");
+			try {
+				long offset = 0;
+				try (OutputStream bytes = new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16)) {
+					int i = 0;
+					for (Object value : values) {
+						byte[] b = encode(value, encoding);
+						offset += b.length;
+						if (offset > Integer.MAX_VALUE) {
+							throw new IOException("Table is too large to be mapped");
+						}
+						bytes.write(b);
+						offsets[++i] = (int)offset;
+					}
+				}
+				for (int o : offsets) writeInt(o);
+				align();
+				write(tmp);
+			}
+			finally {
+				tmp.delete();
+			}
+		}
+		
+		@Override
+		public void close() throws IOException {
+			out.close();
+		}
+	}
+	
+	/***
+	 * A mapped array of big-endian ints, longs or doubles.  The array is mapped in chunks of 1GB, 
+	 * which the width of every value divides, so it may be larger than one mapping and no value 
+	 * spans two chunks.
+	 */
+	static final class Section {
+		private static final int CHUNK_BITS = 30;
+		private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+		
+		private final ByteBuffer[] chunks;
+		
+		Section(ByteBuffer[] chunks) {
+			this.chunks = chunks;
+		}
+		
+		int getInt(long i) {
+			long b = i << 2;
+			return chunks[(int)(b >>> CHUNK_BITS)].getInt((int)(b & CHUNK_MASK));
+		}
+		
+		long getLong(long i) {
+			long b = i << 3;
+			return chunks[(int)(b >>> CHUNK_BITS)].getLong((int)(b & CHUNK_MASK));
+		}
+		
+		double getDouble(long i) {
+			long b = i << 3;
+			return chunks[(int)(b >>> CHUNK_BITS)].getDouble((int)(b & CHUNK_MASK));
+		}
+	}
+	
+	/***
+	 * Random access reader of the file sections.  Headers are read through the channel and arrays are
+	 * mapped.  Mapped buffers remain valid after the reader is closed.
+	 */
+	static final class Input implements Closeable {
+		private final FileChannel channel;
+		private final ByteBuffer scratch = ByteBuffer.allocate(8);
+		private long position = 0;
+		
+		Input(File file) throws IOException {
+			channel = new RandomAccessFile(file, "r").getChannel();
+		}
+		
+		private ByteBuffer read(int bytes) throws IOException {
+			scratch.clear();
+			scratch.limit(bytes);
+			while (scratch.hasRemaining()) {
+				if (channel.read(scratch, position + scratch.position()) < 0) {
+					throw new EOFException("Unexpected end of data set file");
+				}
+			}
+			position += bytes;
+			scratch.flip();
+			return scratch;
+		}
+		
+		byte readByte() throws IOException {
+			return read(1).get();
+		}
+		
+		int readInt() throws IOException {
+			return read(4).getInt();
+		}
+		
+		double readDouble() throws IOException {
+			return read(8).getDouble();
+		}
+		
+		void align() {
+			position = (position + 7) & ~7L;
+		}
+		
+		/***
+		 * Map the next bytes of the file, starting on an 8 byte boundary
+		 */
+		ByteBuffer map(long bytes) throws IOException {
+			align();
+			if (bytes > Integer.MAX_VALUE) {
+				throw new IOException("Section of " + bytes + " bytes is too large to be mapped");
+			}
+			if (position + bytes > channel.size()) {
+				throw new EOFException("Unexpected end of data set file");
+			}
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, bytes);
+			position += bytes;
+			return buffer;
+		}
+		
+		/***
+		 * Map the next array of the file, starting on an 8 byte boundary, in chunks
+		 */
+		Section mapSection(long bytes) throws IOException {
+			align();
+			if (position + bytes > channel.size()) {
+				throw new EOFException("Unexpected end of data set file");
+			}
+			ByteBuffer[] chunks = new ByteBuffer[(int)((bytes + Section.CHUNK_MASK) >>> Section.CHUNK_BITS)];
+			for (int i = 0; i < chunks.length; i++) {
+				long start = (long)i << Section.CHUNK_BITS;
+				chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position + start, Math.min(bytes - start, Section.CHUNK_MASK + 1));
+			}
+			position += bytes;
+			return new Section(chunks);
+		}
+		
+		Table readTable() throws IOException {
+			byte encoding = readByte();
+			int size = readInt();
+			Section offsets = mapSection(4L * (size + 1));
+			int length = offsets.getInt(size);
+			ByteBuffer bytes = map(length);
+			return new Table(encoding, size, offsets, bytes);
+		}
+		
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+	
+	/***
+	 * A mapped table of values that are decoded each time they are read.
+	 */
+	static final class Table extends AbstractList<Object> {
+		private final byte encoding;
+		private final int size;
+		private final Section offsets;
+		private final ByteBuffer bytes;
+		
+		Table(byte encoding, int size, Section offsets, ByteBuffer bytes) {
+			this.encoding = encoding;
+			this.size = size;
+			this.offsets = offsets;
+			this.bytes = bytes;
+		}
+		
+		@Override
+		public Object get(int i) {
+			if (i < 0 || i >= size) throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+			
+			int start = offsets.getInt(i);
+			int end = offsets.getInt(i + 1);
+			byte[] b = new byte[end - start];
+			// a duplicate keeps concurrent readers from sharing the buffer position
+			ByteBuffer view = bytes.duplicate();
+			view.position(start);
+			view.get(b);
+			return decode(b, encoding);
+		}
+		
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+	
+	private static byte[] encode(Object value, byte encoding) throws IOException {
+		if (value == null) return new byte[0];
+		if (encoding == UTF8) return ((String)value).getBytes(StandardCharsets.UTF_8);
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(value);
+		}
+		return bytes.toByteArray();
+	}
+	
+	private static Object decode(byte[] b, byte encoding) {
+		if (encoding == UTF8) return new String(b, StandardCharsets.UTF_8);
+		if (b.length == 0) return null;
+		
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(b))) {
+			return in.readObject();
+		}
+		catch (IOException | ClassNotFoundException e) {
+			throw new IllegalStateException("Unable to read value from data set file", e);
+		}
+	}
+	
+	/***
+	 * Write the live rows of ds to file
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	static <K,F,V> void write(ColumnarDataSet<K,F,V> ds, File file) throws IOException {
+		// the live rows are written consecutively
+		final int[] order = new int[ds.size()];
+		int rows = 0;
+		for (int row = 0; row < ds.getRowCount(); row++) {
+			if (ds.isLive(row)) order[rows++] = row;
+		}
+		
+		List<Object> ids = new ArrayList<>(rows);
+		boolean labelled = false;
+		for (int row : order) {
+			ColumnarInstance<K,F,V> inst = ds.getInstance(row);
+			ids.add(inst.getId());
+			labelled |= (ds.getClassLabel(row) != null);
+		}
+		
+		try (Output out = new Output(file)) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(rows);
+			out.writeInt(ds.getColumns().size());
+			out.writeTable(ids);
+			
+			out.writeByte(labelled ? 1 : 0);
+			if (labelled) {
+				TokenDictionary<String> labels = new TokenDictionary<>();
+				int[] index = new int[rows];
+				for (int r = 0; r < rows; r++) {
+					index[r] = labels.intern(ds.getClassLabel(order[r]));
+				}
+				out.writeTable(tokens(labels));
+				out.align();
+				for (int i : index) out.writeInt(i);
+			}
+			
+			for (FeatureColumn<F> column : ds.getColumns()) {
+				writeColumn(out, column, order);
+			}
+		}
+	}
+	
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static <F> void writeColumn(Output out, FeatureColumn<F> column, int[] order) throws IOException {
+		byte type = typeOf(column);
+		int rows = order.length;
+		
+		out.writeByte(type);
+		List<Object> name = new ArrayList<>();
+		name.add(column.getName());
+		out.writeTable(name);
+		if (type == VECTOR) out.writeInt(((NumericVectorColumn<F>)column).getDimension());
+		
+		// presence bits
+		long[] words = new long[(rows + 63) / 64];
+		double weight = Double.NaN;
+		boolean constant = true;
+		for (int r = 0; r < rows; r++) {
+			int row = order[r];
+			if (!column.isPresent(row)) continue;
+			words[r >> 6] |= 1L << r;
+			double w = column.getWeight(row);
+			if (Double.isNaN(weight)) weight = w;
+			else if (w != weight) constant = false;
+		}
+		out.align();
+		for (long word : words) out.writeLong(word);
+		
+		out.writeByte(constant ? CONSTANT_WEIGHT : ROW_WEIGHTS);
+		if (constant) {
+			out.writeDouble(weight);
+		}
+		else {
+			out.align();
+			for (int row : order) out.writeDouble(column.isPresent(row) ? column.getWeight(row) : 0);
+		}
+		
+		switch (type) {
+		case GEOSPATIAL: {
+			GeoSpatialColumn<F> geo = (GeoSpatialColumn<F>)column;
+			out.align();
+			for (int row : order) {
+				boolean p = geo.isPresent(row);
+				out.writeDouble(p ? geo.getLatitude(row) : 0);
+				out.writeDouble(p ? geo.getLongitude(row) : 0);
+			}
+			break;
+		}
+		case VECTOR: {
+			NumericVectorColumn<F> vec = (NumericVectorColumn<F>)column;
+			int dimension = vec.getDimension();
+			out.align();
+			for (int row : order) {
+				boolean p = vec.isPresent(row);
+				for (int i = 0; i < dimension; i++) {
+					out.writeDouble(p ? vec.get(row, i) : 0);
+				}
+			}
+			break;
+		}
+		case TEMPORAL: {
+			TemporalColumn<F> time = (TemporalColumn<F>)column;
+			out.align();
+			for (int row : order) {
+				boolean p = time.isPresent(row);
+				out.writeLong(p ? time.getStart(row) : TemporalColumn.NO_TIME);
+				out.writeLong(p ? time.getEnd(row) : TemporalColumn.NO_TIME);
+			}
+			break;
+		}
+		case STRING: {
+			StringColumn<F> str = (StringColumn<F>)column;
+			TokenDictionary<Object> local = new TokenDictionary<>();
+			int[] index = new int[rows];
+			for (int r = 0; r < rows; r++) {
+				int row = order[r];
+				index[r] = str.isPresent(row) ? local.intern(str.getDictionary().getToken(str.getToken(row))) : TokenDictionary.NO_TOKEN;
+			}
+			out.writeTable(tokens(local));
+			out.align();
+			for (int i : index) out.writeInt(i);
+			break;
+		}
+		case BAG_OF_WORDS: {
+			BagOfWordsColumn<F> bag = (BagOfWordsColumn<F>)column;
+			TokenDictionary<Object> local = new TokenDictionary<>();
+			long total = 0;
+			for (int row : order) {
+				if (!bag.isPresent(row)) continue;
+				for (int i = 0; i < bag.getTermCount(row); i++) {
+					local.intern(bag.getDictionary().getToken(bag.getTerm(row, i)));
+				}
+				total += bag.getTermCount(row);
+			}
+			if (total > Integer.MAX_VALUE) {
+				throw new IOException("Bag of words column " + column.getName() + " has too many terms to be mapped");
+			}
+			out.writeTable(tokens(local));
+			
+			out.align();
+			int offset = 0;
+			out.writeInt(0);
+			for (int row : order) {
+				if (bag.isPresent(row)) offset += bag.getTermCount(row);
+				out.writeInt(offset);
+			}
+			out.align();
+			for (int row : order) {
+				if (!bag.isPresent(row)) continue;
+				for (int i = 0; i < bag.getTermCount(row); i++) {
+					out.writeInt(local.getId(bag.getDictionary().getToken(bag.getTerm(row, i))));
+				}
+			}
+			out.align();
+			for (int row : order) {
+				if (!bag.isPresent(row)) continue;
+				for (int i = 0; i < bag.getTermCount(row); i++) {
+					out.writeInt(bag.getCount(row, i));
+				}
+			}
+			break;
+		}
+		default: {
+			final FeatureColumn<F> objects = column;
+			final int[] rowOrder = order;
+			out.writeTable(new AbstractList<Object>() {
+				@Override
+				public Object get(int r) {
+					return objects.isPresent(rowOrder[r]) ? objects.get(rowOrder[r]) : null;
+				}
+
+				@Override
+				public int size() {
+					return rowOrder.length;
+				}
+			});
+		}
+		}
+	}
+	
+	private static List<Object> tokens(TokenDictionary<?> dictionary) {
+		List<Object> tokens = new ArrayList<>(dictionary.size());
+		for (int i = 0; i < dictionary.size(); i++) {
+			tokens.add(dictionary.getToken(i));
+		}
+		return tokens;
+	}
+}
@@ -0,0 +1,205 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.columnar;
+
+import com.oculusinfo.ml.feature.Feature;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/***
+ * Abstract base class for the columns of a ColumnarDataSet.  
+ * 
+ * A column stores the values of one named feature for every row of the data set in primitive 
+ * arrays.  Features are decomposed into the column when they are set and new Feature objects are
+ * created from the column each time a row is read. 
+ * 
+ * The weight of each feature is kept as a single value for the column until a feature with a 
+ * different weight is set, only then is a weight stored per row.
+ *
+ */
+public abstract class FeatureColumn<F> implements Serializable {
+	private static final long serialVersionUID = 2400212767963734212L;
+	private static final int MIN_CAPACITY = 16;
+	
+	protected final F name;
+	protected final BitSet present = new BitSet();
+	protected int capacity = 0;
+	
+	private double weight = Double.NaN;
+	private double[] weights;
+	
+	public FeatureColumn(F name) {
+		this.name = name;
+	}
+	
+	/***
+	 * Return the name of the feature stored in the column
+	 * 
+	 * @return the feature name
+	 */
+	public F getName() {
+		return name;
+	}
+	
+	/***
+	 * Return true if the row has a value in this column
+	 * 
+	 * @param row the row
+	 * @return true if the row has a value
+	 */
+	public boolean isPresent(int row) {
+		return present.get(row);
+	}
+	
+	/***
+	 * Return true if the feature can be stored in this column
+	 * 
+	 * @param feature the feature to test
+	 * @return true if the feature is the type stored by the column
+	 */
+	public abstract boolean accepts(Feature<F,?> feature);
+	
+	/***
+	 * Store feature as the value of row
+	 * 
+	 * @param row the row
+	 * @param feature the feature to store
+	 */
+	public void set(int row, Feature<F,?> feature) {
+		ensureCapacity(row + 1);
+		setValue(row, feature);
+		setWeight(row, feature.getWeight());
+		present.set(row);
+	}
+	
+	/***
+	 * Return a new Feature holding the value of row or null if the row has no value
+	 * 
+	 * @param row the row
+	 * @return the feature
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public Feature get(int row) {
+		if (!present.get(row)) return null;
+		
+		Feature feature = createFeature(row);
+		feature.setWeight(getWeight(row));
+		return feature;
+	}
+	
+	/***
+	 * Remove the value of row
+	 * 
+	 * @param row the row
+	 */
+	public void clear(int row) {
+		if (present.get(row)) {
+			clearValue(row);
+			present.clear(row);
+		}
+	}
+	
+	/***
+	 * Return the weight of the feature in row
+	 * 
+	 * @param row the row
+	 * @return the feature weight
+	 */
+	public double getWeight(int row) {
+		return (weights != null) ? weights[row] : weight;
+	}
+	
+	private void setWeight(int row, double w) {
+		if (weights == null) {
+			if (Double.isNaN(weight)) {
+				weight = w;
+				return;
+			}
+			if (w == weight) return;
+			
+			weights = new double[capacity];
+			Arrays.fill(weights, weight);
+		}
+		weights[row] = w;
+	}
+	
+	/***
+	 * Copy the value of row from to row to.  Used when compacting the data set.
+	 * 
+	 * @param from the source row
+	 * @param to the destination row
+	 */
+	void move(int from, int to) {
+		if (present.get(from)) {
+			moveValue(from, to);
+			if (weights != null) weights[to] = weights[from];
+			present.set(to);
+		}
+		else {
+			present.clear(to);
+		}
+	}
+	
+	/***
+	 * Release the storage beyond the first rows
+	 * 
+	 * @param rows the number of rows to keep
+	 */
+	void trimToSize(int rows) {
+		present.clear(rows, Math.max(rows, capacity));
+		capacity = rows;
+		resize(rows);
+		if (weights != null) weights = Arrays.copyOf(weights, rows);
+	}
+	
+	protected void ensureCapacity(int rows) {
+		if (rows <= capacity) return;
+		
+		int newCapacity = Math.max(rows, Math.max(MIN_CAPACITY, capacity + (capacity >> 1)));
+		resize(newCapacity);
+		if (weights != null) weights = Arrays.copyOf(weights, newCapacity);
+		capacity = newCapacity;
+	}
+	
+	/***
+	 * Resize the primitive storage to hold capacity rows
+	 * 
+	 * @param capacity the new number of rows
+	 */
+	protected abstract void resize(int capacity);
+	
+	protected abstract void setValue(int row, Feature<F,?> feature);
+	
+	@SuppressWarnings("rawtypes")
+	protected abstract Feature createFeature(int row);
+	
+	protected void clearValue(int row) {
+		// nothing to release by default
+	}
+	
+	protected abstract void moveValue(int from, int to);
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.columnar;
+
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.spatial.GeoSpatialFeature;
+
+import java.util.Arrays;
+
+/***
+ * A column of GeoSpatialFeatures stored as interleaved latitude and longitude values
+ *
+ */
+public class GeoSpatialColumn<F> extends FeatureColumn<F> {
+	private static final long serialVersionUID = -5735104862771932190L;
+	
+	private double[] latlon = new double[0];
+	
+	public GeoSpatialColumn(F name) {
+		super(name);
+	}
+	
+	public double getLatitude(int row) {
+		return latlon[2*row];
+	}
+	
+	public double getLongitude(int row) {
+		return latlon[2*row+1];
+	}
+	
+	@Override
+	public boolean accepts(Feature<F,?> feature) {
+		return (feature instanceof GeoSpatialFeature);
+	}
+	
+	@Override
+	protected void resize(int capacity) {
+		latlon = Arrays.copyOf(latlon, 2*capacity);
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	protected void setValue(int row, Feature<F,?> feature) {
+		GeoSpatialFeature<F> geo = (GeoSpatialFeature<F>)feature;
+		latlon[2*row] = geo.getLatitude();
+		latlon[2*row+1] = geo.getLongitude();
+	}
+	
+	@Override
+	protected Feature<F,double[]> createFeature(int row) {
+		GeoSpatialFeature<F> geo = new GeoSpatialFeature<>(name);
+		geo.setValue(latlon[2*row], latlon[2*row+1]);
+		return geo;
+	}
+	
+	@Override
+	protected void moveValue(int from, int to) {
+		latlon[2*to] = latlon[2*from];
+		latlon[2*to+1] = latlon[2*from+1];
+	}
+}
@@ -0,0 +1,322 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.columnar;
+
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.bagofwords.BagOfWordsFeature;
+import com.oculusinfo.ml.feature.spatial.GeoSpatialFeature;
+import com.oculusinfo.ml.feature.string.StringFeature;
+import com.oculusinfo.ml.feature.temporal.TemporalFeature;
+import com.oculusinfo.ml.utils.TokenDictionary;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+
+/***
+ * A read-only column of a MappedDataSet whose values are read from a memory mapped section of the
+ * data set file.  Only the presence bits of the column are held on the heap.
+ * 
+ * Each type of FeatureColumn has a mapped counterpart that creates the same features.  Columns
+ * that were stored as objects are deserialized each time a row is read.
+ *
+ */
+public abstract class MappedColumn<F> extends FeatureColumn<F> {
+	private static final long serialVersionUID = -2093615837604417372L;
+	
+	private final double weight;
+	private final transient DataSetFile.Section weights;
+	
+	MappedColumn(F name, int rows, DataSetFile.Input in) throws IOException {
+		super(name);
+		capacity = rows;
+		present.or(BitSet.valueOf(in.map(8L * ((rows + 63) / 64)).asLongBuffer()));
+		
+		if (in.readByte() == DataSetFile.CONSTANT_WEIGHT) {
+			weight = in.readDouble();
+			weights = null;
+		}
+		else {
+			weight = Double.NaN;
+			weights = in.mapSection(8L * rows);
+		}
+	}
+	
+	/***
+	 * Read the column starting at the current position of in
+	 */
+	@SuppressWarnings("unchecked")
+	static <F> MappedColumn<F> read(int rows, DataSetFile.Input in) throws IOException {
+		byte type = in.readByte();
+		F name = (F)in.readTable().get(0);
+		
+		switch (type) {
+		case DataSetFile.GEOSPATIAL:
+			return new GeoSpatial<>(name, rows, in);
+		case DataSetFile.VECTOR:
+			return new NumericVector<>(name, in.readInt(), rows, in);
+		case DataSetFile.TEMPORAL:
+			return new Temporal<>(name, rows, in);
+		case DataSetFile.STRING:
+			return new Strings<>(name, rows, in);
+		case DataSetFile.BAG_OF_WORDS:
+			return new BagOfWords<>(name, rows, in);
+		case DataSetFile.OBJECT:
+			return new Objects<>(name, rows, in);
+		default:
+			throw new IOException("Unknown column type: " + type);
+		}
+	}
+	
+	@Override
+	public double getWeight(int row) {
+		return (weights != null) ? weights.getDouble(row) : weight;
+	}
+	
+	@Override
+	public boolean accepts(Feature<F,?> feature) {
+		return false;
+	}
+	
+	@Override
+	public void set(int row, Feature<F,?> feature) {
+		throw new UnsupportedOperationException("Mapped columns are read only");
+	}
+	
+	@Override
+	public void clear(int row) {
+		throw new UnsupportedOperationException("Mapped columns are read only");
+	}
+	
+	@Override
+	protected void resize(int capacity) {
+		throw new UnsupportedOperationException("Mapped columns are read only");
+	}
+	
+	@Override
+	protected void setValue(int row, Feature<F,?> feature) {
+		throw new UnsupportedOperationException("Mapped columns are read only");
+	}
+	
+	@Override
+	protected void moveValue(int from, int to) {
+		throw new UnsupportedOperationException("Mapped columns are read only");
+	}
+	
+	public static class GeoSpatial<F> extends MappedColumn<F> {
+		private static final long serialVersionUID = 4209745378526466003L;
+		
+		private final transient DataSetFile.Section latlon;
+		
+		GeoSpatial(F name, int rows, DataSetFile.Input in) throws IOException {
+			super(name, rows, in);
+			latlon = in.mapSection(16L * rows);
+		}
+		
+		public double getLatitude(int row) {
+			return latlon.getDouble(2L*row);
+		}
+		
+		public double getLongitude(int row) {
+			return latlon.getDouble(2L*row+1);
+		}
+		
+		@Override
+		protected Feature<F,double[]> createFeature(int row) {
+			GeoSpatialFeature<F> geo = new GeoSpatialFeature<>(name);
+			geo.setValue(latlon.getDouble(2L*row), latlon.getDouble(2L*row+1));
+			return geo;
+		}
+	}
+	
+	public static class NumericVector<F> extends MappedColumn<F> {
+		private static final long serialVersionUID = -5601382164985123450L;
+		
+		private final int dimension;
+		private final transient DataSetFile.Section values;
+		
+		NumericVector(F name, int dimension, int rows, DataSetFile.Input in) throws IOException {
+			super(name, rows, in);
+			this.dimension = dimension;
+			values = in.mapSection(8L * dimension * rows);
+		}
+		
+		public int getDimension() {
+			return dimension;
+		}
+		
+		public double get(int row, int i) {
+			return values.getDouble((long)row*dimension + i);
+		}
+		
+		@Override
+		protected Feature<F,double[]> createFeature(int row) {
+			double[] v = new double[dimension];
+			long offset = (long)row*dimension;
+			for (int i = 0; i < dimension; i++) {
+				v[i] = values.getDouble(offset + i);
+			}
+			return new Feature<>(name, v);
+		}
+	}
+	
+	public static class Temporal<F> extends MappedColumn<F> {
+		private static final long serialVersionUID = 1870251403383921571L;
+		
+		private final transient DataSetFile.Section times;
+		
+		Temporal(F name, int rows, DataSetFile.Input in) throws IOException {
+			super(name, rows, in);
+			times = in.mapSection(16L * rows);
+		}
+		
+		public long getStart(int row) {
+			return times.getLong(2L*row);
+		}
+		
+		public long getEnd(int row) {
+			return times.getLong(2L*row+1);
+		}
+		
+		@Override
+		protected Feature<F,Object> createFeature(int row) {
+			long start = times.getLong(2L*row);
+			long end = times.getLong(2L*row+1);
+			TemporalFeature<F> time = new TemporalFeature<>(name);
+			time.setValue((start != TemporalColumn.NO_TIME) ? new Date(start) : null, 
+						  (end != TemporalColumn.NO_TIME) ? new Date(end) : null);
+			return time;
+		}
+	}
+	
+	public static class Strings<F> extends MappedColumn<F> {
+		private static final long serialVersionUID = -7460148512046290152L;
+		
+		private final transient DataSetFile.Table dictionary;
+		private final transient DataSetFile.Section tokens;
+		
+		Strings(F name, int rows, DataSetFile.Input in) throws IOException {
+			super(name, rows, in);
+			dictionary = in.readTable();
+			tokens = in.mapSection(4L * rows);
+		}
+		
+		/***
+		 * Return the index of the string in row in the string table of the column
+		 * 
+		 * @param row the row
+		 * @return the token index or TokenDictionary.NO_TOKEN if the string is null
+		 */
+		public int getToken(int row) {
+			return tokens.getInt(row);
+		}
+		
+		@Override
+		protected Feature<F,Object> createFeature(int row) {
+			int token = tokens.getInt(row);
+			StringFeature<F> str = new StringFeature<>(name);
+			str.setValue((token != TokenDictionary.NO_TOKEN) ? (String)dictionary.get(token) : null);
+			return str;
+		}
+	}
+	
+	public static class BagOfWords<F> extends MappedColumn<F> {
+		private static final long serialVersionUID = 6931857263540947266L;
+		
+		private final transient DataSetFile.Table terms;
+		private final transient DataSetFile.Section offsets;
+		private final transient DataSetFile.Section termIndex;
+		private final transient DataSetFile.Section counts;
+		// term index of the file to id in dictionary, filled as terms are read
+		private final transient TokenDictionary<Object> dictionary;
+		private final transient int[] termIds;
+		
+		BagOfWords(F name, int rows, DataSetFile.Input in) throws IOException {
+			super(name, rows, in);
+			terms = in.readTable();
+			offsets = in.mapSection(4L * (rows + 1));
+			int total = offsets.getInt(rows);
+			termIndex = in.mapSection(4L * total);
+			counts = in.mapSection(4L * total);
+			dictionary = BagOfWordsFeature.getTermDictionary();
+			termIds = new int[terms.size()];
+			Arrays.fill(termIds, TokenDictionary.NO_TOKEN);
+		}
+		
+		public int getTermCount(int row) {
+			return offsets.getInt(row+1) - offsets.getInt(row);
+		}
+		
+		/***
+		 * Return the id in the shared BagOfWordsFeature term dictionary of the i'th term in row
+		 * 
+		 * @param row the row
+		 * @param i the index of the term in the row
+		 * @return the term token id
+		 */
+		public int getTerm(int row, int i) {
+			int index = termIndex.getInt(offsets.getInt(row) + i);
+			int id = termIds[index];
+			if (id == TokenDictionary.NO_TOKEN) {
+				// interning is idempotent so racing readers store the same id
+				id = dictionary.intern(terms.get(index));
+				termIds[index] = id;
+			}
+			return id;
+		}
+		
+		public int getCount(int row, int i) {
+			return counts.getInt(offsets.getInt(row) + i);
+		}
+		
+		@Override
+		@SuppressWarnings({ "rawtypes", "unchecked" })
+		protected Feature<F,Object> createFeature(int row) {
+			BagOfWordsFeature bag = new BagOfWordsFeature(name);
+			for (int i = 0; i < getTermCount(row); i++) {
+				bag.setCountById(getTerm(row, i), getCount(row, i));
+			}
+			return bag;
+		}
+	}
+	
+	public static class Objects<F> extends MappedColumn<F> {
+		private static final long serialVersionUID = 8409812744631165795L;
+		
+		private final transient DataSetFile.Table features;
+		
+		Objects(F name, int rows, DataSetFile.Input in) throws IOException {
+			super(name, rows, in);
+			features = in.readTable();
+		}
+		
+		@Override
+		@SuppressWarnings("rawtypes")
+		protected Feature createFeature(int row) {
+			return (Feature)features.get(row);
+		}
+	}
+}
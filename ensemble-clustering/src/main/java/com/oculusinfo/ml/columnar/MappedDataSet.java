@@ -0,0 +1,453 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.columnar;
+
+import com.gs.collections.impl.map.mutable.primitive.ObjectIntHashMap;
+import com.oculusinfo.ml.DataSet;
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.utils.TokenDictionary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.*;
+
+/***
+ * A read-only DataSet backed by a memory mapped binary file.
+ * 
+ * The file is written from a ColumnarDataSet by write() and holds the instance ids, class labels and 
+ * every column in primitive arrays: geo-spatial, numeric vector and temporal columns as doubles and 
+ * longs, string and bag of words columns as indexes into string tables stored with the column and
+ * any other feature as a serialized object.  See DataSetFile for the layout.
+ * 
+ * Opening a file maps its sections rather than reading them, so the instances are not deserialized 
+ * onto the heap and the operating system pages the data in as it is used.  The instances returned
+ * by get() and iteration are MappedInstance views that create Feature objects from the mapped 
+ * columns on request, as ColumnarInstance does for a ColumnarDataSet.  The index of instance ids
+ * is only built the first time an instance is looked up by id.
+ * 
+ * The data set can't be modified and can be read from several threads at once.  The mapping stays
+ * valid until the data set is garbage collected.
+ * 
+ * Serializing the data set, or an instance view of it, writes only the path of the file.  The
+ * deserialized data set maps the file again, so the process reading it, such as a worker of the
+ * ShardedClusterer, must be able to read the same file at the same path.
+ *
+ */
+public class MappedDataSet<K,F,V> extends DataSet<K,F,V> {
+	private static final long serialVersionUID = 3279470466516016587L;
+	
+	private final File file;
+	private final int rowCount;
+	private final transient DataSetFile.Table ids;
+	private final transient DataSetFile.Table labels;
+	private final transient DataSetFile.Section labelIndex;
+	private final List<FeatureColumn<F>> columns = new ArrayList<>();
+	private final Map<F, FeatureColumn<F>> columnsByName = new HashMap<>();
+	
+	private transient volatile ObjectIntHashMap<K> rows;
+	
+	private MappedDataSet(File file) throws IOException {
+		this.file = file;
+		
+		try (DataSetFile.Input in = new DataSetFile.Input(file)) {
+			if (in.readInt() != DataSetFile.MAGIC) {
+				throw new IOException("Not a data set file: " + file);
+			}
+			int version = in.readInt();
+			if (version != DataSetFile.VERSION) {
+				throw new IOException("Unsupported data set file version: " + version);
+			}
+			rowCount = in.readInt();
+			int columnCount = in.readInt();
+			
+			ids = in.readTable();
+			if (in.readByte() != 0) {
+				labels = in.readTable();
+				labelIndex = in.mapSection(4L * rowCount);
+			}
+			else {
+				labels = null;
+				labelIndex = null;
+			}
+			
+			for (int i = 0; i < columnCount; i++) {
+				MappedColumn<F> column = MappedColumn.read(rowCount, in);
+				columns.add(column);
+				columnsByName.put(column.getName(), column);
+			}
+		}
+	}
+	
+	/***
+	 * Map a data set file written by write()
+	 * 
+	 * @param file the data set file
+	 * @return the read-only data set
+	 * @throws IOException if the file can't be read or isn't a data set file
+	 */
+	public static <K,F,V> MappedDataSet<K,F,V> open(File file) throws IOException {
+		return new MappedDataSet<>(file);
+	}
+	
+	/***
+	 * Write the instances of a ColumnarDataSet to a file that can be opened by open().  Removed rows
+	 * are not written so the rows of the file are numbered as if the data set had been compacted.
+	 * 
+	 * @param ds the data set to write
+	 * @param file the file to create or overwrite
+	 * @throws IOException if the file can't be written or a table is too large to be mapped
+	 */
+	public static <K,F,V> void write(ColumnarDataSet<K,F,V> ds, File file) throws IOException {
+		DataSetFile.write(ds, file);
+	}
+	
+	/***
+	 * Return the file the data set is mapped from
+	 * 
+	 * @return the data set file
+	 */
+	public File getFile() {
+		return file;
+	}
+	
+	/***
+	 * Return the column storing the feature featureName or null if there is none
+	 * 
+	 * @param featureName the feature name
+	 * @return the column
+	 */
+	public FeatureColumn<F> getColumn(F featureName) {
+		return columnsByName.get(featureName);
+	}
+	
+	/***
+	 * Return all columns in the order they were written
+	 * 
+	 * @return the columns
+	 */
+	public List<FeatureColumn<F>> getColumns() {
+		return Collections.unmodifiableList(columns);
+	}
+	
+	/***
+	 * Return the number of rows.  Rows are in the range [0, getRowCount()).
+	 * 
+	 * @return the number of rows
+	 */
+	public int getRowCount() {
+		return rowCount;
+	}
+	
+	/***
+	 * Return the row of the instance with the specified id
+	 * 
+	 * @param id the instance id
+	 * @return the row or -1 if there is no instance with the id
+	 */
+	public int getRow(K id) {
+		return rowIndex().getIfAbsent(id, -1);
+	}
+	
+	@SuppressWarnings("unchecked")
+	private ObjectIntHashMap<K> rowIndex() {
+		ObjectIntHashMap<K> index = rows;
+		if (index == null) {
+			synchronized (this) {
+				index = rows;
+				if (index == null) {
+					index = new ObjectIntHashMap<>(rowCount);
+					for (int row = 0; row < rowCount; row++) {
+						index.put((K)ids.get(row), row);
+					}
+					rows = index;
+				}
+			}
+		}
+		return index;
+	}
+	
+	/***
+	 * Return a view of the instance in row
+	 * 
+	 * @param row the row
+	 * @return the instance view
+	 */
+	@SuppressWarnings("unchecked")
+	public MappedInstance<K,F,V> getInstance(int row) {
+		if (row < 0 || row >= rowCount) throw new IndexOutOfBoundsException("Row: " + row + ", Rows: " + rowCount);
+		return new MappedInstance<>((K)ids.get(row), this, row);
+	}
+	
+	@SuppressWarnings("unchecked")
+	Feature<F,V> getFeature(int row, F featureName) {
+		FeatureColumn<F> column = columnsByName.get(featureName);
+		if (column == null) return null;
+		return column.get(row);
+	}
+	
+	boolean containsFeature(int row, F featureName) {
+		FeatureColumn<F> column = columnsByName.get(featureName);
+		return (column != null && column.isPresent(row));
+	}
+	
+	@SuppressWarnings("unchecked")
+	List<Feature<F,V>> getFeatures(int row) {
+		List<Feature<F,V>> features = new ArrayList<>();
+		for (FeatureColumn<F> column : columns) {
+			if (column.isPresent(row)) {
+				features.add(column.get(row));
+			}
+		}
+		return features;
+	}
+	
+	String getClassLabel(int row) {
+		if (labels == null) return null;
+		int label = labelIndex.getInt(row);
+		return (label != TokenDictionary.NO_TOKEN) ? (String)labels.get(label) : null;
+	}
+	
+	@Override
+	public Set<K> getKeys() {
+		return new AbstractSet<K>() {
+			@Override
+			public Iterator<K> iterator() {
+				final Iterator<Instance<K,F,V>> it = MappedDataSet.this.iterator();
+				return new Iterator<K>() {
+					@Override
+					public boolean hasNext() {
+						return it.hasNext();
+					}
+
+					@Override
+					public K next() {
+						return it.next().getId();
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException("Mapped data sets are read only");
+					}
+				};
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public boolean contains(Object o) {
+				return rowIndex().containsKey((K)o);
+			}
+
+			@Override
+			public int size() {
+				return rowCount;
+			}
+		};
+	}
+	
+	@Override
+	public boolean add(Instance<K,F,V> inst) {
+		throw new UnsupportedOperationException("Mapped data sets are read only");
+	}
+	
+	@Override
+	public Instance<K,F,V> remove(Instance<K,F,V> inst) {
+		throw new UnsupportedOperationException("Mapped data sets are read only");
+	}
+	
+	@Override
+	public Instance<K,F,V> remove(K id) {
+		throw new UnsupportedOperationException("Mapped data sets are read only");
+	}
+	
+	@Override
+	public Instance<K,F,V> get(K id) {
+		int row = getRow(id);
+		return (row >= 0) ? getInstance(row) : null;
+	}
+	
+	@Override
+	public int size() {
+		return rowCount;
+	}
+	
+	/***
+	 * Return a DataSet with random fraction number of Instances as this DataSet.  The sample holds 
+	 * views of the instances in this DataSet.
+	 * @param fraction fraction of Instances to return in the range of 0 and 1
+	 * @return resulting sample DataSet
+	 */
+	@Override
+	public DataSet<K,F,V> sample(double fraction) {
+		DataSet<K,F,V> sample = new DataSet<>();
+		
+		// max fraction is 1
+		if (fraction > 1) fraction = 1;
+		
+		// no samples are requested - return an empty data set
+		if (fraction <= 0) return sample;
+		
+		long numToSample = Math.round( rowCount * fraction );
+		
+		int[] order = shuffledRows();
+		for (int i = 0; i < numToSample; i++) {
+			sample.add( getInstance(order[i]) );
+		}
+		return sample;
+	}
+	
+	/***
+	 * Randomly split this DataSet into n similarly sized DataSets of views of the instances in this DataSet.
+	 * @param n the number of folds to split the DataSet - value must be greater than 1 and not greater than the number of instances in DataSet
+	 * @return a list of n DataSets
+	 */
+	@Override
+	public List<DataSet<K,F,V>> nFolds(int n) {
+		// Make sure n is valid: each fold must have at least one instance!
+		if (n > size() || n < 1) return null;
+		
+		List<DataSet<K,F,V>> folds = new LinkedList<>();
+		for (int i = 0; i < n; i++) {
+			folds.add(new DataSet<>());
+		}
+		
+		// the first size() % n folds get one extra instance
+		int[] order = shuffledRows();
+		int sliceSize = size() / n;
+		int extra = size() % n;
+		int fold = 0;
+		int inFold = 0;
+		for (int row : order) {
+			folds.get(fold).add(getInstance(row));
+			inFold++;
+			if (inFold == sliceSize + (fold < extra ? 1 : 0)) {
+				fold++;
+				inFold = 0;
+			}
+		}
+		return folds;
+	}
+	
+	private int[] shuffledRows() {
+		int[] order = new int[rowCount];
+		for (int row = 0; row < rowCount; row++) {
+			order[row] = row;
+		}
+		Random rnd = new Random();
+		for (int j = order.length - 1; j > 0; j--) {
+			int k = rnd.nextInt(j + 1);
+			int t = order[j];
+			order[j] = order[k];
+			order[k] = t;
+		}
+		return order;
+	}
+	
+	@Override
+	public void normalizeInstanceFeature(F featureName) {
+		throw new UnsupportedOperationException("Mapped data sets are read only");
+	}
+	
+	@Override
+	public Iterator<Instance<K,F,V>> iterator() {
+		return new Iterator<Instance<K,F,V>>() {
+			int next = 0;
+			
+			@Override
+			public boolean hasNext() {
+				return (next < rowCount);
+			}
+
+			@Override
+			public Instance<K,F,V> next() {
+				if (next >= rowCount) throw new NoSuchElementException();
+				return getInstance(next++);
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException("Mapped data sets are read only");
+			}
+		};
+	}
+	
+	@Override
+	public void clear() {
+		throw new UnsupportedOperationException("Mapped data sets are read only");
+	}
+	
+	@Override
+	public boolean contains(Instance<K,F,V> inst) {
+		return rowIndex().containsKey(inst.getId());
+	}
+	
+	@Override
+	public boolean containsAll(Collection<Instance<K,F,V>> c) {
+		for (Instance<K,F,V> i : c) {
+			if (!contains(i)) return false;
+		}
+		return true;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return rowCount == 0;
+	}
+	
+	private Object writeReplace() {
+		return new SerializedForm(file.getAbsoluteFile());
+	}
+	
+	private void readObject(ObjectInputStream in) throws InvalidObjectException {
+		throw new InvalidObjectException("Mapped data sets are serialized by file path");
+	}
+	
+	/***
+	 * The serialized form of a MappedDataSet: the path of its file, which is mapped again when read.
+	 */
+	private static class SerializedForm implements Serializable {
+		private static final long serialVersionUID = -1954376290155716284L;
+		
+		private final File file;
+		
+		SerializedForm(File file) {
+			this.file = file;
+		}
+		
+		private Object readResolve() throws InvalidObjectException {
+			try {
+				return open(file);
+			}
+			catch (IOException e) {
+				InvalidObjectException ex = new InvalidObjectException("Can't map data set file: " + file);
+				ex.initCause(e);
+				throw ex;
+			}
+		}
+	}
+}
@@ -0,0 +1,196 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.columnar;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.feature.Feature;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/***
+ * A read-only view of one row of a MappedDataSet.
+ * 
+ * The view holds no features of its own.  Features are created from the mapped columns of the data
+ * set each time they are requested.  Methods that would modify the instance throw an 
+ * UnsupportedOperationException.
+ *
+ */
+public class MappedInstance<K,F,V> extends Instance<K,F,V> {
+	private static final long serialVersionUID = -4637024918513209618L;
+	
+	private final MappedDataSet<K,F,V> ds;
+	private final int row;
+	
+	MappedInstance(K id, MappedDataSet<K,F,V> ds, int row) {
+		super(id);
+		this.ds = ds;
+		this.row = row;
+	}
+	
+	/***
+	 * Return the row of the data set this instance is a view of
+	 * 
+	 * @return the row
+	 */
+	public int getRow() {
+		return row;
+	}
+	
+	/***
+	 * Return the data set this instance is a view of
+	 * 
+	 * @return the data set
+	 */
+	@JsonIgnore
+	public MappedDataSet<K,F,V> getDataSet() {
+		return ds;
+	}
+	
+	@Override
+	public boolean hasClassLabel(String label) {
+		return getClassLabel().equalsIgnoreCase(label);
+	}
+	
+	@Override
+	public void setClassLabel(String label) {
+		throw new UnsupportedOperationException("Mapped instances are read only");
+	}
+	
+	@Override
+	public String getClassLabel() {
+		return ds.getClassLabel(row);
+	}
+	
+	@Override
+	public void add(Feature<F,V> feature) {
+		throw new UnsupportedOperationException("Mapped instances are read only");
+	}
+	
+	@Override
+	public boolean containsFeature(F featureName) {
+		return ds.containsFeature(row, featureName);
+	}
+	
+	@Override
+	public Feature<F,V> getFeature(F featureName) {
+		return ds.getFeature(row, featureName);
+	}
+	
+	@Override
+	@JsonIgnore
+	public boolean isEmpty() {
+		return ds.getFeatures(row).isEmpty();
+	}
+	
+	@Override
+	@JsonIgnore
+	public Collection<Feature<F,V>> getAllFeatures() {
+		return ds.getFeatures(row);
+	}
+	
+	/***
+	 * Return a map of the Features of the row keyed by Feature name.  The map is a copy so 
+	 * changes to it aren't written to the data set.
+	 * 
+	 * @return a Map of Features
+	 */
+	@Override
+	public Map<F, Feature<F,V>> getFeatures() {
+		Map<F, Feature<F,V>> features = new LinkedHashMap<>();
+		for (Feature<F,V> feature : getAllFeatures()) {
+			features.put(feature.getId(), feature);
+		}
+		return features;
+	}
+	
+	@Override
+	public void setFeatures(Map<F, Feature<F,V>> features) {
+		throw new UnsupportedOperationException("Mapped instances are read only");
+	}
+	
+	@Override
+	public void removeFeature(F featureName) {
+		throw new UnsupportedOperationException("Mapped instances are read only");
+	}
+	
+	@Override
+	public void removeAllFeatures() {
+		throw new UnsupportedOperationException("Mapped instances are read only");
+	}
+	
+	@Override
+	public int numFeatures() {
+		return getAllFeatures().size();
+	}
+	
+	/***
+	 * Return a plain Instance holding the named Features of the row, so each is created from the
+	 * columns once rather than each time it is requested.  The copy doesn't see later changes to
+	 * the row.
+	 * 
+	 * @param featureNames names of the Features that will be read
+	 * @return a copy of the named Features of the row
+	 */
+	@Override
+	public Instance<K,F,V> snapshot(Iterable<F> featureNames) {
+		Instance<K,F,V> copy = new Instance<>(id);
+		for (F featureName : featureNames) {
+			Feature<F,V> feature = getFeature(featureName);
+			if (feature != null) copy.add(feature);
+		}
+		return copy;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) return true;
+		if (!(obj instanceof MappedInstance)) return false;
+		
+		MappedInstance<?,?,?> other = (MappedInstance<?,?,?>)obj;
+		return (ds == other.ds && row == other.row);
+	}
+	
+	@Override
+	public int hashCode() {
+		return super.hashCode();
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder str = new StringBuilder();
+		str.append("\"id:").append(id).append("\",");
+		Collection<Feature<F,V>> features = getAllFeatures();
+		int i = 1;
+		for (Feature<F,V> feature : features) {
+			str.append('"').append(feature.toString()).append('"');
+			if (i < features.size()) str.append(',');
+			i++;
+		}
+		return str.toString();
+	}
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.columnar;
+
+import com.oculusinfo.ml.feature.Feature;
+
+import java.util.Arrays;
+
+/***
+ * A column of fixed length numeric vector features (features with a double[] value) stored 
+ * in a single contiguous array 
+ *
+ */
+public class NumericVectorColumn<F> extends FeatureColumn<F> {
+	private static final long serialVersionUID = 7853305180734218807L;
+	
+	private final int dimension;
+	private double[] values = new double[0];
+	
+	/***
+	 * Create a column of vectors
+	 * 
+	 * @param name the feature name
+	 * @param dimension the length of every vector in the column
+	 */
+	public NumericVectorColumn(F name, int dimension) {
+		super(name);
+		if (dimension < 1) {
+			throw new IllegalArgumentException("Vector dimension must be at least 1");
+		}
+		this.dimension = dimension;
+	}
+	
+	public int getDimension() {
+		return dimension;
+	}
+	
+	/***
+	 * Return one component of the vector in row
+	 * 
+	 * @param row the row
+	 * @param i the index of the component
+	 * @return the component value
+	 */
+	public double get(int row, int i) {
+		return values[row*dimension + i];
+	}
+	
+	/***
+	 * Normalize every vector in the column to zero mean and unit standard deviation per component
+	 * 
+	 * @param rows the number of rows in the data set
+	 */
+	public void normalize(int rows) {
+		int s = present.cardinality();
+		if (s == 0) return;
+		
+		double[] mean = new double[dimension];
+		double[] stdev = new double[dimension];
+		
+		for (int row = present.nextSetBit(0); row >= 0 && row < rows; row = present.nextSetBit(row+1)) {
+			for (int i = 0; i < dimension; i++) {
+				mean[i] += values[row*dimension + i];
+			}
+		}
+		for (int i = 0; i < dimension; i++) {
+			mean[i] /= s;
+		}
+		for (int row = present.nextSetBit(0); row >= 0 && row < rows; row = present.nextSetBit(row+1)) {
+			for (int i = 0; i < dimension; i++) {
+				double delta = values[row*dimension + i] - mean[i];
+				stdev[i] += delta * delta;
+			}
+		}
+		for (int i = 0; i < dimension; i++) {
+			stdev[i] = Math.sqrt(stdev[i] / (s - 1));
+		}
+		for (int row = present.nextSetBit(0); row >= 0 && row < rows; row = present.nextSetBit(row+1)) {
+			for (int i = 0; i < dimension; i++) {
+				values[row*dimension + i] = (values[row*dimension + i] - mean[i]) / stdev[i];
+			}
+		}
+	}
+	
+	@Override
+	public boolean accepts(Feature<F,?> feature) {
+		Object value = feature.getValue();
+		return (value instanceof double[] && ((double[])value).length == dimension);
+	}
+	
+	@Override
+	protected void resize(int capacity) {
+		values = Arrays.copyOf(values, capacity*dimension);
+	}
+	
+	@Override
+	protected void setValue(int row, Feature<F,?> feature) {
+		System.arraycopy((double[])feature.getValue(), 0, values, row*dimension, dimension);
+	}
+	
+	@Override
+	protected Feature<F,double[]> createFeature(int row) {
+		return new Feature<>(name, Arrays.copyOfRange(values, row*dimension, (row+1)*dimension));
+	}
+	
+	@Override
+	protected void moveValue(int from, int to) {
+		System.arraycopy(values, from*dimension, values, to*dimension, dimension);
+	}
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.columnar;
+
+import com.oculusinfo.ml.feature.Feature;
+
+import java.util.Arrays;
+
+/***
+ * A column that stores feature objects as is.  Used for feature types without a primitive column.
+ *
+ */
+public class ObjectColumn<F> extends FeatureColumn<F> {
+	private static final long serialVersionUID = -3897315497380858436L;
+	
+	@SuppressWarnings("rawtypes")
+	private Feature[] features = new Feature[0];
+	
+	public ObjectColumn(F name) {
+		super(name);
+	}
+	
+	@Override
+	public boolean accepts(Feature<F,?> feature) {
+		return true;
+	}
+	
+	@Override
+	protected void resize(int capacity) {
+		features = Arrays.copyOf(features, capacity);
+	}
+	
+	@Override
+	protected void setValue(int row, Feature<F,?> feature) {
+		features[row] = feature;
+	}
+	
+	@Override
+	@SuppressWarnings("rawtypes")
+	protected Feature createFeature(int row) {
+		return features[row];
+	}
+	
+	@Override
+	protected void clearValue(int row) {
+		features[row] = null;
+	}
+	
+	@Override
+	protected void moveValue(int from, int to) {
+		features[to] = features[from];
+	}
+	
+	@Override
+	void move(int from, int to) {
+		super.move(from, to);
+		if (!present.get(to)) features[to] = null;
+	}
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.columnar;
+
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.string.StringFeature;
+import com.oculusinfo.ml.utils.TokenDictionary;
+
+import java.util.Arrays;
+
+/***
+ * A column of StringFeatures stored as ids interned in a TokenDictionary
+ *
+ */
+public class StringColumn<F> extends FeatureColumn<F> {
+	private static final long serialVersionUID = 1936452958052683441L;
+	
+	private final TokenDictionary<Object> dictionary;
+	private int[] tokens = new int[0];
+	
+	public StringColumn(F name, TokenDictionary<Object> dictionary) {
+		super(name);
+		this.dictionary = dictionary;
+	}
+	
+	/***
+	 * Return the token id of the string in row
+	 * 
+	 * @param row the row
+	 * @return the token id or TokenDictionary.NO_TOKEN if the string is null
+	 */
+	public int getToken(int row) {
+		return tokens[row];
+	}
+	
+	public TokenDictionary<Object> getDictionary() {
+		return dictionary;
+	}
+	
+	@Override
+	public boolean accepts(Feature<F,?> feature) {
+		return (feature instanceof StringFeature);
+	}
+	
+	@Override
+	protected void resize(int capacity) {
+		tokens = Arrays.copyOf(tokens, capacity);
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	protected void setValue(int row, Feature<F,?> feature) {
+		tokens[row] = dictionary.intern(((StringFeature<F>)feature).getValue());
+	}
+	
+	@Override
+	protected Feature<F,Object> createFeature(int row) {
+		StringFeature<F> str = new StringFeature<>(name);
+		str.setValue((String)dictionary.getToken(tokens[row]));
+		return str;
+	}
+	
+	@Override
+	protected void moveValue(int from, int to) {
+		tokens[to] = tokens[from];
+	}
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.columnar;
+
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.temporal.TemporalFeature;
+
+import java.util.Arrays;
+import java.util.Date;
+
+/***
+ * A column of TemporalFeatures stored as start and end times in milliseconds
+ *
+ */
+public class TemporalColumn<F> extends FeatureColumn<F> {
+	private static final long serialVersionUID = -2219040312911006185L;
+	
+	// marks a missing start or end date
+	public static final long NO_TIME = Long.MIN_VALUE;
+	
+	private long[] start = new long[0];
+	private long[] end = new long[0];
+	
+	public TemporalColumn(F name) {
+		super(name);
+	}
+	
+	public long getStart(int row) {
+		return start[row];
+	}
+	
+	public long getEnd(int row) {
+		return end[row];
+	}
+	
+	@Override
+	public boolean accepts(Feature<F,?> feature) {
+		return (feature instanceof TemporalFeature);
+	}
+	
+	@Override
+	protected void resize(int capacity) {
+		start = Arrays.copyOf(start, capacity);
+		end = Arrays.copyOf(end, capacity);
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	protected void setValue(int row, Feature<F,?> feature) {
+		TemporalFeature<F> time = (TemporalFeature<F>)feature;
+		start[row] = (time.getStart() != null) ? time.getStart().getTime() : NO_TIME;
+		end[row] = (time.getEnd() != null) ? time.getEnd().getTime() : NO_TIME;
+	}
+	
+	@Override
+	protected Feature<F,Object> createFeature(int row) {
+		TemporalFeature<F> time = new TemporalFeature<>(name);
+		time.setValue((start[row] != NO_TIME) ? new Date(start[row]) : null, 
+					  (end[row] != NO_TIME) ? new Date(end[row]) : null);
+		return time;
+	}
+	
+	@Override
+	protected void moveValue(int from, int to) {
+		start[to] = start[from];
+		end[to] = end[from];
+	}
+}
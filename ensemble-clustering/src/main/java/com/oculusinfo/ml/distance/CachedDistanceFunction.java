@@ -0,0 +1,381 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.distance;
+
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.bagofwords.BagOfWordsFeature;
+import com.oculusinfo.ml.feature.semantic.SemanticFeature;
+import com.oculusinfo.ml.feature.temporal.TemporalFeature;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/***
+ * A distance function that memoises the distances of another distance function.
+ * 
+ * Distances are cached by the pair of feature values they were computed for, so repeated comparisons 
+ * of the same values, such as the same names or concepts against the same centroids across iterations, 
+ * are only computed once.  Array values are compared by content.  The pair is unordered unless the 
+ * delegate isn't symmetric.
+ * 
+ * By default the value of a feature is its concept and uri for SemanticFeatures, its start and end for
+ * TemporalFeatures, its term ids and frequencies for BagOfWordsFeatures and getValue() for any other
+ * feature.  Features that keep their state elsewhere need a KeyFunction that extracts it, since features
+ * without a value are rejected rather than cached under the same key.
+ * 
+ * The cache holds at most maxSize distances.  It is split into segments, each guarded by its own lock
+ * and evicting its least recently used (LRU) or oldest (FIFO) entry when full, so it can be shared by
+ * the threads of a clusterer.  Delegate distances are computed outside the locks.
+ * 
+ * Only wrap distance functions that depend on nothing but the two values, and only for features whose
+ * values aren't modified in place after they are compared.  Bounded distances that stop early are
+ * returned but not cached.
+ *
+ * @param <T>
+ */
+public class CachedDistanceFunction<T> extends DistanceFunction<T> {
+	private static final long serialVersionUID = 2518530906420735212L;
+	private static final int SEGMENTS = 16;
+	
+	public enum Eviction {
+		LRU,
+		FIFO
+	}
+	
+	/***
+	 * Extracts the value of a feature that determines its distances
+	 */
+	public interface KeyFunction<T> extends Serializable {
+		Object keyOf(T x);
+	}
+	
+	private final DistanceFunction<T> delegate;
+	private final int maxSize;
+	private final Eviction eviction;
+	private final boolean symmetric;
+	private final KeyFunction<T> key;
+	
+	private transient Segment[] segments;
+	private transient LongAdder hits;
+	private transient LongAdder misses;
+	private transient LongAdder evictions;
+	
+	/***
+	 * Cache the distances of a symmetric distance function, evicting the least recently used distances
+	 * 
+	 * @param delegate the distance function to cache
+	 * @param maxSize the maximum number of distances to cache
+	 */
+	public CachedDistanceFunction(DistanceFunction<T> delegate, int maxSize) {
+		this(delegate, maxSize, Eviction.LRU, true);
+	}
+	
+	/***
+	 * Cache the distances of a distance function
+	 * 
+	 * @param delegate the distance function to cache
+	 * @param maxSize the maximum number of distances to cache
+	 * @param eviction the distances to evict once the cache is full
+	 * @param symmetric true if distance(x, y) always equals distance(y, x)
+	 */
+	public CachedDistanceFunction(DistanceFunction<T> delegate, int maxSize, Eviction eviction, boolean symmetric) {
+		this(delegate, maxSize, eviction, symmetric, CachedDistanceFunction::valueOf);
+	}
+	
+	/***
+	 * Cache the distances of a distance function by the keys of the compared features
+	 * 
+	 * @param delegate the distance function to cache
+	 * @param maxSize the maximum number of distances to cache
+	 * @param eviction the distances to evict once the cache is full
+	 * @param symmetric true if distance(x, y) always equals distance(y, x)
+	 * @param key extracts everything the delegate's distance depends on from a feature
+	 */
+	public CachedDistanceFunction(DistanceFunction<T> delegate, int maxSize, Eviction eviction, boolean symmetric, KeyFunction<T> key) {
+		super(delegate.getWeight());
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("Cache size must be at least 1");
+		}
+		this.delegate = delegate;
+		this.maxSize = maxSize;
+		this.eviction = eviction;
+		this.symmetric = symmetric;
+		this.key = key;
+		init();
+	}
+	
+	private void init() {
+		hits = new LongAdder();
+		misses = new LongAdder();
+		evictions = new LongAdder();
+		
+		int count= Math.min(SEGMENTS, maxSize);
+		segments = new Segment[count];
+		for (int i = 0; i < count; i++) {
+			// spread the capacity so the segments hold maxSize in total
+			segments[i] = new Segment(maxSize / count + (i < maxSize % count ? 1 : 0), eviction == Eviction.LRU, evictions);
+		}
+	}
+	
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		init();
+	}
+	
+	public DistanceFunction<T> getDelegate() {
+		return delegate;
+	}
+	
+	public int getMaxSize() {
+		return maxSize;
+	}
+	
+	public Eviction getEviction() {
+		return eviction;
+	}
+	
+	@Override
+	public double distance(T x, T y) {
+		return distance(x, y, Double.MAX_VALUE);
+	}
+	
+	@Override
+	public double distance(T x, T y, double cutoff) {
+		Pair key = new Pair(keyOf(x), keyOf(y), symmetric);
+		Segment segment = segments[(key.hash & 0x7fffffff) % segments.length];
+		
+		Double cached = segment.get(key);
+		if (cached != null) {
+			hits.increment();
+			return cached;
+		}
+		misses.increment();
+		
+		double d = delegate.distance(x, y, cutoff);
+		// a distance beyond the cutoff may only be a lower bound
+		if (d <= cutoff) {
+			segment.put(key, d);
+		}
+		return d;
+	}
+	
+	@Override
+	public double getCost() {
+		return delegate.getCost();
+	}
+	
+	/***
+	 * Return the number of distances found in the cache
+	 * 
+	 * @return the number of cache hits
+	 */
+	public long getHitCount() {
+		return hits.sum();
+	}
+	
+	/***
+	 * Return the number of distances that had to be computed
+	 * 
+	 * @return the number of cache misses
+	 */
+	public long getMissCount() {
+		return misses.sum();
+	}
+	
+	/***
+	 * Return the number of distances evicted to make room for new ones
+	 * 
+	 * @return the number of evictions
+	 */
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+	
+	/***
+	 * Return the fraction of distances found in the cache
+	 * 
+	 * @return the hit rate or 0 if no distances have been requested
+	 */
+	public double getHitRate() {
+		long h = hits.sum();
+		long total = h + misses.sum();
+		return (total == 0) ? 0 : (double)h / total;
+	}
+	
+	/***
+	 * Return the number of cached distances
+	 * 
+	 * @return the cache size
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			size += segment.size();
+		}
+		return size;
+	}
+	
+	/***
+	 * Remove all cached distances and reset the metrics
+	 */
+	public void clear() {
+		for (Segment segment : segments) {
+			segment.clear();
+		}
+		hits.reset();
+		misses.reset();
+		evictions.reset();
+	}
+	
+	private Object keyOf(T x) {
+		Object k = key.keyOf(x);
+		if (k == null) {
+			throw new IllegalArgumentException("No cache key for " + x + ", provide a KeyFunction for its feature type");
+		}
+		return k;
+	}
+	
+	@SuppressWarnings("rawtypes")
+	private static Object valueOf(Object x) {
+		if (x instanceof SemanticFeature) {
+			SemanticFeature f = (SemanticFeature)x;
+			return Arrays.asList(f.getConcept(), f.getUri());
+		}
+		if (x instanceof TemporalFeature) {
+			TemporalFeature f = (TemporalFeature)x;
+			return Arrays.asList(f.getStart(), f.getEnd());
+		}
+		if (x instanceof BagOfWordsFeature) {
+			BagOfWordsFeature f = (BagOfWordsFeature)x;
+			int[] terms = new int[2 * f.getTermCount()];
+			for (int i = 0; i < f.getTermCount(); i++) {
+				terms[2 * i] = f.getTermId(i);
+				terms[2 * i + 1] = f.getTermFrequency(i);
+			}
+			return terms;
+		}
+		return (x instanceof Feature) ? ((Feature)x).getValue() : x;
+	}
+	
+	/***
+	 * A key of two values that compares arrays by content
+	 */
+	private static class Pair {
+		final Object a;
+		final Object b;
+		final int hash;
+		final boolean unordered;
+		
+		Pair(Object x, Object y, boolean unordered) {
+			this.unordered = unordered;
+			int hx= hash(x);
+			int hy = hash(y);
+			// order an unordered pair by hash so both orders share a key
+			if (unordered && hy < hx) {
+				a = y;
+				b = x;
+				hash = 31 * hy + hx;
+			}
+			else {
+				a = x;
+				b = y;
+				hash = 31 * hx + hy;
+			}
+		}
+		
+		private static int hash(Object v) {
+			if (v == null) return 0;
+			if (v.getClass().isArray()) return Arrays.deepHashCode(new Object[] { v });
+			return v.hashCode();
+		}
+		
+		private static boolean equal(Object v, Object w) {
+			if (v == w) return true;
+			if (v == null || w == null) return false;
+			if (v.getClass().isArray()) return Arrays.deepEquals(new Object[] { v }, new Object[] { w });
+			return v.equals(w);
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) return true;
+			if (!(obj instanceof Pair)) return false;
+			
+			Pair other = (Pair)obj;
+			if (hash != other.hash) return false;
+			if (equal(a, other.a) && equal(b, other.b)) return true;
+			// unordered values with equal hashes may be held in either order
+			return unordered && equal(a, other.b) && equal(b, other.a);
+		}
+	}
+	
+	/***
+	 * A bounded map of distances guarded by its own lock
+	 */
+	private static class Segment {
+		private final LinkedHashMap<Pair, Double> map;
+		
+		Segment(final int capacity, boolean accessOrder, final LongAdder evictions) {
+			map = new LinkedHashMap<Pair, Double>(16, 0.75f, accessOrder) {
+				private static final long serialVersionUID = -2711046358622474357L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Pair, Double> eldest) {
+					if (size() > capacity) {
+						evictions.increment();
+						return true;
+					}
+					return false;
+				}
+			};
+		}
+		
+		synchronized Double get(Pair key) {
+			return map.get(key);
+		}
+		
+		synchronized void put(Pair key, double d) {
+			map.put(key, d);
+		}
+		
+		synchronized int size() {
+			return map.size();
+		}
+		
+		synchronized void clear() {
+			map.clear();
+		}
+	}
+}
@@ -73,6 +73,63 @@ public abstract class DistanceFunction<T> implements Serializable {
 	 */
 	public abstract double distance(T x, T y);
 	
+	/***
+	 * Bounded distance method used when only distances up to cutoff are of interest.
+	 * 
+	 * Sub-classes may stop as soon as the distance is known to exceed cutoff and return any value greater
+	 * than cutoff that is no larger than the distance.  By default the full distance is computed.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param cutoff the largest distance of interest
+	 * @return the distance if it is at most cutoff, otherwise a value in (cutoff, distance]
+	 */
+	public double distance(T x, T y, double cutoff) {
+		return distance(x, y);
+	}
+	
+	/***
+	 * Batch distance method that computes the distance from x to each of the candidates ys.
+	 * 
+	 * Sub-classes that can share work across candidates, such as per query set up or tight loops over
+	 * primitive values, override this method and isBatchable().  By default each pair is computed with 
+	 * distance(x, y).
+	 * 
+	 * @param x the query
+	 * @param ys the candidates
+	 * @param out receives the distance from x to ys.get(i) at index i, must hold at least ys.size() values
+	 */
+	public void distances(T x, List<? extends T> ys, double[] out) {
+		final int n = ys.size();
+		for (int i = 0; i < n; i++) {
+			out[i] = distance(x, ys.get(i));
+		}
+	}
+	
+	/***
+	 * Return true if distances(x, ys, out) is cheaper than computing each pair on its own.
+	 * 
+	 * Clusterers compute the distances from an instance to a whole block of clusters at once when every 
+	 * distance function they use is batchable, instead of bounding each pair, see distance(x, y, cutoff).
+	 * 
+	 * @return true if the batch distance method is specialised
+	 */
+	public boolean isBatchable() {
+		return false;
+	}
+	
+	/***
+	 * Return the relative cost of calculating a distance with this function.
+	 * 
+	 * Clusterers evaluate the cheapest distance functions first so that the expensive ones can be skipped 
+	 * once an instance is known to be too far from a cluster.  Simple numeric distances have a cost of 1.
+	 * 
+	 * @return the relative cost
+	 */
+	public double getCost() {
+		return 1;
+	}
+
 	private double[][] createCoverMatrix(Collection<T> x, Collection<T> y) {
 		double cover[][] = new double[x.size()][y.size()];
 		
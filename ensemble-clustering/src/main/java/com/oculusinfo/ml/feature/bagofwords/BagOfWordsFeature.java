@@ -25,24 +25,47 @@
 package com.oculusinfo.ml.feature.bagofwords;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.oculusinfo.ml.utils.TokenDictionary;
 import com.oculusinfo.ml.feature.Feature;
 import com.oculusinfo.ml.feature.string.StringFeature;
 import com.oculusinfo.ml.stats.FeatureFrequency;
 import com.oculusinfo.ml.stats.FeatureFrequencyTable;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 
 /***
  * A BagOfWordsFeature represents a Set of Words each of which is associated with a frequency count.
  * 
  * Useful for representing Document or other Text fields in a DataSet.
  * 
+ * Terms are interned as integer ids in a term dictionary shared by all bags of words, and each bag 
+ * stores its terms as a sparse vector of term ids sorted in increasing order with their frequencies.  
+ * Distances and centroids work on the ids, so comparing bags doesn't hash the terms or allocate.  Term 
+ * ids are only meaningful within a JVM, serialized bags of words store the terms themselves.
+ * 
+ * The term dictionary is shared by the whole JVM and only grows, so every distinct term seen keeps 
+ * using memory for the life of the JVM.  Clustering unbounded streams of text should bound the 
+ * vocabulary before creating the bags of words, for example by stemming or dropping rare terms.
+ * 
  * @author slangevin
  *
  */
 public class BagOfWordsFeature<K> extends Feature<K, Object> {
 	private static final long serialVersionUID = 6927104885425283254L;
-	private FeatureFrequencyTable<K> freqTable = new FeatureFrequencyTable();
+	private static final int[] EMPTY = new int[0];
+	// every distinct term ever interned stays on the heap
+	private static final TokenDictionary<Object> dictionary = new TokenDictionary<>();
+	
+	private transient int[] termIds = EMPTY;
+	private transient int[] counts = EMPTY;
+	private transient int size = 0;
+	private transient double norm = -1;  // cached euclidean length, negative when stale
 	
 	public BagOfWordsFeature() {
 		super();
@@ -52,51 +75,334 @@ public class BagOfWordsFeature<K> extends Feature<K, Object> {
 		super(name);
 	}
 	
+	/***
+	 * Return the dictionary of the terms of all bags of words
+	 * 
+	 * @return the term dictionary
+	 */
+	public static TokenDictionary<Object> getTermDictionary() {
+		return dictionary;
+	}
+	
 	public void setCount(FeatureFrequency<K> freq) {
-		freqTable.remove(freq);
-		freqTable.add(freq);
+		setCount(freq.feature.getId(), freq.frequency);
 	}
 	
 	public void setCount(K term, int count) {
-		FeatureFrequency<K> freq = new FeatureFrequency(new StringFeature(term));
-		freq.frequency = count;
-		setCount(freq);
+		setCountById(dictionary.intern(term), count);
 	}
 	
 	public void incrementValue(K term) {
-		freqTable.add(new StringFeature(term));
+		incrementById(dictionary.intern(term), 1);
 	}
 	
 	public void decrementValue(String value) {
-		freqTable.decrement(new StringFeature(value));
+		int id = dictionary.getId(value);
+		if (id != TokenDictionary.NO_TOKEN) incrementById(id, -1);
 	}
 	
 	public FeatureFrequency<K> getCount(K term) {
-		return freqTable.get(new StringFeature(term));
+		int pos = indexOf(dictionary.getId(term));
+		if (pos < 0) return null;
+		
+		FeatureFrequency<K> freq = new FeatureFrequency(new StringFeature(term));
+		freq.frequency = counts[pos];
+		return freq;
+	}
+	
+	/***
+	 * Return the frequency of term or 0 if the bag doesn't contain it
+	 * 
+	 * @param term the term
+	 * @return the frequency
+	 */
+	public int getFrequency(K term) {
+		return getFrequencyById(dictionary.getId(term));
+	}
+	
+	/***
+	 * Return the frequency of the term with id termId or 0 if the bag doesn't contain it
+	 * 
+	 * @param termId the term id
+	 * @return the frequency
+	 */
+	public int getFrequencyById(int termId) {
+		int pos = indexOf(termId);
+		return (pos < 0) ? 0 : counts[pos];
+	}
+	
+	/***
+	 * Set the frequency of the term with id termId, removing the term if count is not positive
+	 * 
+	 * @param termId the term id
+	 * @param count the new frequency
+	 */
+	public void setCountById(int termId, int count) {
+		int pos = Arrays.binarySearch(termIds, 0, size, termId);
+		if (pos >= 0) {
+			if (count > 0) counts[pos] = count;
+			else removeAt(pos);
+		}
+		else if (count > 0) {
+			insertAt(-pos - 1, termId, count);
+		}
+		norm = -1;
+	}
+	
+	/***
+	 * Add increment to the frequency of the term with id termId, removing the term if its frequency 
+	 * drops to 0 or below
+	 * 
+	 * @param termId the term id
+	 * @param increment the amount to add
+	 */
+	public void incrementById(int termId, int increment) {
+		int pos = Arrays.binarySearch(termIds, 0, size, termId);
+		if (pos >= 0) {
+			int count = counts[pos] + increment;
+			if (count > 0) counts[pos] = count;
+			else removeAt(pos);
+		}
+		else if (increment > 0) {
+			insertAt(-pos - 1, termId, increment);
+		}
+		norm = -1;
+	}
+	
+	/***
+	 * Return the number of distinct terms in the bag
+	 * 
+	 * @return the number of terms
+	 */
+	public int getTermCount() {
+		return size;
+	}
+	
+	/***
+	 * Return the id of the i-th term, terms are ordered by increasing id
+	 * 
+	 * @param i the index of the term in [0, getTermCount())
+	 * @return the term id
+	 */
+	public int getTermId(int i) {
+		return termIds[i];
+	}
+	
+	/***
+	 * Return the frequency of the i-th term
+	 * 
+	 * @param i the index of the term in [0, getTermCount())
+	 * @return the frequency
+	 */
+	public int getTermFrequency(int i) {
+		return counts[i];
+	}
+	
+	/***
+	 * Return the i-th term
+	 * 
+	 * @param i the index of the term in [0, getTermCount())
+	 * @return the term
+	 */
+	@SuppressWarnings("unchecked")
+	public K getTerm(int i) {
+		return (K)dictionary.getToken(termIds[i]);
+	}
+	
+	/***
+	 * Return the euclidean length of the vector of term frequencies
+	 * 
+	 * @return the norm
+	 */
+	@JsonIgnore
+	public double getNorm() {
+		double n = norm;
+		if (n < 0) {
+			long sum = 0;
+			for (int i = 0; i < size; i++) {
+				sum += (long)counts[i] * counts[i];
+			}
+			n = Math.sqrt(sum);
+			norm = n;
+		}
+		return n;
+	}
+	
+	/***
+	 * Return the dot product of the term frequencies of this bag and other
+	 * 
+	 * @param other the other bag of words
+	 * @return the dot product
+	 */
+	public double dot(BagOfWordsFeature<?> other) {
+		BagOfWordsFeature<?> a = this, b = other;
+		if (a.size > b.size) {
+			a = other;
+			b = this;
+		}
+		if (a.size == 0) return 0;
+		
+		long dot = 0;
+		int i = 0, j = 0;
+		
+		if ((long)a.size * (32 - Integer.numberOfLeadingZeros(b.size)) < b.size) {
+			// a much smaller bag is cheaper to search for in the larger one
+			for (; i < a.size; i++) {
+				int pos = Arrays.binarySearch(b.termIds, j, b.size, a.termIds[i]);
+				if (pos >= 0) {
+					dot += (long)a.counts[i] * b.counts[pos];
+					j = pos + 1;
+				}
+				else {
+					j = -pos - 1;
+					if (j == b.size) break;
+				}
+			}
+			return dot;
+		}
+		
+		// merge the sorted term ids
+		while (i < a.size && j < b.size) {
+			int ta = a.termIds[i], tb = b.termIds[j];
+			if (ta == tb) {
+				dot += (long)a.counts[i++] * b.counts[j++];
+			}
+			else if (ta < tb) {
+				i++;
+			}
+			else {
+				j++;
+			}
+		}
+		return dot;
+	}
+	
+	/***
+	 * Return the number of terms this bag and other have in common
+	 * 
+	 * @param other the other bag of words
+	 * @return the number of shared terms
+	 */
+	public int countSharedTerms(BagOfWordsFeature<?> other) {
+		int shared = 0;
+		int i = 0, j = 0;
+		while (i < size && j < other.size) {
+			int ta = termIds[i], tb = other.termIds[j];
+			if (ta == tb) {
+				shared++;
+				i++;
+				j++;
+			}
+			else if (ta < tb) {
+				i++;
+			}
+			else {
+				j++;
+			}
+		}
+		return shared;
+	}
+	
+	/***
+	 * Remove all terms from the bag
+	 */
+	public void clear() {
+		size = 0;
+		norm = -1;
 	}
 	
 	@JsonIgnore
 	public Collection<FeatureFrequency<K>> getValues() {
-		return freqTable.getAll();
+		List<FeatureFrequency<K>> values = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			FeatureFrequency<K> freq = new FeatureFrequency(new StringFeature(getTerm(i)));
+			freq.frequency = counts[i];
+			values.add(freq);
+		}
+		return values;
 	}
 	
+	/***
+	 * Return a frequency table holding a copy of the terms of the bag
+	 * 
+	 * @return the frequency table
+	 */
 	public FeatureFrequencyTable getFreqTable() {
-		return this.freqTable;
+		FeatureFrequencyTable<K> table = new FeatureFrequencyTable();
+		for (FeatureFrequency<K> freq : getValues()) {
+			table.add(freq);
+		}
+		return table;
 	}
 	
+	/***
+	 * Replace the terms of the bag with the terms in table
+	 * 
+	 * @param table the frequency table
+	 */
 	public void setFreqTable(FeatureFrequencyTable<K> table) {
-		freqTable = table;
+		clear();
+		for (FeatureFrequency<K> freq : table.getAll()) {
+			setCount(freq);
+		}
+	}
+	
+	private int indexOf(int termId) {
+		if (termId == TokenDictionary.NO_TOKEN) return -1;
+		return Arrays.binarySearch(termIds, 0, size, termId);
+	}
+	
+	private void insertAt(int pos, int termId, int count) {
+		if (size == termIds.length) {
+			int capacity = Math.max(4, size + (size >> 1));
+			termIds = Arrays.copyOf(termIds, capacity);
+			counts = Arrays.copyOf(counts, capacity);
+		}
+		System.arraycopy(termIds, pos, termIds, pos + 1, size - pos);
+		System.arraycopy(counts, pos, counts, pos + 1, size - pos);
+		termIds[pos] = termId;
+		counts[pos] = count;
+		size++;
+	}
+	
+	private void removeAt(int pos) {
+		System.arraycopy(termIds, pos + 1, termIds, pos, size - pos - 1);
+		System.arraycopy(counts, pos + 1, counts, pos, size - pos - 1);
+		size--;
+	}
+	
+	// term ids are local to the JVM so the terms themselves are written
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(size);
+		for (int i = 0; i < size; i++) {
+			out.writeObject(dictionary.getToken(termIds[i]));
+			out.writeInt(counts[i]);
+		}
+	}
+	
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		termIds = EMPTY;
+		counts = EMPTY;
+		size = 0;
+		norm = -1;
+		
+		int n = in.readInt();
+		for (int i = 0; i < n; i++) {
+			Object term = in.readObject();
+			int count = in.readInt();
+			setCountById(dictionary.intern(term), count);
+		}
 	}
 	
 	@Override
 	public String toString() {
 		StringBuilder str = new StringBuilder();
 		str.append(this.getName()).append(":[");
-		int i=1;
-		for (FeatureFrequency<K> f : freqTable.getAll()) {
-			str.append(f.feature.getName()).append("=").append(f.frequency);
-			if (i < freqTable.getAll().size()) str.append(';');
-			i++;
+		for (int i = 0; i < size; i++) {
+			if (i > 0) str.append(';');
+			str.append(getTerm(i)).append("=").append(counts[i]);
 		}
 		str.append(']');
 		
@@ -24,78 +24,151 @@
  */
 package com.oculusinfo.ml.feature.bagofwords.centroid;
 
-import com.gs.collections.api.bag.Bag;
+import com.gs.collections.impl.map.mutable.primitive.IntIntHashMap;
 import com.oculusinfo.ml.centroid.Centroid;
+import com.oculusinfo.ml.feature.Feature;
 import com.oculusinfo.ml.feature.bagofwords.BagOfWordsFeature;
-import com.oculusinfo.ml.stats.FeatureFrequency;
-import com.oculusinfo.ml.stats.FeatureFrequencyTable;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.Collection;
 import java.util.Collections;
 
 /***
  * A Centroid for BagOfWordsFeatures that represents the centroid as the top 10 words with the highest frequency
  * 
+ * The total frequency of each word is accumulated by term id, see BagOfWordsFeature.getTermDictionary().
+ * Words with the same frequency are ranked in the order they were first seen by the dictionary.
+ * 
  * @author slangevin
  *
  */
-public class BagOfWordsCentroid<F> implements Centroid<F,String> {
+public class BagOfWordsCentroid<F> implements Centroid<F,Object> {
 	private static final long serialVersionUID = -5723416814427314073L;
-	private String name;
 	private static final int MAX_CENTROID_FEATURES = 10;
-	protected final FeatureFrequencyTable<String> freqTable = new FeatureFrequencyTable();
-
-	ObjectIntHashMap<String> freqTable;
+	
+	private F name;
+	private transient IntIntHashMap counts = new IntIntHashMap();
 
 	@Override
-	public void add(String feature) {
-		for (FeatureFrequency<String> nom : feature.getValues()) {
-			freqTable.add(nom);
+	public void add(Feature<F,Object> feature) {
+		BagOfWordsFeature bag = (BagOfWordsFeature)feature;
+		for (int i = 0; i < bag.getTermCount(); i++) {
+			counts.addToValue(bag.getTermId(i), bag.getTermFrequency(i));
 		}
 	}
 	
 	@Override
-	public void remove(BagOfWordsFeature<String> feature) {
-		for (FeatureFrequency<String> nom : feature.getValues()) {
-			freqTable.decrementBy(nom.feature, nom.frequency);
+	public void remove(Feature<F,Object> feature) {
+		BagOfWordsFeature bag = (BagOfWordsFeature)feature;
+		for (int i = 0; i < bag.getTermCount(); i++) {
+			int id = bag.getTermId(i);
+			if (counts.addToValue(id, -bag.getTermFrequency(i)) <= 0) {
+				counts.removeKey(id);
+			}
 		}
 	}
 
 	@Override
-	public Collection<BagOfWordsFeature<String>> getAggregatableCentroid() {
-        BagOfWordsFeature rawCounts = new BagOfWordsFeature(name);
-        rawCounts.setFreqTable(freqTable);
-        return Collections.singleton(rawCounts);
-    }
+	public void merge(Centroid<F,Object> other) {
+		// the term ids are shared by every bag so partial counts simply sum
+		((BagOfWordsCentroid<F>)other).counts.forEachKeyValue((id, count) -> counts.addToValue(id, count));
+	}
+
+	@Override
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public Collection<Feature<F,Object>> getAggregatableCentroid() {
+		int[] ids = counts.keysView().toSortedArray();
+		BagOfWordsFeature rawCounts = new BagOfWordsFeature(name);
+		for (int id : ids) {
+			rawCounts.setCountById(id, counts.get(id));
+		}
+		return Collections.singleton(rawCounts);
+	}
 
-    @Override
-	public BagOfWordsFeature getCentroid() {
-		// centroid is the top N most frequent words
-		Collection<FeatureFrequency<String>> freqs = freqTable.getTopN(MAX_CENTROID_FEATURES);
+	@Override
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public Feature<F,Object> getCentroid() {
+		// centroid is the top N most frequent words, kept in order of decreasing frequency
+		final int[] topIds = new int[MAX_CENTROID_FEATURES];
+		final int[] topCounts = new int[MAX_CENTROID_FEATURES];
+		final int[] n = { 0 };
+		
+		counts.forEachKeyValue((id, count) -> {
+			int pos = n[0];
+			while (pos > 0 && (topCounts[pos-1] < count || (topCounts[pos-1] == count && topIds[pos-1] > id))) {
+				pos--;
+			}
+			if (pos >= MAX_CENTROID_FEATURES) return;
+			
+			int last = Math.min(n[0], MAX_CENTROID_FEATURES - 1);
+			System.arraycopy(topIds, pos, topIds, pos + 1, last - pos);
+			System.arraycopy(topCounts, pos, topCounts, pos + 1, last - pos);
+			topIds[pos] = id;
+			topCounts[pos] = count;
+			if (n[0] < MAX_CENTROID_FEATURES) n[0]++;
+		});
+		
 		BagOfWordsFeature medoid = new BagOfWordsFeature(name);
-		for (FeatureFrequency freq : freqs) {
-			medoid.setCount(freq);
+		for (int i = 0; i < n[0]; i++) {
+			medoid.setCountById(topIds[i], topCounts[i]);
 		}
 		return medoid;
 	}
 
 	@Override
-	public void setName(String name) {
+	public void setName(F name) {
 		this.name = name;
 	}
 
 	@Override
-	public String getName() {
+	public F getName() {
 		return this.name;
 	}
-
-
-	public FeatureFrequencyTable getFreqTable() {
-		return this.freqTable;
+	
+	/***
+	 * Return the total frequency of the term with id termId over the features in the centroid
+	 * 
+	 * @param termId the term id
+	 * @return the total frequency
+	 */
+	public int getFrequencyById(int termId) {
+		return counts.get(termId);
+	}
+	
+	/***
+	 * Return the ids of the terms in the centroid in increasing order
+	 * 
+	 * @return the term ids
+	 */
+	public int[] getTermIds() {
+		return counts.keysView().toSortedArray();
 	}
 
 	@Override
 	public void reset() {
-		freqTable.clear();
+		counts.clear();
+	}
+	
+	// term ids are local to the JVM so the terms themselves are written
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(counts.size());
+		for (int id : counts.keysView().toSortedArray()) {
+			out.writeObject(BagOfWordsFeature.getTermDictionary().getToken(id));
+			out.writeInt(counts.get(id));
+		}
+	}
+	
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		counts = new IntIntHashMap();
+		
+		int n = in.readInt();
+		for (int i = 0; i < n; i++) {
+			Object term = in.readObject();
+			counts.put(BagOfWordsFeature.getTermDictionary().intern(term), in.readInt());
+		}
 	}
 }
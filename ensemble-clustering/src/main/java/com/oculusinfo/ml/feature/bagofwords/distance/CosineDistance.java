@@ -26,7 +26,6 @@ package com.oculusinfo.ml.feature.bagofwords.distance;
 
 import com.oculusinfo.ml.distance.DistanceFunction;
 import com.oculusinfo.ml.feature.bagofwords.BagOfWordsFeature;
-import com.oculusinfo.ml.stats.FeatureFrequency;
 
 /***
  * A distance function that computes 1 - Cosine Similarity between two BagOfWordFeatures
@@ -47,20 +46,19 @@ public class CosineDistance<K> extends DistanceFunction<BagOfWordsFeature<K>> {
 	
 	@Override
 	public double distance(BagOfWordsFeature<K> x, BagOfWordsFeature<K> y) {
-		double dotprod = 0, xlength = 0, ylength = 0;
+		double xlength = x.getNorm(), ylength = y.getNorm();
 		
-		for (FeatureFrequency<K> xf : x.getValues()) {
-			xlength += xf.frequency * xf.frequency;
-			FeatureFrequency<K>  yf = y.getCount(xf.feature.getName());
-			if (yf != null) dotprod += xf.frequency * yf.frequency;
-		}
-		for (FeatureFrequency yf : y.getValues()) {
-			ylength += yf.frequency * yf.frequency;
-		}
 		// if both are empty then distance is max
 		if (xlength == 0 || ylength == 0) return 1.0;
 		
-		return 1.0 - (dotprod / ( Math.sqrt(xlength) * Math.sqrt(ylength) ));
+		// the term vectors are sorted by term id so the dot product is a merge of the two
+		double dotprod = x.dot(y);
+		
+		return Math.max(0, 1.0 - (dotprod / (xlength * ylength)));
+	}
+	
+	@Override
+	public double getCost() {
+		return 2;
 	}
-
 }
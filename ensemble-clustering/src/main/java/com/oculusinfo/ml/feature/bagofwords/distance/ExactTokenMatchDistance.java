@@ -26,7 +26,6 @@ package com.oculusinfo.ml.feature.bagofwords.distance;
 
 import com.oculusinfo.ml.distance.DistanceFunction;
 import com.oculusinfo.ml.feature.bagofwords.BagOfWordsFeature;
-import com.oculusinfo.ml.stats.FeatureFrequency;
 
 /***
  * A distance function that computes distance between two BagOfWordFeatures by 
@@ -48,24 +47,18 @@ public class ExactTokenMatchDistance extends DistanceFunction<BagOfWordsFeature<
 	
 	@Override
 	public double distance(BagOfWordsFeature<String> x, BagOfWordsFeature<String> y) {
-		double dist = 0;
-		int m = x.getValues().size();
-		int n = y.getValues().size();
+		int m = x.getTermCount();
+		int n = y.getTermCount();
 		double norm = Math.max(m, n);
 		
-		// set a to be the largest nominal list
-		BagOfWordsFeature<String> a = x, b = y;
-		if (m < n) {
-			a = y;
-			b = x;
-		}
-		
-		for (FeatureFrequency<String> xf : a.getValues()) {
-			if (b.getCount(xf.feature.getName()) == null) {
-				dist += 1;
-			}
-		}
+		// the number of words in the largest nominal list that aren't in the other
+		double dist = norm - x.countSharedTerms(y);
 
 		return dist / norm;
 	}
+	
+	@Override
+	public double getCost() {
+		return 2;
+	}
 }
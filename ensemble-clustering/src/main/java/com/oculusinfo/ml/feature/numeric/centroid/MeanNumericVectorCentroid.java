@@ -85,6 +85,25 @@ public class MeanNumericVectorCentroid<F> implements Centroid<F,double[]>  {
 		}
 		weight = newWeight;
 	}
+	
+	@Override
+	public void merge(Centroid<F,double[]> other) {
+		MeanNumericVectorCentroid<F> that = (MeanNumericVectorCentroid<F>)other;
+		if (that.meanVector == null) return;
+		
+		if (meanVector == null) {
+			meanVector = that.meanVector.clone();
+			weight = that.weight;
+			return;
+		}
+		
+		// weighted mean of the two partial means
+		double newWeight = weight + that.weight;
+		for (int i=0; i < meanVector.length; i++) {
+			meanVector[i] = (meanVector[i] * weight + that.meanVector[i] * that.weight) / newWeight;
+		}
+		weight = newWeight;
+	}
 
 
 	@Override
@@ -31,6 +31,7 @@ import com.oculusinfo.ml.feature.semantic.SemanticFeature;
  * A distance function that computes the distance between two SemanticFeatures
  * 
  * In order to use this distance function you must provide a taxonomy that describes the Semantic Class hierarchy as a tree
+ * which is indexed once on construction so that concept lookups and common ancestors are found in constant time
  * 
  * The distance calculation finds the lowest common ancestor between the two SemanticFeatures and computes
  * the distance using the algorithm described in:
@@ -42,20 +43,31 @@ import com.oculusinfo.ml.feature.semantic.SemanticFeature;
  */
 public class SemMFDistance extends DistanceFunction<SemanticFeature> {
 	private static final long serialVersionUID = -7485093350764491674L;
-	private final Concept taxonomy;
+	private final TaxonomyIndex taxonomy;
 	
 	public SemMFDistance(Concept taxonomy) {
 		this(taxonomy, 1);
 	}
 	
 	public SemMFDistance(Concept taxonomy, double weight) {
+		this(new TaxonomyIndex(taxonomy), weight);
+	}
+	
+	/***
+	 * Create a distance function over a prebuilt taxonomy index.  Large taxonomies should share one
+	 * index between all of the distance functions that use them.
+	 * 
+	 * @param taxonomy the frozen taxonomy index
+	 * @param weight the weight of the distance function
+	 */
+	public SemMFDistance(TaxonomyIndex taxonomy, double weight) {
 		super(weight);
 		this.taxonomy = taxonomy;
 	}
 	
-	private double distance(Concept x, Concept y) {
-		int xlvl = x.getDepth();
-		int ylvl = y.getDepth();
+	private double distance(int x, int y) {
+		int xlvl = taxonomy.getDepth(x);
+		int ylvl = taxonomy.getDepth(y);
 		return 0.5 / Math.pow(2, ylvl) -  0.5 / Math.pow(2, xlvl);
 	}
 	
@@ -63,16 +75,20 @@ public class SemMFDistance extends DistanceFunction<SemanticFeature> {
 	public double distance(SemanticFeature x, SemanticFeature y) {
 		double dist = 1;
 
-		Concept cx = taxonomy.findConcept(x.getConcept());
-		Concept cy = taxonomy.findConcept(y.getConcept());
-		Concept lca = cx.findCommonAncestor(cy);
+		int cx = taxonomy.indexOf(x.getConcept());
+		int cy = taxonomy.indexOf(y.getConcept());
 		
 		// No common ancestor exists - return max distance
-		if (lca != null) {
+		if (cx >= 0 && cy >= 0) {
+			int lca = taxonomy.findCommonAncestor(cx, cy);
 			dist = distance(cx, lca) + distance(cy, lca);
 		}
 		
 		return dist;
 	}
-
+	
+	@Override
+	public double getCost() {
+		return 5;
+	}
 }
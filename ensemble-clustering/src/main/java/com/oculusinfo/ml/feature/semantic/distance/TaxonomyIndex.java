@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.feature.semantic.distance;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+
+import com.gs.collections.impl.map.mutable.primitive.ObjectIntHashMap;
+
+/***
+ * A frozen index of a Concept taxonomy that answers name lookups and lowest common ancestor (LCA)
+ * queries in constant time without locking.
+ * 
+ * The index is built once from the root Concept with a single depth first traversal.  Each concept
+ * is given a dense id in pre-order so the concepts, parents and depths are kept in flat arrays.  For
+ * two distinct concepts u and v with u visited first, their LCA is the parent of the shallowest concept
+ * visited after u up to and including v, which is answered by a sparse table of range minimums over
+ * the pre-order.  The table holds n log n ints, about half of an equivalent Euler tour table.
+ * 
+ * The index is a snapshot: concepts added to the taxonomy after it is built are not seen.
+ *
+ */
+public final class TaxonomyIndex implements Serializable {
+	private static final long serialVersionUID = -2384725907826512270L;
+	
+	private final Concept[] concepts;
+	private final int[] parent;
+	private final int[] depth;
+	private final ObjectIntHashMap<String> ids;
+	// sparse[j][i] is the id of the shallowest concept in pre-order positions [i, i + 2^j)
+	private final int[][] sparse;
+	
+	public TaxonomyIndex(Concept root) {
+		List<Concept> order = new ArrayList<>();
+		List<Integer> parents = new ArrayList<>();
+		
+		// iterative pre-order traversal - deep taxonomies would overflow the stack if recursive
+		Deque<Concept> stack = new ArrayDeque<>();
+		Deque<Integer> stackParents = new ArrayDeque<>();
+		stack.push(root);
+		stackParents.push(-1);
+		while (!stack.isEmpty()) {
+			Concept c = stack.pop();
+			int p = stackParents.pop();
+			int id = order.size();
+			order.add(c);
+			parents.add(p);
+			for (Concept child : c.getChildren()) {
+				stack.push(child);
+				stackParents.push(id);
+			}
+		}
+		
+		int n = order.size();
+		concepts = order.toArray(new Concept[n]);
+		parent = new int[n];
+		depth = new int[n];
+		ids = new ObjectIntHashMap<>(n);
+		
+		// depths are relative to the root's own depth to match Concept.getDepth()
+		int base = root.getDepth();
+		for (int i = 0; i < n; i++) {
+			parent[i] = parents.get(i);
+			depth[i] = (parent[i] < 0) ? base : depth[parent[i]] + 1;
+			
+			// the first concept found with a name wins, as with Concept.findConcept
+			String key = key(concepts[i].getName());
+			if (!ids.containsKey(key)) ids.put(key, i);
+		}
+		
+		int levels = 1;
+		while ((1 << levels) <= n) levels++;
+		sparse = new int[levels][];
+		sparse[0] = new int[n];
+		for (int i = 0; i < n; i++) sparse[0][i] = i;
+		for (int j = 1; j < levels; j++) {
+			int half = 1 << (j - 1);
+			int len = n - (1 << j) + 1;
+			int[] prev = sparse[j - 1];
+			int[] cur = new int[len];
+			for (int i = 0; i < len; i++) {
+				cur[i] = shallower(prev[i], prev[i + half]);
+			}
+			sparse[j] = cur;
+		}
+	}
+	
+	private static String key(String name) {
+		return name.toLowerCase(Locale.ROOT);
+	}
+	
+	private int shallower(int a, int b) {
+		return (depth[b] < depth[a]) ? b : a;
+	}
+	
+	/***
+	 * @return the number of concepts in the index
+	 */
+	public int size() {
+		return concepts.length;
+	}
+	
+	/***
+	 * Finds the id of the concept with the given name, ignoring case
+	 * 
+	 * @param name the concept name
+	 * @return the concept id or -1 if the taxonomy does not contain the name
+	 */
+	public int indexOf(String name) {
+		if (name == null) return -1;
+		return ids.getIfAbsent(key(name), -1);
+	}
+	
+	public Concept getConcept(int id) {
+		return concepts[id];
+	}
+	
+	/***
+	 * @param id the concept id
+	 * @return the id of the concept's parent or -1 for the root
+	 */
+	public int getParent(int id) {
+		return parent[id];
+	}
+	
+	/***
+	 * @param id the concept id
+	 * @return the depth of the concept, the same value as Concept.getDepth()
+	 */
+	public int getDepth(int id) {
+		return depth[id];
+	}
+	
+	/***
+	 * Finds the closest common parent of two concepts.
+	 * 
+	 * Note: if x and y are the same concept it will return x
+	 * 
+	 * @param x the first concept id
+	 * @param y the second concept id
+	 * @return the id of the closest common parent concept
+	 */
+	public int findCommonAncestor(int x, int y) {
+		if (x == y) return x;
+		
+		// ids are pre-order positions
+		int lo = Math.min(x, y) + 1;
+		int hi = Math.max(x, y);
+		int j = 31 - Integer.numberOfLeadingZeros(hi - lo + 1);
+		int[] level = sparse[j];
+		return parent[shallower(level[lo], level[hi - (1 << j) + 1])];
+	}
+}
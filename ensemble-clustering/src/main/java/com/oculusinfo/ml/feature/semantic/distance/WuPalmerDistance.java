@@ -31,6 +31,7 @@ import com.oculusinfo.ml.feature.semantic.SemanticFeature;
  * A distance function that computes the distance between two SemanticFeatures
  * 
  * In order to use this distance function you must provide a taxonomy that describes the Semantic Class hierarchy as a tree
+ * which is indexed once on construction so that concept lookups and common ancestors are found in constant time
  * 
  * The distance calculation finds the lowest common ancestor between the two SemanticFeatures and computes
  * the distance using the algorithm described in:
@@ -42,13 +43,24 @@ import com.oculusinfo.ml.feature.semantic.SemanticFeature;
  */
 public class WuPalmerDistance extends DistanceFunction<SemanticFeature> {
 	private static final long serialVersionUID = 2357149443801960761L;
-	private final Concept taxonomy;
+	private final TaxonomyIndex taxonomy;
 	
 	public WuPalmerDistance(Concept taxonomy) {
 		this(taxonomy, 1);
 	}
 	
 	public WuPalmerDistance(Concept taxonomy, double weight) {
+		this(new TaxonomyIndex(taxonomy), weight);
+	}
+	
+	/***
+	 * Create a distance function over a prebuilt taxonomy index.  Large taxonomies should share one
+	 * index between all of the distance functions that use them.
+	 * 
+	 * @param taxonomy the frozen taxonomy index
+	 * @param weight the weight of the distance function
+	 */
+	public WuPalmerDistance(TaxonomyIndex taxonomy, double weight) {
 		super(weight);
 		this.taxonomy = taxonomy;
 	}
@@ -63,19 +75,23 @@ public class WuPalmerDistance extends DistanceFunction<SemanticFeature> {
 //			return 0;
 //		}
 		
-		Concept cx = taxonomy.findConcept(x.getConcept());
-		Concept cy = taxonomy.findConcept(y.getConcept());	
-		Concept lca = cx.findCommonAncestor(cy);
+		int cx = taxonomy.indexOf(x.getConcept());
+		int cy = taxonomy.indexOf(y.getConcept());	
 		
 		// No common ancestor exists - return max distance
-		if (lca != null) {
-			int n3 = lca.getDepth();
-			int n1 = cx.getDepth() - n3;
-			int n2 = cy.getDepth() - n3;			
+		if (cx >= 0 && cy >= 0) {
+			int lca = taxonomy.findCommonAncestor(cx, cy);
+			int n3 = taxonomy.getDepth(lca);
+			int n1 = taxonomy.getDepth(cx) - n3;
+			int n2 = taxonomy.getDepth(cy) - n3;			
 			dist = 1.0 -  2.0 * n3 / (n1 + n2 + 2.0 * n3);
 		}
 		return dist;
 //		return (dist + penalty) / (1 + penalty);
 	}
-
+	
+	@Override
+	public double getCost() {
+		return 5;
+	}
 }
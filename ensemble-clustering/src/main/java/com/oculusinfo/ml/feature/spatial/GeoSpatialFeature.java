@@ -24,49 +24,71 @@
  */
 package com.oculusinfo.ml.feature.spatial;
 
+import com.oculusinfo.geometry.SphericalPosition;
 import com.oculusinfo.ml.feature.Feature;
 
 /***
  * A GeoSpatialFeature represents a latitude and longitude geo-spatial coordinate
  * 
+ * The coordinate is the feature value, a double[2] of latitude followed by longitude.
+ * 
  * @author slangevin
  *
  */
 public class GeoSpatialFeature<F> extends Feature<F, double[]> {
-
-	final double[] latlon = new double[2];
+	private static final long serialVersionUID = -3170406219425880125L;
+	private transient volatile SphericalPosition position;
 	
 	@Override
 	public String toString() {
-		return (this.getName() + ":[" + latlon[0] + ';' + latlon[1] + ']');
+		return (this.getName() + ":[" + getLatitude() + ';' + getLongitude() + ']');
 	}
 	
 	public GeoSpatialFeature() {
 		super();
+		super.setValue(new double[2]);
 	}
 	
 	public GeoSpatialFeature(F name) {
 		super(name);
+		super.setValue(new double[2]);
 	}
 
 	public void setValue(double latitude, double longitude) {
+		double[] latlon = getValue();
 		latlon[0] = latitude;
 		latlon[1]  = longitude;
 	}
 	
 	public double getLatitude() {
-		return latlon[0];
+		return getValue()[0];
 	}
 	
 	public void setLatitude(double latitude) {
-		latlon[0] = latitude;
+		getValue()[0] = latitude;
 	}
 	
 	public double getLongitude() {
-		return latlon[1];
+		return getValue()[1];
 	}
 	
 	public void setLongitude(double longitude) {
-		latlon[1] = longitude;
+		getValue()[1] = longitude;
+	}
+	
+	/***
+	 * Return the coordinate as a SphericalPosition, which caches its trig values for repeated distance
+	 * calculations.  The position is rebuilt when the coordinate has changed since it was last requested.
+	 * 
+	 * @return the coordinate on the unit sphere
+	 */
+	public SphericalPosition getPosition() {
+		double[] latlon = getValue();
+		SphericalPosition p = position;
+		if (p == null || p.getLatitude() != latlon[0] || p.getLongitude() != latlon[1]) {
+			p = new SphericalPosition(latlon[1], latlon[0]);
+			position = p;
+		}
+		return p;
 	}
 }
@@ -74,6 +74,18 @@ public class FastGeoSpatialCentroid<F> implements Centroid<F,double[]> {
 	        weight = newWeight;
 	    }
 	}
+	
+	@Override
+	public void merge(Centroid<F,double[]> other) {
+		FastGeoSpatialCentroid<F> that = (FastGeoSpatialCentroid<F>)other;
+		if (that.weight == 0.0) return;
+		
+		double newWeight = weight + that.weight;
+		latlon[0] = (latlon[0] * weight + that.latlon[0] * that.weight) / newWeight;
+		latlon[1] = (latlon[1] * weight + that.latlon[1] * that.weight) / newWeight;
+		
+		weight = newWeight;
+	}
 
 	@Override
 	public Collection<Feature<F,double[]>> getAggregatableCentroid () {
@@ -25,6 +25,7 @@
 package com.oculusinfo.ml.feature.spatial.centroid;
 
 import com.oculusinfo.ml.centroid.Centroid;
+import com.oculusinfo.ml.feature.Feature;
 import com.oculusinfo.ml.feature.spatial.GeoSpatialFeature;
 
 import java.util.Collection;
@@ -36,19 +37,19 @@ import java.util.Collections;
  * @author slangevin
  *
  */
-public class GeoSpatialCentroid<K> implements Centroid<GeoSpatialFeature<K>> {
-	private String label;
+public class GeoSpatialCentroid<F> implements Centroid<F,double[]> {
+	private F name;
 	private double weight = 0.0;
 	private double cx = 0, cy = 0, cz = 0;
 	
 	@Override
-	public void add(GeoSpatialFeature<K> feature) {
+	public void add(Feature<F,double[]> feature) {
 	    double addedWeight = feature.getWeight();
 		double x = 0, y = 0, z = 0, lat = 0, lon = 0;
 		
 		// convert lat/lon to cartesian coordinates
-		lat = Math.toRadians(feature.getLatitude());
-		lon = Math.toRadians(feature.getLongitude());
+		lat = Math.toRadians(feature.getValue()[0]);
+		lon = Math.toRadians(feature.getValue()[1]);
 		
 		x = Math.sin(lat) * Math.cos(lon);
 		y = Math.sin(lat) * Math.sin(lon);
@@ -64,13 +65,13 @@ public class GeoSpatialCentroid<K> implements Centroid<GeoSpatialFeature<K>> {
 	}
 	
 	@Override
-	public void remove(GeoSpatialFeature<K> feature) {
+	public void remove(Feature<F,double[]> feature) {
 	    double removedWeight = feature.getWeight();
 		double x = 0, y = 0, z = 0, lat = 0, lon = 0;
 		
 		// convert lat/lon to cartesian coordinates
-		lat = Math.toRadians(feature.getLatitude());
-		lon = Math.toRadians(feature.getLongitude());
+		lat = Math.toRadians(feature.getValue()[0]);
+		lon = Math.toRadians(feature.getValue()[1]);
 		
 		x = Math.sin(lat) * Math.cos(lon);
 		y = Math.sin(lat) * Math.sin(lon);
@@ -84,15 +85,26 @@ public class GeoSpatialCentroid<K> implements Centroid<GeoSpatialFeature<K>> {
 		// Decrease the weight of this centroid according to what was removed.
 		weight = weight - removedWeight;
 	}
+	
+	@Override
+	public void merge(Centroid<F,double[]> other) {
+		GeoSpatialCentroid<F> that = (GeoSpatialCentroid<F>)other;
+		
+		// the cartesian sums and weights of the partial centroids simply add
+		weight += that.weight;
+		cx += that.cx;
+		cy += that.cy;
+		cz += that.cz;
+	}
 
 
     @Override
-    public Collection<GeoSpatialFeature<K>> getAggregatableCentroid () {
+    public Collection<Feature<F,double[]>> getAggregatableCentroid () {
         return Collections.singleton(getCentroid());
     }
 
 	@Override
-	public GeoSpatialFeature<K> getCentroid() {
+	public GeoSpatialFeature<F> getCentroid() {
 		double lat = 0, lon = 0, hyp = 0;
 		
 		// calculate average x,y,z coords
@@ -104,7 +116,7 @@ public class GeoSpatialCentroid<K> implements Centroid<GeoSpatialFeature<K>> {
 		lat = Math.toDegrees(Math.atan2(hyp, az));
 		
 		// create the centroid geospatial feature set
-		GeoSpatialFeature centroid = new GeoSpatialFeature(label);
+		GeoSpatialFeature<F> centroid = new GeoSpatialFeature<>(name);
 		centroid.setValue(lat, lon);
 		centroid.setWeight(weight);
 	
@@ -112,13 +124,13 @@ public class GeoSpatialCentroid<K> implements Centroid<GeoSpatialFeature<K>> {
 	}
 
 	@Override
-	public void setLabel(String label) {
-		this.label = label;
+	public void setName(F name) {
+		this.name = name;
 	}
 
 	@Override
-	public String getName() {
-		return this.label;
+	public F getName() {
+		return this.name;
 	}
 
 
@@ -24,9 +24,12 @@
  */
 package com.oculusinfo.ml.feature.spatial.distance;
 
+import com.oculusinfo.geometry.SphericalPosition;
 import com.oculusinfo.ml.distance.DistanceFunction;
 import com.oculusinfo.ml.feature.spatial.GeoSpatialFeature;
 
+import java.util.List;
+
 /***
  * A distance function that computes the equitangular distance between two GeoSpatialFeatures 
  * 
@@ -42,13 +45,31 @@ public class EquitangularDistance extends DistanceFunction<GeoSpatialFeature> {
 
 	@Override
 	public double distance(GeoSpatialFeature x, GeoSpatialFeature y) {
-		double lat1 = Math.toRadians(x.getLatitude());
-		double lat2 = Math.toRadians(y.getLatitude());
-		double lon1 = Math.toRadians(x.getLongitude());
-		double lon2 = Math.toRadians(y.getLongitude());
+		return distance(x.getPosition(), y.getPosition());
+	}
+	
+	@Override
+	public void distances(GeoSpatialFeature x, List<? extends GeoSpatialFeature> ys, double[] out) {
+		SphericalPosition p = x.getPosition();
+		final int n = ys.size();
+		for (int i = 0; i < n; i++) {
+			out[i] = distance(p, ys.get(i).getPosition());
+		}
+	}
+	
+	@Override
+	public boolean isBatchable() {
+		return true;
+	}
+	
+	private static double distance(SphericalPosition p1, SphericalPosition p2) {
+		// cos((lat1+lat2)/2) from the cached trig values by the half angle formula; the mean latitude
+		// is within [-90, 90] so its cosine is never negative
+		double cosSum = p1.getCosLatitude()*p2.getCosLatitude() - p1.getSinLatitude()*p2.getSinLatitude();
+		double cosMean = Math.sqrt(Math.max(0.0, (1 + cosSum) / 2));
 		
-		double a = (lon2-lon1) * Math.cos((lat1+lat2)/2);
-		double b = (lat2-lat1);
+		double a = Math.toRadians(p2.getLongitude() - p1.getLongitude()) * cosMean;
+		double b = Math.toRadians(p2.getLatitude() - p1.getLatitude());
 		double d = Math.sqrt(a*a + b*b);
 		
 		return d;
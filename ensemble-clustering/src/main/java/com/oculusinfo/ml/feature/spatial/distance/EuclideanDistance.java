@@ -27,6 +27,8 @@ package com.oculusinfo.ml.feature.spatial.distance;
 import com.oculusinfo.ml.distance.DistanceFunction;
 import com.oculusinfo.ml.feature.spatial.GeoSpatialFeature;
 
+import java.util.List;
+
 /***
  * A distance function that computes the Euclidean distance between two GeoSpatialFeatures ignoring curvature
  * 
@@ -53,6 +55,24 @@ public class EuclideanDistance extends DistanceFunction<GeoSpatialFeature> {
 		return Math.sqrt(Math.pow(lat2 - lat1, 2) + Math.pow(lon2 - lon1, 2)) * normConst;
 	}
 	
+	@Override
+	public void distances(GeoSpatialFeature x, List<? extends GeoSpatialFeature> ys, double[] out) {
+		final double lat1 = x.getLatitude();
+		final double lon1 = x.getLongitude();
+		final int n = ys.size();
+		for (int i = 0; i < n; i++) {
+			GeoSpatialFeature y = ys.get(i);
+			final double dlat = y.getLatitude() - lat1;
+			final double dlon = y.getLongitude() - lon1;
+			out[i] = Math.sqrt(dlat * dlat + dlon * dlon) * normConst;
+		}
+	}
+	
+	@Override
+	public boolean isBatchable() {
+		return true;
+	}
+	
 	public double distanceInCartesianPlane(GeoSpatialFeature x, GeoSpatialFeature y) {
 		double lat1 = Math.toRadians(x.getLatitude());
 		double lat2 = Math.toRadians(y.getLatitude());
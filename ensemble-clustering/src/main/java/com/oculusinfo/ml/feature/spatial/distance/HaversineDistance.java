@@ -24,12 +24,18 @@
  */
 package com.oculusinfo.ml.feature.spatial.distance;
 
+import com.oculusinfo.geometry.SphericalPosition;
 import com.oculusinfo.ml.distance.DistanceFunction;
 import com.oculusinfo.ml.feature.spatial.GeoSpatialFeature;
 
+import java.util.List;
+
 /***
  * A distance function that computes the normalized Haversine (Great Circle) distance between two GeoSpatialFeatures
  * 
+ * The angle is computed from the cached unit vectors of the features' positions, which is as accurate as
+ * the haversine formula for small angles without any per call trig.
+ * 
  * @author slangevin
  *
  */
@@ -43,33 +49,26 @@ public class HaversineDistance extends DistanceFunction<GeoSpatialFeature> {
 	
 	@Override
 	public double distance(GeoSpatialFeature x, GeoSpatialFeature y) {
-		double lat1 = x.getLatitude();
-		double lat2 = y.getLatitude();
-		double lon1 = x.getLongitude();
-		double lon2 = y.getLongitude();
-	    double dLat = Math.toRadians(lat2 - lat1);
-	    double dLng = Math.toRadians(lon2 - lon1);
-	    
-	    double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
-	               Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
-	               Math.sin(dLng / 2) * Math.sin(dLng / 2);
-
-	    double normDist = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a)) / Math.PI;
-	    return normDist;
+		return x.getPosition().getAngle(y.getPosition()) / Math.PI;
+	}
+	
+	@Override
+	public void distances(GeoSpatialFeature x, List<? extends GeoSpatialFeature> ys, double[] out) {
+		SphericalPosition p = x.getPosition();
+		final int n = ys.size();
+		for (int i = 0; i < n; i++) {
+			out[i] = p.getAngle(ys.get(i).getPosition()) / Math.PI;
+		}
+	}
+	
+	@Override
+	public boolean isBatchable() {
+		return true;
 	}
 	
 	public double distanceInKM(GeoSpatialFeature x, GeoSpatialFeature y) {
-		double lat1 = x.getLatitude();
-		double lat2 = y.getLatitude();
-		double lon1 = x.getLongitude();
-		double lon2 = y.getLongitude();
-        double dLat = Math.toRadians(lat2-lat1);
-        double dLng = Math.toRadians(lon2-lon1);
-        double a = Math.sin(dLat/2) * Math.sin(dLat/2) +
-                   Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
-                   Math.sin(dLng/2) * Math.sin(dLng/2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1-a));
-        double dist = EARTH_RADIUS * c;
-        return dist;
+		SphericalPosition p1 = x.getPosition();
+		SphericalPosition p2 = y.getPosition();
+		return EARTH_RADIUS * p1.getAngle(p2);
 	}
 }
@@ -24,9 +24,12 @@
  */
 package com.oculusinfo.ml.feature.spatial.distance;
 
+import com.oculusinfo.geometry.SphericalPosition;
 import com.oculusinfo.ml.distance.DistanceFunction;
 import com.oculusinfo.ml.feature.spatial.GeoSpatialFeature;
 
+import java.util.List;
+
 /***
  * A distance function that computes the Spherical Cosine distance between two GeoSpatialFeatures
  * @author slangevin
@@ -42,18 +45,28 @@ public class SphericalCosineDistance extends DistanceFunction<GeoSpatialFeature>
 	
 	@Override
 	public double distance(GeoSpatialFeature x, GeoSpatialFeature y) {
-		double lat1 = Math.toRadians(x.getLatitude());
-		double lat2 = Math.toRadians(y.getLatitude());
-		double lon1 = Math.toRadians(x.getLongitude());
-		double lon2 = Math.toRadians(y.getLongitude());
-		
-		double d = Math.acos(Math.sin(lat1)*Math.sin(lat2) + 
-                Math.cos(lat1)*Math.cos(lat2) *
-                Math.cos(lon2-lon1));
+		// the spherical law of cosines is the dot product of the cached unit vectors
+		double cos = x.getPosition().getCosAngle(y.getPosition());
+		double d = Math.acos(Math.max(-1.0, Math.min(1.0, cos)));
 		double normDist = d / Math.PI;
 		return normDist;
 	}
 
+	@Override
+	public void distances(GeoSpatialFeature x, List<? extends GeoSpatialFeature> ys, double[] out) {
+		SphericalPosition p = x.getPosition();
+		final int n = ys.size();
+		for (int i = 0; i < n; i++) {
+			double cos = p.getCosAngle(ys.get(i).getPosition());
+			out[i] = Math.acos(Math.max(-1.0, Math.min(1.0, cos))) / Math.PI;
+		}
+	}
+	
+	@Override
+	public boolean isBatchable() {
+		return true;
+	}
+
 	public double distanceInKM(GeoSpatialFeature x, GeoSpatialFeature y) {
         return distance(x, y) * EARTH_RADIUS;
 	}
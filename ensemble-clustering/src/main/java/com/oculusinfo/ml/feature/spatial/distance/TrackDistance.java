@@ -46,4 +46,20 @@ public class TrackDistance extends DistanceFunction<TrackFeature>{
     public double distance(TrackFeature x, TrackFeature y) {
         return x.getValue().getDistance(y.getValue());
     }
+    
+    /***
+     * Tracks are first compared by a lower bound on their distance, from their end points and bounding
+     * balls, and the full integration along both tracks is skipped when the bound exceeds cutoff.
+     */
+    @Override
+    public double distance(TrackFeature x, TrackFeature y, double cutoff) {
+        double bound = x.getValue().getDistanceLowerBound(y.getValue());
+        if (bound > cutoff) return bound;
+        return distance(x, y);
+    }
+    
+    @Override
+    public double getCost() {
+        return 100;
+    }
 }
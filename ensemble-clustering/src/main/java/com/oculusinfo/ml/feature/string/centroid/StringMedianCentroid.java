@@ -24,161 +24,203 @@
  */
 package com.oculusinfo.ml.feature.string.centroid;
 
+import com.gs.collections.impl.map.mutable.primitive.ObjectIntHashMap;
 import com.oculusinfo.ml.centroid.Centroid;
-import com.oculusinfo.ml.feature.bagofwords.distance.EditDistance;
+import com.oculusinfo.ml.feature.Feature;
 import com.oculusinfo.ml.feature.string.StringFeature;
+import com.oculusinfo.ml.feature.string.distance.EditDistance;
 
 import java.util.*;
 
 /***
- * A Centroid for StringFeatures that represents the centroid using an approximation of the string median algorithm
+ * A Centroid for StringFeatures that represents the centroid by an approximate medoid: the member string
+ * with the smallest sum of normalized edit distances to all members of the cluster.
  * 
- * The algorithm has two main steps: 
- * 1) a subset of nr points (reference points) from the set P is randomly selected. 
- * The sum of distances from each point in P to the reference points are calculated and stored.
- * 2) The nt points of P whose sum of distances is lowest are selected (test points). 
- * For each test point, the sum of distances to every point belonging to P is calculated and stored. 
- * The test point that minimizes this sum is selected as the median of the set.
+ * The centroid counts the occurrences of each distinct string and keeps a bounded reservoir of candidate
+ * strings along with the running sum of distances from each candidate to every member.  Adding or removing
+ * a member updates the sums of the candidates, so maintaining the centroid costs a fixed number of edit
+ * distances per member and computing the centroid only scans the candidates.
+ * 
+ * Members are sampled into the reservoir with a probability proportional to their count, so frequent
+ * strings are likely candidates.  The sum of a new candidate is computed over the distinct members when 
+ * it is sampled, which happens with probability of about NUM_CANDIDATES / members, so the expected cost 
+ * per member remains constant.  The best candidate is never evicted from the reservoir.
+ * 
+ * When the last copy of a candidate is removed its slot is refilled with another distinct member, so the
+ * reservoir only runs empty once the cluster has no members left.
  * 
  * @author slangevin
  *
  */
-public class StringMedianCentroid<K> implements Centroid<StringFeature<K>> {
-	private static final long serialVersionUID = -251730602782817386L;
-	private static final int NUM_REFERENCE = 10;
-	private static final int NUM_TEST = 10;
+public class StringMedianCentroid<F> implements Centroid<F,Object> {
+	private static final long serialVersionUID = -7418470364632178014L;
+	private static final int NUM_CANDIDATES = 16;
+	private static final long SEED = 1351L;
 	
-	private String name;
-	private String[] referencePoints = new String[NUM_REFERENCE];
-	private String[] testPoints = new String[NUM_REFERENCE];
+	private F name;
+	private final ObjectIntHashMap<String> counts = new ObjectIntHashMap<>();
+	private int total = 0;
 	
-	private final Map<K, StringFeature<K>> points = new LinkedHashMap<>();
+	// the candidate medoids and the sum of their distances to all members
+	private final String[] candidates = new String[NUM_CANDIDATES];
+	private final double[] sums = new double[NUM_CANDIDATES];
+	private int size = 0;
+	private Random rnd = new Random(SEED);
 	
+	@Override
+	public void add(Feature<F,Object> feature) {
+		String value = ((StringFeature<F>)feature).getValue();
+		if (value == null) return;
+		
+		add(value, 1);
+	}
 	
-	private static class DistanceScore {
-		public final String feature;
-		public final double distance;
+	@Override
+	public void remove(Feature<F,Object> feature) {
+		String value = ((StringFeature<F>)feature).getValue();
+		if (value == null) return;
+		
+		int count = counts.getIfAbsent(value, 0);
+		if (count == 0) return;
+		
+		if (count == 1) counts.remove(value);
+		else counts.addToValue(value, -1);
+		total--;
 		
-		public DistanceScore(String feature, double distance) {
-			this.feature = feature;
-			this.distance = distance;
+		for (int i = 0; i < size; i++) {
+			sums[i] -= EditDistance.getNormLevenshteinDistance(candidates[i], value);
+		}
+		
+		// a string that is no longer a member can't be the medoid
+		if (count == 1) {
+			int i = indexOf(value);
+			if (i >= 0) {
+				size--;
+				candidates[i] = candidates[size];
+				sums[i] = sums[size];
+				candidates[size] = null;
+				refill();
+			}
 		}
 	}
 	
 	@Override
-	public void add(StringFeature<K> feature) {
-		points.put(feature.getId(), feature);
+	public void merge(Centroid<F,Object> other) {
+		((StringMedianCentroid<F>)other).counts.forEachKeyValue((value, count) -> add(value, count));
 	}
 	
 	@Override
-	public void remove(StringFeature<K>feature) {
-		points.remove(feature.getId());
+	public Collection<Feature<F,Object>> getAggregatableCentroid() {
+		// one feature per member, duplicate strings share the same feature
+		List<Feature<F,Object>> features = new ArrayList<>(total);
+		counts.forEachKeyValue((value, count) -> {
+			StringFeature<F> f = createFeature(value);
+			for (int i = 0; i < count; i++) {
+				features.add(f);
+			}
+		});
+		return features;
 	}
-
+	
+	@Override
+	public StringFeature<F> getCentroid() {
+		return createFeature(size == 0 ? "" : candidates[best()]);
+	}
+	
 	@Override
-	public Collection<StringFeature<K>> getAggregatableCentroid () {
-        return points.values();
-    }
+	public void setName(F name) {
+		this.name = name;
+	}
 	
-	private void computeTestPoints() {
-		int nr = Math.min(NUM_REFERENCE, points.size());
-		
-		// compute the distances of all points to the reference points
-		List<DistanceScore> distances = new LinkedList<>();
-		for (Map.Entry<K, StringFeature<K>> stringStringFeatureEntry : points.entrySet()) {
-			double sum = 0;
-			StringFeature<K>f = stringStringFeatureEntry.getValue();
-			for (int i=0; i < nr; i++) {
-				sum += EditDistance.getNormLevenshteinDistance(referencePoints[i], f.getValue());
-			}
-			distances.add(new DistanceScore(f.getValue(), sum));
-		}
-		
-		// sort by distance
-		Collections.sort(distances, dsc);
+	@Override
+	public F getName() {
+		return this.name;
+	}
+	
+	@Override
+	public void reset() {
+		counts.clear();
+		total = 0;
+		Arrays.fill(candidates, null);
+		size = 0;
+		rnd = new Random(SEED);
+	}
+	
+	private void add(String value, int count) {
+		counts.addToValue(value, count);
+		total += count;
 		
-		// set the test points
-		int nt = Math.min(NUM_TEST, points.size());
-		for (int i=0; i < nt; i++) {
-			testPoints[i] = distances.get(i).feature;
+		for (int i = 0; i < size; i++) {
+			sums[i] += count * EditDistance.getNormLevenshteinDistance(candidates[i], value);
 		}
+		sample(value, count);
 	}
 	
-	//TODO this should take into account the count of the strings
-	private String computeMedian() {
-		int nt = Math.min(NUM_TEST, points.size());
-		
-		if (nt == 0) return "";
+	private void sample(String value, int count) {
+		if (indexOf(value) >= 0) return;
 		
-		// compute the distances of test points all points 
-		List<DistanceScore> distances = new ArrayList<>(nt);
-		for (int i=0; i < nt; i++) {
-			double sum = 0;
-			for (Map.Entry<K, StringFeature<K>> stringStringFeatureEntry : points.entrySet()) {
-				StringFeature<K>f = stringStringFeatureEntry.getValue();
-				sum += EditDistance.getNormLevenshteinDistance(testPoints[i], f.getValue());
-			}
-			distances.add(new DistanceScore(testPoints[i], sum));
+		if (size < NUM_CANDIDATES) {
+			candidates[size] = value;
+			sums[size] = sumOfDistances(value);
+			size++;
+			return;
 		}
 		
-		// sort by distance
-		Collections.sort(distances, dsc);
+		// reservoir sampling over the occurrences of the members
+		if (rnd.nextDouble() * total >= (double)count * NUM_CANDIDATES) return;
 		
-		// return the smallest distance point as median	
-		return distances.get(0).feature;
+		// replace a random candidate other than the best
+		int best = best();
+		int i = rnd.nextInt(NUM_CANDIDATES - 1);
+		if (i >= best) i++;
+		candidates[i] = value;
+		sums[i] = sumOfDistances(value);
 	}
 	
-	private void setReferencePoints() {
-		int n = Math.min(NUM_REFERENCE, points.size());
-		
-		ArrayList<K> keys = new ArrayList<>(points.keySet());
-		Collections.shuffle(keys);
-		
-		for (int i=0; i < n; i++) {
-			referencePoints[i] = points.get(keys.get(i)).getValue();
+	private void refill() {
+		// pick one of the remaining members that isn't a candidate with a probability proportional to its count
+		String pick = null;
+		long seen = 0;
+		for (String member : counts.keysView()) {
+			if (indexOf(member) >= 0) continue;
+			
+			int count = counts.get(member);
+			seen += count;
+			if (rnd.nextDouble() * seen < count) pick = member;
 		}
-	}
-
-	@Override
-	public StringFeature<K>getCentroid() {
-		StringFeature<K>median = new StringFeature(name);
+		if (pick == null) return;
 		
-		setReferencePoints();
-		computeTestPoints();
-	
-		median.setValue( computeMedian() );
-		
-		return median;
+		candidates[size] = pick;
+		sums[size] = sumOfDistances(pick);
+		size++;
 	}
-
-	@Override
-	public void setLabel(String name) {
-		this.name = name;
+	
+	private double sumOfDistances(String value) {
+		double sum = 0;
+		for (String member : counts.keysView()) {
+			sum += counts.get(member) * EditDistance.getNormLevenshteinDistance(value, member);
+		}
+		return sum;
 	}
-
-	@Override
-	public String getName() {
-		return this.name;
+	
+	private int best() {
+		int best = 0;
+		for (int i = 1; i < size; i++) {
+			if (sums[i] < sums[best]) best = i;
+		}
+		return best;
 	}
-
-//	@Override
-//	public Class<StringFeature<K>> getType() {
-//		return StringFeature.class;
-//	}
-
-	@Override
-	public void reset() {
-		referencePoints = new String[NUM_REFERENCE];
-		testPoints = new String[NUM_REFERENCE];
-		points.clear();
+	
+	private int indexOf(String value) {
+		for (int i = 0; i < size; i++) {
+			if (candidates[i].equals(value)) return i;
+		}
+		return -1;
 	}
-
-	public static final class DistanceScoreComparator implements Comparator<DistanceScore> {
-		@Override
-		public int compare(DistanceScore o1, DistanceScore o2) {
-            return Double.compare(o1.distance, o2.distance);
-        }
+	
+	private StringFeature<F> createFeature(String value) {
+		StringFeature<F> f = new StringFeature<>(name);
+		f.setValue(value);
+		return f;
 	}
-	final static DistanceScoreComparator dsc = new DistanceScoreComparator();
-
 }
@@ -49,72 +49,56 @@ public class EditDistance extends DistanceFunction<StringFeature> {
 		return getNormLevenshteinDistance(x.getValue(), y.getValue());
 	}
 	
-	// Levenshtein Distance Algorithm based on implementation from Apache Jakarta Commons Project, 
-	// implementation from here:  http://www.merriampark.com/ldjava.htm
+	@Override
+	public double distance(StringFeature x, StringFeature y, double cutoff) {
+		return getNormLevenshteinDistance(x.getValue(), y.getValue(), cutoff);
+	}
+	
+	@Override
+	public double getCost() {
+		return 10;
+	}
+	
+	/***
+	 * Return the edit distance between s and t normalized to [0, 1] by the length of the longer string
+	 * 
+	 * @param s the first string
+	 * @param t the second string
+	 * @return the normalized edit distance
+	 */
 	public static double getNormLevenshteinDistance(String s, String t) {
 		if (s == null || t == null) throw new IllegalArgumentException("Strings must not be null");
-				
-		/*
-	     	The difference between this impl. and the previous is that, rather 
-	     	than creating and retaining a matrix of size s.length()+1 by t.length()+1, 
-	     	we maintain two single-dimensional arrays of length s.length()+1.  The first, d,
-	     	is the 'current working' distance array that maintains the newest distance cost
-	     	counts as we iterate through the characters of String s.  Each time we increment
-	     	the index of String t we are comparing, d is copied to p, the second int[].  Doing so
-	     	allows us to retain the previous cost counts as required by the algorithm (taking 
-	     	the minimum of the cost count to the left, up one, and diagonally up and to the left
-	     	of the current cost count being calculated).  (Note that the arrays aren't really 
-	     	copied anymore, just switched...this is clearly much better than cloning an array 
-	     	or doing a System.arraycopy() each time  through the outer loop.)
-
-	     	Effectively, the difference between the two implementations is this one does not 
-	     	cause an out of memory condition when calculating the LD over two very large strings.  		
-		 */		
-			
-		int n = s.length(); // length of s
-		int m = t.length(); // length of t
-			
-		if (n == 0) {
-			return m;
-		} else if (m == 0) {
-			return n;
-		}
-
-		int p[] = new int[n+1]; //'previous' cost array, horizontally
-		int d[] = new int[n+1]; // cost array, horizontally
-		int _d[]; //placeholder to assist in swapping p and d
-
-		// indexes into strings s and t
-		int i; // iterates through s
-		int j; // iterates through t
-
-		char t_j; // jth character of t
-
-		int cost; // cost
-
-		for (i = 0; i<=n; i++) {
-			p[i] = i;
-		}
-			
-		for (j = 1; j<=m; j++) {
-			t_j = t.charAt(j-1);
-			d[0] = j;
-			
-			for (i=1; i<=n; i++) {
-				cost = s.charAt(i-1)==t_j ? 0 : 1;
-				// minimum of cell to the left+1, to the top+1, diagonally left and up +cost				
-				d[i] = Math.min(Math.min(d[i-1]+1, p[i]+1),  p[i-1]+cost);  
-			}
-
-			// copy current distance counts to 'previous row' distance counts
-			_d = p;
-			p = d;
-			d = _d;
-		} 
-			
-		// our last action in the above loop was to switch d and p, so p now 
-		// actually has the most recent cost counts
-		// distance is normalized to [0, 1]
-		return ( (double) p[n] / Math.max(n, m) );
+		
+		int len = Math.max(s.length(), t.length());
+		if (len == 0) return 0;
+		
+		return (double)Levenshtein.distance(s, t) / len;
+	}
+	
+	/***
+	 * Return the normalized edit distance between s and t if it is at most cutoff.  Otherwise the 
+	 * computation stops as soon as the distance is known to exceed cutoff and a lower bound on the 
+	 * normalized distance that is greater than cutoff is returned.
+	 * 
+	 * Use this variant when only distances below a threshold matter, for example when searching 
+	 * for the closest string. 
+	 * 
+	 * @param s the first string
+	 * @param t the second string
+	 * @param cutoff the largest normalized distance of interest
+	 * @return the normalized edit distance if it is at most cutoff, otherwise a value in (cutoff, distance]
+	 */
+	public static double getNormLevenshteinDistance(String s, String t, double cutoff) {
+		if (s == null || t == null) throw new IllegalArgumentException("Strings must not be null");
+		
+		int len = Math.max(s.length(), t.length());
+		if (len == 0) return 0;
+		if (cutoff >= 1) return (double)Levenshtein.distance(s, t) / len;
+		if (cutoff < 0) cutoff = 0;
+		
+		// largest whole number of edits within the cutoff, allowing for rounding in cutoff * len 
+		int maxEdits = (int)Math.floor(cutoff * len + 1e-9);
+		
+		return (double)Levenshtein.distance(s, t, maxEdits) / len;
 	}	
 }
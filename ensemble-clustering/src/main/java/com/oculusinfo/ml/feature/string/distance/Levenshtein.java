@@ -0,0 +1,334 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.feature.string.distance;
+
+import java.util.Arrays;
+
+/***
+ * Levenshtein (edit) distance kernels.
+ *
+ * The exact distance is computed with the bit-parallel algorithm of Myers as reformulated by Hyyrö,
+ * which processes 64 cells of a dynamic programming column per machine word.  The shorter string is
+ * used as the pattern so strings of up to 64 chars need a single word per column; longer patterns are
+ * split into blocks of 64 rows with the horizontal deltas carried from one block to the next.
+ *
+ * The bounded variants take a maximum number of edits k and give up as soon as the distance is
+ * guaranteed to exceed k, returning a lower bound greater than k instead of the exact distance.  Long
+ * patterns with a small k are computed with a diagonal band of width 2k+1 (Ukkonen) rather than the
+ * full blocked columns.
+ *
+ * Per character match masks are kept in thread local scratch arrays so a call does not allocate
+ * unless the pattern contains chars outside of Latin-1 or is longer than previously seen.
+ *
+ */
+public final class Levenshtein {
+	private static final int WORD = 64;
+	private static final int TABLE_SIZE = 256;  // chars with a direct match mask entry
+
+	private static final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>() {
+		@Override
+		protected Scratch initialValue() {
+			return new Scratch();
+		}
+	};
+
+	private Levenshtein() {
+	}
+
+	/***
+	 * Return the number of insertions, deletions and substitutions required to turn s into t
+	 *
+	 * @param s the first string
+	 * @param t the second string
+	 * @return the edit distance between s and t
+	 */
+	public static int distance(CharSequence s, CharSequence t) {
+		return distance(s, t, Integer.MAX_VALUE);
+	}
+
+	/***
+	 * Return the edit distance between s and t if it is at most maxEdits, otherwise a lower bound on the
+	 * edit distance that is greater than maxEdits.
+	 *
+	 * @param s the first string
+	 * @param t the second string
+	 * @param maxEdits the largest distance of interest
+	 * @return the edit distance if it is at most maxEdits, otherwise a value in (maxEdits, distance]
+	 */
+	public static int distance(CharSequence s, CharSequence t, int maxEdits) {
+		if (s == null || t == null) throw new IllegalArgumentException("Strings must not be null");
+		if (maxEdits < 0) maxEdits = 0;
+
+		// use the shorter string as the pattern
+		CharSequence p = s, text = t;
+		if (s.length() > t.length()) {
+			p = t;
+			text = s;
+		}
+		int m = p.length();
+		int n = text.length();
+
+		// the distance is at least the difference in length and at most the longer length
+		if (n - m > maxEdits) return n - m;
+		if (m == 0) return n;
+
+		if (m <= WORD) {
+			return myers(p, text, maxEdits);
+		}
+		int blocks = (m + WORD - 1) / WORD;
+		// a narrow band touches fewer cells than the full blocked columns
+		if (maxEdits < 2 * blocks) {
+			return banded(p, text, maxEdits);
+		}
+		return blockedMyers(p, text, blocks, maxEdits);
+	}
+
+	/***
+	 * Single word Myers/Hyyro for patterns of up to 64 chars.
+	 */
+	private static int myers(CharSequence p, CharSequence text, int maxEdits) {
+		int m = p.length();
+		int n = text.length();
+		Scratch sc = scratch.get();
+		sc.build(p, 1);
+		try {
+			long last = 1L << (m - 1);
+			long vp = -1L;
+			long vn = 0L;
+			int score = m;
+
+			for (int j = 0; j < n; j++) {
+				long eq = sc.mask(text.charAt(j), 0);
+				long xv = eq | vn;
+				long xh = (((eq & vp) + vp) ^ vp) | eq;
+				long hp = vn | ~(xh | vp);
+				long hn = vp & xh;
+				if ((hp & last) != 0) score++;
+				else if ((hn & last) != 0) score--;
+
+				// the top row of the matrix increases by one per column
+				hp = (hp << 1) | 1L;
+				hn = hn << 1;
+				vp = hn | ~(xv | hp);
+				vn = hp & xv;
+
+				// the score can drop by at most one per remaining column
+				int bound = score - (n - j - 1);
+				if (bound > maxEdits) return bound;
+			}
+			return score;
+		}
+		finally {
+			sc.clear(p);
+		}
+	}
+
+	/***
+	 * Multi-word Myers/Hyyro for patterns longer than 64 chars.
+	 */
+	private static int blockedMyers(CharSequence p, CharSequence text, int blocks, int maxEdits) {
+		int m = p.length();
+		int n = text.length();
+		Scratch sc = scratch.get();
+		sc.build(p, blocks);
+		try {
+			long[] vp = sc.vp;
+			long[] vn = sc.vn;
+			Arrays.fill(vp, 0, blocks, -1L);
+			Arrays.fill(vn, 0, blocks, 0L);
+
+			int lastBlock = blocks - 1;
+			long last = 1L << ((m - 1) % WORD);
+			int score = m;
+
+			for (int j = 0; j < n; j++) {
+				char c = text.charAt(j);
+				int hin = 1;
+				for (int b = 0; b < blocks; b++) {
+					long eq = sc.mask(c, b);
+					long pv = vp[b];
+					long mv = vn[b];
+					long xv = eq | mv;
+					if (hin < 0) eq |= 1L;
+					long xh = (((eq & pv) + pv) ^ pv) | eq;
+					long hp = mv | ~(xh | pv);
+					long hn = pv & xh;
+
+					if (b == lastBlock) {
+						if ((hp & last) != 0) score++;
+						else if ((hn & last) != 0) score--;
+					}
+					int hout = (hp < 0) ? 1 : (hn < 0) ? -1 : 0;
+
+					hp <<= 1;
+					hn <<= 1;
+					if (hin < 0) hn |= 1L;
+					else if (hin > 0) hp |= 1L;
+					vp[b] = hn | ~(xv | hp);
+					vn[b] = hp & xv;
+					hin = hout;
+				}
+
+				int bound = score - (n - j - 1);
+				if (bound > maxEdits) return bound;
+			}
+			return score;
+		}
+		finally {
+			sc.clear(p);
+		}
+	}
+
+	/***
+	 * Dynamic programming restricted to the diagonals within maxEdits of the main diagonal.  Any edit
+	 * path of cost at most maxEdits stays inside the band, so values computed inside it are exact up to
+	 * maxEdits and the computation stops once every cell of a row exceeds it.
+	 */
+	private static int banded(CharSequence p, CharSequence text, int maxEdits) {
+		int m = p.length();
+		int n = text.length();
+		int k = maxEdits;
+		int inf = k + 1;
+
+		Scratch sc = scratch.get();
+		int[] prev = sc.row(0, n + 1);
+		int[] cur = sc.row(1, n + 1);
+
+		int hi = Math.min(n, k);
+		for (int j = 0; j <= hi; j++) prev[j] = j;
+		if (hi < n) prev[hi + 1] = inf;
+
+		for (int i = 1; i <= m; i++) {
+			char c = p.charAt(i - 1);
+			int lo = Math.max(1, i - k);
+			hi = Math.min(n, i + k);
+
+			cur[lo - 1] = (lo == 1) ? Math.min(i, inf) : inf;
+			int rowMin = cur[lo - 1];
+			for (int j = lo; j <= hi; j++) {
+				int d = prev[j - 1] + (c == text.charAt(j - 1) ? 0 : 1);
+				int up = prev[j] + 1;
+				int left = cur[j - 1] + 1;
+				if (up < d) d = up;
+				if (left < d) d = left;
+				if (d > inf) d = inf;
+				cur[j] = d;
+				if (d < rowMin) rowMin = d;
+			}
+			if (hi < n) cur[hi + 1] = inf;
+			if (rowMin > k) return inf;
+
+			int[] tmp = prev;
+			prev = cur;
+			cur = tmp;
+		}
+		return prev[n];
+	}
+
+	/***
+	 * Per thread match masks and working arrays.
+	 */
+	private static class Scratch {
+		// match masks of Latin-1 chars, indexed by char * blocks + block
+		long[] table = new long[TABLE_SIZE];
+		// match masks of any other chars in the pattern
+		char[] extChars = new char[4];
+		long[] extMasks = new long[4];
+		int extCount = 0;
+		int blocks = 1;
+		long[] vp = new long[0];
+		long[] vn = new long[0];
+		int[][] rows = { new int[0], new int[0] };
+
+		void build(CharSequence p, int blocks) {
+			this.blocks = blocks;
+			if (table.length < TABLE_SIZE * blocks) {
+				table = new long[TABLE_SIZE * blocks];
+			}
+			if (vp.length < blocks) {
+				vp = new long[blocks];
+				vn = new long[blocks];
+			}
+			extCount = 0;
+
+			int m = p.length();
+			for (int i = 0; i < m; i++) {
+				char c = p.charAt(i);
+				int b = i / WORD;
+				long bit = 1L << (i % WORD);
+				if (c < TABLE_SIZE) {
+					table[c * blocks + b] |= bit;
+				}
+				else {
+					int e = extIndex(c);
+					if (e < 0) {
+						e = extCount++;
+						if (extChars.length < extCount) {
+							extChars = Arrays.copyOf(extChars, extCount * 2);
+						}
+						if (extMasks.length < extCount * blocks) {
+							extMasks = Arrays.copyOf(extMasks, extCount * blocks * 2);
+						}
+						extChars[e] = c;
+						Arrays.fill(extMasks, e * blocks, (e + 1) * blocks, 0L);
+					}
+					extMasks[e * blocks + b] |= bit;
+				}
+			}
+		}
+
+		long mask(char c, int b) {
+			if (c < TABLE_SIZE) return table[c * blocks + b];
+			if (extCount == 0) return 0L;
+			int e = extIndex(c);
+			return (e < 0) ? 0L : extMasks[e * blocks + b];
+		}
+
+		void clear(CharSequence p) {
+			int m = p.length();
+			for (int i = 0; i < m; i++) {
+				char c = p.charAt(i);
+				if (c < TABLE_SIZE) {
+					table[c * blocks + i / WORD] = 0L;
+				}
+			}
+			extCount = 0;
+		}
+
+		int[] row(int r, int size) {
+			if (rows[r].length < size) {
+				rows[r] = new int[size];
+			}
+			return rows[r];
+		}
+
+		private int extIndex(char c) {
+			for (int e = 0; e < extCount; e++) {
+				if (extChars[e] == c) return e;
+			}
+			return -1;
+		}
+	}
+}
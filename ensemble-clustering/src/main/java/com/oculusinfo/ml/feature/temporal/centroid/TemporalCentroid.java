@@ -25,6 +25,7 @@
 package com.oculusinfo.ml.feature.temporal.centroid;
 
 import com.oculusinfo.ml.centroid.Centroid;
+import com.oculusinfo.ml.feature.Feature;
 import com.oculusinfo.ml.feature.temporal.TemporalFeature;
 
 import java.util.Collection;
@@ -37,19 +38,19 @@ import java.util.Date;
  * @author slangevin
  *
  */
-public class TemporalCentroid<K> implements Centroid<TemporalFeature<K>> {
+public class TemporalCentroid<F> implements Centroid<F,Object> {
 	private static final long serialVersionUID = -8692407140201096772L;
-	private String name;
+	private F name;
 	private double weight = 0.0;
 	private long cstart = 0, cend = 0;
 	
 	@Override
-	public void add(TemporalFeature<K> feature) {
+	public void add(Feature<F,Object> feature) {
 	    double addedWeight = feature.getWeight();
 		long start = 0, end = 0;
 		
-		start = feature.getStart().getTime();
-		end = feature.getEnd().getTime();
+		start = ((TemporalFeature<F>)feature).getStart().getTime();
+		end = ((TemporalFeature<F>)feature).getEnd().getTime();
 
 		// Increase the weight of this feature according to the weight of the added feature
 		weight += addedWeight;
@@ -60,12 +61,12 @@ public class TemporalCentroid<K> implements Centroid<TemporalFeature<K>> {
 	}
 	
 	@Override
-	public void remove(TemporalFeature<K> feature) {
+	public void remove(Feature<F,Object> feature) {
 	    double removedWeight = feature.getWeight();
 		long start = 0, end = 0;
 		
-		start = feature.getStart().getTime();
-		end = feature.getEnd().getTime();
+		start = ((TemporalFeature<F>)feature).getStart().getTime();
+		end = ((TemporalFeature<F>)feature).getEnd().getTime();
 
 		if (0 >= weight) {
 			System.out.println("Attempt to remove from an empty temporal centroid");
@@ -78,16 +79,26 @@ public class TemporalCentroid<K> implements Centroid<TemporalFeature<K>> {
 		    weight = weight - removedWeight;
 		}
 	}
+	
+	@Override
+	public void merge(Centroid<F,Object> other) {
+		TemporalCentroid<F> that = (TemporalCentroid<F>)other;
+		
+		// the weighted start and end sums of the partial centroids simply add
+		weight += that.weight;
+		cstart += that.cstart;
+		cend += that.cend;
+	}
 
 	@Override
-	public Collection<TemporalFeature<K>> getAggregatableCentroid () {
+	public Collection<Feature<F,Object>> getAggregatableCentroid () {
 	    return Collections.singleton(getCentroid());
 	}
 
 	@Override
-	public TemporalFeature<K> getCentroid() {
+	public TemporalFeature<F> getCentroid() {
 		// create the centroid temporal feature set
-		TemporalFeature centroid = new TemporalFeature(name);
+		TemporalFeature<F> centroid = new TemporalFeature<>(name);
 		centroid.setValue(new Date(Math.round(cstart/weight)),
 		           new Date(Math.round(cend/weight))); // compute average start/end
 		centroid.setWeight(weight);
@@ -96,12 +107,12 @@ public class TemporalCentroid<K> implements Centroid<TemporalFeature<K>> {
 	}
 
 	@Override
-	public void setLabel(String name) {
+	public void setName(F name) {
 		this.name = name;
 	}
 
 	@Override
-	public String getName() {
+	public F getName() {
 		return this.name;
 	}
 
@@ -25,6 +25,7 @@
 package com.oculusinfo.ml.feature.temporal.centroid;
 
 import com.oculusinfo.ml.centroid.Centroid;
+import com.oculusinfo.ml.feature.Feature;
 import com.oculusinfo.ml.feature.temporal.TemporalFeature;
 
 import java.util.Collection;
@@ -37,17 +38,17 @@ import java.util.Date;
  * @author slangevin
  *
  */
-public class TemporalMinMaxCentroid<K> implements Centroid<TemporalFeature<K>> {
+public class TemporalMinMaxCentroid<F> implements Centroid<F,Object> {
 	private static final long serialVersionUID = 845737125746792593L;
-	private String name;
+	private F name;
 	private long cstart = 0, cend = 0;
 	
 	@Override
-	public void add(TemporalFeature<K> feature) {
+	public void add(Feature<F,Object> feature) {
 		long start = 0, end = 0;
 		
-		start = feature.getStart().getTime();
-		end = feature.getEnd().getTime();
+		start = ((TemporalFeature<F>)feature).getStart().getTime();
+		end = ((TemporalFeature<F>)feature).getEnd().getTime();
 		
 		// revise the centroid start and end
 		cstart = (cstart == 0 ? start : Math.min(start, cstart));
@@ -55,30 +56,39 @@ public class TemporalMinMaxCentroid<K> implements Centroid<TemporalFeature<K>> {
 	}
 	
 	@Override
-	public void remove(TemporalFeature<K> feature) {
+	public void remove(Feature<F,Object> feature) {
 		// TODO Should give the second smallest start and second largest end to revise
 	}
+	
+	@Override
+	public void merge(Centroid<F,Object> other) {
+		TemporalMinMaxCentroid<F> that = (TemporalMinMaxCentroid<F>)other;
+		
+		// the earliest start and latest end of the partial centroids, zero meaning unset
+		if (that.cstart != 0) cstart = (cstart == 0 ? that.cstart : Math.min(that.cstart, cstart));
+		if (that.cend != 0) cend = (cend == 0 ? that.cend : Math.max(that.cend, cend));
+	}
 
 	@Override
-	public Collection<TemporalFeature<K>> getAggregatableCentroid () {
+	public Collection<Feature<F,Object>> getAggregatableCentroid () {
 	    return Collections.singleton(getCentroid());
 	}
 
 	@Override
-	public TemporalFeature<K> getCentroid() {
+	public TemporalFeature<F> getCentroid() {
 		// create the centroid temporal feature set
-		TemporalFeature<K> centroid = new TemporalFeature(name);
+		TemporalFeature<F> centroid = new TemporalFeature<>(name);
 		centroid.setValue(new Date(cstart), new Date(cend));
 		return centroid;
 	}
 
 	@Override
-	public void setLabel(String name) {
+	public void setName(F name) {
 		this.name = name;
 	}
 
 	@Override
-	public String getName() {
+	public F getName() {
 		return this.name;
 	}
 
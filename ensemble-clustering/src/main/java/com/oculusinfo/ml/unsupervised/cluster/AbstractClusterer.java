@@ -26,13 +26,21 @@ package com.oculusinfo.ml.unsupervised.cluster;
 
 import com.oculusinfo.ml.DataSet;
 import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.centroid.Centroid;
 import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.unsupervised.cluster.index.CandidateIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.*;
 
 /***
@@ -48,6 +56,8 @@ import java.util.concurrent.*;
  */
 public abstract class AbstractClusterer<K,F,V> extends BaseClusterer<K,F,V> {
 	protected final static int DEFAULT_THREAD_POOL = Runtime.getRuntime().availableProcessors();
+	protected final static int CLUSTER_BLOCK_SIZE = 100;
+	protected final static int MIN_PARTITION_SIZE = 64;
 
 	protected final boolean penalizeMissingFeatures;
 	protected final boolean firstCandidate;
@@ -56,6 +66,7 @@ public abstract class AbstractClusterer<K,F,V> extends BaseClusterer<K,F,V> {
 	
 	protected static final Logger log = LoggerFactory.getLogger("com.oculusinfo");
 	protected ExecutorService exec; // = Executors.newFixedThreadPool(DEFAULT_THREAD_POOL); //.newSingleThreadExecutor();;
+	protected CandidateIndex<K,F,V> candidateIndex;
 
 	//increase this to increase speed and decrease accuracy
 	double minDistFunctionWeightToCalculate = 0.00001;
@@ -154,6 +165,39 @@ public abstract class AbstractClusterer<K,F,V> extends BaseClusterer<K,F,V> {
 		return exec;
 	}
 	
+	/***
+	 * Set the index used to prune the clusters each instance is compared against.
+	 * 
+	 * The index is only effective for clusterers that bound the distance of an instance 
+	 * to the cluster it joins, see getCandidateBound().
+	 * 
+	 * @param index the candidate index or null to compare every instance against all clusters
+	 */
+	public void setCandidateIndex(CandidateIndex<K,F,V> index) {
+		this.candidateIndex = index;
+	}
+	
+	/***
+	 * Return the index used to prune candidate clusters or null if none is set
+	 * 
+	 * @return the candidate index
+	 */
+	public CandidateIndex<K,F,V> getCandidateIndex() {
+		return candidateIndex;
+	}
+	
+	/***
+	 * Return the largest distance an instance can be from a cluster and still be added to it.
+	 * 
+	 * Clusters that are provably farther than this bound can be skipped when searching for the best
+	 * cluster.  By default there is no bound.
+	 * 
+	 * @return the maximum candidate distance
+	 */
+	protected double getCandidateBound() {
+		return Double.MAX_VALUE;
+	}
+	
 	@Override
 	public ClusterResult doIncrementalCluster(DataSet<K,F,V> ds, List<Cluster<K,F,V>> clusters) {
 		return doCluster(ds, clusters);
@@ -161,21 +205,168 @@ public abstract class AbstractClusterer<K,F,V> extends BaseClusterer<K,F,V> {
 	
 	@Override
 	public ClusterResult doCluster(DataSet<K,F,V> ds) {
-		return doCluster(ds, new LinkedList<>());
+		return doCluster(ds, new ArrayList<>());
 	}
 	
+	// blocks are views of the clusters list which must not be modified while the blocks are in use
 	private List<List<? extends Instance<K,F,V>>> createBlocks(List<? extends Instance<K,F,V>> clusters, int blocksize) {
-		List<List<? extends Instance<K,F,V>>> blocks = new LinkedList<>();
+		List<List<? extends Instance<K,F,V>>> blocks = new ArrayList<>(clusters.size() / blocksize + 1);
 		
 		int sIdx = 0;
 		int eIdx = 0;
 		while (eIdx < clusters.size()) {
 			eIdx = Math.min(sIdx+blocksize, clusters.size());
-			blocks.add(new LinkedList<>(clusters.subList(sIdx, eIdx)));
+			blocks.add(clusters.subList(sIdx, eIdx));
 			sIdx = eIdx;
 		}
 		return blocks;
 	}
+	
+	// views of columnar data sets create a new Feature each time one is requested, so the features
+	// inst is compared on are read once for all the clusters it is compared against
+	private Instance<K,F,V> detach(Instance<K,F,V> inst) {
+		List<F> names = new ArrayList<>();
+		for (FeatureValueDefinition<F,V> typedef : this.getOrderedTypeDefs()) {
+			names.add(typedef.featureName);
+		}
+		return inst.snapshot(names);
+	}
+	
+	// clusters farther than bound are never chosen so their distances are only computed up to the 
+	// bound or the best distance so far, whichever is smaller
+	private DistanceResult nearest(Instance<K,F,V> inst, List<? extends Instance<K,F,V>> clusters, double bound) {
+		return nearest(inst, detach(inst), clusters, bound);
+	}
+	
+	private DistanceResult nearest(Instance<K,F,V> inst, Instance<K,F,V> detached, List<? extends Instance<K,F,V>> clusters, double bound) {
+		if (clusters.size() > 1 && isBatchable()) {
+			DistanceResult result = nearestBatch(inst, detached, clusters, bound);
+			if (result != null) return result;
+		}
+		
+		double bestDist = Double.MAX_VALUE;
+		Instance<K,F,V> bestMatch = null;
+		
+		for (Instance<K,F,V> c : clusters) {
+			double budget = Math.min(bestDist, bound);
+			double d = distance(detached, c, budget);
+			if (d < bestDist && d <= budget) {
+				bestDist = d;
+				bestMatch = c;
+			}
+		}
+		return new DistanceResult(inst, (Cluster)bestMatch, bestDist);
+	}
+
+	// true if every distance function that contributes to the distance computes batches efficiently
+	private boolean isBatchable() {
+		for (FeatureValueDefinition<F,V> typedef : this.getOrderedTypeDefs()) {
+			if (typedef.distFunc.getWeight() < minDistFunctionWeightToCalculate) continue;
+			if (!typedef.distFunc.isBatchable()) return false;
+		}
+		return true;
+	}
+	
+	// per thread working arrays of nearestBatch, grown to the largest block seen
+	@SuppressWarnings("rawtypes")
+	private static class BatchScratch {
+		Instance[] clusters = new Instance[0];
+		double[] total = new double[0];
+		double[] dists = new double[0];
+		int[] present = new int[0];
+		final List<Feature> features = new ArrayList<>();
+		
+		void reserve(int n) {
+			if (total.length < n) {
+				clusters = new Instance[n];
+				total = new double[n];
+				dists = new double[n];
+				present = new int[n];
+			}
+			else {
+				Arrays.fill(total, 0, n, 0);
+			}
+		}
+		
+		// don't hold on to the clusters and centroids between calls
+		void release(int n) {
+			Arrays.fill(clusters, 0, n, null);
+			features.clear();
+		}
+	}
+	
+	private static final ThreadLocal<BatchScratch> batchScratch = ThreadLocal.withInitial(BatchScratch::new);
+	
+	// computes the distances from inst, whose features are read from detached, to the whole block of
+	// clusters one feature at a time with the batch distance methods, returns null if the batch could
+	// not be computed
+	@SuppressWarnings("unchecked")
+	private DistanceResult nearestBatch(Instance<K,F,V> inst, Instance<K,F,V> detached, List<? extends Instance<K,F,V>> clusters, double bound) {
+		final int n = clusters.size();
+		BatchScratch scratch = batchScratch.get();
+		scratch.reserve(n);
+		Instance[] block = scratch.clusters;
+		double[] total = scratch.total;
+		double[] dists = scratch.dists;
+		int[] present = scratch.present;
+		List<Feature> features = scratch.features;
+		
+		// blocks may be views of linked lists, so only iterate them once
+		int c = 0;
+		for (Instance<K,F,V> cluster : clusters) {
+			block[c++] = cluster;
+		}
+		
+		try {
+			for (FeatureValueDefinition<F,V> typedef : this.getOrderedTypeDefs()) {
+				double weight = typedef.distFunc.getWeight();
+				
+				if (weight < minDistFunctionWeightToCalculate) continue;  // skip if weight is near zero
+				
+				double missing = penalizeMissingFeatures ? weight : 0;
+				Feature f1 = detached.getFeature(typedef.featureName);
+				if (f1 == null) {
+					for (int i = 0; i < n; i++) total[i] += missing;
+					continue;
+				}
+				
+				// gather the centroid features the cluster block has
+				features.clear();
+				for (int i = 0; i < n; i++) {
+					Feature f2 = block[i].getFeature(typedef.featureName);
+					if (f2 == null) {
+						total[i] += missing;
+					}
+					else {
+						present[features.size()] = i;
+						features.add(f2);
+					}
+				}
+				
+				typedef.distFunc.distances(f1, features, dists);
+				for (int k = 0; k < features.size(); k++) {
+					total[present[k]] += dists[k] * weight;
+				}
+			}
+			
+			double bestDist = Double.MAX_VALUE;
+			Instance<K,F,V> bestMatch = null;
+			for (int i = 0; i < n; i++) {
+				if (total[i] < bestDist && total[i] <= bound) {
+					bestDist = total[i];
+					bestMatch = block[i];
+				}
+			}
+			return new DistanceResult(inst, (Cluster)bestMatch, bestDist);
+		}
+		catch (Exception e) {
+			log.error("Error calculating batch distances for:\n---\n" + inst.toString() + "---\nException:", e);
+			return null;
+		}
+		finally {
+			scratch.release(n);
+		}
+	}
 
 	/***
 	 * Public method to find the best cluster for inst to be a member.
@@ -188,25 +379,40 @@ public abstract class AbstractClusterer<K,F,V> extends BaseClusterer<K,F,V> {
 	 * @return the best cluster
 	 */
 	public DistanceResult bestCluster(final Instance<K,F,V> inst, final List<List<? extends Instance<K,F,V>>> clusterBlocks) {
+		return bestCluster(inst, clusterBlocks, getCandidateBound());
+	}
+	
+	/***
+	 * Public method to find the best cluster for inst to be a member among the clusters within bound.
+	 * 
+	 * Distances to clusters are only computed until they are known to exceed the bound or the best 
+	 * distance found so far, see distance(inst1, inst2, budget).  When every distance function is 
+	 * batchable, see DistanceFunction.isBatchable(), the distances to each block of clusters are instead
+	 * computed a feature at a time for the whole block.
+	 * 
+	 * @param inst is the instance being considered
+	 * @param clusterBlocks is a collection of clusters to search
+	 * @param bound the largest distance at which a cluster can be chosen, see getCandidateBound()
+	 * @return the best cluster
+	 */
+	public DistanceResult bestCluster(final Instance<K,F,V> inst, final List<List<? extends Instance<K,F,V>>> clusterBlocks, final double bound) {
 		double bestScore 		= Double.MAX_VALUE;
 		Cluster bestCluster 	= null;
+		
+		// a single block isn't worth the cost of a task submission
+		if (clusterBlocks.size() == 1) {
+			DistanceResult result = nearest(inst, clusterBlocks.get(0), bound);
+			if (isCandidate(result.i, result.c, result.distance, bestCluster, bestScore)) {
+				return result;
+			}
+			return new DistanceResult(inst, bestCluster, bestScore);
+		}
+		
 		CompletionService<DistanceResult> batch = new ExecutorCompletionService<>(getExecutor());
 		
-	
+		final Instance<K,F,V> detached = detach(inst);
 		for (final List<? extends Instance<K,F,V>> clusters : clusterBlocks) {
-			batch.submit(() -> {
-                double bestDist = Double.MAX_VALUE;
-                Instance<K,F,V> bestMatch = null;
-
-                for (Instance<K,F,V> c : clusters) {
-                    double d = distance(inst, c);
-                    if (d < bestDist) {
-                        bestDist = d;
-                        bestMatch = c;
-                    }
-                }
-                return new DistanceResult(inst, (Cluster)bestMatch, bestDist);
-            });
+			batch.submit(() -> nearest(inst, detached, clusters, bound));
 		}
 		for (int i=0; i < clusterBlocks.size(); i++) {
 			try {
@@ -242,31 +448,23 @@ public abstract class AbstractClusterer<K,F,V> extends BaseClusterer<K,F,V> {
 		
 		LinkedHashSet<Cluster> modified = new LinkedHashSet<>();
 		
-		for (Instance<K,F,V> inst : ds) {
-			// Process in batches of blocks of 100 clusters
-			List<List<? extends Instance<K,F,V>>> blocks = createBlocks(clusters, 100);
-			
-//			double bestStart = System.currentTimeMillis();
-			Cluster bestCluster = bestCluster(inst, blocks).c;
-//			double bestTime = System.currentTimeMillis() - bestStart;
-//			log.debug("Find Best Cluster Time: {} ", bestTime);
-		
-			if (bestCluster == null) {	// no candidate cluster was found - create new one
-				bestCluster = createCluster();
-				bestCluster.add(inst);
-				if (!onlineUpdate) bestCluster.updateCentroid();
-				clusters.add(bestCluster);
+		if (candidateIndex != null) {
+			candidateIndex.clear();
+			for (Cluster<K,F,V> c : clusters) {
+				candidateIndex.add(c);
 			}
-			else {
-				bestCluster.add(inst);
-			}
-			modified.add(bestCluster);
+		}
+		double bound = getCandidateBound();
+		
+		for (Instance<K,F,V> inst : ds) {
+			modified.add(assignInstance(inst, clusters, bound, true));
 		}
 		
 		// centroids were not updated online so update them now
 		if (!onlineUpdate) {
 			for (Cluster c : modified) {
 				c.updateCentroid();
+				if (candidateIndex != null) candidateIndex.update(c);
 			}
 		}
 		
@@ -276,19 +474,534 @@ public abstract class AbstractClusterer<K,F,V> extends BaseClusterer<K,F,V> {
 		return new InMemoryClusterResult(new LinkedList<>(modified));
 	}
 
+	/***
+	 * Protected method to add inst to its best cluster, creating a new cluster if no existing cluster is 
+	 * a candidate.  New clusters are appended to clusters and the candidate index is kept up to date.
+	 * 
+	 * @param inst the instance to assign
+	 * @param clusters is a collection of clusters to search and modify
+	 * @param bound the largest distance at which a cluster can be chosen, see getCandidateBound()
+	 * @param retain true to retain inst as a member of the cluster, false to only absorb it into the centroids
+	 * @return the cluster inst was assigned to
+	 */
+	protected Cluster assignInstance(Instance<K,F,V> inst, List<Cluster<K,F,V>> clusters, double bound, boolean retain) {
+		// restrict the search to the clusters the index can't rule out
+		List<? extends Instance<K,F,V>> candidates = (candidateIndex != null) ? candidateIndex.candidates(inst, bound) : clusters;
+		
+		// Process in batches of blocks of 100 clusters
+		List<List<? extends Instance<K,F,V>>> blocks = createBlocks(candidates, CLUSTER_BLOCK_SIZE);
+		
+		Cluster bestCluster = bestCluster(inst, blocks, bound).c;
+		boolean created = (bestCluster == null);
+		
+		if (created) {	// no candidate cluster was found - create new one
+			bestCluster = createCluster();
+		}
+		if (retain) {
+			bestCluster.add(inst);
+		}
+		else {
+			bestCluster.absorb(inst);
+		}
+		
+		if (created) {
+			if (!onlineUpdate) bestCluster.updateCentroid();
+			clusters.add(bestCluster);
+			if (candidateIndex != null) candidateIndex.add(bestCluster);
+		}
+		else if (onlineUpdate && candidateIndex != null) {
+			candidateIndex.update(bestCluster);
+		}
+		return bestCluster;
+	}
+	
+	/***
+	 * Protected method to assign every instance in the data set to its best cluster in a single batch.
+	 * 
+	 * Unlike doCluster(ds, clusters), the instances rather than the clusters are partitioned across the 
+	 * executor.  Each instance is compared against the centroids the clusters had when the batch started,
+	 * then the members are added and centroids updated with each cluster handled by a single worker, so 
+	 * no locking is needed.  Instances that aren't a candidate for any existing cluster are processed 
+	 * in order afterwards and may create new clusters.
+	 * 
+	 * Clusters keep their last centroid when reset() so callers iterating to convergence should reset 
+	 * the clusters before each batch.
+	 * 
+	 * @param ds the data set to cluster
+	 * @param clusters is a collection of clusters to modify
+	 * @return a collection of the clusters with members
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	protected ClusterResult<K,V> doBatchCluster(DataSet<K,F,V> ds, final List<Cluster<K,F,V>> clusters) {
+		double start = System.currentTimeMillis();
+		
+		// if the clusterer hasn't been initially manually then init it now
+		if (exec == null) init();
+		
+		final List<Instance<K,F,V>> instances = new ArrayList<>(ds.size());
+		for (Instance<K,F,V> inst : ds) {
+			instances.add(inst);
+		}
+		final int n = instances.size();
+		final int[] assigned = new int[n];
+		
+		final List<Cluster<K,F,V>> existing = new ArrayList<>(clusters);
+		final Map<Cluster<K,F,V>, Integer> position = new IdentityHashMap<>();
+		for (int j = 0; j < existing.size(); j++) {
+			position.put(existing.get(j), j);
+		}
+		if (candidateIndex != null) {
+			candidateIndex.clear();
+			for (Cluster<K,F,V> c : existing) {
+				candidateIndex.add(c);
+			}
+		}
+		final double bound = getCandidateBound();
+		
+		// find the best existing cluster for each instance
+		forEachPartition(n, (s, e) -> {
+			for (int i = s; i < e; i++) {
+				Instance<K,F,V> inst = instances.get(i);
+				List<? extends Instance<K,F,V>> candidates = (candidateIndex != null) ? candidateIndex.candidates(inst, bound) : existing;
+				DistanceResult best = nearest(inst, candidates, bound);
+				
+				assigned[i] = (best.c != null && isCandidate(inst, best.c, best.distance, null, Double.MAX_VALUE)) ? position.get(best.c) : -1;
+			}
+		});
+		
+		// instances without a candidate may create new clusters so they are processed in order
+		List<Cluster<K,F,V>> created = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			if (assigned[i] >= 0) continue;
+			
+			Instance<K,F,V> inst = instances.get(i);
+			DistanceResult best = nearest(inst, created, bound);
+			if (best.c != null && isCandidate(inst, best.c, best.distance, null, Double.MAX_VALUE)) {
+				assigned[i] = position.get(best.c);
+			}
+			else {
+				// reset keeps the centroid of the new cluster so it can be compared against the remaining 
+				// instances while its members are added with the rest below
+				Cluster<K,F,V> c = createCluster();
+				c.add(inst);
+				c.updateCentroid();
+				c.reset();
+				assigned[i] = existing.size() + created.size();
+				position.put(c, assigned[i]);
+				created.add(c);
+				clusters.add(c);
+			}
+		}
+		
+		List<Cluster<K,F,V>> all = new ArrayList<>(existing);
+		all.addAll(created);
+		addMembers(instances, assigned, all);
+		
+		List<Cluster<K,F,V>> modified = new ArrayList<>();
+		for (int j = 0; j < all.size(); j++) {
+			Cluster<K,F,V> c = all.get(j);
+			if (c.isEmpty()) continue;
+			
+			modified.add(c);
+			if (candidateIndex != null) {
+				if (j < existing.size()) candidateIndex.update(c);
+				else candidateIndex.add(c);
+			}
+		}
+		
+		double clusterTime = System.currentTimeMillis() - start;
+		log.debug("Clustering time (s): {}", clusterTime / 1000);
+		
+		return new InMemoryClusterResult(modified);
+	}
+	
+	/***
+	 * Protected method to reassign every instance to its best cluster, updating only the clusters whose 
+	 * members changed.
+	 * 
+	 * assigned holds the position in clusters of the cluster each instance belongs to, or -1 for an instance
+	 * that hasn't been assigned yet, and is updated in place.  The best cluster of each instance is found in
+	 * parallel against the current centroids, as in doBatchCluster(), and instances that aren't a candidate
+	 * for any cluster are processed in order afterwards and may create new clusters, which are appended to
+	 * clusters.
+	 * 
+	 * Only the instances that moved are removed from and added to clusters, through Centroid.remove() and
+	 * Centroid.add(), and only the centroids of those clusters are recomputed.  A cluster that loses at 
+	 * least as many members as it keeps is rebuilt from its remaining members instead, which also bounds
+	 * the error of centroids that can't remove features exactly, and a cluster that loses every member is
+	 * reset so it keeps its last centroid.
+	 * 
+	 * The members of the clusters must match assigned when the method is called, so callers start from 
+	 * reset clusters with every instance unassigned and then reassign until no instance moves.
+	 * 
+	 * @param instances the instances to assign
+	 * @param assigned the position in clusters of the cluster of each instance or -1
+	 * @param clusters is a collection of clusters to modify
+	 * @return the number of instances that moved
+	 */
+	protected int reassign(final List<Instance<K,F,V>> instances, final int[] assigned, final List<Cluster<K,F,V>> clusters) {
+		return reassign(instances, assigned, clusters, Integer.MAX_VALUE);
+	}
+	
+	/***
+	 * Protected method to reassign every instance to its best cluster in epochs, as in the optimistic 
+	 * concurrency control form of DP-Means:
+	 * 
+	 * Pan, X. et al., Optimistic Concurrency Control for Distributed Unsupervised Learning, 2013.
+	 * 
+	 * The instances are processed in consecutive epochs that start at firstEpochSize instances and double
+	 * in size.  The instances of an epoch are assigned in parallel against the clusters known at the start
+	 * of the epoch, and only the instances that aren't a candidate for any of them are reconciled serially 
+	 * against the clusters created during the epoch.  The clusters created in an epoch are candidates for 
+	 * every later epoch, so when few clusters exist, such as in the first iteration of DP-Means, the serial 
+	 * step handles little more than the instances that do create clusters rather than nearly all of them.
+	 * 
+	 * Otherwise the same as reassign(instances, assigned, clusters), which is a single epoch.
+	 * 
+	 * @param instances the instances to assign
+	 * @param assigned the position in clusters of the cluster of each instance or -1
+	 * @param clusters is a collection of clusters to modify
+	 * @param firstEpochSize the number of instances in the first epoch
+	 * @return the number of instances that moved
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	protected int reassign(final List<Instance<K,F,V>> instances, final int[] assigned, final List<Cluster<K,F,V>> clusters, int firstEpochSize) {
+		// if the clusterer hasn't been initially manually then init it now
+		if (exec == null) init();
+		
+		final int n = instances.size();
+		final int[] best = new int[n];
+		final int count = clusters.size();
+		
+		final List<Cluster<K,F,V>> existing = new ArrayList<>(clusters);
+		final Map<Cluster<K,F,V>, Integer> position = new IdentityHashMap<>();
+		for (int j = 0; j < existing.size(); j++) {
+			position.put(existing.get(j), j);
+		}
+		if (candidateIndex != null) {
+			candidateIndex.clear();
+			for (Cluster<K,F,V> c : existing) {
+				candidateIndex.add(c);
+			}
+		}
+		final double bound = getCandidateBound();
+		
+		int epoch = Math.max(1, firstEpochSize);
+		for (int from = 0; from < n; ) {
+			final int first = from;
+			final int last = (int)Math.min(n, (long)from + epoch);
+			
+			// find the best existing cluster for each instance of the epoch
+			forEachPartition(last - first, (s, e) -> {
+				for (int i = first + s; i < first + e; i++) {
+					Instance<K,F,V> inst = instances.get(i);
+					List<? extends Instance<K,F,V>> candidates = (candidateIndex != null) ? candidateIndex.candidates(inst, bound) : existing;
+					DistanceResult result = nearest(inst, candidates, bound);
+					
+					best[i] = (result.c != null && isCandidate(inst, result.c, result.distance, null, Double.MAX_VALUE)) ? position.get(result.c) : -1;
+				}
+			});
+			
+			// instances without a candidate may create new clusters so they are processed in order
+			List<Cluster<K,F,V>> created = new ArrayList<>();
+			for (int i = first; i < last; i++) {
+				if (best[i] >= 0) continue;
+				
+				Instance<K,F,V> inst = instances.get(i);
+				DistanceResult result = nearest(inst, created, bound);
+				if (result.c != null && isCandidate(inst, result.c, result.distance, null, Double.MAX_VALUE)) {
+					best[i] = position.get(result.c);
+				}
+				else {
+					// the new cluster keeps its centroid while its members are added with the other moves below
+					Cluster<K,F,V> c = createCluster();
+					c.add(inst);
+					c.updateCentroid();
+					c.reset();
+					best[i] = clusters.size();
+					position.put(c, clusters.size());
+					created.add(c);
+					clusters.add(c);
+				}
+			}
+			
+			// the clusters created in this epoch are candidates for the next
+			existing.addAll(created);
+			if (candidateIndex != null) {
+				for (Cluster<K,F,V> c : created) {
+					candidateIndex.add(c);
+				}
+			}
+			
+			from = last;
+			epoch = (int)Math.min(Integer.MAX_VALUE, 2L * epoch);
+		}
+		
+		// group the moved instances by the cluster they leave and the cluster they join
+		final int m = clusters.size();
+		final int[] leaveOffsets = new int[m + 1];
+		final int[] joinOffsets = new int[m + 1];
+		int moved = 0;
+		for (int i = 0; i < n; i++) {
+			if (best[i] == assigned[i]) continue;
+			moved++;
+			if (assigned[i] >= 0) leaveOffsets[assigned[i] + 1]++;
+			joinOffsets[best[i] + 1]++;
+		}
+		for (int j = 0; j < m; j++) {
+			leaveOffsets[j + 1] += leaveOffsets[j];
+			joinOffsets[j + 1] += joinOffsets[j];
+		}
+		final int[] leaving = new int[leaveOffsets[m]];
+		final int[] joining = new int[joinOffsets[m]];
+		int[] nextLeave = Arrays.copyOf(leaveOffsets, m);
+		int[] nextJoin = Arrays.copyOf(joinOffsets, m);
+		for (int i = 0; i < n; i++) {
+			if (best[i] == assigned[i]) continue;
+			if (assigned[i] >= 0) leaving[nextLeave[assigned[i]]++] = i;
+			joining[nextJoin[best[i]]++] = i;
+		}
+		
+		// each changed cluster is updated by a single worker
+		forEachPartition(m, 1, (s, e) -> {
+			for (int j = s; j < e; j++) {
+				int leaves = leaveOffsets[j + 1] - leaveOffsets[j];
+				int joins = joinOffsets[j + 1] - joinOffsets[j];
+				if (leaves == 0 && joins == 0) continue;
+				
+				Cluster<K,F,V> c = clusters.get(j);
+				int remaining = c.getMembers().size() - leaves;
+				if (remaining + joins == 0) {
+					c.reset();
+					continue;
+				}
+				if (leaves >= remaining) {
+					Set<Instance<K,F,V>> kept = new LinkedHashSet<>(c.getMembers());
+					for (int l = leaveOffsets[j]; l < leaveOffsets[j + 1]; l++) {
+						kept.remove(instances.get(leaving[l]));
+					}
+					c.reset();
+					for (Instance<K,F,V> inst : kept) {
+						c.add(inst);
+					}
+					for (int l = joinOffsets[j]; l < joinOffsets[j + 1]; l++) {
+						c.add(instances.get(joining[l]));
+					}
+				}
+				else {
+					// add before removing so the centroid weights never drop to zero
+					for (int l = joinOffsets[j]; l < joinOffsets[j + 1]; l++) {
+						c.add(instances.get(joining[l]));
+					}
+					for (int l = leaveOffsets[j]; l < leaveOffsets[j + 1]; l++) {
+						c.remove(instances.get(leaving[l]));
+					}
+				}
+				c.updateCentroid();
+			}
+		});
+		
+		// the created clusters are already in the index but their centroids have changed with their members
+		if (candidateIndex != null) {
+			for (int j = 0; j < m; j++) {
+				if (j >= count || leaveOffsets[j] != leaveOffsets[j + 1] || joinOffsets[j] != joinOffsets[j + 1]) candidateIndex.update(clusters.get(j));
+			}
+		}
+		
+		System.arraycopy(best, 0, assigned, 0, n);
+		return moved;
+	}
+	
+	/***
+	 * Add each instance to the cluster at the position it is assigned and update the centroids of the 
+	 * clusters that gained members.
+	 * 
+	 * The instances are partitioned across the executor and each worker accumulates the features of its
+	 * instances into its own partial centroids per cluster, see createAccumulators(), so the update is spread
+	 * over the workers however the instances fall into clusters and no locking is needed.  The partial 
+	 * centroids of each cluster are then merged into it by a single worker, see Cluster.merge(), in the 
+	 * order of the partitions so the result doesn't depend on scheduling.
+	 * 
+	 * @param instances the instances to add
+	 * @param assigned the position in clusters of the cluster each instance is assigned to
+	 * @param clusters the clusters to add the instances to
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	protected void addMembers(final List<Instance<K,F,V>> instances, final int[] assigned, final List<Cluster<K,F,V>> clusters) {
+		final int n = instances.size();
+		final int m = clusters.size();
+		
+		// accumulate the features of each partition of the instances into partial centroids per cluster
+		final Map<Integer, Map<F,Centroid<F,V>>[]> partials = new ConcurrentSkipListMap<>();
+		forEachPartition(n, (s, e) -> {
+			Map<F,Centroid<F,V>>[] local = new Map[m];
+			for (int i = s; i < e; i++) {
+				int j = assigned[i];
+				if (local[j] == null) local[j] = createAccumulators();
+				
+				Instance<K,F,V> inst = instances.get(i);
+				for (Map.Entry<F,Centroid<F,V>> acc : local[j].entrySet()) {
+					Feature<F,V> feature = inst.getFeature(acc.getKey());
+					if (feature != null) {
+						acc.getValue().add(feature);
+					}
+				}
+			}
+			partials.put(s, local);
+		});
+		
+		// counting sort of the instances by cluster
+		final int[] offsets = new int[m + 1];
+		for (int i = 0; i < n; i++) {
+			offsets[assigned[i] + 1]++;
+		}
+		for (int j = 0; j < m; j++) {
+			offsets[j + 1] += offsets[j];
+		}
+		final int[] members = new int[n];
+		int[] next = Arrays.copyOf(offsets, m);
+		for (int i = 0; i < n; i++) {
+			members[next[assigned[i]]++] = i;
+		}
+		
+		// reduce the partial centroids, each cluster by a single worker
+		forEachPartition(m, 1, (s, e) -> {
+			for (int j = s; j < e; j++) {
+				if (offsets[j] == offsets[j + 1]) continue;
+				
+				List<Instance<K,F,V>> joined = new ArrayList<>(offsets[j + 1] - offsets[j]);
+				for (int i = offsets[j]; i < offsets[j + 1]; i++) {
+					joined.add(instances.get(members[i]));
+				}
+				List<Map<F,Centroid<F,V>>> sums = new ArrayList<>(partials.size());
+				for (Map<F,Centroid<F,V>>[] local : partials.values()) {
+					if (local[j] != null) sums.add(local[j]);
+				}
+				
+				Cluster<K,F,V> c = clusters.get(j);
+				c.merge(joined, sums);
+				c.updateCentroid();
+			}
+		});
+	}
+	
+	/***
+	 * Return an empty centroid for each registered feature type, keyed by feature name, for accumulating
+	 * the features of instances apart from any cluster.  The accumulated centroids are merged into a 
+	 * cluster with Cluster.merge().
+	 * 
+	 * @return the empty centroids by feature name
+	 */
+	protected Map<F,Centroid<F,V>> createAccumulators() {
+		List<FeatureValueDefinition<F,V>> defs = getOrderedTypeDefs();
+		Map<F,Centroid<F,V>> accumulators = new HashMap<>(defs.size() * 2);
+		for (FeatureValueDefinition<F,V> def : defs) {
+			Centroid<F,V> centroid = def.builder.get();
+			centroid.setName(def.featureName);
+			accumulators.put(def.featureName, centroid);
+		}
+		return accumulators;
+	}
+	
+	/***
+	 * A task over the half open range [start, end) of a partitioned index space
+	 */
+	protected interface PartitionTask {
+		void run(int start, int end);
+	}
+	
+	/***
+	 * Run the task over the index range [0, n) split into contiguous partitions, one per worker
+	 * of the executor service.  Small ranges are run in the calling thread.  The method returns once
+	 * all partitions are complete.
+	 * 
+	 * @param n the size of the index range
+	 * @param task the task to run on each partition
+	 */
+	protected void forEachPartition(int n, PartitionTask task) {
+		forEachPartition(n, MIN_PARTITION_SIZE, task);
+	}
+	
+	/***
+	 * Run the task over the index range [0, n) split into contiguous partitions of at least 
+	 * minPartitionSize, at most one per worker of the executor service.
+	 * 
+	 * If a partition fails, or the calling thread is interrupted, the remaining partitions are cancelled 
+	 * and an IllegalStateException is thrown, since the output of the task would be incomplete.
+	 * 
+	 * @param n the size of the index range
+	 * @param minPartitionSize the smallest range worth submitting as a separate task
+	 * @param task the task to run on each partition
+	 */
+	protected void forEachPartition(int n, int minPartitionSize, final PartitionTask task) {
+		if (exec == null) init();
+		
+		int partitions = Math.min(DEFAULT_THREAD_POOL, (n + minPartitionSize - 1) / minPartitionSize);
+		if (partitions <= 1) {
+			task.run(0, n);
+			return;
+		}
+		
+		List<Future<Void>> results = new ArrayList<>(partitions);
+		for (int p = 0; p < partitions; p++) {
+			final int s = (int)((long)n * p / partitions);
+			final int e = (int)((long)n * (p + 1) / partitions);
+			results.add(exec.submit(() -> {
+				task.run(s, e);
+				return null;
+			}));
+		}
+		try {
+			for (Future<Void> result : results) {
+				result.get();
+			}
+		} catch (InterruptedException e) {
+			cancel(results);
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while executing partition tasks", e);
+		} catch (ExecutionException e) {
+			cancel(results);
+			throw new IllegalStateException("Error executing partition task", e.getCause());
+		}
+	}
+	
+	private static void cancel(List<Future<Void>> results) {
+		for (Future<Void> result : results) {
+			result.cancel(true);
+		}
+	}
+
 	protected abstract Cluster createCluster();
 
 
 
-	@SuppressWarnings("unchecked")
 	@Override
 	public double distance(Instance<K,F,V> inst1, Instance<K,F,V> inst2) {
+		return distance(inst1, inst2, Double.MAX_VALUE);
+	}
+	
+	/***
+	 * Return the ensemble distance between inst1 and inst2 if it is at most budget.
+	 * 
+	 * The weighted feature distances are summed cheapest first, see DistanceFunction.getCost(), and the 
+	 * summation stops as soon as the partial sum exceeds budget.  In that case a value greater than budget
+	 * that is no larger than the full distance is returned.  The remaining budget is passed on to each 
+	 * distance function so that expensive functions can also stop early.
+	 * 
+	 * @param inst1 the first instance
+	 * @param inst2 the second instance
+	 * @param budget the largest distance of interest
+	 * @return the distance if it is at most budget, otherwise a value in (budget, distance]
+	 */
+	@SuppressWarnings("unchecked")
+	public double distance(Instance<K,F,V> inst1, Instance<K,F,V> inst2, double budget) {
 		double totalDist = 0; 
 
 		try {
-			for (FeatureValueDefinition<F,V> typedef : this.getTypeDefs()) {
+			for (FeatureValueDefinition<F,V> typedef : this.getOrderedTypeDefs()) {
+				double weight = typedef.distFunc.getWeight();
 
-				if (typedef.distFunc.getWeight() < minDistFunctionWeightToCalculate) continue;  // skip if weight is near zero
+				if (weight < minDistFunctionWeightToCalculate) continue;  // skip if weight is near zero
 				
 				Feature f1 = inst1.getFeature(typedef.featureName);
 				Feature f2 = inst2.getFeature(typedef.featureName);
@@ -296,13 +1009,16 @@ public abstract class AbstractClusterer<K,F,V> extends BaseClusterer<K,F,V> {
 				double d = 0;
 				
 				if (f1 == null || f2 == null) {
-					d = penalizeMissingFeatures ? typedef.distFunc.getWeight() : 0;  
+					d = penalizeMissingFeatures ? weight : 0;  
 				}
 				else {
-					d = typedef.distFunc.distance(f1, f2) * typedef.distFunc.getWeight();
+					d = typedef.distFunc.distance(f1, f2, (budget - totalDist) / weight) * weight;
 				}
 				
 				totalDist += d;
+				
+				// the remaining feature distances are non-negative
+				if (totalDist > budget) break;
 			}
 		}
 		catch (Exception e) {
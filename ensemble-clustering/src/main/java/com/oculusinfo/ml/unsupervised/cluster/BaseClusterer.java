@@ -27,8 +27,11 @@ package com.oculusinfo.ml.unsupervised.cluster;
 import com.oculusinfo.ml.distance.DistanceFunction;
 import com.oculusinfo.ml.feature.Feature;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Supplier;
 
@@ -37,7 +40,8 @@ public abstract class BaseClusterer<K,F,V> implements Clusterer<K,F,V> {
 	protected ClusterFactory<K,F,V> clusterFactory;
 	protected final boolean onlineUpdate;
 	protected final Map<V, FeatureValueDefinition<F,V>> typeDefs = new HashMap<>();
-	
+	private volatile List<FeatureValueDefinition<F,V>> orderedTypeDefs = null;
+
 	public BaseClusterer(boolean onlineUpdate) {
 		this.onlineUpdate = onlineUpdate;
 	}
@@ -48,6 +52,7 @@ public abstract class BaseClusterer<K,F,V> implements Clusterer<K,F,V> {
 	 */
 	public void clearFeatureTypes() {
 		typeDefs.clear();
+		orderedTypeDefs = null;
 	}
 	
 	/***
@@ -60,6 +65,7 @@ public abstract class BaseClusterer<K,F,V> implements Clusterer<K,F,V> {
 	@SuppressWarnings("rawtypes")
 	public void registerFeatureType(V name, Supplier<Feature<F, V>> centroidClass, DistanceFunction<K> distFunc) {
 		typeDefs.put(name, new FeatureValueDefinition(name, centroidClass, distFunc));
+		orderedTypeDefs = null;
 	}
 	
 	/***
@@ -100,6 +106,22 @@ public abstract class BaseClusterer<K,F,V> implements Clusterer<K,F,V> {
 		return typeDefs.values();
 	}
 	
+	/***
+	 * Method to return feature types registered with this clusterer ordered from the cheapest to the
+	 * most expensive distance function, see DistanceFunction.getCost().
+	 * 
+	 * @return a list of feature type definitions
+	 */
+	public List<FeatureValueDefinition<F, V>> getOrderedTypeDefs() {
+		List<FeatureValueDefinition<F, V>> ordered = orderedTypeDefs;
+		if (ordered == null) {
+			ordered = new ArrayList<>(typeDefs.values());
+			ordered.sort(Comparator.comparingDouble(def -> def.distFunc.getCost()));
+			orderedTypeDefs = ordered;
+		}
+		return ordered;
+	}
+	
 //	/***
 //	 * Public method for creating a new cluster instance. The new cluster is associated with
 //	 * the centroids for each feature.
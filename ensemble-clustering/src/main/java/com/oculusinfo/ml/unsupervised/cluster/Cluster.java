@@ -49,6 +49,7 @@ public class Cluster<K,F,V> extends Instance<K,F,V> {
 
 	protected final Map<F,Centroid<F,V>> centroids = new HashMap<>();
 	protected final Set<Instance<K,F, V>> members = new LinkedHashSet<>();
+	protected long absorbed = 0;	// instances counted in the centroids but not retained as members
 
 //	public Cluster() {
 //		super(UUID.randomUUID().toString());
@@ -76,6 +77,7 @@ public class Cluster<K,F,V> extends Instance<K,F,V> {
 	@SuppressWarnings("rawtypes")
 	public void reset() {
 		this.members.clear();
+		this.absorbed = 0;
 		centroids.forEach((o, centroid) -> {
 			try {
 				centroid.reset();
@@ -121,9 +123,70 @@ public class Cluster<K,F,V> extends Instance<K,F,V> {
 		return isNew;
 	}
 	
+	/***
+	 * Add insts as members of the cluster, with their features already accumulated into partial centroids.
+	 * 
+	 * Each partial maps a feature name to a centroid filled independently of the cluster, typically by one
+	 * worker thread, and is merged into the centroid of that feature, see Centroid.merge().  This lets
+	 * workers accumulate the members of a cluster without touching the cluster itself and reduce their
+	 * sums once at the end of an iteration.  The partials must hold the features of exactly insts.
+	 * 
+	 * @param insts the instances to add as members
+	 * @param partials the partial centroids of the features of insts
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public void merge(Collection<Instance<K,F,V>> insts, Collection<Map<F,Centroid<F,V>>> partials) {
+		members.addAll(insts);
+		for (Map<F,Centroid<F,V>> partial : partials) {
+			for (Map.Entry<F,Centroid<F,V>> e : partial.entrySet()) {
+				Centroid m = centroids.get(e.getKey());
+				if (m != null) {
+					m.merge(e.getValue());
+				}
+			}
+		}
+		
+		if (onlineUpdate) {
+			updateCentroid();
+		}
+	}
+	
+	/***
+	 * Add the features of inst to the centroids without retaining inst as a member.  
+	 * 
+	 * Absorbed instances are included in size() but not in getMembers() and can't be removed.  Useful when
+	 * clustering streams where only the cluster summaries are of interest.
+	 * 
+	 * @param inst the instance to absorb
+	 */
+	public void absorb(Instance<K,F,V> inst) {
+		absorbed++;
+		updateCentroids(inst, false);
+	}
+	
+	/***
+	 * Stop retaining the members of the cluster but keep them in the centroids, as if they had been 
+	 * absorbed.  Useful when the centroids accumulate more instances than should be kept in memory.
+	 */
+	public void clearMembers() {
+		absorbed += members.size();
+		members.clear();
+	}
+	
+	/***
+	 * Return the number of instances absorbed into the cluster without being retained as members
+	 * 
+	 * @return the number of absorbed instances
+	 */
+	public long getAbsorbedCount() {
+		return absorbed;
+	}
+	
 	public boolean remove(Instance<K,F,V> inst) {
 		boolean isAltered = members.remove(inst);
-		updateCentroids(inst, false);
+		if (isAltered) {
+			updateCentroids(inst, true);
+		}
 		return isAltered;
 	}
 	
@@ -143,7 +206,7 @@ public class Cluster<K,F,V> extends Instance<K,F,V> {
 	@Override
 	@JsonIgnore
 	public boolean isEmpty() {
-		return members.isEmpty();
+		return members.isEmpty() && absorbed == 0;
 	}
 	
 	@SuppressWarnings("rawtypes")
@@ -179,7 +242,7 @@ public class Cluster<K,F,V> extends Instance<K,F,V> {
 //	}
 
 	public int size() {
-		return members.size();
+		return (int)Math.min(Integer.MAX_VALUE, members.size() + absorbed);
 	}
 	
 	@Override
@@ -204,6 +267,6 @@ public class Cluster<K,F,V> extends Instance<K,F,V> {
 	 * A method that can be used to spit out information on this cluster every iteration.
 	 */
     public String getIterationDebugInfo () {
-        return members.size()+" members";
+        return size()+" members";
     }
 }
@@ -0,0 +1,60 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised.cluster;
+
+import com.oculusinfo.ml.Instance;
+
+/***
+ * Listener for the progress of a clusterer consuming a stream of instances.
+ * 
+ * The listener is called from the thread consuming the stream so the clusters aren't modified while 
+ * a method of the listener is running.
+ *
+ */
+public interface ClusterStreamListener<K,F,V> {
+	
+	/***
+	 * Called after each instance is assigned to a cluster.  Useful for spilling cluster 
+	 * membership to external storage when the clusterer isn't retaining members.
+	 * 
+	 * @param inst the instance
+	 * @param cluster the cluster the instance was assigned to
+	 */
+	default void memberAssigned(Instance<K,F,V> inst, Cluster<K,F,V> cluster) {
+		// ignored by default
+	}
+	
+	/***
+	 * Called periodically with the current clusters.  The result holds a copy of the list of clusters
+	 * so clusters created later aren't added to it, but the clusters themselves are live and continue 
+	 * to absorb instances once the method returns.
+	 * 
+	 * @param clusters the current clusters
+	 * @param processed the number of instances consumed from the stream so far
+	 */
+	default void snapshot(ClusterResult clusters, long processed) {
+		// ignored by default
+	}
+}
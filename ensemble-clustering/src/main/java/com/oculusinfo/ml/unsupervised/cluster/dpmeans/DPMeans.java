@@ -28,12 +28,14 @@ import com.oculusinfo.ml.DataSet;
 import com.oculusinfo.ml.Instance;
 import com.oculusinfo.ml.unsupervised.cluster.Cluster;
 import com.oculusinfo.ml.unsupervised.cluster.ClusterResult;
+import com.oculusinfo.ml.unsupervised.cluster.InMemoryClusterResult;
 import com.oculusinfo.ml.unsupervised.cluster.kmeans.KMeans;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
 /***
  * The class implements the DP-Means clustering algorithm:
@@ -43,12 +45,21 @@ import java.util.List;
  * This clusterer is useful when the number of clusters is unknown.  
  * Tuning is required to choose an appropriate threshold that controls when new clusters can be created. 
  * 
+ * As in KMeans each iteration only updates the clusters that gained or lost members and the iterations
+ * stop once no instance moves.
+ * 
+ * Each iteration assigns the instances in parallel, in epochs of doubling size, against the clusters
+ * known at the start of each epoch and only the instances that would create a new cluster are reconciled 
+ * serially, see AbstractClusterer.reassign(), as in the optimistic concurrency control form of DP-Means:
+ * 
+ * Pan, X. et al., Optimistic Concurrency Control for Distributed Unsupervised Learning, 2013.
+ * 
  * @author slangevin
  *
  */
-public class DPMeans extends KMeans {
+public class DPMeans<K,F,V> extends KMeans<K,F,V> {
 	protected double threshold = 0.5; // default threshold
-	protected final double convergeTest = 0.001; // default test of convergence
+	protected int epochSize = DEFAULT_THREAD_POOL * MIN_PARTITION_SIZE;	// instances in the first epoch of each iteration
 	
 	public DPMeans(int maxIterations, boolean penalizeMissingFeatures) {
 		super(1, maxIterations, penalizeMissingFeatures);
@@ -62,75 +73,64 @@ public class DPMeans extends KMeans {
 		this.threshold = threshold;
 	}
 	
-	private List<Cluster> initKMeans(DataSet<String> ds) {
-		List<Cluster> kmeans = new LinkedList<>();
-		
-		int ki = (ds.size() < k) ? ds.size(): k;
-		
-		// randomly pick k instances as the initial k means
-		ArrayList<String> keys = new ArrayList<>(ds.getKeys());
-
-		ArrayList<String> indexes = new ArrayList<>(ds.size());
-		indexes.addAll(keys);
-
-	    Collections.shuffle(indexes);
-
-	    for (int i = 0; i < ki; i++) {
-	    	Cluster c = this.createCluster();
-	    	c.add( ds.get(indexes.get(i)) );
-	    	c.updateCentroid();
-	    	kmeans.add(c);
-	    }
-	    return kmeans;
+	public int getEpochSize() {
+		return epochSize;
 	}
 	
-	private double error(ClusterResult clusters) {
-		double error = 0;
-		
-		for (Cluster c : clusters) {
-			for (Instance<String> i : c.getMembers()) {
-				error += this.distance(c, i);
-			}
-		}
-		return error;
+	/***
+	 * Set the number of instances in the first epoch of each iteration.  Smaller epochs let new clusters
+	 * be seen sooner by the parallel assignment at the cost of more synchronisation between epochs.
+	 * 
+	 * @param epochSize the number of instances in the first epoch
+	 */
+	public void setEpochSize(int epochSize) {
+		this.epochSize = epochSize;
 	}
-	private boolean isConverged(double oldError, double newError) {
-		return ( (oldError - newError) < convergeTest );
+	
+	@Override
+	protected double getCandidateBound() {
+		return threshold;
 	}
 	
 	@Override
-	public ClusterResult doCluster(DataSet<String> ds) {
-		boolean converged = false;
-		List<Cluster> kmeans = initKMeans(ds);
-		ClusterResult clusters = null;
-		double prevError = Double.MAX_VALUE;
+	@SuppressWarnings("rawtypes")
+	protected Cluster createCluster() {
+		return new Cluster(UUID.randomUUID().toString(), getTypeDefs(), onlineUpdate);
+	}
+	
+	@Override
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public ClusterResult<K,V> doCluster(DataSet<K,F,V> ds) {
+		List<Instance<K,F,V>> instances = new ArrayList<>(ds.size());
+		for (Instance<K,F,V> inst : ds) {
+			instances.add(inst);
+		}
+		List<Cluster<K,F,V>> clusters = new ArrayList<>();
+		if (instances.isEmpty()) return new InMemoryClusterResult(clusters);
 		
 		double start = System.currentTimeMillis();
 		
+		// start from a single empty mean at a random instance
+		Cluster<K,F,V> first = createCluster();
+		first.add( instances.get(ThreadLocalRandom.current().nextInt(instances.size())) );
+		first.updateCentroid();
+		first.reset();
+		clusters.add(first);
+		
+		int[] assigned = new int[instances.size()];
+		Arrays.fill(assigned, -1);
+		
 		int iteration = 0;
 		
-		while (!converged && iteration < maxIterations) {
+		while (iteration < maxIterations) {
 			if (log.isInfoEnabled())
 				log.info("DP-Means iteration {}", (iteration+1));
 			
-			for (Cluster mean : kmeans) {
-				mean.reset();
-			}
+			int moved = reassign(instances, assigned, clusters, epochSize);
 			
-			clusters = super.doCluster(ds, kmeans);
-			
-			if (clusters.isEmpty()) break;
-		
-			// compute new error
-			double newError = error(clusters);
-			
-			// test for convergence
-			converged = isConverged(prevError, newError);
-				
-			// save the current error
-			prevError = newError;
-		
 			iteration++;
+			
+			if (moved == 0) break;
 		}
 
 		if (log.isInfoEnabled()) {
@@ -139,12 +139,17 @@ public class DPMeans extends KMeans {
 			log.info("Clustering time (s): {}", clusterTime / 1000);
 		}
 		
-		return clusters; //new InMemoryClusterResult(kmeans);
+		// clusters that lost all their members are kept during the iterations but not returned
+		List<Cluster<K,F,V>> result = new ArrayList<>();
+		for (Cluster<K,F,V> c : clusters) {
+			if (!c.isEmpty()) result.add(c);
+		}
+		return new InMemoryClusterResult(result);
 	}
 
 	@Override
-	protected boolean isCandidate(Instance<String> inst, Cluster candidate,
-								  double score, Cluster best, double bestScore) {
+	@SuppressWarnings("rawtypes")
+	protected boolean isCandidate(Instance<K,F,V> inst, Cluster candidate, double score, Cluster best, double bestScore) {
 		return (score < threshold && score < bestScore);  // lower score less than threshold is better
 	}
 
@@ -0,0 +1,188 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised.cluster.index;
+
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+
+import java.util.*;
+
+/***
+ * Base class for candidate indexes that place each cluster into one or more buckets by its centroid 
+ * and return the clusters of the buckets an instance falls into.
+ * 
+ * The base class keeps track of the order in which clusters were added, so candidates are returned 
+ * in the clusterer's search order, and of the clusters that couldn't be placed because their centroid 
+ * lacks the indexed feature, which are always returned as candidates.  Subclasses only implement 
+ * placing a cluster, removing it from its buckets and looking up the buckets of an instance.
+ *
+ */
+public abstract class AbstractCandidateIndex<K,F,V> implements CandidateIndex<K,F,V> {
+	private static final long serialVersionUID = -4829373105716322187L;
+	
+	private final boolean overlapping;
+	private final Map<Cluster<K,F,V>, Long> clusterOrder = new HashMap<>();
+	private final Set<Cluster<K,F,V>> unlocated = new LinkedHashSet<>();
+	private final List<Cluster<K,F,V>> all = new ArrayList<>();
+	private long nextOrder = 0;
+	
+	/***
+	 * @param overlapping true if a cluster may be placed into several buckets, in which case the 
+	 * clusters of the buckets are de-duplicated when collecting candidates
+	 */
+	protected AbstractCandidateIndex(boolean overlapping) {
+		this.overlapping = overlapping;
+	}
+	
+	/***
+	 * Place the cluster into the buckets of its centroid
+	 * 
+	 * @param cluster the cluster to place
+	 * @return false if the cluster has none of the indexed feature and can't be placed
+	 */
+	protected abstract boolean place(Cluster<K,F,V> cluster);
+	
+	/***
+	 * Remove a cluster that was placed from all of its buckets
+	 * 
+	 * @param cluster the cluster to remove
+	 */
+	protected abstract void displace(Cluster<K,F,V> cluster);
+	
+	/***
+	 * Return the buckets whose clusters are candidates for inst
+	 * 
+	 * @param inst the instance being clustered
+	 * @param bound the maximum ensemble distance of a cluster that can be chosen for inst, which is finite
+	 * @return the buckets of the candidates, or null if the index can't prune the clusters for inst
+	 */
+	protected abstract Collection<? extends Collection<Cluster<K,F,V>>> lookup(Instance<K,F,V> inst, double bound);
+	
+	/***
+	 * Remove all buckets
+	 */
+	protected abstract void clearBuckets();
+	
+	/***
+	 * Return whether the centroid of a placed cluster has changed enough to move it to other buckets.
+	 * The default always moves the cluster.
+	 * 
+	 * @param cluster the modified cluster
+	 * @return true if the cluster must be displaced and placed again
+	 */
+	protected boolean isMoved(Cluster<K,F,V> cluster) {
+		return true;
+	}
+	
+	/***
+	 * Return the number of clusters in the index
+	 * 
+	 * @return the number of clusters
+	 */
+	public int getClusterCount() {
+		return all.size();
+	}
+	
+	@Override
+	public void clear() {
+		clusterOrder.clear();
+		unlocated.clear();
+		all.clear();
+		nextOrder = 0;
+		clearBuckets();
+	}
+	
+	@Override
+	public void add(Cluster<K,F,V> cluster) {
+		if (clusterOrder.containsKey(cluster)) {
+			update(cluster);
+			return;
+		}
+		clusterOrder.put(cluster, nextOrder++);
+		all.add(cluster);
+		locate(cluster);
+	}
+	
+	@Override
+	public void update(Cluster<K,F,V> cluster) {
+		if (!clusterOrder.containsKey(cluster)) {
+			add(cluster);
+			return;
+		}
+		if (!unlocated.contains(cluster) && !isMoved(cluster)) return;
+		
+		unlocate(cluster);
+		locate(cluster);
+	}
+	
+	@Override
+	public void remove(Cluster<K,F,V> cluster) {
+		if (clusterOrder.remove(cluster) == null) return;
+		unlocate(cluster);
+		all.remove(cluster);
+	}
+	
+	@Override
+	public List<Cluster<K,F,V>> candidates(Instance<K,F,V> inst, double bound) {
+		// can't prune an unlimited search, as for KMeans
+		if (bound == Double.MAX_VALUE || Double.isInfinite(bound)) {
+			return all;
+		}
+		
+		Collection<? extends Collection<Cluster<K,F,V>>> buckets = lookup(inst, bound);
+		if (buckets == null) {
+			return all;
+		}
+		
+		List<Cluster<K,F,V>> candidates = new ArrayList<>(unlocated);
+		if (overlapping && buckets.size() > 1) {
+			Set<Cluster<K,F,V>> seen = new HashSet<>(unlocated);
+			for (Collection<Cluster<K,F,V>> bucket : buckets) {
+				for (Cluster<K,F,V> c : bucket) {
+					if (seen.add(c)) candidates.add(c);
+				}
+			}
+		}
+		else {
+			for (Collection<Cluster<K,F,V>> bucket : buckets) {
+				candidates.addAll(bucket);
+			}
+		}
+		
+		// the clusterer expects candidates in the order they were added
+		if (candidates.size() > 1) {
+			candidates.sort((a, b) -> Long.compare(clusterOrder.get(a), clusterOrder.get(b)));
+		}
+		return candidates;
+	}
+	
+	private void locate(Cluster<K,F,V> cluster) {
+		if (!place(cluster)) unlocated.add(cluster);
+	}
+	
+	private void unlocate(Cluster<K,F,V> cluster) {
+		if (!unlocated.remove(cluster)) displace(cluster);
+	}
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised.cluster.index;
+
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+
+import java.io.Serializable;
+import java.util.List;
+
+/***
+ * Interface for indexes that prune the set of clusters a clusterer must compare an instance against.
+ * 
+ * A clusterer consults the index for the candidate clusters of each instance instead of computing the
+ * full ensemble distance to every cluster.  The clusterer passes a bound which is the largest ensemble 
+ * distance at which a cluster could still be chosen for the instance.  An index must only omit clusters 
+ * it can prove are farther than the bound, unless the index is documented as approximate.
+ * 
+ * The clusterer keeps the index up to date by notifying it when clusters are created and when their 
+ * centroids change.  Between modifications candidates() may be called concurrently from several threads.
+ *
+ */
+public interface CandidateIndex<K,F,V> extends Serializable {
+	
+	/***
+	 * Remove all clusters from the index
+	 */
+	void clear();
+	
+	/***
+	 * Add a new cluster to the index
+	 * 
+	 * @param cluster the cluster to add
+	 */
+	void add(Cluster<K,F,V> cluster);
+	
+	/***
+	 * Notify the index that the centroid of cluster has changed
+	 * 
+	 * @param cluster the modified cluster
+	 */
+	void update(Cluster<K,F,V> cluster);
+	
+	/***
+	 * Remove a cluster from the index
+	 * 
+	 * @param cluster the cluster to remove
+	 */
+	void remove(Cluster<K,F,V> cluster);
+	
+	/***
+	 * Return the clusters that may be within bound of inst
+	 * 
+	 * @param inst the instance being clustered
+	 * @param bound the maximum ensemble distance of a cluster that can be chosen for inst
+	 * @return the candidate clusters in the order they were added to the index
+	 */
+	List<Cluster<K,F,V>> candidates(Instance<K,F,V> inst, double bound);
+}
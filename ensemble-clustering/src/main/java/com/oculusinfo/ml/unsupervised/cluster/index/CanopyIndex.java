@@ -0,0 +1,194 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised.cluster.index;
+
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.distance.DistanceFunction;
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+
+import java.io.*;
+import java.util.*;
+
+/***
+ * A CandidateIndex that groups clusters into overlapping canopies with a cheap distance, so that the 
+ * clusterer only computes the full ensemble distance to the clusters that share a canopy with an instance:
+ * 
+ * McCallum, A., Nigam, K. and Ungar, L., Efficient clustering of high-dimensional data sets with 
+ * application to reference matching, 2000.
+ * 
+ * The cheap distance is computed over a single feature, for example ExactTokenMatchDistance over a 
+ * bag of words or a coarse distance between locations, and two thresholds loose >= tight control the
+ * canopies.  Each cluster joins every canopy whose center is within the loose threshold of its centroid
+ * feature, and a cluster that isn't within the tight threshold of any center starts a new canopy centered
+ * on a copy of its centroid feature, so the center doesn't drift as the cluster grows.  The candidates of
+ * an instance are the clusters of the canopies whose center is within the loose threshold of the instance.
+ * 
+ * The index is approximate: the cheap distance is independent of the ensemble distance, so a cluster 
+ * within the bound that shares no canopy with the instance is omitted and the clusterer may create a 
+ * new cluster instead.  The loose threshold trades the number of candidates against such misses.
+ * 
+ * Clusters without the feature are always returned as candidates, as are all clusters when the instance 
+ * being clustered has no such feature or the bound is unlimited, as it is for KMeans.
+ *
+ */
+public class CanopyIndex<K,F,V> extends AbstractCandidateIndex<K,F,V> {
+	private static final long serialVersionUID = 490620448627467679L;
+	
+	private final F featureName;
+	@SuppressWarnings("rawtypes")
+	private final DistanceFunction distFunc;
+	private final double loose;
+	private final double tight;
+	
+	private final Map<Cluster<K,F,V>, List<Canopy>> clusterCanopies = new HashMap<>();
+	private final List<Canopy> canopies = new ArrayList<>();
+	
+	/***
+	 * A canopy center and the clusters within the loose threshold of it
+	 */
+	private class Canopy implements Serializable {
+		private static final long serialVersionUID = -6150329787457934514L;
+		
+		final Feature<F,V> center;
+		final Set<Cluster<K,F,V>> members = new LinkedHashSet<>();
+		
+		Canopy(Feature<F,V> center) {
+			this.center = center;
+		}
+	}
+	
+	/***
+	 * Create a canopy index over the feature featureName
+	 * 
+	 * @param featureName the name of the feature the canopies are formed over
+	 * @param distFunc the cheap distance function between two values of the feature
+	 * @param loose the distance within which a cluster or instance belongs to a canopy
+	 * @param tight the distance within which a cluster doesn't start a canopy of its own, at most loose
+	 */
+	public CanopyIndex(F featureName, DistanceFunction<?> distFunc, double loose, double tight) {
+		super(true);
+		if (tight < 0 || loose < tight) {
+			throw new IllegalArgumentException("Canopy thresholds must satisfy loose >= tight >= 0");
+		}
+		this.featureName = featureName;
+		this.distFunc = distFunc;
+		this.loose = loose;
+		this.tight = tight;
+	}
+	
+	public F getFeatureName() {
+		return featureName;
+	}
+	
+	public double getLoose() {
+		return loose;
+	}
+	
+	public double getTight() {
+		return tight;
+	}
+	
+	/***
+	 * Return the number of canopies
+	 * 
+	 * @return the number of canopies
+	 */
+	public int getCanopyCount() {
+		return canopies.size();
+	}
+	
+	@Override
+	protected void clearBuckets() {
+		clusterCanopies.clear();
+		canopies.clear();
+	}
+	
+	@Override
+	protected Collection<Set<Cluster<K,F,V>>> lookup(Instance<K,F,V> inst, double bound) {
+		Feature<F,V> f = inst.getFeature(featureName);
+		if (f == null) return null;
+		
+		List<Set<Cluster<K,F,V>>> near = new ArrayList<>();
+		for (Canopy canopy : canopies) {
+			if (distance(f, canopy.center) < loose) near.add(canopy.members);
+		}
+		return near;
+	}
+	
+	@Override
+	protected boolean place(Cluster<K,F,V> cluster) {
+		Feature<F,V> f = cluster.getFeature(featureName);
+		if (f == null) return false;
+		
+		List<Canopy> joined = new ArrayList<>(1);
+		boolean covered = false;
+		for (Canopy canopy : canopies) {
+			double d = distance(f, canopy.center);
+			if (d < loose) {
+				canopy.members.add(cluster);
+				joined.add(canopy);
+				if (d < tight) covered = true;
+			}
+		}
+		if (!covered) {
+			// centroids may be updated in place so the center is a copy of the feature
+			Canopy canopy = new Canopy(copy(f));
+			canopy.members.add(cluster);
+			canopies.add(canopy);
+			joined.add(canopy);
+		}
+		clusterCanopies.put(cluster, joined);
+		return true;
+	}
+	
+	@Override
+	protected void displace(Cluster<K,F,V> cluster) {
+		for (Canopy canopy : clusterCanopies.remove(cluster)) {
+			canopy.members.remove(cluster);
+			if (canopy.members.isEmpty()) canopies.remove(canopy);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private double distance(Feature<F,V> x, Feature<F,V> y) {
+		return distFunc.distance(x, y);
+	}
+	
+	@SuppressWarnings("unchecked")
+	private Feature<F,V> copy(Feature<F,V> f) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+				out.writeObject(f);
+			}
+			try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+				return (Feature<F,V>)in.readObject();
+			}
+		} catch (IOException | ClassNotFoundException e) {
+			throw new IllegalStateException("Unable to copy the canopy center", e);
+		}
+	}
+}
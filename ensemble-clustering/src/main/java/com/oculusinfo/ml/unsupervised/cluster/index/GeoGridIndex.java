@@ -0,0 +1,223 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised.cluster.index;
+
+import com.gs.collections.impl.map.mutable.primitive.LongObjectHashMap;
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.distance.DistanceFunction;
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.spatial.GeoSpatialFeature;
+import com.oculusinfo.ml.feature.spatial.distance.HaversineDistance;
+import com.oculusinfo.ml.feature.spatial.distance.SphericalCosineDistance;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+
+import java.util.*;
+
+/***
+ * A CandidateIndex that buckets clusters into a latitude/longitude grid by the position of their 
+ * geo-spatial centroid.
+ * 
+ * Since the ensemble distance is a weighted sum of non-negative feature distances, a cluster whose
+ * geo-spatial distance alone exceeds bound / weight can never be chosen.  The index converts this
+ * bound into a great circle radius and only returns clusters from the grid cells that overlap the 
+ * bounding box of the spherical cap around the instance.  The pruning is exact: no cluster within 
+ * the bound is ever omitted.
+ * 
+ * The index supports the distance functions that compute the great circle distance normalized to [0,1], 
+ * namely HaversineDistance and SphericalCosineDistance.
+ * 
+ * Clusters without a geo-spatial centroid are always returned as candidates, as are all clusters 
+ * when the instance being clustered has no geo-spatial feature.
+ *
+ */
+public class GeoGridIndex<K,F,V> extends AbstractCandidateIndex<K,F,V> {
+	private static final long serialVersionUID = 6091518932520458131L;
+	private static final double DEFAULT_CELL_SIZE = 1.0;  // degrees
+	
+	private final F featureName;
+	private final double weight;
+	private final double cellSize;
+	private final int latCells;
+	private final int lonCells;
+	
+	private final Map<Cluster<K,F,V>, Long> clusterCells = new HashMap<>();
+	private final LongObjectHashMap<Set<Cluster<K,F,V>>> cells = new LongObjectHashMap<>();
+	
+	/***
+	 * Create an index over the geo-spatial feature featureName using the default 1 degree cell size
+	 * 
+	 * @param featureName the name of the geo-spatial feature
+	 * @param distFunc the distance function registered with the clusterer for featureName
+	 */
+	public GeoGridIndex(F featureName, DistanceFunction<?> distFunc) {
+		this(featureName, distFunc, DEFAULT_CELL_SIZE);
+	}
+	
+	/***
+	 * Create an index over the geo-spatial feature featureName
+	 * 
+	 * The cell size should be of the same order as the search radius implied by the clusterer 
+	 * threshold - much smaller cells increase the number of cells scanned per lookup, much larger cells
+	 * reduce the effectiveness of the pruning.
+	 * 
+	 * @param featureName the name of the geo-spatial feature
+	 * @param distFunc the distance function registered with the clusterer for featureName
+	 * @param cellSize the size of each grid cell in degrees
+	 */
+	public GeoGridIndex(F featureName, DistanceFunction<?> distFunc, double cellSize) {
+		super(false);
+		if (!(distFunc instanceof HaversineDistance || distFunc instanceof SphericalCosineDistance)) {
+			throw new IllegalArgumentException("GeoGridIndex requires a great circle distance function");
+		}
+		if (cellSize <= 0 || cellSize > 180) {
+			throw new IllegalArgumentException("Cell size must be in the range (0, 180] degrees");
+		}
+		this.featureName = featureName;
+		this.weight = distFunc.getWeight();
+		this.cellSize = cellSize;
+		this.latCells = (int)Math.ceil(180 / cellSize);
+		this.lonCells = (int)Math.ceil(360 / cellSize);
+	}
+	
+	public F getFeatureName() {
+		return featureName;
+	}
+	
+	public double getCellSize() {
+		return cellSize;
+	}
+	
+	@Override
+	protected void clearBuckets() {
+		clusterCells.clear();
+		cells.clear();
+	}
+	
+	@Override
+	protected boolean isMoved(Cluster<K,F,V> cluster) {
+		GeoSpatialFeature geo = getGeoFeature(cluster);
+		return geo == null || clusterCells.get(cluster) != cellOf(geo.getLatitude(), geo.getLongitude());
+	}
+	
+	@Override
+	protected Collection<Set<Cluster<K,F,V>>> lookup(Instance<K,F,V> inst, double bound) {
+		GeoSpatialFeature geo = getGeoFeature(inst);
+		
+		// can't prune without a location
+		if (geo == null || weight <= 0) {
+			return null;
+		}
+		
+		// maximum great circle distance in degrees of a cluster that can still be chosen
+		double radius = Math.toDegrees(bound / weight * Math.PI);
+		if (radius >= 90) return null;
+		
+		double lat = geo.getLatitude();
+		double lon = geo.getLongitude();
+		
+		double minLat = Math.max(-90, lat - radius);
+		double maxLat = Math.min(90, lat + radius);
+		
+		// longitude extent of the spherical cap - the cap contains a pole if it reaches past it
+		double lonRadius = 180;
+		if (Math.abs(lat) + radius < 90) {
+			lonRadius = Math.toDegrees(Math.asin(Math.sin(Math.toRadians(radius)) / Math.cos(Math.toRadians(lat))));
+		}
+		
+		int lat0 = latIndex(minLat);
+		int lat1 = latIndex(maxLat);
+		
+		// the last cell is narrower when cellSize doesn't divide 360, so the cells are counted from the 
+		// cells of both ends of the window rather than from its width.  A window that is within a cell
+		// of the full circle may wrap back into its first cell so it covers every cell.
+		int lon0 = 0;
+		int lonSpan = lonCells;
+		if (2 * lonRadius < 360 - cellSize) {
+			lon0 = lonIndex(lon - lonRadius);
+			lonSpan = (lonIndex(lon + lonRadius) - lon0 + lonCells) % lonCells + 1;
+		}
+		
+		// scanning more cells than there are clusters is no better than a linear scan
+		if ((long)(lat1 - lat0 + 1) * lonSpan >= getClusterCount()) return null;
+		
+		List<Set<Cluster<K,F,V>>> overlapping = new ArrayList<>();
+		for (int i = lat0; i <= lat1; i++) {
+			for (int j = 0; j < lonSpan; j++) {
+				Set<Cluster<K,F,V>> cell = cells.get(key(i, (lon0 + j) % lonCells));
+				if (cell != null) overlapping.add(cell);
+			}
+		}
+		return overlapping;
+	}
+	
+	@Override
+	protected boolean place(Cluster<K,F,V> cluster) {
+		GeoSpatialFeature geo = getGeoFeature(cluster);
+		if (geo == null) return false;
+		
+		long cell = cellOf(geo.getLatitude(), geo.getLongitude());
+		Set<Cluster<K,F,V>> members = cells.get(cell);
+		if (members == null) {
+			members = new LinkedHashSet<>();
+			cells.put(cell, members);
+		}
+		members.add(cluster);
+		clusterCells.put(cluster, cell);
+		return true;
+	}
+	
+	@Override
+	protected void displace(Cluster<K,F,V> cluster) {
+		Long cell = clusterCells.remove(cluster);
+		Set<Cluster<K,F,V>> members = cells.get(cell);
+		if (members != null) {
+			members.remove(cluster);
+			if (members.isEmpty()) cells.remove(cell);
+		}
+	}
+	
+	@SuppressWarnings("rawtypes")
+	private GeoSpatialFeature getGeoFeature(Instance<K,F,V> inst) {
+		Feature<F,V> f = inst.getFeature(featureName);
+		return (f instanceof GeoSpatialFeature) ? (GeoSpatialFeature)f : null;
+	}
+	
+	private int latIndex(double lat) {
+		return Math.min(latCells - 1, Math.max(0, (int)Math.floor((lat + 90) / cellSize)));
+	}
+	
+	private int lonIndex(double lon) {
+		double l = ((lon + 180) % 360 + 360) % 360;  // wrap to [0, 360)
+		return Math.min(lonCells - 1, (int)Math.floor(l / cellSize));
+	}
+	
+	private long cellOf(double lat, double lon) {
+		return key(latIndex(lat), lonIndex(lon));
+	}
+	
+	private long key(int latIdx, int lonIdx) {
+		return (long)latIdx * lonCells + lonIdx;
+	}
+}
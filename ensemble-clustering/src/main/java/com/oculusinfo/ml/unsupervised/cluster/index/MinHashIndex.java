@@ -0,0 +1,280 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised.cluster.index;
+
+import com.gs.collections.impl.map.mutable.primitive.LongObjectHashMap;
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.bagofwords.BagOfWordsFeature;
+import com.oculusinfo.ml.feature.string.StringFeature;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+
+import java.util.*;
+
+/***
+ * A CandidateIndex that blocks clusters with locality sensitive hashing of a string or bag of words 
+ * feature, so that the clusterer only computes the full ensemble distance to the clusters that collide 
+ * with an instance in at least one band:
+ * 
+ * Broder, A., On the resemblance and containment of documents, 1997.
+ * Leskovec, J., Rajaraman, A. and Ullman, J., Mining of Massive Datasets, chapter 3, 2014.
+ * 
+ * A StringFeature is represented by the set of its character n-grams and a BagOfWordsFeature by the set
+ * of its terms.  The MinHash signature of the set is divided into bands of rows and each band is hashed 
+ * into a bucket.  Two sets with Jaccard similarity s share at least one bucket with probability 
+ * 1 - (1 - s^rows)^bands, an S-curve that rises steeply around (1 / bands)^(1 / rows).  More bands 
+ * return more candidates at lower similarity, more rows make the cut off sharper.
+ * 
+ * The index is approximate: Jaccard similarity of n-grams or terms only approximates EditDistance, 
+ * CosineDistance or ExactTokenMatchDistance, and a similar cluster may miss every band by chance, so a 
+ * cluster within the bound can be omitted and the clusterer may create a new cluster instead.
+ * 
+ * Clusters without the feature, or whose feature is empty, are always returned as candidates, as are all 
+ * clusters when the instance being clustered has no such feature or the bound is unlimited, as it is 
+ * for KMeans.
+ *
+ */
+public class MinHashIndex<K,F,V> extends AbstractCandidateIndex<K,F,V> {
+	private static final long serialVersionUID = -2519474086823417751L;
+	private static final int DEFAULT_BANDS = 16;
+	private static final int DEFAULT_ROWS = 4;
+	private static final int DEFAULT_NGRAM = 3;
+	private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+	
+	private final F featureName;
+	private final int bands;
+	private final int rows;
+	private final int ngram;
+	private final long[] seeds;
+	
+	private final Map<Cluster<K,F,V>, long[]> clusterBuckets = new HashMap<>();
+	private final LongObjectHashMap<Set<Cluster<K,F,V>>> buckets = new LongObjectHashMap<>();
+	
+	/***
+	 * Create an index over the feature featureName with 16 bands of 4 rows and character trigrams, 
+	 * which favours candidates with a Jaccard similarity above 0.5
+	 * 
+	 * @param featureName the name of the string or bag of words feature
+	 */
+	public MinHashIndex(F featureName) {
+		this(featureName, DEFAULT_BANDS, DEFAULT_ROWS, DEFAULT_NGRAM);
+	}
+	
+	/***
+	 * Create an index over the feature featureName using character trigrams for strings
+	 * 
+	 * @param featureName the name of the string or bag of words feature
+	 * @param bands the number of bands of the signature
+	 * @param rows the number of MinHash values per band
+	 */
+	public MinHashIndex(F featureName, int bands, int rows) {
+		this(featureName, bands, rows, DEFAULT_NGRAM);
+	}
+	
+	/***
+	 * Create an index over the feature featureName
+	 * 
+	 * @param featureName the name of the string or bag of words feature
+	 * @param bands the number of bands of the signature
+	 * @param rows the number of MinHash values per band
+	 * @param ngram the length of the character n-grams a string is divided into
+	 */
+	public MinHashIndex(F featureName, int bands, int rows, int ngram) {
+		super(true);
+		if (bands < 1 || rows < 1) {
+			throw new IllegalArgumentException("The number of bands and rows must be at least 1");
+		}
+		if (ngram < 1) {
+			throw new IllegalArgumentException("The n-gram length must be at least 1");
+		}
+		this.featureName = featureName;
+		this.bands = bands;
+		this.rows = rows;
+		this.ngram = ngram;
+		this.seeds = new long[bands * rows];
+		for (int i = 0; i < seeds.length; i++) {
+			seeds[i] = mix((i + 1) * GOLDEN);
+		}
+	}
+	
+	public F getFeatureName() {
+		return featureName;
+	}
+	
+	public int getBands() {
+		return bands;
+	}
+	
+	public int getRows() {
+		return rows;
+	}
+	
+	public int getNgram() {
+		return ngram;
+	}
+	
+	/***
+	 * Return the Jaccard similarity at which two sets collide in at least one band with probability 
+	 * of roughly one half
+	 * 
+	 * @return the similarity threshold of the index
+	 */
+	public double getThreshold() {
+		return Math.pow(1.0 / bands, 1.0 / rows);
+	}
+	
+	/***
+	 * Return the number of non-empty buckets
+	 * 
+	 * @return the number of buckets
+	 */
+	public int getBucketCount() {
+		return buckets.size();
+	}
+	
+	@Override
+	protected void clearBuckets() {
+		clusterBuckets.clear();
+		buckets.clear();
+	}
+	
+	@Override
+	protected boolean isMoved(Cluster<K,F,V> cluster) {
+		// most centroid updates don't change the signature
+		return !Arrays.equals(bucketKeys(cluster.getFeature(featureName)), clusterBuckets.get(cluster));
+	}
+	
+	@Override
+	protected Collection<Set<Cluster<K,F,V>>> lookup(Instance<K,F,V> inst, double bound) {
+		// can't prune without a non-empty feature
+		long[] keys = bucketKeys(inst.getFeature(featureName));
+		if (keys == null) return null;
+		
+		List<Set<Cluster<K,F,V>>> colliding = new ArrayList<>(bands);
+		for (long key : keys) {
+			Set<Cluster<K,F,V>> bucket = buckets.get(key);
+			if (bucket != null) colliding.add(bucket);
+		}
+		return colliding;
+	}
+	
+	@Override
+	protected boolean place(Cluster<K,F,V> cluster) {
+		long[] keys = bucketKeys(cluster.getFeature(featureName));
+		if (keys == null) return false;
+		
+		for (long key : keys) {
+			Set<Cluster<K,F,V>> bucket = buckets.get(key);
+			if (bucket == null) {
+				bucket = new LinkedHashSet<>();
+				buckets.put(key, bucket);
+			}
+			bucket.add(cluster);
+		}
+		clusterBuckets.put(cluster, keys);
+		return true;
+	}
+	
+	@Override
+	protected void displace(Cluster<K,F,V> cluster) {
+		for (long key : clusterBuckets.remove(cluster)) {
+			Set<Cluster<K,F,V>> bucket = buckets.get(key);
+			if (bucket == null) continue;
+			bucket.remove(cluster);
+			if (bucket.isEmpty()) buckets.remove(key);
+		}
+	}
+	
+	/***
+	 * Return the bucket key of each band of the MinHash signature of f, or null if f has no elements
+	 */
+	private long[] bucketKeys(Feature<F,V> f) {
+		int[] shingles = shingles(f);
+		if (shingles == null || shingles.length == 0) return null;
+		
+		long[] keys = new long[bands];
+		for (int b = 0; b < bands; b++) {
+			// include the band so equal rows of different bands fall in different buckets
+			long key = mix(b + GOLDEN);
+			for (int r = 0; r < rows; r++) {
+				long seed = seeds[b * rows + r];
+				long min = Long.MAX_VALUE;
+				for (int s : shingles) {
+					long h = mix(s ^ seed);
+					if (h < min) min = h;
+				}
+				key = mix(key ^ min) + GOLDEN;
+			}
+			keys[b] = key;
+		}
+		return keys;
+	}
+	
+	/***
+	 * Return the hashes of the character n-grams of a string or the terms of a bag of words
+	 */
+	@SuppressWarnings("rawtypes")
+	private int[] shingles(Feature<F,V> f) {
+		if (f instanceof StringFeature) {
+			String value = ((StringFeature)f).getValue();
+			if (value == null || value.isEmpty()) return null;
+			
+			// strings shorter than an n-gram are a single shingle
+			int n = Math.min(ngram, value.length());
+			int[] shingles = new int[value.length() - n + 1];
+			for (int i = 0; i < shingles.length; i++) {
+				int h = 0;
+				for (int j = i; j < i + n; j++) {
+					h = 31 * h + value.charAt(j);
+				}
+				shingles[i] = h;
+			}
+			return shingles;
+		}
+		else if (f instanceof BagOfWordsFeature) {
+			BagOfWordsFeature bag = (BagOfWordsFeature)f;
+			
+			// hash the terms rather than their ids, which are only meaningful within this JVM
+			int[] shingles = new int[bag.getTermCount()];
+			for (int i = 0; i < shingles.length; i++) {
+				shingles[i] = bag.getTerm(i).hashCode();
+			}
+			return shingles;
+		}
+		return null;
+	}
+	
+	/***
+	 * The 64 bit finalizer of MurmurHash3
+	 */
+	private static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
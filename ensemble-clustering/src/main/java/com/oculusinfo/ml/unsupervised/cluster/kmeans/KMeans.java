@@ -32,12 +32,26 @@ import com.oculusinfo.ml.unsupervised.cluster.ClusterResult;
 import com.oculusinfo.ml.unsupervised.cluster.InMemoryClusterResult;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
 
 /***
- * The class implements the K-Means clustering algorithm using the K++ method for initializing the k-means
+ * The class implements the K-Means clustering algorithm using the scalable K++ (k-means||) method for 
+ * initializing the k-means
+ * 
+ * Each iteration only moves the instances whose nearest mean changed and only recomputes the means that 
+ * gained or lost members, so the iterations stop as soon as no instance moves.
+ * 
+ * When accelerated the assignment step uses the bounds from:
+ * 
+ * Hamerly, G., Making k-means even faster, 2010.
+ * 
+ * Each instance keeps an upper bound on the distance to its assigned mean and a lower bound on the 
+ * distance to every other mean.  Instances whose bounds show the assignment can't change are skipped, 
+ * so once the means settle most distance calculations are avoided.  
  * 
  * @author slangevin
  *
@@ -47,12 +61,18 @@ abstract public class KMeans<K,F,V> extends AbstractClusterer<K,F,V> {
 	protected final int k;
 	protected final int maxIterations;
 	protected boolean debugClusters;
-	
+	protected boolean accelerated;
+	protected int seedRounds = 5;
+	protected double oversampling = 2;
+	protected int batchSize = 0;
+	protected double shiftTolerance = 1e-3;
+
 	public KMeans(int k, int maxIterations, boolean penalizeMissingFeatures) {
 		super(false, false, penalizeMissingFeatures);
 		this.k = k;
 		this.maxIterations = maxIterations;
 		this.debugClusters = false;
+		this.accelerated = false;
 	}
 
 	public void debugClusters () {
@@ -67,65 +87,245 @@ abstract public class KMeans<K,F,V> extends AbstractClusterer<K,F,V> {
 		return maxIterations;
 	}
 	
+	public boolean isAccelerated() {
+		return accelerated;
+	}
+	
 	/***
-	 * K++ method for selecting initial k-means
+	 * Use triangle inequality bounds to skip distance calculations during assignment.
+	 * 
+	 * The results are only guaranteed to match the standard algorithm when every registered 
+	 * distance function is a metric, such as EuclideanDistance or HaversineDistance, and missing 
+	 * features are penalized.
+	 * 
+	 * @param accelerated true to enable the accelerated assignment step
+	 */
+	public void setAccelerated(boolean accelerated) {
+		this.accelerated = accelerated;
+	}
+	
+	public int getBatchSize() {
+		return batchSize;
+	}
+	
+	public double getShiftTolerance() {
+		return shiftTolerance;
+	}
+	
+	/***
+	 * Cluster with mini-batches of randomly sampled instances instead of full passes over the data set.
+	 * In this mode maxIterations is the maximum number of batches and the accelerated setting is ignored.
+	 * 
+	 * @param batchSize the number of instances sampled per batch, or 0 to cluster with full passes
+	 * @param shiftTolerance the iterations stop once no mean moves farther than this during a batch
+	 */
+	public void setMiniBatch(int batchSize, double shiftTolerance) {
+		if (batchSize < 0 || shiftTolerance < 0) {
+			throw new IllegalArgumentException("Batch size and shift tolerance must not be negative");
+		}
+		this.batchSize = batchSize;
+		this.shiftTolerance = shiftTolerance;
+	}
+	
+	public int getSeedRounds() {
+		return seedRounds;
+	}
+	
+	public double getOversampling() {
+		return oversampling;
+	}
+	
+	/***
+	 * Set the sampling used to select the initial means.  Each of the rounds samples about 
+	 * oversampling * k instances as candidate means, which are then reduced to k.
+	 * 
+	 * @param rounds the number of sampling passes over the data set
+	 * @param oversampling the expected number of candidates per round as a multiple of k
+	 */
+	public void setSeeding(int rounds, double oversampling) {
+		if (rounds < 1 || oversampling <= 0) {
+			throw new IllegalArgumentException("Seeding requires at least one round and a positive oversampling factor");
+		}
+		this.seedRounds = rounds;
+		this.oversampling = oversampling;
+	}
+
+	/***
+	 * Scalable K++ (k-means||) method for selecting initial k-means, from:
+	 * 
+	 * Bahmani, B. et al., Scalable K-Means++, 2012.
 	 * 
 	 * The exact algorithm is as follows:
 	 * 1) Choose one center uniformly at random from among the data points.
 	 * 2) For each data point x, compute D(x), the distance between x and the nearest center that has already been chosen.
-	 * 3) Choose one new data point at random as a new center, using a weighted probability distribution where a point x is chosen with probability proportional to D(x)2.
-	 * 4) Repeat Steps 2 and 3 until k centers have been chosen.
+	 * 3) Sample each data point independently with probability l * D(x)^2 / sum D(x)^2 and add the samples to the centers.
+	 * 4) Repeat Steps 2 and 3 for a small number of rounds.
+	 * 5) Weight each center by the number of data points nearest to it and reduce the centers to k with K++ 
+	 *    on the weighted centers.
+	 * 
+	 * Steps 2, 3 and 5 are partitioned across the executor service.  Each round oversamples about l = 
+	 * oversampling * k centers so a few passes over the data set replace the k sequential passes of K++.
 	 * 
 	 * @param ds
 	 * @return the initial kmeans
 	 */
 	private List<Cluster<K,F,V>> initKMeans(DataSet<K,F,V> ds) {
-		final int MAX_ATTEMPT = 3;
-		List<Cluster<K,F,V>> kmeans = new LinkedList<>();
-		
-		int ki = (ds.size() < k) ? ds.size(): k;
-		
-		// randomly pick k instances as the initial k means
-		ArrayList<K> keys = new ArrayList<>(ds.getKeys());
-		
-	    // select first cluster with a uniform distribution
-	    Collections.shuffle(keys);
-	    
-	    Cluster cluster = this.createCluster();
-	    cluster.add( ds.get(keys.get(0)) );
-	    cluster.updateCentroid();
-    	kmeans.add(cluster);
-    	
-	    int iteration = 0;
-	    
-    	while (kmeans.size() < ki && iteration < MAX_ATTEMPT) {
-    		for (int i = 1; i < keys.size(); i++) {
-				K key = keys.get(i);
-    			if (key == null) continue;  // skip over already used keys
-    			Instance<K,F,V> inst = ds.get(key);
-    			double min = Double.MAX_VALUE;
-    			
-    			for (Cluster c : kmeans) {
-    				double d = this.distance(c, inst);
-    				if (d < min) min = d;
-    			}
-    			if (Math.random() < Math.pow(min, 2)) {
-    				cluster = this.createCluster();
-    				cluster.add( ds.get(key) );
-    				cluster.updateCentroid();
-    				kmeans.add(cluster);
-    				keys.set(i, null);  // set key to null to signal it has been used
-    			}
-    			if (kmeans.size() == ki) break; // we have select the kmeans
-	    	}
-    		iteration++;
-	    }
-    	
-    	if (kmeans.size() < k) {
-    		log.info("Couldn't find k centroids to initialize kMeans++.  Using " + kmeans.size() + " centroids.");
-    	}
-    	
-	    return kmeans;
+		List<Cluster<K,F,V>> kmeans = new ArrayList<>();
+		
+		List<Instance<K,F,V>> instances = new ArrayList<>(ds.size());
+		for (Instance<K,F,V> inst : ds) {
+			instances.add(inst);
+		}
+		if (instances.isEmpty()) return kmeans;
+		
+		List<Instance<K,F,V>> seeds = (instances.size() <= k) ? instances : selectSeeds(instances);
+		for (Instance<K,F,V> seed : seeds) {
+			Cluster cluster = this.createCluster();
+			cluster.add( seed );
+			cluster.updateCentroid();
+			kmeans.add(cluster);
+		}
+		
+		if (kmeans.size() < k) {
+			log.info("Couldn't find k centroids to initialize kMeans++.  Using " + kmeans.size() + " centroids.");
+		}
+		
+		return kmeans;
+	}
+	
+	private List<Instance<K,F,V>> selectSeeds(final List<Instance<K,F,V>> instances) {
+		final int n = instances.size();
+		final double[] cost = new double[n];
+		Arrays.fill(cost, Double.MAX_VALUE);
+		
+		// select first center with a uniform distribution
+		final List<Instance<K,F,V>> centers = new ArrayList<>();
+		centers.add(instances.get(ThreadLocalRandom.current().nextInt(n)));
+		List<Instance<K,F,V>> added = new ArrayList<>(centers);
+		
+		final double l = oversampling * k;
+		int round = 0;
+		while (round < seedRounds) {
+			updateCosts(instances, added, cost);
+			
+			double phi = 0;
+			for (double c : cost) phi += c;
+			if (phi == 0) break;  // every instance is a center
+			
+			added = sampleCenters(instances, cost, l / phi);
+			centers.addAll(added);
+			round++;
+		}
+		
+		if (log.isInfoEnabled())
+			log.info("K-Means|| sampled {} centers in {} rounds", centers.size(), round);
+		
+		if (centers.size() <= k) return centers;
+		
+		return reduceCenters(centers, weighCenters(instances, centers));
+	}
+	
+	// lower the cost of each instance to the squared distance to the nearest of the added centers
+	private void updateCosts(final List<Instance<K,F,V>> instances, final List<Instance<K,F,V>> added, final double[] cost) {
+		forEachPartition(instances.size(), (s, e) -> {
+			for (int i = s; i < e; i++) {
+				Instance<K,F,V> inst = instances.get(i);
+				for (Instance<K,F,V> center : added) {
+					double d = distance(inst, center, Math.sqrt(cost[i]));
+					if (d * d < cost[i]) cost[i] = d * d;
+				}
+			}
+		});
+	}
+	
+	// sample each instance independently with probability proportional to its cost
+	private List<Instance<K,F,V>> sampleCenters(final List<Instance<K,F,V>> instances, final double[] cost, final double scale) {
+		final List<Instance<K,F,V>> sampled = new ArrayList<>();
+		forEachPartition(instances.size(), (s, e) -> {
+			ThreadLocalRandom rnd = ThreadLocalRandom.current();
+			List<Instance<K,F,V>> local = new ArrayList<>();
+			for (int i = s; i < e; i++) {
+				if (rnd.nextDouble() < cost[i] * scale) {
+					local.add(instances.get(i));
+				}
+			}
+			synchronized (sampled) {
+				sampled.addAll(local);
+			}
+		});
+		return sampled;
+	}
+	
+	// count the instances nearest to each center
+	private double[] weighCenters(final List<Instance<K,F,V>> instances, final List<Instance<K,F,V>> centers) {
+		final double[] weights = new double[centers.size()];
+		forEachPartition(instances.size(), (s, e) -> {
+			int[] counts = new int[centers.size()];
+			for (int i = s; i < e; i++) {
+				Instance<K,F,V> inst = instances.get(i);
+				double best = Double.MAX_VALUE;
+				int nearest = 0;
+				for (int j = 0; j < centers.size(); j++) {
+					double d = distance(inst, centers.get(j), best);
+					if (d < best) {
+						best = d;
+						nearest = j;
+					}
+				}
+				counts[nearest]++;
+			}
+			synchronized (weights) {
+				for (int j = 0; j < counts.length; j++) {
+					weights[j] += counts[j];
+				}
+			}
+		});
+		return weights;
+	}
+	
+	// K++ over the weighted centers, the probability of choosing a center is proportional to weight * D(x)^2
+	private List<Instance<K,F,V>> reduceCenters(final List<Instance<K,F,V>> centers, final double[] weights) {
+		final int m = centers.size();
+		final double[] cost = new double[m];
+		Arrays.fill(cost, Double.MAX_VALUE);
+		ThreadLocalRandom rnd = ThreadLocalRandom.current();
+		
+		List<Instance<K,F,V>> seeds = new ArrayList<>(k);
+		int next = choose(weights, null, rnd);
+		while (next >= 0) {
+			final Instance<K,F,V> seed = centers.get(next);
+			seeds.add(seed);
+			if (seeds.size() == k) break;
+			
+			forEachPartition(m, (s, e) -> {
+				for (int j = s; j < e; j++) {
+					double d = distance(centers.get(j), seed, Math.sqrt(cost[j]));
+					if (d * d < cost[j]) cost[j] = d * d;
+				}
+			});
+			next = choose(weights, cost, rnd);
+		}
+		return seeds;
+	}
+	
+	// return an index with probability proportional to weight * cost or -1 if all are zero
+	private static int choose(double[] weights, double[] cost, ThreadLocalRandom rnd) {
+		double total = 0;
+		for (int j = 0; j < weights.length; j++) {
+			total += (cost != null) ? weights[j] * cost[j] : weights[j];
+		}
+		if (total <= 0) return -1;
+		
+		double r = rnd.nextDouble() * total;
+		int last = -1;
+		for (int j = 0; j < weights.length; j++) {
+			double p = (cost != null) ? weights[j] * cost[j] : weights[j];
+			if (p <= 0) continue;
+			last = j;
+			r -= p;
+			if (r < 0) return j;
+		}
+		return last;
 	}
 
 	@Override
@@ -138,7 +338,27 @@ abstract public class KMeans<K,F,V> extends AbstractClusterer<K,F,V> {
 	public ClusterResult<K,V> doCluster(DataSet<K,F,V> ds) {
 		List<Cluster<K,F,V>> kmeans = initKMeans(ds);
 		
-		double start = System.currentTimeMillis();
+		if (batchSize > 0) {
+			return doMiniBatchCluster(ds, kmeans);
+		}
+		
+		if (accelerated) {
+			return doAcceleratedCluster(ds, kmeans);
+		}
+		
+		double start= System.currentTimeMillis();
+		
+		List<Instance<K,F,V>> instances = new ArrayList<>(ds.size());
+		for (Instance<K,F,V> inst : ds) {
+			instances.add(inst);
+		}
+		int[] assigned = new int[instances.size()];
+		Arrays.fill(assigned, -1);
+		
+		// the means start empty with the centroids of their seeds, after that only moved instances are updated
+		for (Cluster mean : kmeans) {
+			mean.reset();
+		}
 		
 		int iteration = 0;
 		
@@ -147,11 +367,7 @@ abstract public class KMeans<K,F,V> extends AbstractClusterer<K,F,V> {
 			if (log.isInfoEnabled())
 				log.info("K-Means iteration {}", (iteration+1));
 			
-			for (Cluster mean : kmeans) {
-				mean.reset();
-			}
-			
-			ClusterResult modified = super.doCluster(ds, kmeans);
+			int moved = reassign(instances, assigned, kmeans);
 
 			if (debugClusters) {
 			    log.info("Post iteration {};", iteration+1);
@@ -160,7 +376,7 @@ abstract public class KMeans<K,F,V> extends AbstractClusterer<K,F,V> {
 			        log.info("\t "+c+": "+cluster.getIterationDebugInfo());
 			}
 
-			if (modified.isEmpty()) break;
+			if (moved == 0) break;
 			
 			iteration++;
 		}
@@ -173,6 +389,280 @@ abstract public class KMeans<K,F,V> extends AbstractClusterer<K,F,V> {
 		
 		return new InMemoryClusterResult(kmeans);
 	}
-
-
+	
+	/***
+	 * Hamerly's accelerated k-means.  upper[i] bounds the distance of instance i to its mean and 
+	 * lower[i] bounds the distance to every other mean.  Both bounds are loosened by how far the 
+	 * means move each iteration, and the distance to the mean is only recomputed when the upper 
+	 * bound exceeds both the lower bound and half the distance to the nearest other mean.
+	 * 
+	 * @param ds the data set to cluster
+	 * @param kmeans the initial means
+	 * @return the clusters
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	protected ClusterResult<K,V> doAcceleratedCluster(DataSet<K,F,V> ds, List<Cluster<K,F,V>> kmeans) {
+		double start = System.currentTimeMillis();
+		
+		List<Cluster<K,F,V>> means = new ArrayList<>(kmeans);
+		List<Instance<K,F,V>> instances = new ArrayList<>(ds.size());
+		for (Instance<K,F,V> inst : ds) {
+			instances.add(inst);
+		}
+		
+		final int n = instances.size();
+		final int m = means.size();
+		
+		final int[] assigned = new int[n];
+		final double[] upper = new double[n];
+		final double[] lower = new double[n];
+		final double[] halfNearest = new double[m];
+		final double[] shift = new double[m];
+		final LongAdder computed = new LongAdder();
+		final LongAdder changed = new LongAdder();
+		
+		// first pass computes all the distances to initialize the bounds
+		forEachPartition(n, (s, e) -> {
+			for (int i = s; i < e; i++) {
+				assignNearest(instances.get(i), means, i, assigned, upper, lower);
+			}
+		});
+		computed.add((long)n * m);
+		
+		int iteration = 1;
+		
+		while (true) {
+			updateMeans(instances, means, assigned, shift);
+			
+			if (debugClusters) {
+				log.info("Post iteration {};", iteration);
+				int c=0;
+				for (Cluster cluster: means)
+					log.info("\t "+(c++)+": "+cluster.getIterationDebugInfo());
+			}
+			
+			if (iteration >= maxIterations) break;
+			
+			// loosen the bounds by how far the means moved
+			int farthest = 0;
+			int secondFarthest = -1;
+			for (int j = 1; j < m; j++) {
+				if (shift[j] > shift[farthest]) {
+					secondFarthest = farthest;
+					farthest = j;
+				}
+				else if (secondFarthest < 0 || shift[j] > shift[secondFarthest]) {
+					secondFarthest = j;
+				}
+			}
+			for (int i = 0; i < n; i++) {
+				int a = assigned[i];
+				upper[i] += shift[a];
+				lower[i] -= (a == farthest && secondFarthest >= 0) ? shift[secondFarthest] : shift[farthest];
+			}
+			
+			// half the distance from each mean to its nearest other mean
+			Arrays.fill(halfNearest, Double.MAX_VALUE);
+			for (int j = 0; j < m; j++) {
+				for (int j2 = j + 1; j2 < m; j2++) {
+					double d = 0.5 * distance(means.get(j), means.get(j2));
+					if (d < halfNearest[j]) halfNearest[j] = d;
+					if (d < halfNearest[j2]) halfNearest[j2] = d;
+				}
+			}
+			computed.add((long)m * (m - 1) / 2);
+			
+			if (log.isInfoEnabled())
+				log.info("K-Means iteration {}", (iteration+1));
+			
+			changed.reset();
+			forEachPartition(n, (s, e) -> {
+				for (int i = s; i < e; i++) {
+					int a = assigned[i];
+					double bound = Math.max(halfNearest[a], lower[i]);
+					if (upper[i] <= bound) continue;
+					
+					// tighten the upper bound and test again
+					Instance<K,F,V> inst = instances.get(i);
+					upper[i] = distance(inst, means.get(a));
+					computed.increment();
+					if (upper[i] <= bound) continue;
+					
+					assignNearest(inst, means, i, assigned, upper, lower);
+					computed.add(m);
+					if (assigned[i] != a) changed.increment();
+				}
+			});
+			
+			iteration++;
+			
+			if (changed.sum() == 0) break;
+		}
+		
+		if (log.isInfoEnabled()) {
+			log.info("K-Means completed with {} iterations", iteration);
+			log.info("Distance calculations: {} of {}", computed.sum(), (long)iteration * n * m);
+			double clusterTime = System.currentTimeMillis() - start;
+			log.info("Clustering time (s): {}", clusterTime / 1000);
+		}
+		
+		return new InMemoryClusterResult(means);
+	}
+	
+	/***
+	 * Mini-batch k-means from:
+	 * 
+	 * Sculley, D., Web-scale k-means clustering, 2010.
+	 * 
+	 * Each iteration samples batchSize instances with replacement, assigns them to the nearest of the 
+	 * means as they were at the start of the batch and moves each mean towards the instances assigned 
+	 * to it.  The centroids of a mean keep the running total of every instance it has been given so far 
+	 * while its members are cleared after each batch, so it moves with a per mean learning rate that 
+	 * decays as 1 / count and each batch only adds its own instances.  The iterations stop when no mean 
+	 * moved more than the shift tolerance during a batch, or after maxIterations batches.
+	 * 
+	 * A final pass assigns every instance of the data set to its nearest mean to form the clusters.
+	 * 
+	 * @param ds the data set to cluster
+	 * @param kmeans the initial means
+	 * @return the clusters
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	protected ClusterResult<K,V> doMiniBatchCluster(DataSet<K,F,V> ds, List<Cluster<K,F,V>> kmeans) {
+		double start = System.currentTimeMillis();
+		
+		final List<Cluster<K,F,V>> means = new ArrayList<>(kmeans);
+		final List<Instance<K,F,V>> instances = new ArrayList<>(ds.size());
+		for (Instance<K,F,V> inst : ds) {
+			instances.add(inst);
+		}
+		
+		final int n = instances.size();
+		final int m = means.size();
+		final int size = Math.min(batchSize, n);
+		final List<Instance<K,F,V>> batch = new ArrayList<>(size);
+		final int[] batchAssigned = new int[size];
+		final boolean[] hit = new boolean[m];
+		final List<Instance<K,F,V>> previous = new ArrayList<>(Collections.nCopies(m, (Instance<K,F,V>)null));
+		
+		int iteration = 0;
+		
+		while (m > 0 && iteration < maxIterations) {
+			batch.clear();
+			ThreadLocalRandom rnd = ThreadLocalRandom.current();
+			for (int b = 0; b < size; b++) {
+				batch.add(instances.get(rnd.nextInt(n)));
+			}
+			
+			forEachPartition(size, (s, e) -> {
+				for (int b = s; b < e; b++) {
+					batchAssigned[b] = nearestMean(batch.get(b), means);
+				}
+			});
+			
+			// the means that were hit keep their running totals but not the members of earlier batches
+			Arrays.fill(hit, false);
+			for (int a : batchAssigned) hit[a] = true;
+			for (int j = 0; j < m; j++) {
+				if (!hit[j]) continue;
+				Cluster<K,F,V> mean = means.get(j);
+				Instance<K,F,V> prev = new Instance(mean.getId());
+				prev.addFeatures(mean.getAllFeatures());
+				previous.set(j, prev);
+				mean.clearMembers();
+			}
+			addMembers(batch, batchAssigned, means);
+			
+			double maxShift = 0;
+			for (int j = 0; j < m; j++) {
+				if (hit[j]) maxShift = Math.max(maxShift, distance(previous.get(j), means.get(j)));
+			}
+			
+			iteration++;
+			
+			if (log.isDebugEnabled())
+				log.debug("Mini-batch {} largest shift: {}", iteration, maxShift);
+			
+			if (maxShift <= shiftTolerance) break;
+		}
+		
+		// assign every instance to the final means
+		final int[] assigned = new int[n];
+		forEachPartition(n, (s, e) -> {
+			for (int i = s; i < e; i++) {
+				assigned[i] = nearestMean(instances.get(i), means);
+			}
+		});
+		for (Cluster<K,F,V> mean : means) {
+			mean.reset();
+		}
+		if (m > 0) addMembers(instances, assigned, means);
+		
+		if (debugClusters) {
+			int c=0;
+			for (Cluster cluster: means)
+				log.info("\t "+(c++)+": "+cluster.getIterationDebugInfo());
+		}
+		
+		if (log.isInfoEnabled()) {
+			log.info("Mini-batch K-Means completed with {} batches", iteration);
+			double clusterTime = System.currentTimeMillis() - start;
+			log.info("Clustering time (s): {}", clusterTime / 1000);
+		}
+		
+		return new InMemoryClusterResult(means);
+	}
+	
+	private int nearestMean(Instance<K,F,V> inst, List<Cluster<K,F,V>> means) {
+		double best = Double.MAX_VALUE;
+		int nearest = 0;
+		for (int j = 0; j < means.size(); j++) {
+			double d = distance(inst, means.get(j), best);
+			if (d < best) {
+				best = d;
+				nearest = j;
+			}
+		}
+		return nearest;
+	}
+	
+	private void assignNearest(Instance<K,F,V> inst, List<Cluster<K,F,V>> means, int i, int[] assigned, double[] upper, double[] lower) {
+		double best = Double.MAX_VALUE;
+		double second = Double.MAX_VALUE;
+		int bestIdx = 0;
+		
+		for (int j = 0; j < means.size(); j++) {
+			double d = distance(inst, means.get(j));
+			if (d < best) {
+				second = best;
+				best = d;
+				bestIdx = j;
+			}
+			else if (d < second) {
+				second = d;
+			}
+		}
+		assigned[i] = bestIdx;
+		upper[i] = best;
+		lower[i] = second;
+	}
+	
+	// rebuild the means from the assigned instances and record how far each one moved
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private void updateMeans(List<Instance<K,F,V>> instances, List<Cluster<K,F,V>> means, int[] assigned, double[] shift) {
+		List<Instance<K,F,V>> previous = new ArrayList<>(means.size());
+		for (Cluster<K,F,V> mean : means) {
+			Instance<K,F,V> prev = new Instance(mean.getId());
+			prev.addFeatures(mean.getAllFeatures());
+			previous.add(prev);
+			mean.reset();
+		}
+		addMembers(instances, assigned, means);
+		
+		// an empty mean keeps its previous centroid
+		for (int j = 0; j < means.size(); j++) {
+			Cluster<K,F,V> mean = means.get(j);
+			shift[j] = mean.isEmpty() ? 0 : distance(previous.get(j), mean);
+		}
+	}
 }
@@ -0,0 +1,48 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised.cluster.shard;
+
+import com.oculusinfo.ml.unsupervised.cluster.Clusterer;
+
+import java.io.Serializable;
+
+/***
+ * A factory for the clusterer used by a ShardedClusterer, both to cluster each shard in a worker 
+ * process and to merge the shard clusters in the final pass.
+ * 
+ * The factory is serialized to each worker so it must be Serializable along with any parameters it 
+ * holds.  The clusterer is created and configured in the worker, so feature types can be registered
+ * with centroid constructors such as MeanNumericVectorCentroid::new, which aren't serializable.
+ *
+ */
+public interface ShardClustererFactory<K,F,V> extends Serializable {
+	
+	/***
+	 * Create and configure a new clusterer
+	 * 
+	 * @return the clusterer
+	 */
+	Clusterer<K,F,V> create();
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised.cluster.shard;
+
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.centroid.Centroid;
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/***
+ * A summary of a cluster found by a shard worker that is returned to the coordinator in place of the
+ * cluster itself.
+ * 
+ * The summary is an instance with the id of the cluster holding one feature per centroid, and the ids of 
+ * the cluster members.  Each feature is the aggregatable centroid, see Centroid.getAggregatableCentroid(), 
+ * when it is a single feature, as it carries the accumulated weight or counts of the centroid so that 
+ * summaries added to a centroid combine as the members would have.  Otherwise it is the centroid.
+ *
+ */
+public class ShardSummary<K,F,V> implements Serializable {
+	private static final long serialVersionUID = -1934003190526762593L;
+	
+	private final Instance<K,F,V> summary;
+	private final List<K> members;
+	
+	public ShardSummary(Instance<K,F,V> summary, List<K> members) {
+		this.summary = summary;
+		this.members = members;
+	}
+	
+	/***
+	 * Return the summary of cluster
+	 * 
+	 * @param cluster the cluster to summarize
+	 * @return the summary
+	 */
+	public static <K,F,V> ShardSummary<K,F,V> of(Cluster<K,F,V> cluster) {
+		Instance<K,F,V> summary = new Instance<>(cluster.getId());
+		for (Centroid<F,V> centroid : cluster.getCentroids().values()) {
+			Collection<Feature<F,V>> aggregatable = centroid.getAggregatableCentroid();
+			Feature<F,V> feature = (aggregatable != null && aggregatable.size() == 1) ? aggregatable.iterator().next() : centroid.getCentroid();
+			if (feature != null) {
+				summary.add(feature);
+			}
+		}
+		
+		List<K> members = new ArrayList<>(cluster.getMembers().size());
+		for (Instance<K,F,V> inst : cluster.getMembers()) {
+			members.add(inst.getId());
+		}
+		return new ShardSummary<>(summary, members);
+	}
+	
+	/***
+	 * Return the instance holding the summary features of the cluster
+	 * 
+	 * @return the summary instance
+	 */
+	public Instance<K,F,V> getSummary() {
+		return summary;
+	}
+	
+	/***
+	 * Return the ids of the members of the cluster
+	 * 
+	 * @return the member ids
+	 */
+	public List<K> getMembers() {
+		return members;
+	}
+}
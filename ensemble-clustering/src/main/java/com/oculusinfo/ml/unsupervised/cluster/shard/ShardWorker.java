@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised.cluster.shard;
+
+import com.oculusinfo.ml.DataSet;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+import com.oculusinfo.ml.unsupervised.cluster.Clusterer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/***
+ * The main class of a shard worker process started by ShardedClusterer.
+ * 
+ * The worker reads a ShardClustererFactory and a DataSet shard from standard input, clusters the shard
+ * with a clusterer created by the factory and writes a list with a ShardSummary of each cluster to 
+ * standard output, all with Java serialization.  Standard output is redirected to standard error while 
+ * the worker runs so nothing else can write into the results.
+ *
+ */
+public final class ShardWorker {
+	
+	private ShardWorker() {
+	}
+	
+	public static void main(String[] args) {
+		PrintStream results = System.out;
+		System.setOut(System.err);
+		
+		try {
+			run(System.in, results);
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+		// the clusterer may leave a shutdown hook and pool threads behind
+		System.exit(0);
+	}
+	
+	/***
+	 * Read the factory and shard from input, cluster the shard and write the cluster summaries to output
+	 * 
+	 * @param input the stream to read the factory and shard from
+	 * @param output the stream to write the summaries to
+	 * @throws IOException if the streams can't be read or written
+	 * @throws ClassNotFoundException if a class of the factory or shard isn't on the class path
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	static void run(InputStream input, OutputStream output) throws IOException, ClassNotFoundException {
+		ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(input));
+		ShardClustererFactory factory = (ShardClustererFactory)in.readObject();
+		DataSet shard = (DataSet)in.readObject();
+		
+		List<ShardSummary> summaries = new ArrayList<>();
+		Clusterer clusterer = factory.create();
+		try {
+			for (Object c : clusterer.doCluster(shard)) {
+				summaries.add(ShardSummary.of((Cluster)c));
+			}
+		}
+		finally {
+			clusterer.terminate();
+		}
+		
+		ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(output));
+		out.writeObject(summaries);
+		out.flush();
+	}
+}
@@ -0,0 +1,226 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised.cluster.shard;
+
+import com.oculusinfo.ml.DataSet;
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+import com.oculusinfo.ml.unsupervised.cluster.ClusterResult;
+import com.oculusinfo.ml.unsupervised.cluster.Clusterer;
+import com.oculusinfo.ml.unsupervised.cluster.InMemoryClusterResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/***
+ * A coordinator that splits a DataSet into shards, clusters each shard in a separate worker JVM and 
+ * merges the shard clusters in a final pass.
+ * 
+ * The DataSet is split with DataSet.nFolds() and each shard is written, along with the factory, to a
+ * ShardWorker process started on the local machine with the class path of this JVM.  The workers only 
+ * return a ShardSummary of each cluster, holding its aggregatable centroids and member ids, so the 
+ * clustering state of each shard lives in the heap of its own worker.
+ * 
+ * The final pass clusters the summaries with a clusterer created by the same factory.  Since each summary 
+ * carries the weight of its centroids, a ThresholdClusterer merges the shard clusters within its threshold
+ * and a KMeans clusters the shard means into k means.  The members of each merged cluster are then 
+ * replaced by the instances of the shard clusters it absorbed.
+ *
+ */
+public class ShardedClusterer<K,F,V> {
+	protected static final Logger log = LoggerFactory.getLogger("com.oculusinfo");
+	
+	protected final ShardClustererFactory<K,F,V> factory;
+	protected final int shards;
+	protected final List<String> jvmOptions = new ArrayList<>();
+	
+	public ShardedClusterer(ShardClustererFactory<K,F,V> factory, int shards) {
+		this.factory = factory;
+		this.shards = shards;
+	}
+	
+	public int getShards() {
+		return shards;
+	}
+	
+	public List<String> getJvmOptions() {
+		return jvmOptions;
+	}
+	
+	/***
+	 * Set the options of the java command that starts each worker, such as the maximum heap size
+	 * 
+	 * @param options the JVM options, e.g. -Xmx4g
+	 */
+	public void setJvmOptions(List<String> options) {
+		jvmOptions.clear();
+		jvmOptions.addAll(options);
+	}
+	
+	/***
+	 * Cluster the instances of ds, one shard per worker process
+	 * 
+	 * @param ds the DataSet to cluster
+	 * @return the merged clusters
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public ClusterResult doCluster(DataSet<K,F,V> ds) {
+		if (ds.size() == 0) return new InMemoryClusterResult(new ArrayList<>());
+		
+		double start = System.currentTimeMillis();
+		
+		List<DataSet<K,F,V>> folds = ds.nFolds(Math.max(1, Math.min(shards, ds.size())));
+		
+		// each worker is fed and drained by its own thread so the shards are clustered concurrently
+		ExecutorService exec = Executors.newFixedThreadPool(folds.size());
+		List<ShardSummary<K,F,V>> summaries = new ArrayList<>();
+		try {
+			List<Future<List<ShardSummary<K,F,V>>>> results = new ArrayList<>(folds.size());
+			for (final DataSet<K,F,V> fold : folds) {
+				results.add(exec.submit(() -> runWorker(fold)));
+			}
+			for (Future<List<ShardSummary<K,F,V>>> result : results) {
+				summaries.addAll(result.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the shard workers", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Shard worker failed", e.getCause());
+		} finally {
+			exec.shutdownNow();
+		}
+		
+		if (log.isInfoEnabled()) {
+			log.info("Clustered {} shards into {} clusters", folds.size(), summaries.size());
+		}
+		
+		ClusterResult result = merge(ds, summaries);
+		
+		if (log.isInfoEnabled()) {
+			double clusterTime = System.currentTimeMillis() - start;
+			log.info("Clustering time (s): {}", clusterTime / 1000);
+		}
+		return result;
+	}
+	
+	/***
+	 * Start a worker process, send it the factory and shard and read back its cluster summaries
+	 * 
+	 * @param shard the shard to cluster
+	 * @return the summaries of the shard clusters
+	 * @throws IOException if the worker can't be started or fails
+	 * @throws ClassNotFoundException if a class of the summaries isn't on the class path
+	 * @throws InterruptedException if interrupted while waiting for the worker to exit
+	 */
+	@SuppressWarnings("unchecked")
+	protected List<ShardSummary<K,F,V>> runWorker(DataSet<K,F,V> shard) throws IOException, ClassNotFoundException, InterruptedException {
+		List<String> command = new ArrayList<>();
+		command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+		command.addAll(jvmOptions);
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(ShardWorker.class.getName());
+		
+		Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+		try {
+			try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(process.getOutputStream()))) {
+				out.writeObject(factory);
+				out.writeObject(shard);
+			}
+			
+			List<ShardSummary<K,F,V>> summaries;
+			try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(process.getInputStream()))) {
+				summaries = (List<ShardSummary<K,F,V>>)in.readObject();
+			}
+			
+			int status = process.waitFor();
+			if (status != 0) {
+				throw new IOException("Shard worker exited with status " + status);
+			}
+			return summaries;
+		}
+		finally {
+			process.destroy();
+		}
+	}
+	
+	/***
+	 * Cluster the summaries of the shard clusters and replace the members of each merged cluster by the 
+	 * instances of ds the summaries stand for
+	 * 
+	 * @param ds the clustered DataSet
+	 * @param summaries the summaries of the shard clusters
+	 * @return the merged clusters
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	protected ClusterResult merge(DataSet<K,F,V> ds, List<ShardSummary<K,F,V>> summaries) {
+		DataSet<K,F,V> summarySet = new DataSet<>();
+		Map<K, ShardSummary<K,F,V>> byId = new HashMap<>();
+		for (ShardSummary<K,F,V> summary : summaries) {
+			summarySet.add(summary.getSummary());
+			byId.put(summary.getSummary().getId(), summary);
+		}
+		
+		List<Cluster> merged = new ArrayList<>();
+		Clusterer<K,F,V> clusterer = factory.create();
+		try {
+			for (Object o : clusterer.doCluster(summarySet)) {
+				Cluster c = (Cluster)o;
+				
+				Set<Instance<K,F,V>> members = new LinkedHashSet<>();
+				for (Instance<K,F,V> summary : (Set<Instance<K,F,V>>)c.getMembers()) {
+					for (K id : byId.get(summary.getId()).getMembers()) {
+						Instance<K,F,V> inst = ds.get(id);
+						if (inst != null) members.add(inst);
+					}
+				}
+				c.getMembers().clear();
+				c.setMembers(members);
+				merged.add(c);
+			}
+		}
+		finally {
+			clusterer.terminate();
+		}
+		return new InMemoryClusterResult(merged);
+	}
+}
@@ -27,6 +27,16 @@ package com.oculusinfo.ml.unsupervised.cluster.threshold;
 import com.oculusinfo.ml.Instance;
 import com.oculusinfo.ml.unsupervised.cluster.AbstractClusterer;
 import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+import com.oculusinfo.ml.unsupervised.cluster.ClusterResult;
+import com.oculusinfo.ml.unsupervised.cluster.ClusterStreamListener;
+import com.oculusinfo.ml.unsupervised.cluster.InMemoryClusterResult;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
 
 /***
  * This class implements a single pass threshold clustering algorithm.
@@ -54,12 +64,23 @@ import com.oculusinfo.ml.unsupervised.cluster.Cluster;
  * 
  * To speed up the clustering even faster, the firstCandidate option can be set to true which will halt the 
  * search for the best cluster after the first candidate is found.
+ * 
+ * For large numbers of clusters a CandidateIndex such as the GeoGridIndex can be set to skip clusters
+ * that are provably farther than the threshold.
+ * 
+ * Unbounded sources of instances can be clustered with doStreamCluster().  Memory can be bounded by 
+ * not retaining the cluster members, in which case only the centroids and member counts are kept and 
+ * a ClusterStreamListener can record the assignments elsewhere.  Note that the terms of bag of words 
+ * features are interned in a dictionary that only grows, see BagOfWordsFeature.
  *  
  * @author slangevin
  *
  */
 public class ThresholdClusterer extends AbstractClusterer {
 	protected double threshold = 0.5; // default threshold
+	protected boolean retainMembers = true;
+	protected ClusterStreamListener streamListener;
+	protected long snapshotInterval = 0;
 	
 	public ThresholdClusterer() {
 		super(false, true, true);
@@ -77,8 +98,117 @@ public class ThresholdClusterer extends AbstractClusterer {
 		return threshold;
 	}
 	
+	public boolean isRetainMembers() {
+		return retainMembers;
+	}
+	
+	/***
+	 * Set whether streamed instances are retained as cluster members.  When false instances are only
+	 * absorbed into the cluster centroids and counts.
+	 * 
+	 * @param retainMembers false to bound memory when clustering unbounded streams
+	 */
+	public void setRetainMembers(boolean retainMembers) {
+		this.retainMembers = retainMembers;
+	}
+	
+	/***
+	 * Set the listener notified of each assignment and of periodic snapshots while streaming
+	 * 
+	 * @param listener the listener or null for none
+	 * @param snapshotInterval the number of instances between snapshots or 0 for none
+	 */
+	public void setStreamListener(ClusterStreamListener listener, long snapshotInterval) {
+		this.streamListener = listener;
+		this.snapshotInterval = snapshotInterval;
+	}
+	
+	/***
+	 * Cluster the instances of a stream as they are consumed
+	 * 
+	 * @param source the stream of instances
+	 * @return the clusters
+	 */
+	public ClusterResult doStreamCluster(Iterator<? extends Instance> source) {
+		return doStreamCluster(source, new ArrayList<>());
+	}
+	
+	/***
+	 * Cluster the instances of a stream as they are consumed
+	 * 
+	 * @param source the stream of instances
+	 * @return the clusters
+	 */
+	public ClusterResult doStreamCluster(Spliterator<? extends Instance> source) {
+		return doStreamCluster(Spliterators.iterator(source), new ArrayList<>());
+	}
+	
+	/***
+	 * Cluster the instances of a stream as they are consumed using and modifying the clusters provided.
+	 * 
+	 * The method returns once the source is exhausted.  Each instance is assigned as it arrives, the 
+	 * stream listener is notified of the assignment and a snapshot is emitted every snapshot interval
+	 * instances and once the source is exhausted, unless the last interval snapshot already covered
+	 * every instance.
+	 * 
+	 * @param source the stream of instances
+	 * @param clusters is the list of clusters to use during clustering
+	 * @return the clusters
+	 */
+	@SuppressWarnings("unchecked")
+	public ClusterResult doStreamCluster(Iterator<? extends Instance> source, List<Cluster> clusters) {
+		double start = System.currentTimeMillis();
+		
+		// if the clusterer hasn't been initially manually then init it now
+		if (exec == null) init();
+		
+		if (candidateIndex != null) {
+			candidateIndex.clear();
+			for (Cluster c : clusters) {
+				candidateIndex.add(c);
+			}
+		}
+		
+		long processed = 0;
+		while (source.hasNext()) {
+			Instance inst = source.next();
+			Cluster cluster = assignInstance(inst, (List)clusters, threshold, retainMembers);
+			processed++;
+			
+			if (streamListener != null) {
+				streamListener.memberAssigned(inst, cluster);
+				if (snapshotInterval > 0 && processed % snapshotInterval == 0) {
+					streamListener.snapshot(new InMemoryClusterResult(new ArrayList<>(clusters)), processed);
+				}
+			}
+		}
+		
+		ClusterResult result = new InMemoryClusterResult(clusters);
+		boolean covered = snapshotInterval > 0 && processed > 0 && processed % snapshotInterval == 0;
+		if (streamListener != null && !covered) {
+			streamListener.snapshot(new InMemoryClusterResult(new ArrayList<>(clusters)), processed);
+		}
+		
+		if (log.isInfoEnabled()) {
+			log.info("Streamed {} instances into {} clusters", processed, clusters.size());
+			double clusterTime = System.currentTimeMillis() - start;
+			log.info("Clustering time (s): {}", clusterTime / 1000);
+		}
+		return result;
+	}
+
+	@Override
+	protected Cluster createCluster() {
+		return new Cluster(UUID.randomUUID().toString(), getTypeDefs(), onlineUpdate);
+	}
+	
+	@Override
+	protected double getCandidateBound() {
+		return threshold;
+	}
+	
 	@Override
-	protected boolean isCandidate(Instance<String> inst, Cluster candidate,
+	protected boolean isCandidate(Instance inst, Cluster candidate,
 								  double score, Cluster best, double bestScore) {
 		
 		return (score < threshold && score < bestScore);  // lower score less than threshold is better
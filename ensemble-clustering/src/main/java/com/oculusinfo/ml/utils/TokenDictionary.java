@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.utils;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/***
+ * A TokenDictionary interns tokens such as strings or terms as dense integer ids.
+ * 
+ * Ids are assigned in the order tokens are first seen starting from 0 and are never reused.  
+ * All methods are thread safe: lookups don't lock and interning a new token only locks against
+ * other threads interning new tokens, so a dictionary can be shared by features created concurrently.
+ *
+ */
+public class TokenDictionary<T> implements Serializable {
+	private static final long serialVersionUID = -4313064390926640347L;
+	
+	public static final int NO_TOKEN = -1;
+	
+	private final ConcurrentHashMap<T, Integer> ids = new ConcurrentHashMap<>();
+	// tokens are written before their id is published in ids
+	private volatile Object[] tokens = new Object[16];
+	private volatile int size = 0;
+	
+	/***
+	 * Return the id of token, assigning a new id if the token hasn't been seen before
+	 * 
+	 * @param token the token to intern
+	 * @return the id of the token or NO_TOKEN if token is null
+	 */
+	public int intern(T token) {
+		if (token == null) return NO_TOKEN;
+		
+		Integer id = ids.get(token);
+		if (id != null) return id;
+		
+		synchronized (this) {
+			id = ids.get(token);
+			if (id == null) {
+				id = size;
+				Object[] t = tokens;
+				if (id == t.length) {
+					t = Arrays.copyOf(t, t.length * 2);
+				}
+				t[id] = token;
+				tokens = t;
+				size = id + 1;
+				ids.put(token, id);
+			}
+		}
+		return id;
+	}
+	
+	/***
+	 * Return the id of token without interning it
+	 * 
+	 * @param token the token to look up
+	 * @return the id of the token or NO_TOKEN if it isn't in the dictionary
+	 */
+	public int getId(T token) {
+		if (token == null) return NO_TOKEN;
+		Integer id = ids.get(token);
+		return (id == null) ? NO_TOKEN : id;
+	}
+	
+	/***
+	 * Return the token with the specified id
+	 * 
+	 * @param id the token id
+	 * @return the token or null if id is NO_TOKEN
+	 */
+	@SuppressWarnings("unchecked")
+	public T getToken(int id) {
+		if (id == NO_TOKEN) return null;
+		if (id < 0 || id >= size) throw new IndexOutOfBoundsException("No token with id " + id);
+		return (T)tokens[id];
+	}
+	
+	/***
+	 * Return the number of tokens in the dictionary
+	 * 
+	 * @return the number of tokens
+	 */
+	public int size() {
+		return size;
+	}
+}
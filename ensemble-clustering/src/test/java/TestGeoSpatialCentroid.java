@@ -73,5 +73,27 @@ public class TestGeoSpatialCentroid {
 		assertTrue(isEqual(f.getLatitude(), 89));
 		assertTrue(isEqual(f.getLongitude(), -100));
 	}
+	
+	@Test
+	public void testMerge() {
+		double[][] points = { {10, 50}, {37.68455, -97.34110}, {-45, 120}, {60, 5} };
+		
+		GeoSpatialCentroid sequential = new GeoSpatialCentroid();
+		GeoSpatialCentroid first = new GeoSpatialCentroid();
+		GeoSpatialCentroid second = new GeoSpatialCentroid();
+		for (int i = 0; i < points.length; i++) {
+			GeoSpatialFeature f = new GeoSpatialFeature("f" + i);
+			f.setValue(points[i][0], points[i][1]);
+			sequential.add(f);
+			(i < 2 ? first : second).add(f);
+		}
+		first.merge(second);
+		
+		GeoSpatialFeature expected = sequential.getCentroid();
+		GeoSpatialFeature merged = first.getCentroid();
+		assertTrue(isEqual(merged.getLatitude(), expected.getLatitude()));
+		assertTrue(isEqual(merged.getLongitude(), expected.getLongitude()));
+		assertTrue(isEqual(merged.getWeight(), expected.getWeight()));
+	}
 
 }
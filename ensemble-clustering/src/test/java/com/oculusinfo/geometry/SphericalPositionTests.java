@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.geometry;
+
+import com.oculusinfo.geometry.geodesic.Position;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class SphericalPositionTests {
+    private static final double EPSILON = 1E-12;
+
+    @Test
+    public void testUnitVector () {
+        SphericalPosition p = new SphericalPosition(90, 0);
+        Assert.assertEquals(0.0, p.getX(), EPSILON);
+        Assert.assertEquals(1.0, p.getY(), EPSILON);
+        Assert.assertEquals(0.0, p.getZ(), EPSILON);
+
+        SphericalPosition q = SphericalPosition.fromVector(0, 0, 2);
+        Assert.assertEquals(90.0, q.getLatitude(), EPSILON);
+        Assert.assertEquals(1.0, q.getSinLatitude(), EPSILON);
+
+        double[] batch = SphericalPosition.toUnitVectors(new double[] {90, 0}, new double[] {0, 90});
+        Assert.assertEquals(6, batch.length);
+        Assert.assertEquals(1.0, batch[1], EPSILON);
+        Assert.assertEquals(1.0, batch[5], EPSILON);
+    }
+
+    @Test
+    public void testMatchesPosition () {
+        Random random = new Random(5);
+        for (int i=0; i<1000; ++i) {
+            Position a = new Position(random.nextDouble()*360-180, random.nextDouble()*180-90);
+            Position b = new Position(random.nextDouble()*360-180, random.nextDouble()*180-90);
+            SphericalPosition sa = SphericalPosition.fromPosition(a);
+            SphericalPosition sb = SphericalPosition.fromPosition(b);
+
+            Assert.assertEquals(a.getAngularDistance(b), Math.toDegrees(sa.getAngle(sb)), 1E-9);
+
+            // interpolation follows the great circle
+            double t = random.nextDouble();
+            SphericalPosition m = sa.interpolate(sb, t);
+            Assert.assertEquals(t*sa.getAngle(sb), sa.getAngle(m), 1E-9);
+            Assert.assertEquals((1-t)*sa.getAngle(sb), m.getAngle(sb), 1E-9);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.geometry.geodesic;
+
+import com.oculusinfo.geometry.geodesic.tracks.Cartesian2DTrack;
+import com.oculusinfo.geometry.geodesic.tracks.Cartesian3DTrack;
+import com.oculusinfo.geometry.geodesic.tracks.GeodeticTrack;
+import com.oculusinfo.geometry.geodesic.tracks.SphericalTrack;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class PackedTrackTests {
+    private static final double EPSILON = 1E-9;
+
+    private static PositionCalculationParameters parameters (PositionCalculationType type) {
+        return new PositionCalculationParameters(type, 0.0001, 1E-12, false);
+    }
+
+    private static List<Position> randomPath (Random random, int size) {
+        List<Position> points = new ArrayList<>();
+        double lon = random.nextDouble()*10;
+        double lat = random.nextDouble()*10;
+        for (int i=0; i<size; ++i) {
+            lon += random.nextDouble();
+            lat += random.nextDouble()-0.5;
+            points.add(new Position(lon, lat));
+        }
+        return points;
+    }
+
+    // Compare the packed sweep against the Position based calculation, which
+    // tracks without a packed geometry still use
+    private void checkAgainstPositions (Track a, Track b, Track legacyA, Track legacyB) {
+        Assert.assertNotNull(a.getPacked());
+        Assert.assertNull(legacyA.getPacked());
+
+        double expected = legacyA.getDistance(legacyB);
+        Assert.assertEquals(expected, a.getDistance(b), EPSILON * Math.max(1.0, expected));
+        Assert.assertEquals(legacyB.getDistance(legacyA), b.getDistance(a), EPSILON * Math.max(1.0, expected));
+    }
+
+    @Test
+    public void testCartesian2D () {
+        Random random = new Random(11);
+        PositionCalculationParameters p = parameters(PositionCalculationType.Cartesian2D);
+        for (int i=0; i<20; ++i) {
+            List<Position> pa = randomPath(random, 2+random.nextInt(20));
+            List<Position> pb = randomPath(random, 2+random.nextInt(20));
+            checkAgainstPositions(new Cartesian2DTrack(p, pa), new Cartesian2DTrack(p, pb),
+                                  new Cartesian2DTrack(p, pa) {
+                                      @Override
+                                      protected PackedTrack.Geometry getPackedGeometry () {
+                                          return null;
+                                      }
+                                  },
+                                  new Cartesian2DTrack(p, pb));
+        }
+    }
+
+    @Test
+    public void testCartesian3D () {
+        Random random = new Random(13);
+        PositionCalculationParameters p = parameters(PositionCalculationType.Cartesian3D);
+        for (int i=0; i<20; ++i) {
+            List<Position> pa = randomPath(random, 2+random.nextInt(20));
+            List<Position> pb = randomPath(random, 2+random.nextInt(20));
+            checkAgainstPositions(new Cartesian3DTrack(p, pa), new Cartesian3DTrack(p, pb),
+                                  new Cartesian3DTrack(p, pa) {
+                                      @Override
+                                      protected PackedTrack.Geometry getPackedGeometry () {
+                                          return null;
+                                      }
+                                  },
+                                  new Cartesian3DTrack(p, pb));
+        }
+    }
+
+    @Test
+    public void testGeodetic () {
+        Random random = new Random(17);
+        PositionCalculationParameters p = parameters(PositionCalculationType.Geodetic);
+        for (int i=0; i<20; ++i) {
+            List<Position> pa = randomPath(random, 2+random.nextInt(20));
+            List<Position> pb = randomPath(random, 2+random.nextInt(20));
+            checkAgainstPositions(new GeodeticTrack(p, pa), new GeodeticTrack(p, pb),
+                                  new GeodeticTrack(p, pa) {
+                                      @Override
+                                      protected PackedTrack.Geometry getPackedGeometry () {
+                                          return null;
+                                      }
+                                  },
+                                  new GeodeticTrack(p, pb));
+        }
+    }
+
+    @Test
+    public void testSpherical () {
+        Random random = new Random(19);
+        PositionCalculationParameters p = parameters(PositionCalculationType.Spherical);
+        for (int i=0; i<20; ++i) {
+            List<Position> pa = randomPath(random, 2+random.nextInt(20));
+            List<Position> pb = randomPath(random, 2+random.nextInt(20));
+            checkAgainstPositions(new SphericalTrack(p, pa), new SphericalTrack(p, pb),
+                                  new SphericalTrack(p, pa) {
+                                      @Override
+                                      protected PackedTrack.Geometry getPackedGeometry () {
+                                          return null;
+                                      }
+                                  },
+                                  new SphericalTrack(p, pb));
+        }
+    }
+
+    private static Track track (PositionCalculationType type, boolean ignoreDirection, List<Position> points) {
+        PositionCalculationParameters p = new PositionCalculationParameters(type, 0.0001, 1E-12, ignoreDirection);
+        switch (type) {
+            case Cartesian2D: return new Cartesian2DTrack(p, points);
+            case Cartesian3D: return new Cartesian3DTrack(p, points);
+            case Spherical: return new SphericalTrack(p, points);
+            default: return new GeodeticTrack(p, points);
+        }
+    }
+
+    @Test
+    public void testLowerBound () {
+        Random random = new Random(23);
+        PositionCalculationType[] types = {PositionCalculationType.Cartesian2D, PositionCalculationType.Cartesian3D,
+                                           PositionCalculationType.Spherical, PositionCalculationType.Geodetic};
+        for (PositionCalculationType type: types) {
+            int positive = 0;
+            for (int i=0; i<200; ++i) {
+                boolean ignoreDirection = random.nextBoolean();
+                Track a = track(type, ignoreDirection, randomPath(random, 2+random.nextInt(10)));
+                Track b = track(type, ignoreDirection, randomPath(random, 2+random.nextInt(10)));
+                double distance = a.getDistance(b);
+                double bound = a.getDistanceLowerBound(b);
+                Assert.assertTrue(type+": "+bound+" > "+distance, bound <= distance * (1 + 1E-9));
+                if (bound > 0) ++positive;
+            }
+            Assert.assertTrue(positive > 0);
+        }
+    }
+
+    @Test
+    public void testLowerBoundOfDistantTracks () {
+        List<Position> here = new ArrayList<>();
+        List<Position> there = new ArrayList<>();
+        for (int i=0; i<10; ++i) {
+            here.add(new Position(i*0.1, 0));
+            there.add(new Position(40+i*0.1, 20));
+        }
+        Track a = track(PositionCalculationType.Geodetic, true, here);
+        Track b = track(PositionCalculationType.Geodetic, true, there);
+        double distance = a.getDistance(b);
+        double bound = a.getDistanceLowerBound(b);
+        Assert.assertTrue(bound <= distance);
+        Assert.assertTrue(bound > 0.9 * distance);
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.columnar;
+
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.bagofwords.BagOfWordsFeature;
+import com.oculusinfo.ml.feature.spatial.GeoSpatialFeature;
+import com.oculusinfo.ml.feature.string.StringFeature;
+import com.oculusinfo.ml.feature.temporal.TemporalFeature;
+import junit.framework.Assert;
+
+import java.util.Date;
+
+/***
+ * Instances with a feature of every column type and the assertions comparing them, used by the 
+ * columnar data set tests.
+ */
+@SuppressWarnings({ "rawtypes", "unchecked" })
+class ColumnarFixtures {
+	
+	static ColumnarDataSet createDataSet() {
+		ColumnarDataSet ds = new ColumnarDataSet();
+		ds.registerGeoSpatialFeature("location");
+		ds.registerNumericVectorFeature("vector", 3);
+		ds.registerTemporalFeature("time");
+		ds.registerStringFeature("name");
+		ds.registerBagOfWordsFeature("words");
+		return ds;
+	}
+	
+	static ColumnarDataSet createDataSet(int size) {
+		ColumnarDataSet ds = createDataSet();
+		for (int i = 0; i < size; i++) {
+			ds.add(createInstance(i));
+		}
+		return ds;
+	}
+	
+	// every few instances have no time, a null name or a class label
+	static Instance createInstance(int i) {
+		Instance inst = new Instance("i" + i);
+		
+		GeoSpatialFeature geo = new GeoSpatialFeature("location");
+		geo.setValue(i * 0.5, -i * 0.25);
+		inst.add(geo);
+		
+		Feature vector = new Feature("vector", new double[] { i, i * 2, i * 3 });
+		vector.setWeight(1 + i % 2);
+		inst.add(vector);
+		
+		if (i % 5 != 0) {
+			TemporalFeature time = new TemporalFeature("time");
+			time.setValue(new Date(1000L * i), (i % 2 == 0) ? new Date(2000L * i) : null);
+			inst.add(time);
+		}
+		
+		StringFeature name = new StringFeature("name");
+		name.setValue((i % 7 == 0) ? null : "name" + (i % 3));
+		inst.add(name);
+		
+		BagOfWordsFeature words = new BagOfWordsFeature("words");
+		words.incrementValue("a");
+		for (int j = 0; j < i % 4; j++) {
+			words.incrementValue("b" + j);
+			words.incrementValue("a");
+		}
+		inst.add(words);
+		
+		inst.add(new Feature("other", "value" + i));
+		if (i % 3 == 0) inst.setClassLabel("label" + (i % 2));
+		return inst;
+	}
+	
+	static void assertSameInstance(Instance expected, Instance actual) {
+		Assert.assertEquals(expected.getId(), actual.getId());
+		Assert.assertEquals(expected.getClassLabel(), actual.getClassLabel());
+		Assert.assertEquals(expected.getAllFeatures().size(), actual.getAllFeatures().size());
+		
+		for (Object o : expected.getAllFeatures()) {
+			Feature feature = (Feature)o;
+			Assert.assertTrue(actual.containsFeature(feature.getId()));
+			Assert.assertEquals(feature.getWeight(), actual.getFeature(feature.getId()).getWeight());
+		}
+		
+		GeoSpatialFeature geo = (GeoSpatialFeature)actual.getFeature("location");
+		Assert.assertEquals(((GeoSpatialFeature)expected.getFeature("location")).getLatitude(), geo.getLatitude());
+		Assert.assertEquals(((GeoSpatialFeature)expected.getFeature("location")).getLongitude(), geo.getLongitude());
+		
+		double[] v = (double[])actual.getFeature("vector").getValue();
+		double[] ev = (double[])expected.getFeature("vector").getValue();
+		for (int i = 0; i < ev.length; i++) {
+			Assert.assertEquals(ev[i], v[i]);
+		}
+		
+		if (expected.containsFeature("time")) {
+			TemporalFeature time = (TemporalFeature)actual.getFeature("time");
+			Assert.assertEquals(((TemporalFeature)expected.getFeature("time")).getStart(), time.getStart());
+			Assert.assertEquals(((TemporalFeature)expected.getFeature("time")).getEnd(), time.getEnd());
+		}
+		else {
+			Assert.assertNull(actual.getFeature("time"));
+		}
+		
+		Assert.assertEquals(((StringFeature)expected.getFeature("name")).getValue(), ((StringFeature)actual.getFeature("name")).getValue());
+		
+		BagOfWordsFeature words = (BagOfWordsFeature)actual.getFeature("words");
+		BagOfWordsFeature ewords = (BagOfWordsFeature)expected.getFeature("words");
+		Assert.assertEquals(ewords.getTermCount(), words.getTermCount());
+		for (int i = 0; i < ewords.getTermCount(); i++) {
+			Assert.assertEquals(ewords.getTermId(i), words.getTermId(i));
+			Assert.assertEquals(ewords.getTermFrequency(i), words.getTermFrequency(i));
+		}
+		
+		Assert.assertEquals(expected.getFeature("other").getValue(), actual.getFeature("other").getValue());
+	}
+}
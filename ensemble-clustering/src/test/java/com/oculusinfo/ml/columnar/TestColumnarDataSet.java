@@ -0,0 +1,181 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.columnar;
+
+import com.oculusinfo.ml.DataSet;
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.spatial.GeoSpatialFeature;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class TestColumnarDataSet {
+	
+	@Test
+	public void testRoundTrip() {
+		ColumnarDataSet ds = ColumnarFixtures.createDataSet();
+		List<Instance> expected = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			Instance inst = ColumnarFixtures.createInstance(i);
+			expected.add(inst);
+			Assert.assertFalse(ds.add(inst));
+		}
+		Assert.assertEquals(100, ds.size());
+		Assert.assertTrue(ds.getTokenDictionary().getId("name2") >= 0);
+		
+		int i = 0;
+		for (Object inst : ds) {
+			ColumnarFixtures.assertSameInstance(expected.get(i++), (Instance)inst);
+		}
+		ColumnarFixtures.assertSameInstance(expected.get(42), ds.get("i42"));
+		Assert.assertNull(ds.get("missing"));
+	}
+	
+	@Test
+	public void testWeights() {
+		ColumnarDataSet ds = ColumnarFixtures.createDataSet();
+		for (int i = 0; i < 10; i++) {
+			Instance inst = new Instance("i" + i);
+			inst.add(new Feature("vector", new double[] { i, i, i }, (i == 5) ? 2.0 : 1.0));
+			ds.add(inst);
+		}
+		for (int i = 0; i < 10; i++) {
+			Assert.assertEquals((i == 5) ? 2.0 : 1.0, ds.get("i" + i).getFeature("vector").getWeight());
+		}
+	}
+	
+	@Test
+	public void testReplaceRemoveAndCompact() {
+		ColumnarDataSet ds = ColumnarFixtures.createDataSet();
+		for (int i = 0; i < 50; i++) {
+			ds.add(ColumnarFixtures.createInstance(i));
+		}
+		
+		// replace i10 with the features of i11
+		Instance replacement = ColumnarFixtures.createInstance(11);
+		Instance inst10 = new Instance("i10");
+		inst10.addFeatures(replacement.getAllFeatures());
+		Assert.assertTrue(ds.add(inst10));
+		Assert.assertEquals(50, ds.size());
+		
+		for (int i = 0; i < 50; i += 2) {
+			Instance removed = ds.remove("i" + i);
+			Assert.assertFalse(removed instanceof ColumnarInstance);
+			Assert.assertEquals("i" + i, removed.getId());
+		}
+		Assert.assertEquals(25, ds.size());
+		Assert.assertNull(ds.get("i0"));
+		
+		ds.compact();
+		Assert.assertEquals(25, ds.getRowCount());
+		
+		int i = 1;
+		for (Object inst : ds) {
+			ColumnarFixtures.assertSameInstance(ColumnarFixtures.createInstance(i), (Instance)inst);
+			i += 2;
+		}
+		Assert.assertEquals(51, i);
+		Assert.assertEquals(12, ds.getRow("i25"));
+	}
+	
+	@Test
+	public void testViewWritesThrough() {
+		ColumnarDataSet ds = ColumnarFixtures.createDataSet();
+		ds.add(ColumnarFixtures.createInstance(1));
+		
+		Instance view = ds.get("i1");
+		GeoSpatialFeature geo = new GeoSpatialFeature("location");
+		geo.setValue(10, 20);
+		view.add(geo);
+		view.removeFeature("other");
+		view.setClassLabel("label");
+		
+		Instance inst = ds.get("i1");
+		Assert.assertEquals(10.0, ((GeoSpatialFeature)inst.getFeature("location")).getLatitude());
+		Assert.assertFalse(inst.containsFeature("other"));
+		Assert.assertEquals("label", inst.getClassLabel());
+		Assert.assertEquals(view, inst);
+	}
+	
+	@Test
+	public void testSnapshot() {
+		ColumnarDataSet ds = ColumnarFixtures.createDataSet();
+		ds.add(ColumnarFixtures.createInstance(5));
+		
+		Instance view = ds.get("i5");
+		Instance copy = view.snapshot(Arrays.asList("location", "time", "words"));
+		Assert.assertFalse(copy instanceof ColumnarInstance);
+		Assert.assertEquals("i5", copy.getId());
+		// i5 has no time
+		Assert.assertEquals(2, copy.numFeatures());
+		Assert.assertSame(copy.getFeature("location"), copy.getFeature("location"));
+		Assert.assertEquals(2.5, ((GeoSpatialFeature)copy.getFeature("location")).getLatitude());
+		Assert.assertEquals(view.getFeature("words").getValue(), copy.getFeature("words").getValue());
+		
+		Instance plain = ColumnarFixtures.createInstance(5);
+		Assert.assertSame(plain, plain.snapshot(Arrays.asList("location")));
+	}
+	
+	@Test
+	public void testNormalize() {
+		ColumnarDataSet ds = ColumnarFixtures.createDataSet();
+		DataSet plain = new DataSet();
+		for (int i = 0; i < 20; i++) {
+			ds.add(ColumnarFixtures.createInstance(i));
+			plain.add(ColumnarFixtures.createInstance(i));
+		}
+		ds.normalizeInstanceFeature("vector");
+		plain.normalizeInstanceFeature("vector");
+		
+		for (int i = 0; i < 20; i++) {
+			double[] expected = (double[])plain.get("i" + i).getFeature("vector").getValue();
+			double[] actual = (double[])ds.get("i" + i).getFeature("vector").getValue();
+			for (int j = 0; j < expected.length; j++) {
+				Assert.assertEquals(expected[j], actual[j], 1e-12);
+			}
+		}
+	}
+	
+	@Test
+	public void testFolds() {
+		ColumnarDataSet ds = ColumnarFixtures.createDataSet();
+		for (int i = 0; i < 23; i++) {
+			ds.add(ColumnarFixtures.createInstance(i));
+		}
+		List<DataSet> folds = (List)ds.nFolds(5);
+		int total = 0;
+		for (DataSet fold : folds) {
+			Assert.assertTrue(fold.size() == 4 || fold.size() == 5);
+			total += fold.size();
+		}
+		Assert.assertEquals(23, total);
+		Assert.assertEquals(12, ds.sample(0.5).size());
+	}
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.columnar;
+
+import com.oculusinfo.ml.DataSet;
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.feature.Feature;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class TestMappedDataSet {
+	
+	@Test
+	public void testRoundTrip() throws IOException {
+		ColumnarDataSet ds = ColumnarFixtures.createDataSet(200);
+		// removed rows are not written
+		ds.remove("i10");
+		ds.remove("i11");
+		
+		File file = File.createTempFile("mapped", ".ds");
+		file.deleteOnExit();
+		MappedDataSet.write(ds, file);
+		MappedDataSet mapped = MappedDataSet.open(file);
+		
+		Assert.assertEquals(198, mapped.size());
+		Assert.assertEquals(ds.getColumns().size(), mapped.getColumns().size());
+		Assert.assertNull(mapped.get("i10"));
+		
+		int n = 0;
+		for (Object o : mapped) {
+			Instance inst = (Instance)o;
+			ColumnarFixtures.assertSameInstance(ds.get(inst.getId()), inst);
+			n++;
+		}
+		Assert.assertEquals(198, n);
+		
+		Instance inst = mapped.get("i42");
+		ColumnarFixtures.assertSameInstance(ds.get("i42"), inst);
+		Assert.assertTrue(mapped.contains(inst));
+		Assert.assertTrue(mapped.getKeys().contains("i199"));
+		
+		MappedColumn.GeoSpatial location = (MappedColumn.GeoSpatial)mapped.getColumn("location");
+		Assert.assertEquals(21.0, location.getLatitude(mapped.getRow("i42")));
+	}
+	
+	@Test
+	public void testSerialization() throws Exception {
+		ColumnarDataSet ds = ColumnarFixtures.createDataSet(20);
+		File file = File.createTempFile("mapped", ".ds");
+		file.deleteOnExit();
+		MappedDataSet.write(ds, file);
+		MappedDataSet mapped = MappedDataSet.open(file);
+		
+		// a fold holds views of the mapped instances
+		DataSet fold = (DataSet)((List)mapped.nFolds(2)).get(0);
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(mapped);
+		out.writeObject(fold);
+		out.close();
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		MappedDataSet copy = (MappedDataSet)in.readObject();
+		DataSet foldCopy = (DataSet)in.readObject();
+		
+		Assert.assertEquals(file.getAbsoluteFile(), copy.getFile());
+		Assert.assertEquals(20, copy.size());
+		for (int i = 0; i < 20; i++) {
+			ColumnarFixtures.assertSameInstance(ds.get("i" + i), copy.get("i" + i));
+		}
+		
+		Assert.assertEquals(10, foldCopy.size());
+		for (Object o : foldCopy) {
+			Instance inst = (Instance)o;
+			Assert.assertTrue(inst instanceof MappedInstance);
+			ColumnarFixtures.assertSameInstance(ds.get(inst.getId()), inst);
+		}
+	}
+	
+	@Test
+	public void testEmpty() throws IOException {
+		ColumnarDataSet ds = new ColumnarDataSet();
+		ds.registerNumericVectorFeature("vector", 2);
+		
+		File file = File.createTempFile("mapped", ".ds");
+		file.deleteOnExit();
+		MappedDataSet.write(ds, file);
+		MappedDataSet mapped = MappedDataSet.open(file);
+		
+		Assert.assertTrue(mapped.isEmpty());
+		Assert.assertFalse(mapped.iterator().hasNext());
+		Assert.assertEquals(1, mapped.getColumns().size());
+	}
+	
+	@Test
+	public void testReadOnly() throws IOException {
+		File file = File.createTempFile("mapped", ".ds");
+		file.deleteOnExit();
+		MappedDataSet.write(ColumnarFixtures.createDataSet(10), file);
+		MappedDataSet mapped = MappedDataSet.open(file);
+		
+		try {
+			mapped.add(new Instance("new"));
+			Assert.fail();
+		}
+		catch (UnsupportedOperationException e) {
+			// expected
+		}
+		try {
+			mapped.get("i1").add(new Feature("other", "x"));
+			Assert.fail();
+		}
+		catch (UnsupportedOperationException e) {
+			// expected
+		}
+		Assert.assertEquals(10, mapped.size());
+	}
+}
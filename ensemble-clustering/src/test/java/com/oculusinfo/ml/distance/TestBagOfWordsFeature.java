@@ -0,0 +1,157 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.distance;
+
+import com.oculusinfo.ml.feature.bagofwords.BagOfWordsFeature;
+import com.oculusinfo.ml.feature.bagofwords.centroid.BagOfWordsCentroid;
+import com.oculusinfo.ml.feature.bagofwords.distance.CosineDistance;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class TestBagOfWordsFeature {
+	final double epsilon = 0.00001;
+	
+	private BagOfWordsFeature createBag(Random rnd, int words, Map<String, Integer> counts) {
+		BagOfWordsFeature bag = new BagOfWordsFeature("words");
+		for (int i = 0; i < words; i++) {
+			String word = "w" + rnd.nextInt(300);
+			bag.incrementValue(word);
+			counts.merge(word, 1, Integer::sum);
+		}
+		return bag;
+	}
+	
+	private double referenceCosine(Map<String, Integer> x, Map<String, Integer> y) {
+		double dot = 0, xlength = 0, ylength = 0;
+		for (Map.Entry<String, Integer> e : x.entrySet()) {
+			xlength += e.getValue() * e.getValue();
+			Integer c = y.get(e.getKey());
+			if (c != null) dot += e.getValue() * c;
+		}
+		for (int c : y.values()) {
+			ylength += c * c;
+		}
+		if (xlength == 0 || ylength == 0) return 1.0;
+		return 1.0 - dot / (Math.sqrt(xlength) * Math.sqrt(ylength));
+	}
+	
+	@Test
+	public void testSortedTerms() {
+		BagOfWordsFeature bag = new BagOfWordsFeature("words");
+		bag.incrementValue("dog");
+		bag.incrementValue("cat");
+		bag.incrementValue("dog");
+		bag.setCount("bird", 5);
+		
+		Assert.assertEquals(3, bag.getTermCount());
+		Assert.assertEquals(2, bag.getFrequency("dog"));
+		Assert.assertEquals(5, bag.getCount("bird").frequency);
+		Assert.assertNull(bag.getCount("fish"));
+		for (int i = 1; i < bag.getTermCount(); i++) {
+			Assert.assertTrue(bag.getTermId(i-1) < bag.getTermId(i));
+		}
+		Assert.assertEquals(Math.sqrt(4 + 1 + 25), bag.getNorm(), epsilon);
+		
+		// terms are removed once their frequency drops to 0
+		bag.decrementValue("cat");
+		Assert.assertEquals(2, bag.getTermCount());
+		Assert.assertEquals(0, bag.getFrequency("cat"));
+		Assert.assertEquals(Math.sqrt(4 + 25), bag.getNorm(), epsilon);
+	}
+	
+	@Test
+	public void testCosineMatchesReference() {
+		Random rnd = new Random(17);
+		CosineDistance d = new CosineDistance();
+		
+		// similar and very different sizes use the merge and binary search dot products
+		int[][] sizes = { {20, 20}, {100, 150}, {3, 400}, {0, 10} };
+		for (int[] size : sizes) {
+			for (int i = 0; i < 50; i++) {
+				Map<String, Integer> xc = new HashMap<>(), yc = new HashMap<>();
+				BagOfWordsFeature x = createBag(rnd, size[0], xc);
+				BagOfWordsFeature y = createBag(rnd, size[1], yc);
+				
+				double expected = referenceCosine(xc, yc);
+				Assert.assertEquals(expected, d.distance(x, y), epsilon);
+				Assert.assertEquals(expected, d.distance(y, x), epsilon);
+			}
+		}
+	}
+	
+	@Test
+	public void testSerialization() throws Exception {
+		Random rnd = new Random(5);
+		BagOfWordsFeature bag = createBag(rnd, 50, new HashMap<>());
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(bag);
+		out.close();
+		BagOfWordsFeature copy = (BagOfWordsFeature)new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+		
+		Assert.assertEquals("words", copy.getName());
+		Assert.assertEquals(bag.getTermCount(), copy.getTermCount());
+		for (int i = 0; i < bag.getTermCount(); i++) {
+			Assert.assertEquals(bag.getTerm(i), copy.getTerm(i));
+			Assert.assertEquals(bag.getTermFrequency(i), copy.getTermFrequency(i));
+		}
+	}
+	
+	@Test
+	public void testCentroid() {
+		BagOfWordsCentroid centroid = new BagOfWordsCentroid();
+		centroid.setName("words");
+		
+		BagOfWordsFeature b1 = new BagOfWordsFeature("words");
+		BagOfWordsFeature b2 = new BagOfWordsFeature("words");
+		for (int i = 0; i < 15; i++) {
+			b1.setCount("t" + i, i + 1);
+			b2.setCount("t" + i, 1);
+		}
+		centroid.add(b1);
+		centroid.add(b2);
+		
+		// the top 10 words by frequency
+		BagOfWordsFeature top = (BagOfWordsFeature)centroid.getCentroid();
+		Assert.assertEquals(10, top.getTermCount());
+		Assert.assertEquals(16, top.getFrequency("t14"));
+		Assert.assertEquals(7, top.getFrequency("t5"));
+		Assert.assertEquals(0, top.getFrequency("t4"));
+		
+		centroid.remove(b1);
+		Assert.assertEquals(1, centroid.getFrequencyById(BagOfWordsFeature.getTermDictionary().getId("t14")));
+		Assert.assertEquals(15, ((BagOfWordsFeature)centroid.getAggregatableCentroid().iterator().next()).getTermCount());
+		
+		centroid.remove(b2);
+		Assert.assertEquals(0, ((BagOfWordsFeature)centroid.getCentroid()).getTermCount());
+	}
+}
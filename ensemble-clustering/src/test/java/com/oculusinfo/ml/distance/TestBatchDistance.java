@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.distance;
+
+import com.oculusinfo.ml.feature.numeric.distance.EuclideanDistance;
+import com.oculusinfo.ml.feature.spatial.GeoSpatialFeature;
+import com.oculusinfo.ml.feature.spatial.distance.EquitangularDistance;
+import com.oculusinfo.ml.feature.spatial.distance.HaversineDistance;
+import com.oculusinfo.ml.feature.spatial.distance.SphericalCosineDistance;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class TestBatchDistance {
+	final double epsilon = 0.000000001;
+	
+	private GeoSpatialFeature point(Random rnd) {
+		GeoSpatialFeature f = new GeoSpatialFeature("geo");
+		f.setValue(rnd.nextDouble() * 180 - 90, rnd.nextDouble() * 360 - 180);
+		return f;
+	}
+	
+	private void checkGeo(DistanceFunction d) {
+		Random rnd = new Random(9);
+		GeoSpatialFeature query = point(rnd);
+		List<GeoSpatialFeature> points = new ArrayList<>();
+		for (int i = 0; i < 100; i++) points.add(point(rnd));
+		
+		double[] out = new double[points.size()];
+		d.distances(query, points, out);
+		Assert.assertTrue(d.isBatchable());
+		for (int i = 0; i < points.size(); i++) {
+			Assert.assertEquals(d.distance(query, points.get(i)), out[i], epsilon);
+		}
+	}
+	
+	@Test
+	public void testNumericVectors() {
+		Random rnd = new Random(5);
+		EuclideanDistance d = new EuclideanDistance(1);
+		
+		// odd length to exercise the unrolled remainder
+		int len = 7;
+		double[] query = new double[len];
+		for (int j = 0; j < len; j++) query[j] = rnd.nextDouble();
+		
+		List<double[]> vectors = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			double[] v = new double[len];
+			for (int j = 0; j < len; j++) v[j] = rnd.nextDouble();
+			vectors.add(v);
+		}
+		
+		double[] out = new double[50];
+		d.distances(query, vectors, out);
+		for (int i = 0; i < 50; i++) {
+			double expected = 0;
+			for (int j = 0; j < len; j++) expected += Math.pow(query[j] - vectors.get(i)[j], 2);
+			expected = Math.sqrt(expected / len);
+			Assert.assertEquals(expected, d.distance(query, vectors.get(i)), epsilon);
+			Assert.assertEquals(expected, out[i], epsilon);
+		}
+	}
+	
+	@Test
+	public void testGeoFunctions() {
+		checkGeo(new HaversineDistance(1));
+		checkGeo(new SphericalCosineDistance(1));
+		checkGeo(new EquitangularDistance(1));
+		checkGeo(new com.oculusinfo.ml.feature.spatial.distance.EuclideanDistance(1));
+	}
+}
@@ -0,0 +1,181 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.distance;
+
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.semantic.SemanticFeature;
+import com.oculusinfo.ml.feature.semantic.distance.Concept;
+import com.oculusinfo.ml.feature.semantic.distance.WuPalmerDistance;
+import com.oculusinfo.ml.feature.string.StringFeature;
+import com.oculusinfo.ml.feature.string.distance.EditDistance;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestCachedDistanceFunction {
+	
+	private StringFeature createString(String value) {
+		StringFeature str = new StringFeature("name");
+		str.setValue(value);
+		return str;
+	}
+	
+	private SemanticFeature createConcept(String concept) {
+		SemanticFeature f = new SemanticFeature();
+		f.setValue(concept, "http://example.org/" + concept);
+		return f;
+	}
+	
+	private Concept addConcept(Concept parent, String name) {
+		Concept c = new Concept(name, parent);
+		parent.addChild(c);
+		return c;
+	}
+	
+	// counts the distances actually computed
+	private static class CountingDistance extends DistanceFunction<Feature<String,double[]>> {
+		private static final long serialVersionUID = 1L;
+		final AtomicInteger calls = new AtomicInteger();
+		
+		@Override
+		public double distance(Feature<String,double[]> x, Feature<String,double[]> y) {
+			calls.incrementAndGet();
+			return x.getValue()[0] - y.getValue()[0];
+		}
+	}
+	
+	@Test
+	public void testHitsAndMisses() {
+		CachedDistanceFunction<StringFeature> d = new CachedDistanceFunction<>(new EditDistance(), 100);
+		EditDistance reference = new EditDistance();
+		
+		StringFeature a = createString("kitten");
+		StringFeature b = createString("sitting");
+		
+		Assert.assertEquals(reference.distance(a, b), d.distance(a, b));
+		Assert.assertEquals(0, d.getHitCount());
+		Assert.assertEquals(1, d.getMissCount());
+		
+		// equal values in new features and the reversed pair are both hits
+		Assert.assertEquals(reference.distance(a, b), d.distance(createString("kitten"), createString("sitting")));
+		Assert.assertEquals(reference.distance(a, b), d.distance(b, a));
+		Assert.assertEquals(2, d.getHitCount());
+		Assert.assertEquals(1, d.size());
+		Assert.assertEquals(2.0 / 3, d.getHitRate(), 1e-9);
+		
+		d.clear();
+		Assert.assertEquals(0, d.size());
+		Assert.assertEquals(0, d.getHitCount());
+	}
+	
+	@Test
+	public void testArrayValuesAndOrder() {
+		CountingDistance counting = new CountingDistance();
+		CachedDistanceFunction<Feature<String,double[]>> d = new CachedDistanceFunction<>(counting, 100, CachedDistanceFunction.Eviction.LRU, false);
+		
+		Feature<String,double[]> x = new Feature<>("v", new double[] { 3 });
+		Feature<String,double[]> y = new Feature<>("v", new double[] { 1 });
+		
+		Assert.assertEquals(2.0, d.distance(x, y));
+		Assert.assertEquals(2.0, d.distance(new Feature<>("v", new double[] { 3 }), new Feature<>("v", new double[] { 1 })));
+		Assert.assertEquals(1, counting.calls.get());
+		
+		// the function isn't symmetric so the reversed pair is computed
+		Assert.assertEquals(-2.0, d.distance(y, x));
+		Assert.assertEquals(2, counting.calls.get());
+	}
+	
+	@Test
+	public void testEviction() {
+		CountingDistance counting = new CountingDistance();
+		CachedDistanceFunction<Feature<String,double[]>> d = new CachedDistanceFunction<>(counting, 32, CachedDistanceFunction.Eviction.FIFO, false);
+		
+		Feature<String,double[]> origin = new Feature<>("v", new double[] { 0 });
+		for (int i = 0; i < 1000; i++) {
+			d.distance(new Feature<>("v", new double[] { i }), origin);
+		}
+		Assert.assertTrue(d.size() <= 32);
+		Assert.assertEquals(1000 - d.size(), d.getEvictionCount());
+		
+		// the last value is still cached, the first was evicted
+		int calls = counting.calls.get();
+		d.distance(new Feature<>("v", new double[] { 999 }), origin);
+		Assert.assertEquals(calls, counting.calls.get());
+		d.distance(new Feature<>("v", new double[] { 0 }), origin);
+		Assert.assertEquals(calls + 1, counting.calls.get());
+	}
+	
+	@Test
+	public void testSemanticFeatures() {
+		Concept thing = new Concept("thing");
+		Concept animal = addConcept(thing, "animal");
+		addConcept(animal, "dog");
+		addConcept(animal, "cat");
+		addConcept(addConcept(thing, "plant"), "tree");
+		
+		WuPalmerDistance reference = new WuPalmerDistance(thing);
+		CachedDistanceFunction<SemanticFeature> d = new CachedDistanceFunction<>(reference, 100);
+		
+		// semantic features have no value, the pairs are told apart by their concepts
+		double near = d.distance(createConcept("dog"), createConcept("cat"));
+		double far = d.distance(createConcept("dog"), createConcept("tree"));
+		Assert.assertEquals(reference.distance(createConcept("dog"), createConcept("cat")), near);
+		Assert.assertEquals(reference.distance(createConcept("dog"), createConcept("tree")), far);
+		Assert.assertTrue(near < far);
+		Assert.assertEquals(2, d.size());
+		
+		Assert.assertEquals(near, d.distance(createConcept("cat"), createConcept("dog")));
+		Assert.assertEquals(1, d.getHitCount());
+	}
+	
+	@Test
+	public void testFeatureWithoutValue() {
+		CachedDistanceFunction<Feature<String,double[]>> d = new CachedDistanceFunction<>(new CountingDistance(), 100);
+		try {
+			d.distance(new Feature<String,double[]>("v"), new Feature<>("v", new double[] { 1 }));
+			Assert.fail("a feature without a value can't be cached");
+		} catch (IllegalArgumentException e) {
+			Assert.assertEquals(0, d.size());
+		}
+	}
+	
+	@Test
+	public void testBoundedDistanceNotCached() {
+		CachedDistanceFunction<StringFeature> d = new CachedDistanceFunction<>(new EditDistance(), 100);
+		
+		StringFeature a = createString("abcdefghij");
+		StringFeature b = createString("jihgfedcba");
+		
+		double bounded = d.distance(a, b, 0.1);
+		Assert.assertTrue(bounded > 0.1);
+		Assert.assertEquals(0, d.size());
+		
+		double full = d.distance(a, b);
+		Assert.assertTrue(full >= bounded);
+		Assert.assertEquals(1, d.size());
+		Assert.assertEquals(full, d.distance(a, b, 0.1));
+	}
+}
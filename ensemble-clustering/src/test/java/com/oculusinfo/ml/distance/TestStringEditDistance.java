@@ -30,6 +30,7 @@ import junit.framework.Assert;
 import org.junit.Test;
 
 import java.util.Collections;
+import java.util.Random;
 
 public class TestStringEditDistance {
 	final double epsilon = 0.00001;
@@ -189,4 +190,102 @@ public class TestStringEditDistance {
 		distance = d.aveMinDistance(Collections.singletonList(t1), Collections.singletonList(t2));
 		System.out.println(distance);
 	}
+	
+	@Test
+	public void testEmpty() {
+		Assert.assertTrue(isEqual(EditDistance.getNormLevenshteinDistance("", ""), 0));
+		Assert.assertTrue(isEqual(EditDistance.getNormLevenshteinDistance("", "dog"), 1.0));
+		Assert.assertTrue(isEqual(EditDistance.getNormLevenshteinDistance("dog", ""), 1.0));
+	}
+	
+	@Test
+	public void testMatchesReference() {
+		Random rnd = new Random(42);
+		
+		// short strings use a single word, long ones the blocked or banded variants
+		int[] lengths = { 1, 5, 20, 63, 64, 65, 130, 300 };
+		for (int len : lengths) {
+			for (int i = 0; i < 50; i++) {
+				String s = randomString(rnd, len, "abcd");
+				String t = mutate(rnd, s, rnd.nextInt(len / 2 + 2), "abcd");
+				double expected = referenceDistance(s, t);
+				Assert.assertTrue(isEqual(EditDistance.getNormLevenshteinDistance(s, t), expected));
+				Assert.assertTrue(isEqual(EditDistance.getNormLevenshteinDistance(t, s), expected));
+			}
+		}
+		
+		// chars outside of Latin-1
+		String s = "\u4e2d\u6587dog\u00e9\u4e2d";
+		String t = "\u6587\u4e2ddig\u00e8";
+		Assert.assertTrue(isEqual(EditDistance.getNormLevenshteinDistance(s, t), referenceDistance(s, t)));
+	}
+	
+	@Test
+	public void testCutoff() {
+		Random rnd = new Random(7);
+		
+		int[] lengths = { 3, 10, 40, 64, 100, 250 };
+		double[] cutoffs = { 0.0, 0.1, 0.25, 0.5, 0.9, 1.0 };
+		for (int len : lengths) {
+			for (int i = 0; i < 50; i++) {
+				String s = randomString(rnd, len, "abc");
+				String t = mutate(rnd, s, rnd.nextInt(len + 1), "abc");
+				double expected = referenceDistance(s, t);
+				for (double cutoff : cutoffs) {
+					double d = EditDistance.getNormLevenshteinDistance(s, t, cutoff);
+					if (expected <= cutoff) {
+						// exact below the cutoff
+						Assert.assertTrue(isEqual(d, expected));
+					}
+					else {
+						// a lower bound above the cutoff otherwise
+						Assert.assertTrue(d > cutoff);
+						Assert.assertTrue(d <= expected + epsilon);
+					}
+				}
+			}
+		}
+	}
+	
+	private static String randomString(Random rnd, int len, String alphabet) {
+		StringBuilder sb = new StringBuilder(len);
+		for (int i = 0; i < len; i++) {
+			sb.append(alphabet.charAt(rnd.nextInt(alphabet.length())));
+		}
+		return sb.toString();
+	}
+	
+	private static String mutate(Random rnd, String s, int edits, String alphabet) {
+		StringBuilder sb = new StringBuilder(s);
+		for (int i = 0; i < edits; i++) {
+			int op = rnd.nextInt(3);
+			char c = alphabet.charAt(rnd.nextInt(alphabet.length()));
+			if (op == 0 || sb.length() == 0) {
+				sb.insert(rnd.nextInt(sb.length() + 1), c);
+			}
+			else if (op == 1) {
+				sb.deleteCharAt(rnd.nextInt(sb.length()));
+			}
+			else {
+				sb.setCharAt(rnd.nextInt(sb.length()), c);
+			}
+		}
+		return sb.toString();
+	}
+	
+	private static double referenceDistance(String s, String t) {
+		int n = s.length(), m = t.length();
+		if (Math.max(n, m) == 0) return 0;
+		
+		int[][] d = new int[n+1][m+1];
+		for (int i = 0; i <= n; i++) d[i][0] = i;
+		for (int j = 0; j <= m; j++) d[0][j] = j;
+		for (int i = 1; i <= n; i++) {
+			for (int j = 1; j <= m; j++) {
+				int cost = s.charAt(i-1) == t.charAt(j-1) ? 0 : 1;
+				d[i][j] = Math.min(Math.min(d[i-1][j]+1, d[i][j-1]+1), d[i-1][j-1]+cost);
+			}
+		}
+		return (double)d[n][m] / Math.max(n, m);
+	}
 }
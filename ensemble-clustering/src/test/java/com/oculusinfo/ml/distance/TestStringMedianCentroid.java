@@ -0,0 +1,150 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.distance;
+
+import com.oculusinfo.ml.feature.string.StringFeature;
+import com.oculusinfo.ml.feature.string.centroid.StringMedianCentroid;
+import com.oculusinfo.ml.feature.string.distance.EditDistance;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class TestStringMedianCentroid {
+
+	private StringFeature createName(String name) {
+		StringFeature f = new StringFeature("name");
+		f.setValue(name);
+		return f;
+	}
+	
+	private double sumOfDistances(String value, List<String> members) {
+		double sum = 0;
+		for (String member : members) {
+			sum += EditDistance.getNormLevenshteinDistance(value, member);
+		}
+		return sum;
+	}
+	
+	private double bestSumOfDistances(List<String> members) {
+		double best = Double.MAX_VALUE;
+		for (String member : members) {
+			best = Math.min(best, sumOfDistances(member, members));
+		}
+		return best;
+	}
+	
+	@Test
+	public void testEmpty() {
+		StringMedianCentroid centroid = new StringMedianCentroid();
+		Assert.assertEquals("", centroid.getCentroid().getValue());
+	}
+	
+	@Test
+	public void testDuplicatesAreCounted() {
+		StringMedianCentroid centroid = new StringMedianCentroid();
+		String[] names = { "jon", "jonathan", "johnathan", "jonathan", "jonathon", "jonathan" };
+		for (String name : names) {
+			centroid.add(createName(name));
+		}
+		Assert.assertEquals("jonathan", centroid.getCentroid().getValue());
+		Assert.assertEquals(names.length, centroid.getAggregatableCentroid().size());
+		
+		// once removed jonathan can no longer be the medoid
+		for (int i = 0; i < 3; i++) {
+			centroid.remove(createName("jonathan"));
+		}
+		String medoid = (String)centroid.getCentroid().getValue();
+		Assert.assertTrue(medoid.equals("johnathan") || medoid.equals("jonathon"));
+		Assert.assertEquals(names.length - 3, centroid.getAggregatableCentroid().size());
+	}
+	
+	@Test
+	public void testApproximateMedoid() {
+		Random rnd = new Random(3);
+		String base = "jonathan smith";
+		List<String> members = new ArrayList<>();
+		StringMedianCentroid centroid = new StringMedianCentroid();
+		for (int i = 0; i < 2000; i++) {
+			// a few random typos of the base name
+			char[] chars = base.toCharArray();
+			int typos = rnd.nextInt(4);
+			for (int t = 0; t < typos; t++) {
+				chars[rnd.nextInt(chars.length)] = (char)('a' + rnd.nextInt(26));
+			}
+			String name = new String(chars);
+			members.add(name);
+			centroid.add(createName(name));
+		}
+		
+		String medoid = (String)centroid.getCentroid().getValue();
+		Assert.assertTrue(members.contains(medoid));
+		Assert.assertTrue(sumOfDistances(medoid, members) <= 1.05 * bestSumOfDistances(members));
+	}
+	
+	@Test
+	public void testRemoveCandidates() {
+		StringMedianCentroid centroid = new StringMedianCentroid();
+		List<String> members = new ArrayList<>();
+		for (int i = 0; i < 40; i++) {
+			String name = "member " + i;
+			members.add(name);
+			centroid.add(createName(name));
+		}
+		
+		// removing the medoid each time empties the original reservoir long before the cluster
+		while (members.size() > 1) {
+			String medoid = (String)centroid.getCentroid().getValue();
+			Assert.assertTrue(members.remove(medoid));
+			centroid.remove(createName(medoid));
+			
+			medoid = (String)centroid.getCentroid().getValue();
+			Assert.assertTrue(members.contains(medoid));
+		}
+		centroid.remove(createName(members.get(0)));
+		Assert.assertEquals("", centroid.getCentroid().getValue());
+	}
+	
+	@Test
+	public void testMerge() {
+		String[] names = { "mary jones", "marie jones", "mary jonas", "mary jones", "maria jones", "mary jone" };
+		
+		StringMedianCentroid sequential = new StringMedianCentroid();
+		StringMedianCentroid first = new StringMedianCentroid();
+		StringMedianCentroid second = new StringMedianCentroid();
+		for (int i = 0; i < names.length; i++) {
+			sequential.add(createName(names[i]));
+			(i < 3 ? first : second).add(createName(names[i]));
+		}
+		first.merge(second);
+		
+		Assert.assertEquals(sequential.getCentroid().getValue(), first.getCentroid().getValue());
+		Assert.assertEquals(names.length, first.getAggregatableCentroid().size());
+	}
+
+}
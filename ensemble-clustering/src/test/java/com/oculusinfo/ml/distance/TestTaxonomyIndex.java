@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.distance;
+
+import com.oculusinfo.ml.feature.semantic.SemanticFeature;
+import com.oculusinfo.ml.feature.semantic.distance.Concept;
+import com.oculusinfo.ml.feature.semantic.distance.TaxonomyIndex;
+import com.oculusinfo.ml.feature.semantic.distance.WuPalmerDistance;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class TestTaxonomyIndex {
+	final double epsilon = 0.00001;
+	
+	private boolean isEqual(double d1, double d2) {
+		return (Math.abs( d1 - d2 ) < epsilon );
+	}
+	
+	private List<Concept> randomTree(int size, long seed) {
+		Random rnd = new Random(seed);
+		List<Concept> concepts = new ArrayList<>();
+		concepts.add(new Concept("c0"));
+		for (int i = 1; i < size; i++) {
+			Concept parent = concepts.get(rnd.nextInt(concepts.size()));
+			Concept c = new Concept("c" + i, parent);
+			parent.addChild(c);
+			concepts.add(c);
+		}
+		return concepts;
+	}
+	
+	private SemanticFeature feature(String concept) {
+		SemanticFeature f = new SemanticFeature();
+		f.setValue(concept, "http://example.org/" + concept);
+		return f;
+	}
+	
+	@Test
+	public void testMatchesConcept() {
+		List<Concept> concepts = randomTree(500, 42);
+		TaxonomyIndex index = new TaxonomyIndex(concepts.get(0));
+		Assert.assertEquals(concepts.size(), index.size());
+		
+		Random rnd = new Random(7);
+		for (int i = 0; i < 2000; i++) {
+			Concept x = concepts.get(rnd.nextInt(concepts.size()));
+			Concept y = concepts.get(rnd.nextInt(concepts.size()));
+			int ix = index.indexOf(x.getName());
+			int iy = index.indexOf(y.getName());
+			Assert.assertSame(x, index.getConcept(ix));
+			Assert.assertEquals(x.getDepth(), index.getDepth(ix));
+			Assert.assertSame(x.findCommonAncestor(y), index.getConcept(index.findCommonAncestor(ix, iy)));
+		}
+	}
+	
+	@Test
+	public void testLookup() {
+		List<Concept> concepts = randomTree(10, 1);
+		TaxonomyIndex index = new TaxonomyIndex(concepts.get(0));
+		Assert.assertEquals(0, index.indexOf("c0"));
+		Assert.assertEquals(-1, index.getParent(0));
+		Assert.assertSame(concepts.get(3), index.getConcept(index.indexOf("C3")));
+		Assert.assertEquals(-1, index.indexOf("missing"));
+	}
+	
+	@Test
+	public void testWuPalmer() {
+		Concept thing = new Concept("Thing");
+		Concept agent = new Concept("Agent", thing);
+		Concept person = new Concept("Person", agent);
+		Concept org = new Concept("Organization", agent);
+		thing.addChild(agent);
+		agent.addChild(person);
+		agent.addChild(org);
+		
+		WuPalmerDistance d = new WuPalmerDistance(thing);
+		Assert.assertTrue(isEqual(d.distance(feature("Person"), feature("Person")), 0));
+		// lca = Agent at depth 2, both concepts at depth 3
+		Assert.assertTrue(isEqual(d.distance(feature("Person"), feature("Organization")), 1.0 - 4.0 / 6.0));
+		Assert.assertTrue(isEqual(d.distance(feature("Person"), feature("Unknown")), 1.0));
+	}
+}
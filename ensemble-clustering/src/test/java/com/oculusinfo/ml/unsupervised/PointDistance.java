@@ -0,0 +1,43 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised;
+
+import com.oculusinfo.ml.distance.DistanceFunction;
+import com.oculusinfo.ml.feature.Feature;
+
+/***
+ * Euclidean distance between the two dimensional vector values of two features, used by 
+ * the clusterer tests.
+ */
+class PointDistance extends DistanceFunction<Feature<String,double[]>> {
+	private static final long serialVersionUID = 3373916826352372617L;
+
+	@Override
+	public double distance(Feature<String,double[]> x, Feature<String,double[]> y) {
+		double dx = x.getValue()[0] - y.getValue()[0];
+		double dy = x.getValue()[1] - y.getValue()[1];
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised;
+
+import com.oculusinfo.ml.DataSet;
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.numeric.centroid.MeanNumericVectorCentroid;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+import com.oculusinfo.ml.unsupervised.cluster.kmeans.KMeans;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.UUID;
+
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class TestAcceleratedKMeans {
+
+	private KMeans createKMeans(int k, int maxIterations) {
+		KMeans clusterer = new KMeans(k, maxIterations, true) {
+			@Override
+			protected Cluster createCluster() {
+				return new Cluster(UUID.randomUUID().toString(), getTypeDefs(), onlineUpdate);
+			}
+		};
+		clusterer.registerFeatureType("point", MeanNumericVectorCentroid::new, new PointDistance());
+		clusterer.setAccelerated(true);
+		return clusterer;
+	}
+	
+	private DataSet createDataSet(int size, int centres, long seed) {
+		Random rnd = new Random(seed);
+		double[][] means = new double[centres][2];
+		for (double[] mean : means) {
+			mean[0] = rnd.nextDouble() * 100;
+			mean[1] = rnd.nextDouble() * 100;
+		}
+		
+		DataSet ds = new DataSet();
+		for (int i = 0; i < size; i++) {
+			double[] mean = means[rnd.nextInt(centres)];
+			Instance inst = new Instance("i" + i);
+			inst.add(new Feature("point", new double[] { mean[0] + rnd.nextGaussian() * 5, mean[1] + rnd.nextGaussian() * 5 }));
+			ds.add(inst);
+		}
+		return ds;
+	}
+	
+	@Test
+	public void testConvergesToNearestMeans() {
+		DataSet ds = createDataSet(2000, 8, 1);
+		KMeans clusterer = createKMeans(8, 100);
+		
+		Iterable<Cluster> clusters = clusterer.doCluster(ds);
+		clusterer.terminate();
+		
+		int total = 0;
+		for (Cluster cluster : clusters) {
+			total += cluster.size();
+			
+			// at convergence every member is no farther from its own mean than from any other
+			for (Instance inst : (Iterable<Instance>)cluster.getMembers()) {
+				double d = clusterer.distance(inst, cluster);
+				for (Cluster other : clusters) {
+					Assert.assertTrue(d <= clusterer.distance(inst, other) + 1e-9);
+				}
+			}
+		}
+		Assert.assertEquals(ds.size(), total);
+	}
+	
+	@Test
+	public void testSingleMean() {
+		DataSet ds = createDataSet(100, 3, 2);
+		KMeans clusterer = createKMeans(1, 10);
+		
+		Iterable<Cluster> clusters = clusterer.doCluster(ds);
+		clusterer.terminate();
+		
+		int count = 0;
+		for (Cluster cluster : clusters) {
+			Assert.assertEquals(ds.size(), cluster.size());
+			count++;
+		}
+		Assert.assertEquals(1, count);
+	}
+}
@@ -0,0 +1,234 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised;
+
+import com.oculusinfo.ml.DataSet;
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.numeric.centroid.MeanNumericVectorCentroid;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+import com.oculusinfo.ml.unsupervised.cluster.kmeans.KMeans;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class TestBatchAssignment {
+	
+	private static class BatchKMeans extends KMeans {
+		public BatchKMeans() {
+			super(1, 1, true);
+			registerFeatureType("point", MeanNumericVectorCentroid::new, new PointDistance());
+		}
+		
+		@Override
+		protected Cluster createCluster() {
+			return new Cluster(UUID.randomUUID().toString(), getTypeDefs(), onlineUpdate);
+		}
+		
+		public Iterable<Cluster> batch(DataSet ds, List<Cluster> clusters) {
+			return doBatchCluster(ds, (List)clusters);
+		}
+		
+		public Cluster best(Instance inst, List<Cluster> clusters, double bound) {
+			return bestCluster(inst, Collections.singletonList((List)clusters), bound).c;
+		}
+		
+		// marks the range of each partition but fails the last partition
+		public void fillPartitions(final int[] out) {
+			forEachPartition(out.length, (s, e) -> {
+				if (e == out.length) throw new ArithmeticException("bad partition");
+				for (int i = s; i < e; i++) {
+					out[i] = 1;
+				}
+			});
+		}
+	}
+	
+	// the same distance, computed a block of clusters at a time
+	private static class BatchPointDistance extends PointDistance {
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		public boolean isBatchable() {
+			return true;
+		}
+	}
+	
+	private Instance createPoint(String id, double x, double y) {
+		Instance inst = new Instance(id);
+		inst.add(new Feature("point", new double[] { x, y }));
+		return inst;
+	}
+	
+	@Test
+	public void testMatchesSequentialAssignment() {
+		Random rnd = new Random(3);
+		BatchKMeans clusterer = new BatchKMeans();
+		
+		List<Cluster> clusters = new ArrayList<>();
+		for (int j = 0; j < 150; j++) {
+			Cluster c = clusterer.createCluster();
+			c.add(createPoint("c" + j, rnd.nextDouble() * 100, rnd.nextDouble() * 100));
+			c.updateCentroid();
+			c.reset();
+			clusters.add(c);
+		}
+		
+		DataSet ds = new DataSet();
+		Map<Instance, Cluster> expected = new HashMap<>();
+		for (int i = 0; i < 5000; i++) {
+			Instance inst = createPoint("i" + i, rnd.nextDouble() * 100, rnd.nextDouble() * 100);
+			ds.add(inst);
+			
+			Cluster best = null;
+			double bestDist = Double.MAX_VALUE;
+			for (Cluster c : clusters) {
+				double d = clusterer.distance(inst, c);
+				if (d < bestDist) {
+					bestDist = d;
+					best = c;
+				}
+			}
+			expected.put(inst, best);
+		}
+		
+		Iterable<Cluster> modified = clusterer.batch(ds, clusters);
+		clusterer.terminate();
+		
+		int total = 0;
+		for (Cluster c : modified) {
+			for (Instance inst : (Iterable<Instance>)c.getMembers()) {
+				Assert.assertSame(expected.get(inst), c);
+				total++;
+			}
+		}
+		Assert.assertEquals(ds.size(), total);
+		Assert.assertEquals(150, clusters.size());
+	}
+	
+	@Test
+	public void testCreatesClusterWhenNoneExist() {
+		BatchKMeans clusterer = new BatchKMeans();
+		
+		DataSet ds = new DataSet();
+		for (int i = 0; i < 200; i++) {
+			ds.add(createPoint("i" + i, i, i));
+		}
+		
+		List<Cluster> clusters = new ArrayList<>();
+		Iterable<Cluster> modified = clusterer.batch(ds, clusters);
+		clusterer.terminate();
+		
+		Assert.assertEquals(1, clusters.size());
+		Cluster c = modified.iterator().next();
+		Assert.assertEquals(200, c.size());
+		Assert.assertEquals(99.5, ((double[])c.getFeature("point").getValue())[0], 1e-9);
+	}
+	
+	@Test
+	public void testAccumulatedCentroidsMatchSequentialAdd() {
+		Random rnd = new Random(5);
+		BatchKMeans clusterer = new BatchKMeans();
+		
+		List<Cluster> clusters = new ArrayList<>();
+		for (int j = 0; j < 20; j++) {
+			Cluster c = clusterer.createCluster();
+			c.add(createPoint("c" + j, rnd.nextDouble() * 100, rnd.nextDouble() * 100));
+			c.updateCentroid();
+			c.reset();
+			clusters.add(c);
+		}
+		
+		DataSet ds = new DataSet();
+		for (int i = 0; i < 5000; i++) {
+			ds.add(createPoint("i" + i, rnd.nextDouble() * 100, rnd.nextDouble() * 100));
+		}
+		
+		// the members are accumulated by several workers and merged into each cluster
+		Iterable<Cluster> modified = clusterer.batch(ds, clusters);
+		clusterer.terminate();
+		
+		for (Cluster c : modified) {
+			Cluster sequential = clusterer.createCluster();
+			for (Instance inst : (Iterable<Instance>)c.getMembers()) {
+				sequential.add(inst);
+			}
+			sequential.updateCentroid();
+			
+			double[] expected = (double[])sequential.getFeature("point").getValue();
+			double[] actual = (double[])c.getFeature("point").getValue();
+			Assert.assertEquals(expected[0], actual[0], 1e-9);
+			Assert.assertEquals(expected[1], actual[1], 1e-9);
+			Assert.assertEquals(sequential.getFeature("point").getWeight(), c.getFeature("point").getWeight(), 1e-9);
+		}
+	}
+	
+	@Test
+	public void testBatchableDistanceMatchesPairwise() {
+		Random rnd = new Random(7);
+		BatchKMeans pairwise = new BatchKMeans();
+		BatchKMeans batched = new BatchKMeans() {
+			{
+				registerFeatureType("point", MeanNumericVectorCentroid::new, new BatchPointDistance());
+			}
+		};
+		
+		List<Cluster> clusters = new ArrayList<>();
+		for (int j = 0; j < 80; j++) {
+			Cluster c = pairwise.createCluster();
+			c.add(createPoint("c" + j, rnd.nextDouble() * 100, rnd.nextDouble() * 100));
+			c.updateCentroid();
+			clusters.add(c);
+		}
+		
+		for (int i = 0; i < 500; i++) {
+			Instance inst = createPoint("i" + i, rnd.nextDouble() * 100, rnd.nextDouble() * 100);
+			double bound = (i % 2 == 0) ? Double.MAX_VALUE : 10;
+			Cluster expected = pairwise.best(inst, clusters, bound);
+			Assert.assertSame(expected, batched.best(inst, clusters, bound));
+		}
+		pairwise.terminate();
+		batched.terminate();
+	}
+	
+	@Test
+	public void testFailedPartitionIsRethrown() {
+		BatchKMeans clusterer = new BatchKMeans();
+		final int[] assigned = new int[5000];
+		
+		// the output of the failed partition is incomplete so it must not be used
+		try {
+			clusterer.fillPartitions(assigned);
+			Assert.fail("Expected the failure of a partition to be rethrown");
+		} catch (RuntimeException e) {
+			// a single partition is run in the calling thread, several are rethrown as IllegalStateException
+			Assert.assertTrue(e instanceof ArithmeticException || (e instanceof IllegalStateException && e.getCause() instanceof ArithmeticException));
+		} finally {
+			clusterer.terminate();
+		}
+	}
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised;
+
+import com.oculusinfo.ml.DataSet;
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.numeric.centroid.MeanNumericVectorCentroid;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+import com.oculusinfo.ml.unsupervised.cluster.ClusterResult;
+import com.oculusinfo.ml.unsupervised.cluster.FeatureValueDefinition;
+import com.oculusinfo.ml.unsupervised.cluster.threshold.ThresholdClusterer;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class TestBoundedDistance {
+	
+	// point distance with a configurable cost that counts its invocations
+	private static class CountingDistance extends PointDistance {
+		private static final long serialVersionUID = 1L;
+		private final double cost;
+		final AtomicLong calls = new AtomicLong();
+		
+		CountingDistance(double cost) {
+			this.cost = cost;
+		}
+		
+		@Override
+		public double distance(Feature<String,double[]> x, Feature<String,double[]> y) {
+			calls.incrementAndGet();
+			return super.distance(x, y);
+		}
+		
+		@Override
+		public double getCost() {
+			return cost;
+		}
+	}
+	
+	private ThresholdClusterer createClusterer(CountingDistance location, CountingDistance shape) {
+		ThresholdClusterer clusterer = new ThresholdClusterer();
+		clusterer.registerFeatureType("shape", MeanNumericVectorCentroid::new, shape);
+		clusterer.registerFeatureType("location", MeanNumericVectorCentroid::new, location);
+		clusterer.setThreshold(10);
+		return clusterer;
+	}
+	
+	private DataSet createDataSet(long seed, int n) {
+		Random rnd = new Random(seed);
+		DataSet ds = new DataSet();
+		for (int i = 0; i < n; i++) {
+			Instance inst = new Instance("i" + i);
+			int c = rnd.nextInt(20);
+			inst.add(new Feature("location", new double[] { (c % 5) * 100 + rnd.nextDouble() * 3, (c / 5) * 100 + rnd.nextDouble() * 3 }));
+			inst.add(new Feature("shape", new double[] { rnd.nextDouble(), rnd.nextDouble() }));
+			ds.add(inst);
+		}
+		return ds;
+	}
+	
+	@Test
+	public void testCheapestFirst() {
+		ThresholdClusterer clusterer = createClusterer(new CountingDistance(1), new CountingDistance(100));
+		
+		List<FeatureValueDefinition> ordered = (List)clusterer.getOrderedTypeDefs();
+		Assert.assertEquals("location", ordered.get(0).featureName);
+		Assert.assertEquals("shape", ordered.get(1).featureName);
+		
+		// registering a feature type invalidates the order
+		clusterer.registerFeatureType("cheap", MeanNumericVectorCentroid::new, new CountingDistance(0.5));
+		ordered = (List)clusterer.getOrderedTypeDefs();
+		Assert.assertEquals(3, ordered.size());
+		Assert.assertEquals("cheap", ordered.get(0).featureName);
+	}
+	
+	@Test
+	public void testBudget() {
+		ThresholdClusterer clusterer = createClusterer(new CountingDistance(1), new CountingDistance(100));
+		
+		List<Instance> instances = new ArrayList<>();
+		for (Instance inst : (Iterable<Instance>)createDataSet(5, 200)) {
+			instances.add(inst);
+		}
+		Random rnd = new Random(11);
+		for (int i = 0; i < 1000; i++) {
+			Instance a = instances.get(rnd.nextInt(instances.size()));
+			Instance b = instances.get(rnd.nextInt(instances.size()));
+			double full = clusterer.distance(a, b);
+			double budget = rnd.nextDouble() * 150;
+			double d = clusterer.distance(a, b, budget);
+			if (full <= budget) {
+				Assert.assertEquals(full, d, 1e-9);
+			}
+			else {
+				Assert.assertTrue(d > budget);
+				Assert.assertTrue(d <= full + 1e-9);
+			}
+		}
+	}
+	
+	@Test
+	public void testSkipsExpensiveFeatures() {
+		CountingDistance cheapLocation = new CountingDistance(1);
+		CountingDistance costlyShape = new CountingDistance(100);
+		ThresholdClusterer bounded = createClusterer(cheapLocation, costlyShape);
+		
+		// the same distances evaluated in the opposite order rarely exceed the budget before the location
+		CountingDistance costlyLocation = new CountingDistance(100);
+		CountingDistance cheapShape = new CountingDistance(1);
+		ThresholdClusterer reversed = createClusterer(costlyLocation, cheapShape);
+		
+		DataSet ds = createDataSet(9, 2000);
+		ClusterResult r1 = bounded.doCluster(ds);
+		ClusterResult r2 = reversed.doCluster(ds);
+		bounded.terminate();
+		reversed.terminate();
+		
+		// the order of evaluation doesn't change the result, only the number of shape distances computed
+		Assert.assertEquals(membership(r2), membership(r1));
+		Assert.assertTrue(costlyShape.calls.get() * 10 < cheapLocation.calls.get());
+		Assert.assertTrue(costlyShape.calls.get() * 10 < cheapShape.calls.get());
+	}
+	
+	private Set<Set<Object>> membership(ClusterResult result) {
+		Set<Set<Object>> clusters = new HashSet<>();
+		for (Object o : result) {
+			Set<Object> members = new HashSet<>();
+			for (Instance inst : (Iterable<Instance>)((Cluster)o).getMembers()) {
+				members.add(inst.getId());
+			}
+			clusters.add(members);
+		}
+		return clusters;
+	}
+}
@@ -0,0 +1,256 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised;
+
+import com.oculusinfo.ml.DataSet;
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.numeric.centroid.MeanNumericVectorCentroid;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+import com.oculusinfo.ml.unsupervised.cluster.dpmeans.DPMeans;
+import com.oculusinfo.ml.unsupervised.cluster.kmeans.KMeans;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class TestIncrementalAssignment {
+	
+	// counts the features added to and removed from all centroids
+	private static final AtomicInteger updates = new AtomicInteger();
+	
+	private static class CountingCentroid extends MeanNumericVectorCentroid {
+		@Override
+		public void add(Feature feature) {
+			updates.incrementAndGet();
+			super.add(feature);
+		}
+		
+		@Override
+		public void remove(Feature feature) {
+			updates.incrementAndGet();
+			super.remove(feature);
+		}
+	}
+	
+	private static class IncrementalKMeans extends KMeans {
+		public IncrementalKMeans(int k) {
+			super(k, 100, true);
+			registerFeatureType("point", CountingCentroid::new, new PointDistance());
+		}
+		
+		@Override
+		protected Cluster createCluster() {
+			return new Cluster(UUID.randomUUID().toString(), getTypeDefs(), onlineUpdate);
+		}
+		
+		public int step(List<Instance> instances, int[] assigned, List<Cluster> clusters) {
+			return reassign((List)instances, assigned, (List)clusters);
+		}
+	}
+	
+	private static class EpochDPMeans extends DPMeans {
+		public EpochDPMeans() {
+			super(100, true);
+			registerFeatureType("point", MeanNumericVectorCentroid::new, new PointDistance());
+			setThreshold(10);
+		}
+		
+		@Override
+		protected Cluster createCluster() {
+			return super.createCluster();
+		}
+		
+		public int step(List<Instance> instances, int[] assigned, List<Cluster> clusters, int epochSize) {
+			return reassign((List)instances, assigned, (List)clusters, epochSize);
+		}
+	}
+	
+	private List<Instance> createPoints(int size, long seed) {
+		Random rnd = new Random(seed);
+		List<Instance> points = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			Instance inst = new Instance("i" + i);
+			inst.add(new Feature("point", new double[] { rnd.nextDouble() * 100, rnd.nextDouble() * 100 }));
+			points.add(inst);
+		}
+		return points;
+	}
+	
+	private void assertMeanOfMembers(Cluster cluster) {
+		double[] mean = (double[])cluster.getFeature("point").getValue();
+		double x = 0, y = 0;
+		for (Instance inst : (Iterable<Instance>)cluster.getMembers()) {
+			double[] p = (double[])inst.getFeature("point").getValue();
+			x += p[0];
+			y += p[1];
+		}
+		Assert.assertEquals(x / cluster.size(), mean[0], 1e-6);
+		Assert.assertEquals(y / cluster.size(), mean[1], 1e-6);
+	}
+	
+	@Test
+	public void testOnlyMovedInstancesUpdateCentroids() {
+		IncrementalKMeans clusterer = new IncrementalKMeans(10);
+		List<Instance> points = createPoints(3000, 1);
+		
+		List<Cluster> clusters = new ArrayList<>();
+		for (int j = 0; j < 10; j++) {
+			Cluster c = clusterer.createCluster();
+			c.add(points.get(j));
+			c.updateCentroid();
+			c.reset();
+			clusters.add(c);
+		}
+		
+		int[] assigned = new int[points.size()];
+		Arrays.fill(assigned, -1);
+		
+		// every instance joins a cluster in the first pass
+		updates.set(0);
+		Assert.assertEquals(points.size(), clusterer.step(points, assigned, clusters));
+		Assert.assertEquals(points.size(), updates.get());
+		
+		int iterations = 0;
+		while (true) {
+			int[] before = assigned.clone();
+			updates.set(0);
+			int moved = clusterer.step(points, assigned, clusters);
+			iterations++;
+			
+			int changed = 0;
+			for (int i = 0; i < points.size(); i++) {
+				if (before[i] != assigned[i]) changed++;
+			}
+			Assert.assertEquals(changed, moved);
+			// a moved instance is removed from one centroid and added to another, unless a cluster is rebuilt
+			Assert.assertTrue(updates.get() >= 2 * moved || moved == 0);
+			
+			if (moved == 0) {
+				Assert.assertEquals(0, updates.get());
+				break;
+			}
+			Assert.assertTrue(iterations < 100);
+		}
+		clusterer.terminate();
+		
+		int total = 0;
+		for (Cluster c : clusters) {
+			total += c.size();
+			if (!c.isEmpty()) assertMeanOfMembers(c);
+			
+			// at convergence every member is no farther from its own mean than from any other
+			for (Instance inst : (Iterable<Instance>)c.getMembers()) {
+				double d = clusterer.distance(inst, c);
+				for (Cluster other : clusters) {
+					Assert.assertTrue(d <= clusterer.distance(inst, other) + 1e-9);
+				}
+			}
+		}
+		Assert.assertEquals(points.size(), total);
+	}
+	
+	@Test
+	public void testKMeansConverges() {
+		IncrementalKMeans clusterer = new IncrementalKMeans(8);
+		DataSet ds = new DataSet();
+		for (Instance inst : createPoints(2000, 2)) {
+			ds.add(inst);
+		}
+		
+		Iterable<Cluster> clusters = clusterer.doCluster(ds);
+		clusterer.terminate();
+		
+		int total = 0;
+		for (Cluster c : clusters) {
+			total += c.size();
+			if (!c.isEmpty()) assertMeanOfMembers(c);
+		}
+		Assert.assertEquals(ds.size(), total);
+	}
+	
+	@Test
+	public void testEpochsCreateTheSameClusters() {
+		List<Instance> points = createPoints(3000, 4);
+		
+		int[] counts = new int[2];
+		int[] epochs = { Integer.MAX_VALUE, 16 };
+		for (int t = 0; t < epochs.length; t++) {
+			EpochDPMeans clusterer = new EpochDPMeans();
+			List<Cluster> clusters = new ArrayList<>();
+			Cluster c = clusterer.createCluster();
+			c.add(points.get(0));
+			c.updateCentroid();
+			c.reset();
+			clusters.add(c);
+			
+			int[] assigned = new int[points.size()];
+			Arrays.fill(assigned, -1);
+			
+			// a point creates a cluster only if no earlier cluster is within the threshold, in or out of its epoch
+			Assert.assertEquals(points.size(), clusterer.step(points, assigned, clusters, epochs[t]));
+			clusterer.terminate();
+			
+			int total = 0;
+			for (Cluster cluster : clusters) {
+				total += cluster.size();
+				if (!cluster.isEmpty()) assertMeanOfMembers(cluster);
+			}
+			Assert.assertEquals(points.size(), total);
+			counts[t] = clusters.size();
+		}
+		Assert.assertTrue(counts[0] > 1);
+		Assert.assertEquals(counts[0], counts[1]);
+	}
+	
+	@Test
+	public void testDPMeansFindsBlobs() {
+		Random rnd = new Random(3);
+		DataSet ds = new DataSet();
+		for (int i = 0; i < 1000; i++) {
+			int blob = i % 5;
+			Instance inst = new Instance("i" + i);
+			inst.add(new Feature("point", new double[] { blob * 100 + rnd.nextGaussian(), rnd.nextGaussian() }));
+			ds.add(inst);
+		}
+		
+		DPMeans clusterer = new DPMeans(20, true);
+		clusterer.registerFeatureType("point", MeanNumericVectorCentroid::new, new PointDistance());
+		clusterer.setThreshold(20);
+		
+		Iterable<Cluster> clusters = clusterer.doCluster(ds);
+		clusterer.terminate();
+		
+		int count = 0;
+		for (Cluster c : clusters) {
+			Assert.assertEquals(200, c.size());
+			assertMeanOfMembers(c);
+			count++;
+		}
+		Assert.assertEquals(5, count);
+	}
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised;
+
+import com.oculusinfo.ml.DataSet;
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.numeric.centroid.MeanNumericVectorCentroid;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+import com.oculusinfo.ml.unsupervised.cluster.kmeans.KMeans;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.UUID;
+
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class TestKMeansSeeding {
+
+	private KMeans createKMeans(int k) {
+		KMeans clusterer = new KMeans(k, 1, true) {
+			@Override
+			protected Cluster createCluster() {
+				return new Cluster(UUID.randomUUID().toString(), getTypeDefs(), onlineUpdate);
+			}
+		};
+		clusterer.registerFeatureType("point", MeanNumericVectorCentroid::new, new PointDistance());
+		return clusterer;
+	}
+	
+	// tight blobs on a grid so that any sensible seeding finds one mean per blob
+	private DataSet createDataSet(int size, int blobs, long seed) {
+		Random rnd = new Random(seed);
+		DataSet ds = new DataSet();
+		for (int i = 0; i < size; i++) {
+			int blob = i % blobs;
+			Instance inst = new Instance("i" + i);
+			inst.add(new Feature("point", new double[] { (blob % 10) * 100 + rnd.nextGaussian(), (blob / 10) * 100 + rnd.nextGaussian() }));
+			ds.add(inst);
+		}
+		return ds;
+	}
+	
+	@Test
+	public void testOneMeanPerBlob() {
+		DataSet ds = createDataSet(5000, 50, 1);
+		KMeans clusterer = createKMeans(50);
+		
+		Iterable<Cluster> clusters = clusterer.doCluster(ds);
+		clusterer.terminate();
+		
+		int count = 0;
+		int total = 0;
+		int exact = 0;
+		for (Cluster cluster : clusters) {
+			count++;
+			total += cluster.size();
+			// a mean that found a blob of 100 instances on its own
+			if (cluster.size() == 100) exact++;
+		}
+		Assert.assertEquals(50, count);
+		Assert.assertEquals(ds.size(), total);
+		// D^2 sampling occasionally seeds a blob twice, but almost every blob gets its own mean
+		Assert.assertTrue(exact >= 45);
+	}
+	
+	@Test
+	public void testFewerInstancesThanK() {
+		DataSet ds = createDataSet(5, 5, 2);
+		KMeans clusterer = createKMeans(10);
+		
+		Iterable<Cluster> clusters = clusterer.doCluster(ds);
+		clusterer.terminate();
+		
+		int count = 0;
+		for (Cluster cluster : clusters) {
+			Assert.assertEquals(1, cluster.size());
+			count++;
+		}
+		Assert.assertEquals(5, count);
+	}
+	
+	@Test
+	public void testSingleRound() {
+		DataSet ds = createDataSet(1000, 10, 3);
+		KMeans clusterer = createKMeans(10);
+		clusterer.setSeeding(1, 4);
+		
+		Iterable<Cluster> clusters = clusterer.doCluster(ds);
+		clusterer.terminate();
+		
+		int count = 0;
+		for (Cluster cluster : clusters) {
+			Assert.assertFalse(cluster.isEmpty());
+			count++;
+		}
+		Assert.assertTrue(count <= 10);
+	}
+}
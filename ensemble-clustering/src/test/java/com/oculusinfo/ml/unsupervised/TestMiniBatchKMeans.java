@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised;
+
+import com.oculusinfo.ml.DataSet;
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.numeric.centroid.MeanNumericVectorCentroid;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+import com.oculusinfo.ml.unsupervised.cluster.kmeans.KMeans;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.UUID;
+
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class TestMiniBatchKMeans {
+
+	private KMeans createKMeans(int k, int maxIterations, int batchSize) {
+		KMeans clusterer = new KMeans(k, maxIterations, true) {
+			@Override
+			protected Cluster createCluster() {
+				return new Cluster(UUID.randomUUID().toString(), getTypeDefs(), onlineUpdate);
+			}
+		};
+		clusterer.registerFeatureType("point", MeanNumericVectorCentroid::new, new PointDistance());
+		clusterer.setMiniBatch(batchSize, 0.01);
+		return clusterer;
+	}
+	
+	// four well separated blobs at the corners of a square, the blob of instance i is i % 4
+	private DataSet createDataSet(int size, long seed) {
+		Random rnd = new Random(seed);
+		DataSet ds = new DataSet();
+		for (int i = 0; i < size; i++) {
+			int blob = i % 4;
+			Instance inst = new Instance(i);
+			inst.add(new Feature("point", new double[] { (blob % 2) * 100 + rnd.nextGaussian(), (blob / 2) * 100 + rnd.nextGaussian() }));
+			ds.add(inst);
+		}
+		return ds;
+	}
+	
+	@Test
+	public void testFindsBlobs() {
+		DataSet ds = createDataSet(4000, 1);
+		KMeans clusterer = createKMeans(4, 1000, 100);
+		
+		Iterable<Cluster> clusters = clusterer.doCluster(ds);
+		clusterer.terminate();
+		
+		int count = 0;
+		for (Cluster cluster : clusters) {
+			count++;
+			Assert.assertEquals(1000, cluster.size());
+			
+			int blob = -1;
+			for (Instance inst : (Iterable<Instance>)cluster.getMembers()) {
+				int b = (Integer)inst.getId() % 4;
+				if (blob < 0) blob = b;
+				Assert.assertEquals(blob, b);
+			}
+			
+			// the mean ends up close to the centre of its blob
+			double[] mean = (double[])cluster.getFeature("point").getValue();
+			Assert.assertEquals((blob % 2) * 100, mean[0], 0.5);
+			Assert.assertEquals((blob / 2) * 100, mean[1], 0.5);
+		}
+		Assert.assertEquals(4, count);
+	}
+	
+	@Test
+	public void testBatchLargerThanDataSet() {
+		DataSet ds = createDataSet(40, 2);
+		KMeans clusterer = createKMeans(4, 20, 1000);
+		
+		Iterable<Cluster> clusters = clusterer.doCluster(ds);
+		clusterer.terminate();
+		
+		int total = 0;
+		for (Cluster cluster : clusters) {
+			total += cluster.size();
+		}
+		Assert.assertEquals(40, total);
+	}
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised;
+
+import com.oculusinfo.ml.DataSet;
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.numeric.centroid.MeanNumericVectorCentroid;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+import com.oculusinfo.ml.unsupervised.cluster.ClusterResult;
+import com.oculusinfo.ml.unsupervised.cluster.Clusterer;
+import com.oculusinfo.ml.unsupervised.cluster.shard.ShardClustererFactory;
+import com.oculusinfo.ml.unsupervised.cluster.shard.ShardedClusterer;
+import com.oculusinfo.ml.unsupervised.cluster.threshold.ThresholdClusterer;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Random;
+
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class TestShardedClusterer {
+	
+	// creates the clusterer in each worker process and for the final merge
+	private static class PointClustererFactory implements ShardClustererFactory {
+		private static final long serialVersionUID = 7270321683962817505L;
+		private final double threshold;
+		
+		public PointClustererFactory(double threshold) {
+			this.threshold = threshold;
+		}
+		
+		@Override
+		public Clusterer create() {
+			ThresholdClusterer clusterer = new ThresholdClusterer();
+			clusterer.registerFeatureType("point", MeanNumericVectorCentroid::new, new PointDistance());
+			clusterer.setThreshold(threshold);
+			return clusterer;
+		}
+	}
+	
+	@Test
+	public void testMergesShardClusters() {
+		Random rnd = new Random(3);
+		DataSet ds = new DataSet();
+		for (int i = 0; i < 1000; i++) {
+			int blob = i % 5;
+			Instance inst = new Instance("i" + i);
+			inst.add(new Feature("point", new double[] { blob * 100 + rnd.nextGaussian(), rnd.nextGaussian() }));
+			ds.add(inst);
+		}
+		
+		// each of the 3 shards holds part of every blob, so the shard clusters must be merged
+		ShardedClusterer clusterer = new ShardedClusterer(new PointClustererFactory(20), 3);
+		clusterer.setJvmOptions(Collections.singletonList("-Xmx128m"));
+		ClusterResult result = clusterer.doCluster(ds);
+		
+		int count = 0;
+		for (Object o : result) {
+			Cluster c = (Cluster)o;
+			Assert.assertEquals(200, c.size());
+			
+			int blob = -1;
+			double x = 0, y = 0;
+			for (Instance inst : (Iterable<Instance>)c.getMembers()) {
+				double[] p = (double[])inst.getFeature("point").getValue();
+				int b = (int)Math.round(p[0] / 100);
+				if (blob < 0) blob = b;
+				Assert.assertEquals(blob, b);
+				x += p[0];
+				y += p[1];
+			}
+			
+			// the merged centroid is the mean of all the members across the shards
+			double[] mean = (double[])c.getFeature("point").getValue();
+			Assert.assertEquals(x / c.size(), mean[0], 1e-6);
+			Assert.assertEquals(y / c.size(), mean[1], 1e-6);
+			count++;
+		}
+		Assert.assertEquals(5, count);
+	}
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised;
+
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.numeric.centroid.MeanNumericVectorCentroid;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+import com.oculusinfo.ml.unsupervised.cluster.ClusterResult;
+import com.oculusinfo.ml.unsupervised.cluster.ClusterStreamListener;
+import com.oculusinfo.ml.unsupervised.cluster.threshold.ThresholdClusterer;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class TestStreamingThresholdClusterer {
+	private static final double[][] CENTRES = { {0, 0}, {100, 0}, {0, 100}, {100, 100}, {50, 50} };
+	
+	// an endless source of points around the centres
+	private Iterator<Instance> createSource(final long seed) {
+		return new Iterator<Instance>() {
+			final Random rnd = new Random(seed);
+			long i = 0;
+			
+			@Override
+			public boolean hasNext() {
+				return true;
+			}
+
+			@Override
+			public Instance next() {
+				double[] centre = CENTRES[(int)(i % CENTRES.length)];
+				Instance inst = new Instance("i" + (i++));
+				inst.add(new Feature("point", new double[] { centre[0] + rnd.nextDouble() * 2, centre[1] + rnd.nextDouble() * 2 }));
+				return inst;
+			}
+		};
+	}
+	
+	private ThresholdClusterer createClusterer() {
+		ThresholdClusterer clusterer = new ThresholdClusterer();
+		clusterer.registerFeatureType("point", MeanNumericVectorCentroid::new, new PointDistance());
+		clusterer.setThreshold(10);
+		return clusterer;
+	}
+	
+	private Iterator<Instance> limit(final Iterator<Instance> source, final long n) {
+		return new Iterator<Instance>() {
+			long count = 0;
+			
+			@Override
+			public boolean hasNext() {
+				return count < n && source.hasNext();
+			}
+
+			@Override
+			public Instance next() {
+				count++;
+				return source.next();
+			}
+		};
+	}
+	
+	@Test
+	public void testCountOnlyStream() {
+		final List<Long> snapshots = new ArrayList<>();
+		final Map<Cluster, Integer> assigned = new HashMap<>();
+		
+		ThresholdClusterer clusterer = createClusterer();
+		clusterer.setRetainMembers(false);
+		clusterer.setStreamListener(new ClusterStreamListener() {
+			@Override
+			public void memberAssigned(Instance inst, Cluster cluster) {
+				Integer count = assigned.get(cluster);
+				assigned.put(cluster, (count == null) ? 1 : count + 1);
+			}
+
+			@Override
+			public void snapshot(ClusterResult clusters, long processed) {
+				Assert.assertTrue(clusters.size() <= CENTRES.length);
+				snapshots.add(processed);
+			}
+		}, 1000);
+		
+		ClusterResult result = clusterer.doStreamCluster(limit(createSource(1), 10000));
+		clusterer.terminate();
+		
+		Assert.assertEquals(CENTRES.length, result.size());
+		for (Object o : result) {
+			Cluster c = (Cluster)o;
+			Assert.assertTrue(c.getMembers().isEmpty());
+			Assert.assertEquals(10000 / CENTRES.length, c.size());
+			Assert.assertEquals(c.size(), c.getAbsorbedCount());
+			Assert.assertEquals(c.size(), (int)assigned.get(c));
+		}
+		
+		// ten periodic snapshots, the last of which is also the final one
+		Assert.assertEquals(10, snapshots.size());
+		Assert.assertEquals(1000L, (long)snapshots.get(0));
+		Assert.assertEquals(10000L, (long)snapshots.get(9));
+	}
+	
+	@Test
+	public void testSnapshotsAreCopies() {
+		final List<Long> processed = new ArrayList<>();
+		final List<ClusterResult> snapshots = new ArrayList<>();
+		
+		ThresholdClusterer clusterer = createClusterer();
+		clusterer.setStreamListener(new ClusterStreamListener() {
+			@Override
+			public void snapshot(ClusterResult clusters, long count) {
+				processed.add(count);
+				snapshots.add(clusters);
+			}
+		}, 3);
+		
+		ClusterResult result = clusterer.doStreamCluster(limit(createSource(3), 7));
+		clusterer.terminate();
+		
+		// two periodic snapshots and the final one for the remaining instance
+		Assert.assertEquals(3, processed.size());
+		Assert.assertEquals(3L, (long)processed.get(0));
+		Assert.assertEquals(6L, (long)processed.get(1));
+		Assert.assertEquals(7L, (long)processed.get(2));
+		
+		// the clusters created after a snapshot aren't added to it
+		Assert.assertEquals(3, snapshots.get(0).size());
+		Assert.assertEquals(CENTRES.length, snapshots.get(1).size());
+		Assert.assertEquals(CENTRES.length, result.size());
+	}
+	
+	@Test
+	public void testSpliteratorRetainsMembers() {
+		ThresholdClusterer clusterer = createClusterer();
+		
+		Iterator<Instance> source = createSource(2);
+		Stream<Instance> stream = Stream.generate(source::next).limit(500);
+		
+		ClusterResult result = clusterer.doStreamCluster(stream.spliterator());
+		clusterer.terminate();
+		
+		int total = 0;
+		for (Object o : result) {
+			Cluster c = (Cluster)o;
+			Assert.assertEquals(c.size(), c.getMembers().size());
+			total += c.size();
+		}
+		Assert.assertEquals(CENTRES.length, result.size());
+		Assert.assertEquals(500, total);
+	}
+}
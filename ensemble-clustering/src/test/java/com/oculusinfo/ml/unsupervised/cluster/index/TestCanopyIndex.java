@@ -0,0 +1,186 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised.cluster.index;
+
+import com.oculusinfo.ml.DataSet;
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.distance.DistanceFunction;
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.spatial.GeoSpatialFeature;
+import com.oculusinfo.ml.feature.spatial.centroid.FastGeoSpatialCentroid;
+import com.oculusinfo.ml.feature.spatial.distance.HaversineDistance;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+import com.oculusinfo.ml.unsupervised.cluster.threshold.ThresholdClusterer;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class TestCanopyIndex {
+	
+	// distance between positions on a line
+	private static class LineDistance extends DistanceFunction<Feature<String,double[]>> {
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		public double distance(Feature<String,double[]> x, Feature<String,double[]> y) {
+			return Math.abs(x.getValue()[0] - y.getValue()[0]);
+		}
+	}
+	
+	private Cluster atPosition(String id, double[] position) {
+		Cluster c = new Cluster(id, Collections.emptyList(), false);
+		c.add(new Feature("x", position));
+		return c;
+	}
+	
+	private Cluster atPosition(String id, double x) {
+		return atPosition(id, new double[] { x });
+	}
+	
+	private Instance query(double x) {
+		Instance inst = new Instance("q" + x);
+		inst.add(new Feature("x", new double[] { x }));
+		return inst;
+	}
+	
+	@Test
+	public void testLooseAndTightThresholds() {
+		CanopyIndex index = new CanopyIndex("x", new LineDistance(), 3, 1);
+		Cluster a = atPosition("a", 0);
+		Cluster b = atPosition("b", 0.5);
+		Cluster c = atPosition("c", 2);
+		Cluster d = atPosition("d", 10);
+		index.add(a);
+		
+		// within the tight threshold of a's canopy so b doesn't start its own
+		index.add(b);
+		Assert.assertEquals(1, index.getCanopyCount());
+		
+		// within the loose but not the tight threshold so c joins a's canopy and starts another
+		index.add(c);
+		Assert.assertEquals(2, index.getCanopyCount());
+		
+		index.add(d);
+		Assert.assertEquals(3, index.getCanopyCount());
+		
+		// only the canopy centered on c is within the loose threshold
+		Assert.assertEquals(Arrays.asList(c), index.candidates(query(4.5), 0.5));
+		
+		// the loose threshold is exclusive
+		Assert.assertTrue(index.candidates(query(7), 0.5).isEmpty());
+		Assert.assertEquals(Arrays.asList(d), index.candidates(query(7.5), 0.5));
+	}
+	
+	@Test
+	public void testClusterInSeveralCanopies() {
+		CanopyIndex index = new CanopyIndex("x", new LineDistance(), 3, 1);
+		Cluster a = atPosition("a", 0);
+		Cluster c = atPosition("c", 2);
+		Cluster e = atPosition("e", 4);
+		index.add(a);
+		index.add(c);
+		index.add(e);
+		
+		// c belongs to the canopies of a and itself, e to the canopies of c and itself
+		Assert.assertEquals(3, index.getCanopyCount());
+		
+		// c is only returned once although the query is within the loose threshold of both its canopies
+		Assert.assertEquals(Arrays.asList(a, c, e), index.candidates(query(1), 0.5));
+		
+		// the canopy of a outlives a while c is a member of it
+		index.remove(a);
+		Assert.assertEquals(3, index.getCanopyCount());
+		Assert.assertEquals(Arrays.asList(c), index.candidates(query(-2.5), 0.5));
+		
+		// and is dropped with its last member, while e stays in the canopy of c
+		index.remove(c);
+		Assert.assertEquals(2, index.getCanopyCount());
+		Assert.assertTrue(index.candidates(query(-2.5), 0.5).isEmpty());
+		Assert.assertEquals(Arrays.asList(e), index.candidates(query(1), 0.5));
+	}
+	
+	@Test
+	public void testCenterIsNotModifiedByCentroid() {
+		CanopyIndex index = new CanopyIndex("x", new LineDistance(), 3, 1);
+		double[] position = { 0 };
+		Cluster a = atPosition("a", position);
+		index.add(a);
+		
+		// the centroid value is changed in place, as MeanNumericVectorCentroid does, but the canopy keeps its center
+		position[0] = 10;
+		Assert.assertEquals(Arrays.asList(a), index.candidates(query(0.5), 0.5));
+		Assert.assertTrue(index.candidates(query(10.5), 0.5).isEmpty());
+		
+		// until the clusterer notifies the index of the change
+		index.update(a);
+		Assert.assertEquals(1, index.getCanopyCount());
+		Assert.assertTrue(index.candidates(query(0.5), 0.5).isEmpty());
+		Assert.assertEquals(Arrays.asList(a), index.candidates(query(10.5), 0.5));
+		
+		// clusters without the feature are always candidates
+		Cluster unplaced = new Cluster("u", Collections.emptyList(), false);
+		index.add(unplaced);
+		Assert.assertEquals(Arrays.asList(a, unplaced), index.candidates(query(10.5), 0.5));
+	}
+	
+	@Test
+	public void testThresholdClustererWithCanopies() {
+		Random rnd = new Random(2);
+		double[][] cities = { {43.7, -79.4}, {45.4, -75.7}, {51.5, -0.1}, {48.9, 2.4}, {35.7, 139.7}, {-33.9, 151.2}, {40.7, -74.0}, {19.4, -99.1} };
+		
+		DataSet ds = new DataSet();
+		for (int i = 0; i < 400; i++) {
+			double[] city = cities[i % cities.length];
+			GeoSpatialFeature geo = new GeoSpatialFeature("location");
+			geo.setValue(city[0] + rnd.nextGaussian() * 0.05, city[1] + rnd.nextGaussian() * 0.05);
+			Instance inst = new Instance("i" + i);
+			inst.add(geo);
+			ds.add(inst);
+		}
+		
+		List<Set<Instance>> expected = new ArrayList<>();
+		List<Set<Instance>> actual = new ArrayList<>();
+		for (int t = 0; t < 2; t++) {
+			ThresholdClusterer clusterer = new ThresholdClusterer();
+			HaversineDistance haversine = new HaversineDistance(1.0);
+			clusterer.registerFeatureType("location", FastGeoSpatialCentroid::new, haversine);
+			clusterer.setThreshold(0.005);
+			if (t == 1) {
+				// the canopies are much coarser than the clusters
+				clusterer.setCandidateIndex(new CanopyIndex("location", haversine, 0.05, 0.02));
+			}
+			
+			for (Object o : clusterer.doCluster(ds)) {
+				(t == 0 ? expected : actual).add(new HashSet<>(((Cluster)o).getMembers()));
+			}
+			clusterer.terminate();
+		}
+		
+		Assert.assertEquals(cities.length, expected.size());
+		Assert.assertEquals(new HashSet<>(expected), new HashSet<>(actual));
+	}
+}
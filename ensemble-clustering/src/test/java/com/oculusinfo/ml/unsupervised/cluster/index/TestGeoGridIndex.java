@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised.cluster.index;
+
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.feature.spatial.GeoSpatialFeature;
+import com.oculusinfo.ml.feature.spatial.distance.HaversineDistance;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class TestGeoGridIndex {
+	
+	private GeoSpatialFeature createLocation(double lat, double lon) {
+		GeoSpatialFeature geo = new GeoSpatialFeature("location");
+		geo.setValue(lat, lon);
+		return geo;
+	}
+	
+	private Cluster createCluster(int id, double lat, double lon) {
+		Cluster c = new Cluster("c" + id, Collections.emptyList(), false);
+		c.add(createLocation(lat, lon));
+		return c;
+	}
+	
+	@Test
+	public void testNoFalseNegatives() {
+		Random rnd = new Random(1);
+		HaversineDistance haversine = new HaversineDistance(0.5);
+		GeoGridIndex index = new GeoGridIndex("location", haversine, 2.0);
+		
+		List<Cluster> clusters = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			Cluster c = createCluster(i, rnd.nextDouble() * 180 - 90, rnd.nextDouble() * 360 - 180);
+			clusters.add(c);
+			index.add(c);
+		}
+		
+		double bound = 0.01;
+		for (int i = 0; i < 500; i++) {
+			Instance inst = new Instance("i" + i);
+			// bias some instances towards the poles and the date line
+			double lat = (i % 5 == 0) ? 85 + rnd.nextDouble() * 5 : rnd.nextDouble() * 180 - 90;
+			double lon = (i % 7 == 0) ? 179 + rnd.nextDouble() : rnd.nextDouble() * 360 - 180;
+			GeoSpatialFeature geo = createLocation(lat, lon);
+			inst.add(geo);
+			
+			Set<Cluster> candidates = new HashSet<>(index.candidates(inst, bound));
+			for (Cluster c : clusters) {
+				double d = haversine.distance(geo, (GeoSpatialFeature)c.getFeature("location")) * haversine.getWeight();
+				if (d <= bound) {
+					Assert.assertTrue(candidates.contains(c));
+				}
+			}
+			Assert.assertTrue(candidates.size() < clusters.size());
+		}
+	}
+	
+	@Test
+	public void testNarrowLastCell() {
+		// 360 isn't a multiple of 7 so the cell before the date line is only 3 degrees wide
+		HaversineDistance haversine = new HaversineDistance(1.0);
+		GeoGridIndex index = new GeoGridIndex("location", haversine, 7.0);
+		
+		Cluster near = createCluster(0, 0, -172.8);
+		index.add(near);
+		for (int i = 0; i < 50; i++) {
+			index.add(createCluster(i + 1, 60, i));
+		}
+		
+		// a window of 6.5 degrees around -179 wraps through the narrow cell into the second cell
+		Instance inst = new Instance("i");
+		GeoSpatialFeature geo = createLocation(0, -179);
+		inst.add(geo);
+		double bound = 6.5 / 180;
+		Assert.assertTrue(haversine.distance(geo, (GeoSpatialFeature)near.getFeature("location")) <= bound);
+		
+		List<Cluster> candidates = index.candidates(inst, bound);
+		Assert.assertTrue(candidates.contains(near));
+		Assert.assertTrue(candidates.size() < 51);
+	}
+	
+	@Test
+	public void testUpdateMovesCluster() {
+		GeoGridIndex index = new GeoGridIndex("location", new HaversineDistance(1.0), 1.0);
+		Cluster a = createCluster(0, 10, 10);
+		Cluster b = createCluster(1, -40, 100);
+		index.add(a);
+		index.add(b);
+		
+		// enough distant clusters that the index prefers a cell scan over returning everything
+		for (int i = 0; i < 50; i++) {
+			index.add(createCluster(i + 2, 60, i));
+		}
+		
+		Instance inst= new Instance("i");
+		inst.add(createLocation(-40.1, 100.1));
+		
+		List<Cluster> candidates = index.candidates(inst, 0.001);
+		Assert.assertEquals(1, candidates.size());
+		Assert.assertSame(b, candidates.get(0));
+		
+		// move a next to the instance
+		a.add(createLocation(-40.2, 100.2));
+		index.update(a);
+		candidates = index.candidates(inst, 0.001);
+		Assert.assertEquals(2, candidates.size());
+		Assert.assertSame(a, candidates.get(0));  // insertion order is preserved
+		
+		index.remove(b);
+		candidates = index.candidates(inst, 0.001);
+		Assert.assertEquals(1, candidates.size());
+	}
+	
+	@Test
+	public void testUnboundedReturnsAll() {
+		GeoGridIndex index = new GeoGridIndex("location", new HaversineDistance(1.0));
+		index.add(createCluster(0, 0, 0));
+		index.add(createCluster(1, 50, 50));
+		
+		Instance inst = new Instance("i");
+		inst.add(createLocation(-50, -50));
+		Assert.assertEquals(2, index.candidates(inst, Double.MAX_VALUE).size());
+		
+		// instances without a location can't be pruned
+		Assert.assertEquals(2, index.candidates(new Instance("j"), 0.001).size());
+	}
+}
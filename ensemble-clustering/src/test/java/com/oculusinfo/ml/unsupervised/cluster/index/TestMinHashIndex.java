@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2013 Oculus Info Inc.
+ * http://www.oculusinfo.com/
+ *
+ * Released under the MIT License.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oculusinfo.ml.unsupervised.cluster.index;
+
+import com.oculusinfo.ml.Instance;
+import com.oculusinfo.ml.feature.Feature;
+import com.oculusinfo.ml.feature.bagofwords.BagOfWordsFeature;
+import com.oculusinfo.ml.feature.string.StringFeature;
+import com.oculusinfo.ml.unsupervised.cluster.Cluster;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class TestMinHashIndex {
+	
+	private StringFeature name(String value) {
+		StringFeature f = new StringFeature("name");
+		f.setValue(value);
+		return f;
+	}
+	
+	private Instance withFeature(String id, Feature f) {
+		Instance inst = new Instance(id);
+		inst.add(f);
+		return inst;
+	}
+	
+	private Cluster clusterWithFeature(String id, Feature f) {
+		Cluster c = new Cluster(id, Collections.emptyList(), false);
+		c.add(f);
+		return c;
+	}
+	
+	/***
+	 * Return the fraction of pairs of bags with the given number of shared and distinct terms that 
+	 * collide in at least one band
+	 */
+	private double collisionRate(int shared, int distinct, int trials) {
+		int collisions = 0;
+		for (int t = 0; t < trials; t++) {
+			BagOfWordsFeature x = new BagOfWordsFeature("name");
+			BagOfWordsFeature y = new BagOfWordsFeature("name");
+			for (int i = 0; i < shared; i++) {
+				x.incrementValue("s" + shared + "_" + t + "_" + i);
+				y.incrementValue("s" + shared + "_" + t + "_" + i);
+			}
+			for (int i = 0; i < distinct; i++) {
+				x.incrementValue("x" + shared + "_" + t + "_" + i);
+				y.incrementValue("y" + shared + "_" + t + "_" + i);
+			}
+			
+			MinHashIndex index = new MinHashIndex("name");
+			index.add(clusterWithFeature("c", x));
+			if (!index.candidates(withFeature("i", y), 0.5).isEmpty()) collisions++;
+		}
+		return (double)collisions / trials;
+	}
+	
+	@Test
+	public void testCollisionRateFollowsSCurve() {
+		MinHashIndex index = new MinHashIndex("name");
+		Assert.assertEquals(0.5, index.getThreshold(), 1e-9);
+		
+		// pairs of 20 distinct terms with Jaccard similarity shared / 20
+		int trials = 300;
+		int[] shared = { 4, 10, 16 };
+		for (int k = 0; k < shared.length; k++) {
+			double s = shared[k] / 20.0;
+			double expected = 1 - Math.pow(1 - Math.pow(s, index.getRows()), index.getBands());
+			double actual = collisionRate(shared[k], (20 - shared[k]) / 2, trials);
+			Assert.assertEquals("similarity " + s, expected, actual, 0.1);
+		}
+		
+		// identical and disjoint sets
+		Assert.assertEquals(1.0, collisionRate(20, 0, 20), 0);
+		Assert.assertEquals(0.0, collisionRate(0, 10, 20), 0);
+	}
+	
+	@Test
+	public void testStringsShorterThanNgram() {
+		MinHashIndex index = new MinHashIndex("name", 16, 4, 3);
+		Cluster al = clusterWithFeature("al", name("al"));
+		Cluster ali = clusterWithFeature("ali", name("ali"));
+		index.add(al);
+		index.add(ali);
+		
+		// a string shorter than the n-gram is a single shingle, which ali has no n-gram equal to
+		Assert.assertEquals(Arrays.asList(al), index.candidates(withFeature("i", name("al")), 0.5));
+		Assert.assertEquals(Arrays.asList(ali), index.candidates(withFeature("j", name("ali")), 0.5));
+		
+		// empty strings can't be hashed so they aren't pruned
+		Cluster empty = clusterWithFeature("empty", name(""));
+		index.add(empty);
+		Assert.assertEquals(Arrays.asList(al, empty), index.candidates(withFeature("k", name("al")), 0.5));
+		Assert.assertEquals(3, index.candidates(withFeature("l", name("")), 0.5).size());
+		
+		// a cluster whose name becomes empty is no longer in any bucket
+		int buckets = index.getBucketCount();
+		ali.add(name(""));
+		index.update(ali);
+		Assert.assertEquals(buckets - index.getBands(), index.getBucketCount());
+		Assert.assertEquals(Arrays.asList(al, ali, empty), index.candidates(withFeature("m", name("al")), 0.5));
+	}
+}